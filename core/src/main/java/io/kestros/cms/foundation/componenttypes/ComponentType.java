@@ -18,10 +18,11 @@
 
 package io.kestros.cms.foundation.componenttypes;
 
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.findComponentType;
 import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getAllComponentTypes;
 import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getComponentTypeGroups;
 import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
-import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildAsBaseResource;
+import static io.kestros.commons.structuredslingmodels.utils.FileModelUtils.getChildAsFileType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildrenAsBaseResource;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsBaseResource;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
@@ -35,6 +36,10 @@ import io.kestros.cms.foundation.exceptions.InvalidCommonUiFrameworkException;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
 import io.kestros.cms.foundation.exceptions.InvalidComponentUiFrameworkViewException;
 import io.kestros.cms.foundation.exceptions.InvalidScriptException;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentType;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentTypeService;
 import io.kestros.cms.foundation.services.modeltracker.ModelTrackerService;
 import io.kestros.cms.foundation.services.scriptprovider.CachedScriptProviderService;
 import io.kestros.cms.foundation.utils.ComponentTypeUtils;
@@ -42,10 +47,7 @@ import io.kestros.cms.foundation.utils.DesignUtils;
 import io.kestros.commons.structuredslingmodels.BaseResource;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosModel;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosProperty;
-import io.kestros.commons.structuredslingmodels.exceptions.ChildResourceNotFoundException;
-import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
 import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
-import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -54,6 +56,7 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.models.annotations.Exporter;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.Optional;
@@ -98,6 +101,18 @@ public class ComponentType extends BaseResource {
   @Optional
   private ModelTrackerService modelTrackerService;
 
+  @OSGiService
+  @Optional
+  private EffectiveComponentTypeService effectiveComponentTypeService;
+
+  @OSGiService
+  @Optional
+  private ComponentTypeHierarchyService componentTypeHierarchyService;
+
+  @OSGiService
+  @Optional
+  private ComponentTypeDiscoveryService componentTypeDiscoveryService;
+
   private List<ComponentUiFrameworkView> componentUiFrameworkViews;
   private ComponentUiFrameworkView commonUiFrameworkView;
 
@@ -115,6 +130,10 @@ public class ComponentType extends BaseResource {
 
   @Override
   public ValueMap getProperties() {
+    final EffectiveComponentType effectiveComponentType = getEffectiveComponentType();
+    if (effectiveComponentType != null) {
+      return new ValueMapDecorator(effectiveComponentType.getProperties());
+    }
     if (!"kes:ComponentType".equals(getResource().getResourceType()) && getPath().startsWith(
         "/apps")) {
       try {
@@ -128,6 +147,22 @@ public class ComponentType extends BaseResource {
     return super.getProperties();
   }
 
+  /**
+   * Effective snapshot of the ComponentType, with its overlays merged and its superType chain
+   * flattened.
+   *
+   * @return Effective snapshot of the ComponentType, or null if no EffectiveComponentTypeService
+   *     is available, or the snapshot is being built.
+   */
+  @JsonIgnore
+  @Nullable
+  public EffectiveComponentType getEffectiveComponentType() {
+    if (effectiveComponentTypeService != null) {
+      return effectiveComponentTypeService.getEffectiveComponentType(this);
+    }
+    return null;
+  }
+
   /**
    * Group the current ComponentType belongs to. Set by the componentGroup property.
    *
@@ -151,17 +186,31 @@ public class ComponentType extends BaseResource {
    */
   @JsonIgnore
   public ComponentType getComponentSuperType() throws InvalidComponentTypeException {
-    try {
-      return getResourceAsType(getResourceSuperType(), getResourceResolver(), ComponentType.class);
-    } catch (final InvalidResourceTypeException exception) {
-      LOG.debug("Unable to retrieve superType of {}: {}", getPath(), exception.getMessage());
+    final ComponentType componentSuperType = findComponentSuperType();
+    if (componentSuperType != null) {
+      return componentSuperType;
+    }
+    LOG.debug("Unable to retrieve superType {} of {}.", getResourceSuperType(), getPath());
+    if (StringUtils.isNotEmpty(getResourceSuperType())
+        && getResourceResolver().getResource(getResourceSuperType()) != null) {
       throw new InvalidComponentTypeException(getResourceSuperType(),
           "Invalid superTyped resource. jcr:primaryType must be 'kes:ComponentType'.");
-    } catch (final ResourceNotFoundException exception) {
-      LOG.debug("Unable to retrieve superType of {}: {}", getPath(), exception.getMessage());
-      throw new InvalidComponentTypeException(getPath(), getResourceSuperType(),
-          "SuperTyped resource not found.");
     }
+    throw new InvalidComponentTypeException(getPath(), getResourceSuperType(),
+        "SuperTyped resource not found.");
+  }
+
+  /**
+   * The sling:resourceSuperType as a ComponentType. Does not throw, so it can be used on render
+   * paths where a missing superType is expected.
+   *
+   * @return The sling:resourceSuperType as a ComponentType, or null if it could not be found, or
+   *     is not a ComponentType.
+   */
+  @Nullable
+  public ComponentType findComponentSuperType() {
+    return findComponentType(StringUtils.defaultString(getResourceSuperType()),
+        getResourceResolver());
   }
 
   /**
@@ -175,40 +224,36 @@ public class ComponentType extends BaseResource {
   @Nonnull
   public ComponentUiFrameworkView getCommonUiFrameworkView()
       throws InvalidCommonUiFrameworkException {
+    final ComponentUiFrameworkView commonView = findCommonUiFrameworkView();
+    if (commonView != null) {
+      return commonView;
+    }
+    LOG.debug("Unable to retrieve common UI Framework View for {}.", getPath());
+    throw new InvalidCommonUiFrameworkException(getPath());
+  }
 
+  /**
+   * The common ComponentUiFrameworkView, falling back to the /libs ComponentType for /apps
+   * ComponentTypes. Does not throw, so it can be used on render paths where a missing view is
+   * expected.
+   *
+   * @return The common ComponentUiFrameworkView, or null if it could not be found.
+   */
+  @Nullable
+  public ComponentUiFrameworkView findCommonUiFrameworkView() {
     if (this.commonUiFrameworkView != null) {
       return this.commonUiFrameworkView;
     }
-
-    try {
-      final ComponentUiFrameworkView commonUiFrameworkView = getChildAsBaseResource(
-          COMMON_UI_FRAMEWORK_VIEW_NAME, this).getResource().adaptTo(
-          ComponentUiFrameworkView.class);
-      if (commonUiFrameworkView != null) {
-        this.commonUiFrameworkView = commonUiFrameworkView;
-        return commonUiFrameworkView;
-      }
-    } catch (final Exception exception) {
-      LOG.debug("Unable to retrieve 'common' ComponentUiFrameworkView of {}: {}", getPath(),
-          exception.getMessage());
-    }
-    String libsComponentTypePath = getPath().replaceFirst("/apps/", "/libs/");
-    ComponentType libsComponentType = null;
-    try {
-      libsComponentType = getResourceAsType(libsComponentTypePath, getResourceResolver(),
-          ComponentType.class);
-
-      ComponentUiFrameworkView commonView = getChildAsBaseResource(COMMON_UI_FRAMEWORK_VIEW_NAME,
-          libsComponentType).getResource().adaptTo(ComponentUiFrameworkView.class);
-      if (commonView != null) {
-        this.commonUiFrameworkView = commonView;
-        return commonView;
+    ComponentUiFrameworkView commonView = getCommonUiFrameworkViewChild(getResource());
+    if (commonView == null) {
+      final ComponentType libsComponentType = findComponentType(
+          getPath().replaceFirst("/apps/", "/libs/"), getResourceResolver());
+      if (libsComponentType != null) {
+        commonView = getCommonUiFrameworkViewChild(libsComponentType.getResource());
       }
-    } catch (ModelAdaptionException e) {
-      LOG.debug("Unable to retrieve common UI Framework View for {}. {}", getPath(),
-          e.getMessage());
     }
-    throw new InvalidCommonUiFrameworkException(getPath());
+    this.commonUiFrameworkView = commonView;
+    return commonView;
   }
 
   /**
@@ -247,6 +292,22 @@ public class ComponentType extends BaseResource {
     }
     this.componentUiFrameworkViews = new ArrayList<>();
 
+    final EffectiveComponentType effectiveComponentType = getEffectiveComponentType();
+    if (effectiveComponentType != null) {
+      for (final String viewPath : effectiveComponentType.getViewPaths()) {
+        final Resource viewResource = getResourceResolver().getResource(viewPath);
+        if (viewResource != null) {
+          if (COMMON_UI_FRAMEWORK_VIEW_NAME.equals(viewResource.getName())) {
+            this.componentUiFrameworkViews.add(viewResource.adaptTo(CommonUiFrameworkView.class));
+          } else {
+            this.componentUiFrameworkViews.add(
+                viewResource.adaptTo(ComponentUiFrameworkView.class));
+          }
+        }
+      }
+      return this.componentUiFrameworkViews;
+    }
+
     for (final BaseResource childResource : getChildrenAsBaseResource(this)) {
       if (childResource.getJcrPrimaryType().equals("nt:folder")
           || childResource.getJcrPrimaryType().equals("sling:Folder")) {
@@ -296,7 +357,8 @@ public class ComponentType extends BaseResource {
               ComponentType.class));
     }
     return getComponentTypeGroups(
-        getAllComponentTypes(true, false, isAllowLibsCommonsComponents(), getResourceResolver()),
+        getAllComponentTypes(true, false, isAllowLibsCommonsComponents(), getResourceResolver(),
+            componentTypeDiscoveryService),
         getAllowedComponentTypePaths(), getExcludedComponentTypePaths(),
         getAllowedComponentTypeGroupNames(), getExcludedComponentTypeGroups());
   }
@@ -325,26 +387,51 @@ public class ComponentType extends BaseResource {
   @Nonnull
   public ComponentUiFrameworkView getComponentUiFrameworkView(
       @Nonnull final UiFramework uiFramework) throws InvalidComponentUiFrameworkViewException {
+    final ComponentUiFrameworkView view = findComponentUiFrameworkView(uiFramework);
+    if (view != null) {
+      return view;
+    }
+    LOG.debug("Unable to retrieve ComponentUiFrameworkView for ComponentType {}", getPath());
+    throw new InvalidComponentUiFrameworkViewException(getPath(), uiFramework);
+  }
 
-    try {
-      return DesignUtils.getComponentUiFrameworkView(uiFramework.getFrameworkCode(), this);
+  /**
+   * The ComponentUiFrameworkView for the specified UiFramework, or the Common
+   * ComponentUiFrameworkView. Does not throw, so it can be used on render paths where a missing
+   * view is expected.
+   *
+   * @param uiFramework The UiFramework to lookup a view for.
+   * @return The ComponentUiFrameworkView for the specified UiFramework, the Common
+   *     ComponentUiFrameworkView, or null if neither was found.
+   */
+  @Nullable
+  public ComponentUiFrameworkView findComponentUiFrameworkView(
+      @Nonnull final UiFramework uiFramework) {
+    final EffectiveComponentType effectiveComponentType = getEffectiveComponentType();
+    if (effectiveComponentType != null) {
+      final String viewPath = effectiveComponentType.getViewPath(uiFramework.getPath());
+      final Resource viewResource = viewPath != null ? getResourceResolver().getResource(viewPath)
+                                                     : null;
+      if (viewResource != null) {
+        final ComponentUiFrameworkView view = viewResource.adaptTo(
+            ComponentUiFrameworkView.class);
+        if (view != null) {
+          return view;
+        }
+      }
+    }
 
-    } catch (final ChildResourceNotFoundException exception) {
+    ComponentUiFrameworkView view = DesignUtils.findComponentUiFrameworkView(
+        uiFramework.getFrameworkCode(), this);
+    if (view == null) {
+      view = DesignUtils.findComponentUiFrameworkView(uiFramework.getName(), this);
+    }
+    if (view == null) {
       LOG.debug("{} view was not found for {}. Returning common view.",
           uiFramework.getFrameworkCode(), getPath());
+      view = findCommonUiFrameworkView();
     }
-    try {
-      return DesignUtils.getComponentUiFrameworkView(uiFramework.getName(), this);
-    } catch (final ChildResourceNotFoundException exception) {
-      LOG.debug("{} view was not found for {}. Returning common view.", uiFramework.getName(),
-          getPath());
-    }
-    try {
-      return getCommonUiFrameworkView();
-    } catch (final InvalidCommonUiFrameworkException exception) {
-      LOG.debug("Unable to retrieve ComponentUiFrameworkView for ComponentType {}", getPath());
-    }
-    throw new InvalidComponentUiFrameworkViewException(getPath(), uiFramework);
+    return view;
   }
 
   /**
@@ -362,18 +449,36 @@ public class ComponentType extends BaseResource {
   public HtmlFile getScript(@Nonnull final String scriptName,
       @Nullable final UiFramework uiFramework)
       throws InvalidScriptException, InvalidCommonUiFrameworkException {
+    final EffectiveComponentType effectiveComponentType = getEffectiveComponentType();
+    if (effectiveComponentType != null) {
+      final String scriptPath = effectiveComponentType.getScriptPath(
+          uiFramework != null ? uiFramework.getPath() : null, scriptName);
+      if (scriptPath != null) {
+        try {
+          return getChildAsFileType(scriptName, getResourceAsBaseResource(
+              scriptPath.substring(0, scriptPath.lastIndexOf('/')), getResourceResolver()),
+              HtmlFile.class);
+        } catch (final ModelAdaptionException exception) {
+          LOG.debug("Unable to retrieve cached script {} for {}. {}", scriptPath, getPath(),
+              exception.getMessage());
+        }
+      }
+    }
     if (uiFramework != null) {
-      try {
-        return getComponentUiFrameworkView(uiFramework).getUiFrameworkViewScript(scriptName);
-      } catch (final ModelAdaptionException exception) {
-        LOG.trace("Script {} not found for {} while using UiFramework {}. Looking to superType",
-            scriptName, getPath(), uiFramework.getPath());
+      final ComponentUiFrameworkView view = findComponentUiFrameworkView(uiFramework);
+      if (view != null) {
+        try {
+          return view.getUiFrameworkViewScript(scriptName);
+        } catch (final ModelAdaptionException exception) {
+          LOG.trace("Script {} not found for {} while using UiFramework {}. Looking to superType",
+              scriptName, getPath(), uiFramework.getPath());
+        }
       }
-      try {
-        return getScriptFromSuperType(scriptName, uiFramework);
-      } catch (final InvalidComponentTypeException exception) {
-        LOG.debug(exception.getMessage());
+      final ComponentType componentSuperType = findComponentSuperType();
+      if (componentSuperType != null) {
+        return componentSuperType.getScript(scriptName, uiFramework);
       }
+      LOG.debug("No superType found for {}. Looking to common view.", getPath());
     }
     return getCommonUiFrameworkView().getUiFrameworkViewScript(scriptName);
   }
@@ -389,11 +494,16 @@ public class ComponentType extends BaseResource {
                    configurable = true,
                    sampleValue = "fa fa-cube")
   public String getFontAwesomeIcon() {
+    final EffectiveComponentType effectiveComponentType = getEffectiveComponentType();
+    if (effectiveComponentType != null) {
+      return effectiveComponentType.getFontAwesomeIcon();
+    }
     String fontAwesomeIcon = getProperty("fontAwesomeIcon", StringUtils.EMPTY);
     if (StringUtils.isBlank(fontAwesomeIcon)) {
-      try {
-        fontAwesomeIcon = getComponentSuperType().getFontAwesomeIcon();
-      } catch (final InvalidComponentTypeException exception) {
+      final ComponentType componentSuperType = findComponentSuperType();
+      if (componentSuperType != null) {
+        fontAwesomeIcon = componentSuperType.getFontAwesomeIcon();
+      } else {
         LOG.debug("Unable to find FontAwesomeIcon for {} due to InvalidComponentType on {}.",
             getPath(), getResourceType());
       }
@@ -491,6 +601,11 @@ public class ComponentType extends BaseResource {
     return this.modelTrackerService;
   }
 
+  @Nullable
+  protected ComponentTypeHierarchyService getComponentTypeHierarchyService() {
+    return this.componentTypeHierarchyService;
+  }
+
   private List<String> getExcludedUiFrameworkPaths() {
     return Arrays.asList(getProperties().get(PN_EXCLUDED_UI_FRAMEWORKS, new String[]{}));
   }
@@ -499,9 +614,13 @@ public class ComponentType extends BaseResource {
     return Arrays.asList(getProperty(PN_EXCLUDED_COMPONENT_TYPES, new String[]{}));
   }
 
-  private HtmlFile getScriptFromSuperType(final String scriptName, final UiFramework uiFramework)
-      throws InvalidComponentTypeException, InvalidScriptException,
-             InvalidCommonUiFrameworkException {
-    return this.getComponentSuperType().getScript(scriptName, uiFramework);
+  @Nullable
+  private static ComponentUiFrameworkView getCommonUiFrameworkViewChild(
+      final Resource componentTypeResource) {
+    final Resource viewResource = componentTypeResource.getChild(COMMON_UI_FRAMEWORK_VIEW_NAME);
+    if (viewResource != null) {
+      return viewResource.adaptTo(ComponentUiFrameworkView.class);
+    }
+    return null;
   }
 }
\ No newline at end of file
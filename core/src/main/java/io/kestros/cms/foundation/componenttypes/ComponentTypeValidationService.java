@@ -29,6 +29,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.exceptions.InvalidCommonUiFrameworkException;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosModel;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosProperty;
 import io.kestros.commons.structuredslingmodels.validation.CommonValidators;
@@ -39,7 +40,9 @@ import io.kestros.commons.structuredslingmodels.validation.ModelValidator;
 import io.kestros.commons.structuredslingmodels.validation.ModelValidatorBundle;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -107,18 +110,27 @@ public class ComponentTypeValidationService extends ModelValidationService {
     return new ModelValidator() {
       @Override
       public boolean isValid() {
-        ComponentType componentType = getModel();
-        while (componentType != null) {
-          if (componentType.getPath().equals("/libs/kestros/commons/components/kestros-parent")
-              || componentType.getPath().equals(
-              "/libs/kestros/commons/components/kestros-base-page")) {
+        final ComponentTypeHierarchyService hierarchyService
+            = getModel().getComponentTypeHierarchyService();
+        if (hierarchyService != null && hierarchyService.contains(getModel().getPath())) {
+          if (isKestrosParentComponentType(getModel().getPath())) {
             return true;
           }
-          try {
-            componentType = componentType.getComponentSuperType();
-          } catch (final InvalidComponentTypeException e) {
-            componentType = null;
+          for (final String ancestorPath : hierarchyService.getAncestorPaths(
+              getModel().getPath())) {
+            if (isKestrosParentComponentType(ancestorPath)) {
+              return true;
+            }
+          }
+          return false;
+        }
+        final Set<String> visitedPaths = new HashSet<>();
+        ComponentType componentType = getModel();
+        while (componentType != null && visitedPaths.add(componentType.getPath())) {
+          if (isKestrosParentComponentType(componentType.getPath())) {
+            return true;
           }
+          componentType = componentType.findComponentSuperType();
         }
         return false;
       }
@@ -256,6 +268,11 @@ public class ComponentTypeValidationService extends ModelValidationService {
     return new ModelValidator() {
       @Override
       public boolean isValid() {
+        final ComponentTypeHierarchyService hierarchyService
+            = getModel().getComponentTypeHierarchyService();
+        if (hierarchyService != null && hierarchyService.contains(getModel().getPath())) {
+          return !hierarchyService.isCyclic(getModel().getPath());
+        }
         try {
           return !getModel().getPath().equals(getModel().getComponentSuperType().getPath());
         } catch (final InvalidComponentTypeException e) {
@@ -484,4 +501,9 @@ public class ComponentTypeValidationService extends ModelValidationService {
     };
   }
 
+  private static boolean isKestrosParentComponentType(final String path) {
+    return "/libs/kestros/commons/components/kestros-parent".equals(path)
+           || "/libs/kestros/commons/components/kestros-base-page".equals(path);
+  }
+
 }
@@ -25,6 +25,7 @@ import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.get
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildrenOfType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getParentResourceAsType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourcesAsType;
 import static org.apache.jackrabbit.vault.util.JcrConstants.JCR_TITLE;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -33,6 +34,10 @@ import io.kestros.cms.foundation.componenttypes.HtmlFile;
 import io.kestros.cms.foundation.componenttypes.variation.ComponentVariation;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.exceptions.InvalidScriptException;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentType;
+import io.kestros.cms.foundation.services.htltemplateusage.HtlTemplateUsageIndexService;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
 import io.kestros.commons.structuredslingmodels.BaseResource;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosModel;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosProperty;
@@ -46,9 +51,12 @@ import io.kestros.commons.uilibraries.filetypes.ScriptType;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.Optional;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,6 +76,18 @@ public class ComponentUiFrameworkView extends UiLibrary {
 
   private static final Logger LOG = LoggerFactory.getLogger(ComponentUiFrameworkView.class);
 
+  @OSGiService
+  @Optional
+  private UiFrameworkRegistryService uiFrameworkRegistryService;
+
+  @OSGiService
+  @Optional
+  private ComponentTypeHierarchyService componentTypeHierarchyService;
+
+  @OSGiService
+  @Optional
+  private HtlTemplateUsageIndexService htlTemplateUsageIndexService;
+
   @Override
   public String getTitle() {
     try {
@@ -132,13 +152,24 @@ public class ComponentUiFrameworkView extends UiLibrary {
    */
   @Nonnull
   public List<ComponentVariation> getVariations() {
+    final List<String> effectiveVariationPaths = getEffectiveVariationPaths();
+    if (effectiveVariationPaths != null) {
+      return getResourcesAsType(effectiveVariationPaths, getResourceResolver(),
+          ComponentVariation.class);
+    }
     List<ComponentVariation> variationList = new ArrayList<>();
-    if (isInheritVariations()) {
+    if (isInheritVariations() && !isComponentTypeCyclic()) {
       try {
-        variationList.addAll(getComponentType().getComponentSuperType().getComponentUiFrameworkView(
-            getUiFramework()).getVariations());
-      } catch (ModelAdaptionException e) {
-        // todo log.
+        final ComponentType componentSuperType = getComponentType().findComponentSuperType();
+        if (componentSuperType != null) {
+          final ComponentUiFrameworkView superTypeView
+              = componentSuperType.findComponentUiFrameworkView(getUiFramework());
+          if (superTypeView != null) {
+            variationList.addAll(superTypeView.getVariations());
+          }
+        }
+      } catch (final ModelAdaptionException exception) {
+        LOG.debug("Unable to inherit Variations for {}. {}", getPath(), exception.getMessage());
       }
     }
     try {
@@ -179,6 +210,15 @@ public class ComponentUiFrameworkView extends UiLibrary {
    */
   @Nonnull
   public UiFramework getUiFramework() throws ResourceNotFoundException {
+    if (uiFrameworkRegistryService != null && uiFrameworkRegistryService.isBuilt()) {
+      final UiFramework uiFramework = uiFrameworkRegistryService.getUiFrameworkByFrameworkCode(
+          getName(), true, true, getResourceResolver());
+      if (uiFramework != null) {
+        return uiFramework;
+      }
+      throw new ResourceNotFoundException(getName(),
+          String.format("Unable to find UiFramework matching code '%s'.", getName()));
+    }
     return getUiFrameworkByFrameworkCode(getName(), true, true, getResourceResolver());
   }
 
@@ -214,9 +254,56 @@ public class ComponentUiFrameworkView extends UiLibrary {
     return StringUtils.EMPTY;
   }
 
+  /**
+   * Index of HTL Template calls, used to look up the templates this view calls without parsing
+   * its scripts.
+   *
+   * @return Index of HTL Template calls, or null if not available.
+   */
+  @Nullable
+  protected HtlTemplateUsageIndexService getHtlTemplateUsageIndexService() {
+    return this.htlTemplateUsageIndexService;
+  }
+
   private BaseResource getComponentVariationsRootResource()
       throws InvalidResourceTypeException, ChildResourceNotFoundException {
     return getChildAsType(NN_VARIATIONS, this, BaseResource.class);
   }
 
+  /**
+   * Variation paths from the effective snapshot of the parent ComponentType, when this view is
+   * the one the snapshot resolved for its UiFramework.
+   */
+  @Nullable
+  private List<String> getEffectiveVariationPaths() {
+    try {
+      final EffectiveComponentType effectiveComponentType
+          = getComponentType().getEffectiveComponentType();
+      if (effectiveComponentType != null) {
+        final String uiFrameworkPath = getUiFramework().getPath();
+        if (getPath().equals(effectiveComponentType.getViewPath(uiFrameworkPath))) {
+          return effectiveComponentType.getVariationPaths(uiFrameworkPath);
+        }
+      }
+    } catch (final ModelAdaptionException exception) {
+      LOG.trace("Unable to retrieve effective variations for {}. {}", getPath(),
+          exception.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Whether the ComponentType's superType chain leads back to itself, in which case inheriting
+   * variations would never terminate.
+   */
+  private boolean isComponentTypeCyclic() {
+    if (componentTypeHierarchyService != null) {
+      try {
+        return componentTypeHierarchyService.isCyclic(getComponentType().getPath());
+      } catch (final ModelAdaptionException exception) {
+        LOG.trace("Unable to check superTypes of {}. {}", getPath(), exception.getMessage());
+      }
+    }
+    return false;
+  }
 }
@@ -59,7 +59,8 @@ public class ComponentUiFrameworkViewValidationService extends UiLibraryValidati
   @Override
   public void registerBasicValidators() {
     try {
-      htlTemplateUsageList = getHtlTemplateUsageList(getModel());
+      htlTemplateUsageList = getHtlTemplateUsageList(getModel(),
+          getModel().getHtlTemplateUsageIndexService());
       addBasicValidator(isAllUsedTemplatesValid());
       addBasicValidator(isProperParametersUsedForEachTemplateUsage());
     } catch (Exception e) {
@@ -18,6 +18,7 @@
 
 package io.kestros.cms.foundation.content;
 
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.findComponentTypeForResourceType;
 import static io.kestros.cms.foundation.utils.JcrPropertyUtils.getRelativeDate;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.adaptTo;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildrenAsBaseResource;
@@ -37,6 +38,8 @@ import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
 import io.kestros.cms.foundation.content.sites.BaseSite;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
+import io.kestros.cms.foundation.utils.ComponentTypeUtils;
 import io.kestros.cms.foundation.utils.RelativeDate;
 import io.kestros.cms.user.KestrosUser;
 import io.kestros.cms.user.exceptions.UserRetrievalException;
@@ -48,7 +51,6 @@ import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeEx
 import io.kestros.commons.structuredslingmodels.exceptions.MatchingResourceTypeNotFoundException;
 import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
 import io.kestros.commons.structuredslingmodels.exceptions.NoValidAncestorException;
-import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -95,6 +97,10 @@ public class BaseComponent extends BaseResource {
   @Optional
   private KestrosUserService userService;
 
+  @OSGiService
+  @Optional
+  private ComponentTypeResolutionService componentTypeResolutionService;
+
   private BaseContentPage containingPage = null;
   private ComponentType componentType = null;
 
@@ -122,39 +128,48 @@ public class BaseComponent extends BaseResource {
   @Nonnull
   @JsonIgnore
   public ComponentType getComponentType() throws InvalidComponentTypeException {
-    LOG.trace("Retrieving ComponentType for {}", getPath());
+    final ComponentType componentType = findComponentType();
+    if (componentType != null) {
+      return componentType;
+    }
+    LOG.debug("Unable to retrieve ComponentType for {}.", getPath());
+    throw new InvalidComponentTypeException(getPath(), getResourceType());
+  }
 
+  /**
+   * ComponentType of the current Component implementation, resolved from the resourceType, or
+   * from /apps or /libs. Does not throw, so it can be used on render paths where a missing
+   * ComponentType is expected.
+   *
+   * @return ComponentType of the current Component implementation, or null if the resourceType
+   *     does not resolve to a valid ComponentType.
+   */
+  @Nullable
+  @JsonIgnore
+  public ComponentType findComponentType() {
     if (this.componentType != null) {
-      LOG.trace("Finished retrieving ComponentType for {}", getPath());
       return this.componentType;
     }
+    LOG.trace("Retrieving ComponentType for {}", getPath());
 
     final String resourceType = getResourceType();
-    try {
-      this.componentType = getResourceAsType(resourceType, getResourceResolver(),
-          ComponentType.class);
-      LOG.trace("Finished retrieving ComponentType for {}", getPath());
-      return this.componentType;
-    } catch (final ResourceNotFoundException | InvalidResourceTypeException e) {
-      try {
-        LOG.trace("Finished retrieving ComponentType for {}", getPath());
-        this.componentType = getResourceAsType("/apps/" + resourceType, getResourceResolver(),
-            ComponentType.class);
-        return this.componentType;
-      } catch (final ModelAdaptionException exception1) {
-        try {
-          LOG.trace("Finished retrieving ComponentType for {}", getPath());
-          this.componentType = getResourceAsType("/libs/" + resourceType, getResourceResolver(),
-              ComponentType.class);
-          return this.componentType;
-        } catch (final ModelAdaptionException exception2) {
-          LOG.warn("Unable to retrieve ComponentType for {}: {}", getPath(),
-              exception2.getMessage());
-        }
+    if (componentTypeResolutionService != null) {
+      this.componentType = findComponentTypeForResourceType(resourceType,
+          componentTypeResolutionService, getResourceResolver());
+    } else {
+      this.componentType = ComponentTypeUtils.findComponentType(resourceType,
+          getResourceResolver());
+      if (this.componentType == null) {
+        this.componentType = ComponentTypeUtils.findComponentType("/apps/" + resourceType,
+            getResourceResolver());
+      }
+      if (this.componentType == null) {
+        this.componentType = ComponentTypeUtils.findComponentType("/libs/" + resourceType,
+            getResourceResolver());
       }
     }
-    LOG.trace("Finished ComponentType for {}, but threw InvalidComponentTypeException", getPath());
-    throw new InvalidComponentTypeException(getPath(), getResourceType());
+    LOG.trace("Finished retrieving ComponentType for {}", getPath());
+    return this.componentType;
   }
 
   /**
@@ -18,14 +18,13 @@
 
 package io.kestros.cms.foundation.content;
 
+import static io.kestros.cms.foundation.content.PageRenderContext.getPageRenderContext;
 import static io.kestros.cms.foundation.design.DesignConstants.NN_VARIATIONS;
-import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
 
 import io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView;
 import io.kestros.cms.foundation.componenttypes.variation.ComponentVariation;
 import io.kestros.cms.foundation.content.components.parentcomponent.ParentComponent;
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
-import io.kestros.cms.foundation.content.sites.BaseSite;
 import io.kestros.cms.foundation.design.theme.Theme;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
@@ -51,7 +50,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Component request context.
+ * Component request context. The requested page, its Theme and UiFramework are shared with all
+ * other components of the request through the {@link PageRenderContext}.
  */
 @Model(adaptables = SlingHttpServletRequest.class)
 public class ComponentRequestContext extends BaseRequestContext {
@@ -77,22 +77,11 @@ public class ComponentRequestContext extends BaseRequestContext {
    */
   @KestrosProperty(description = "The requested page.")
   public BaseContentPage getCurrentPage() {
-    String pagePath = getRequest().getRequestURI().split(".html")[0];
-    pagePath = pagePath.split("/jcr:content")[0];
-    try {
-      return getResourceAsType(pagePath, getResourceResolver(), BaseContentPage.class);
-    } catch (InvalidResourceTypeException e) {
-      try {
-        return getResourceAsType(pagePath, getResourceResolver(), BaseSite.class);
-      } catch (InvalidResourceTypeException invalidResourceTypeException) {
-        LOG.warn("Unable to adapt current page resource to BaseContentPage or BaseSite for "
-                 + "ComponentRequestContext.");
-      } catch (ResourceNotFoundException resourceNotFoundException) {
-        LOG.warn("Unable to find current page resource for ComponentRequestContext.");
-      }
-    } catch (ResourceNotFoundException e) {
-      LOG.warn("Unable to find current page resource for ComponentRequestContext.");
+    final BaseContentPage requestedPage = getPageRenderContext(getRequest()).getPage();
+    if (requestedPage != null) {
+      return requestedPage;
     }
+    LOG.debug("Unable to find current page resource for ComponentRequestContext from request URI.");
 
     try {
       BaseComponent component = SlingModelUtils.adaptTo(getRequest().getResource(),
@@ -224,6 +213,9 @@ public class ComponentRequestContext extends BaseRequestContext {
   @KestrosProperty(description = "The current page's theme.")
   public Theme getTheme() throws ResourceNotFoundException, InvalidThemeException {
     LOG.trace("Retrieving theme for {}.", getBaseResource().getPath());
+    if (theme == null) {
+      theme = getPageRenderContext(getRequest()).getTheme();
+    }
     if (theme == null && getCurrentPage() != null) {
       theme = getCurrentPage().getTheme();
     }
@@ -238,6 +230,10 @@ public class ComponentRequestContext extends BaseRequestContext {
   private UiFramework getUiFramework()
       throws InvalidThemeException, ResourceNotFoundException, InvalidUiFrameworkException {
     LOG.trace("Retrieving UiFramework for {}", getComponent().getPath());
+    final PageRenderContext pageRenderContext = getPageRenderContext(getRequest());
+    if (uiFramework == null && getTheme() != null && getTheme() == pageRenderContext.getTheme()) {
+      uiFramework = pageRenderContext.getUiFramework();
+    }
     if (uiFramework == null) {
       uiFramework = getTheme().getUiFramework();
     }
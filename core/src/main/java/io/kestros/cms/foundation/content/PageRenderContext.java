@@ -0,0 +1,233 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.content;
+
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.content.sites.BaseSite;
+import io.kestros.cms.foundation.design.theme.Theme;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import io.kestros.cms.foundation.utils.DesignUtils;
+import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
+import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
+import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Page, Theme and UiFramework of the current request, resolved at most once per request and shared
+ * by every component included while the page renders. Stored as a request attribute, which is
+ * shared by all includes of a request.
+ */
+public class PageRenderContext {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PageRenderContext.class);
+
+  public static final String REQUEST_ATTRIBUTE = PageRenderContext.class.getName();
+  public static final String UI_FRAMEWORK_PARAMETER = "ui-framework";
+
+  private final String requestUri;
+  private final ResourceResolver resourceResolver;
+  private final String uiFrameworkCode;
+
+  private boolean pageResolved = false;
+  private BaseContentPage page;
+  private boolean themeResolved = false;
+  private Theme theme;
+  private boolean uiFrameworkResolved = false;
+  private UiFramework uiFramework;
+  private boolean parameterUiFrameworkResolved = false;
+  private UiFramework parameterUiFramework;
+  private Theme editTheme;
+
+  private PageRenderContext(@Nonnull final SlingHttpServletRequest request) {
+    this.requestUri = request.getRequestURI();
+    this.resourceResolver = request.getResourceResolver();
+    this.uiFrameworkCode = request.getParameter(UI_FRAMEWORK_PARAMETER);
+  }
+
+  /**
+   * PageRenderContext of a request. Created and stored on the request when first requested.
+   *
+   * @param request Current request.
+   * @return PageRenderContext of a request.
+   */
+  @Nonnull
+  public static PageRenderContext getPageRenderContext(
+      @Nonnull final SlingHttpServletRequest request) {
+    final Object attribute = request.getAttribute(REQUEST_ATTRIBUTE);
+    if (attribute instanceof PageRenderContext && ((PageRenderContext) attribute).isContextOf(
+        request)) {
+      return (PageRenderContext) attribute;
+    }
+    final PageRenderContext pageRenderContext = new PageRenderContext(request);
+    request.setAttribute(REQUEST_ATTRIBUTE, pageRenderContext);
+    return pageRenderContext;
+  }
+
+  /**
+   * Page (or Site) matching the request URI.
+   *
+   * @return Page (or Site) matching the request URI, or null if the URI does not match one.
+   */
+  @Nullable
+  public BaseContentPage getPage() {
+    if (!pageResolved && StringUtils.isNotEmpty(requestUri)) {
+      pageResolved = true;
+      final String pagePath = getPagePath();
+      try {
+        page = getResourceAsType(pagePath, resourceResolver, BaseContentPage.class);
+      } catch (final InvalidResourceTypeException exception) {
+        try {
+          page = getResourceAsType(pagePath, resourceResolver, BaseSite.class);
+        } catch (final ModelAdaptionException modelAdaptionException) {
+          LOG.debug("Unable to adapt {} to BaseContentPage or BaseSite. {}", pagePath,
+              modelAdaptionException.getMessage());
+        }
+      } catch (final ResourceNotFoundException exception) {
+        LOG.debug("Unable to find page {}. {}", pagePath, exception.getMessage());
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Theme of the page matching the request URI.
+   *
+   * @return Theme of the page matching the request URI, or null if there is no such page, or its
+   *     Theme could not be resolved.
+   */
+  @Nullable
+  public Theme getTheme() {
+    if (!themeResolved) {
+      themeResolved = true;
+      if (getPage() != null) {
+        try {
+          theme = getPage().getTheme();
+        } catch (final ModelAdaptionException exception) {
+          LOG.debug("Unable to retrieve Theme for {}. {}", getPage().getPath(),
+              exception.getMessage());
+        }
+      }
+    }
+    return theme;
+  }
+
+  /**
+   * UiFramework of the page matching the request URI.
+   *
+   * @return UiFramework of the page matching the request URI, or null if there is no such page,
+   *     or its UiFramework could not be resolved.
+   */
+  @Nullable
+  public UiFramework getUiFramework() {
+    if (!uiFrameworkResolved) {
+      uiFrameworkResolved = true;
+      if (getTheme() != null) {
+        try {
+          uiFramework = getTheme().getUiFramework();
+        } catch (final ModelAdaptionException exception) {
+          LOG.debug("Unable to retrieve UiFramework for Theme {}. {}", getTheme().getPath(),
+              exception.getMessage());
+        }
+      }
+    }
+    return uiFramework;
+  }
+
+  /**
+   * UiFramework matching the ui-framework request parameter.
+   *
+   * @return UiFramework matching the ui-framework request parameter, or null if the parameter was
+   *     not sent, or no UiFramework matches it.
+   */
+  @Nullable
+  public UiFramework getParameterUiFramework() {
+    return getParameterUiFramework(null);
+  }
+
+  /**
+   * UiFramework matching the ui-framework request parameter, looked up in a UiFramework registry
+   * when one has been built.
+   *
+   * @param uiFrameworkRegistryService UiFramework registry, or null to look through all
+   *     UiFrameworks.
+   * @return UiFramework matching the ui-framework request parameter, or null if the parameter was
+   *     not sent, or no UiFramework matches it.
+   */
+  @Nullable
+  public UiFramework getParameterUiFramework(
+      @Nullable final UiFrameworkRegistryService uiFrameworkRegistryService) {
+    if (!parameterUiFrameworkResolved) {
+      parameterUiFrameworkResolved = true;
+      if (StringUtils.isEmpty(uiFrameworkCode)) {
+        return null;
+      }
+      if (uiFrameworkRegistryService != null && uiFrameworkRegistryService.isBuilt()) {
+        parameterUiFramework = uiFrameworkRegistryService.getUiFrameworkByFrameworkCode(
+            uiFrameworkCode, true, true, resourceResolver);
+      } else {
+        for (final UiFramework framework : DesignUtils.getAllUiFrameworks(resourceResolver, true,
+            true)) {
+          if (uiFrameworkCode.equals(framework.getFrameworkCode())) {
+            parameterUiFramework = framework;
+            break;
+          }
+        }
+      }
+    }
+    return parameterUiFramework;
+  }
+
+  /**
+   * Edit mode Theme of the request, if one has been resolved.
+   *
+   * @return Edit mode Theme of the request.
+   */
+  @Nullable
+  public Theme getEditTheme() {
+    return editTheme;
+  }
+
+  /**
+   * Sets the edit mode Theme of the request.
+   *
+   * @param editTheme Edit mode Theme of the request.
+   */
+  public void setEditTheme(@Nullable final Theme editTheme) {
+    this.editTheme = editTheme;
+  }
+
+  private String getPagePath() {
+    return requestUri.split(".html")[0].split("/jcr:content")[0];
+  }
+
+  private boolean isContextOf(final SlingHttpServletRequest request) {
+    return StringUtils.equals(requestUri, request.getRequestURI())
+           && resourceResolver == request.getResourceResolver();
+  }
+
+}
@@ -27,7 +27,6 @@ import io.kestros.commons.structuredslingmodels.annotation.KestrosModel;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosProperty;
 import io.kestros.commons.structuredslingmodels.exceptions.ChildResourceNotFoundException;
 import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
-import io.kestros.commons.structuredslingmodels.exceptions.NoParentResourceException;
 import io.kestros.commons.structuredslingmodels.exceptions.NoValidAncestorException;
 import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import javax.annotation.Nullable;
@@ -170,25 +169,25 @@ public class InheritedContentArea extends ContentArea {
     InheritedContentArea inheritedFromContentArea = null;
     BaseContentPage page;
     try {
-      page = getContainingPage().getParent();
-    } catch (final NoParentResourceException | NoValidAncestorException e) {
+      page = getContainingPage().findParent();
+    } catch (final NoValidAncestorException e) {
       page = null;
     }
     while (page != null && inheritedFromContentArea == null) {
+      final String inheritedFromPath = page.getPath() + "/jcr:content/" + getRelativePath();
+      if (getResourceResolver().getResource(inheritedFromPath) == null) {
+        page = page.findParent();
+        continue;
+      }
       try {
-        inheritedFromContentArea = getResourceAsType(
-            page.getPath() + "/jcr:content/" + getRelativePath(), getResourceResolver(),
+        inheritedFromContentArea = getResourceAsType(inheritedFromPath, getResourceResolver(),
             InheritedContentArea.class);
       } catch (final InvalidResourceTypeException e) {
         LOG.error("Breaking inheritance for InheritedContentArea {} due to issue with inherited "
                   + "resource. {}", getPath(), e.getMessage());
         return null;
       } catch (final ResourceNotFoundException e) {
-        try {
-          page = page.getParent();
-        } catch (final NoParentResourceException ex) {
-          page = null;
-        }
+        page = page.findParent();
       }
     }
     return inheritedFromContentArea;
@@ -18,9 +18,11 @@
 
 package io.kestros.cms.foundation.content.components.parentcomponent;
 
+import static io.kestros.cms.foundation.content.PageRenderContext.getPageRenderContext;
 import static java.lang.Boolean.parseBoolean;
 
 import io.kestros.cms.foundation.content.ComponentRequestContext;
+import io.kestros.cms.foundation.content.PageRenderContext;
 import io.kestros.cms.foundation.design.theme.Theme;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
 import io.kestros.cms.foundation.exceptions.InvalidScriptException;
@@ -102,7 +104,8 @@ public class ParentComponentEditContext extends ComponentRequestContext {
   }
 
   /**
-   * Current edit mode {@link Theme}.
+   * Current edit mode {@link Theme}. Resolved once per request, and shared through the {@link
+   * PageRenderContext}.
    *
    * @return Current edit mode Theme.
    * @throws InvalidThemeException Expected edit mode Theme was not found, or was not a valid
@@ -111,8 +114,11 @@ public class ParentComponentEditContext extends ComponentRequestContext {
   @Nullable
   public Theme getEditTheme() throws InvalidThemeException {
     if (editModeService != null && editModeService.isEditModeActive()) {
-      return editModeService.getEditModeTheme(getRequest());
-
+      final PageRenderContext pageRenderContext = getPageRenderContext(getRequest());
+      if (pageRenderContext.getEditTheme() == null) {
+        pageRenderContext.setEditTheme(editModeService.getEditModeTheme(getRequest()));
+      }
+      return pageRenderContext.getEditTheme();
     }
     return null;
   }
@@ -18,6 +18,7 @@
 
 package io.kestros.cms.foundation.content.pages;
 
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getComponentTypeForResourceType;
 import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
 import static io.kestros.cms.foundation.utils.JcrPropertyUtils.getRelativeDate;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.adaptTo;
@@ -25,7 +26,6 @@ import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.get
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildAsBaseResource;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildrenOfType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getFirstAncestorOfType;
-import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getParentResourceAsType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourcesAsType;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
@@ -44,6 +44,7 @@ import io.kestros.cms.foundation.design.theme.Theme;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
 import io.kestros.cms.foundation.exceptions.InvalidThemeException;
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
 import io.kestros.cms.foundation.services.themeprovider.ThemeProviderService;
 import io.kestros.cms.foundation.utils.RelativeDate;
 import io.kestros.cms.user.KestrosUser;
@@ -93,6 +94,9 @@ public class BaseContentPage extends BasePage {
 
   private static final Logger LOG = LoggerFactory.getLogger(BaseContentPage.class);
 
+  private static final String PAGE_RESOURCE_TYPE = "kes:Page";
+  private static final String SITE_RESOURCE_TYPE = "kes:Site";
+
   @SuppressWarnings("unused")
   @OSGiService
   @Optional
@@ -106,6 +110,10 @@ public class BaseContentPage extends BasePage {
   @Optional
   private ThemeProviderService themeProviderService;
 
+  @OSGiService
+  @Optional
+  private ComponentTypeResolutionService componentTypeResolutionService;
+
   /**
    * Display title of the current site.  Display title is generally used for frontend, whereas title
    * is used showing in the platform. Defaults to title.
@@ -190,16 +198,33 @@ public class BaseContentPage extends BasePage {
   @Override
   @KestrosProperty(description = "Parent page.")
   public BaseContentPage getParent() throws NoParentResourceException {
-    try {
-      return getParentResourceAsType(this, BaseContentPage.class);
-    } catch (final InvalidResourceTypeException e) {
-      try {
-        return getParentResourceAsType(this, BaseSite.class);
-      } catch (final InvalidResourceTypeException ex) {
-        throw new NoParentResourceException(
-            String.format("Unable to retrieve parent page of %s. %s", getPath(), ex.getMessage()));
+    final BaseContentPage parent = findParent();
+    if (parent != null) {
+      return parent;
+    }
+    throw new NoParentResourceException(
+        String.format("Unable to retrieve parent page of %s.", getPath()));
+  }
+
+  /**
+   * Retrieves parent page, or parent site. Does not throw, so it can be used on render paths
+   * which walk up the page tree until no parent page is left.
+   *
+   * @return Parent page, or null if the parent resource is not a page or site.
+   */
+  @Nullable
+  @JsonIgnore
+  public BaseContentPage findParent() {
+    final Resource parentResource = getResource().getParent();
+    if (parentResource != null) {
+      if (parentResource.isResourceType(PAGE_RESOURCE_TYPE)) {
+        return parentResource.adaptTo(BaseContentPage.class);
+      }
+      if (parentResource.isResourceType(SITE_RESOURCE_TYPE)) {
+        return parentResource.adaptTo(BaseSite.class);
       }
     }
+    return null;
   }
 
   /**
@@ -289,6 +314,10 @@ public class BaseContentPage extends BasePage {
   @JsonIgnore
   @KestrosProperty(description = "The ComponentType the page will use to render.")
   public ComponentType getComponentType() throws InvalidComponentTypeException {
+    if (componentTypeResolutionService != null) {
+      return getComponentTypeForResourceType(getResourceType(), getPath(),
+          componentTypeResolutionService, getResourceResolver());
+    }
     try {
       return getResourceAsType(getResourceType(), getResourceResolver(), ComponentType.class);
     } catch (final Exception exception) {
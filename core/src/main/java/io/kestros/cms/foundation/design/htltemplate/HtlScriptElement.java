@@ -0,0 +1,78 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Element found by the {@link HtlScriptScanner}. Holds the element's attributes, with lowercase
+ * names, and its unparsed markup, so it can be re-serialized with Jsoup only when needed.
+ */
+public final class HtlScriptElement {
+
+  private final Map<String, String> attributes;
+  private final String source;
+
+  /**
+   * Constructs an HtlScriptElement.
+   *
+   * @param attributes Element attributes, in the order they are written.
+   * @param source Markup of the element, from its start tag to the end of its end tag.
+   */
+  public HtlScriptElement(@Nonnull final Map<String, String> attributes,
+      @Nonnull final String source) {
+    this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+    this.source = source;
+  }
+
+  /**
+   * Element attributes, keyed by lowercase name, in the order they are written.
+   *
+   * @return Element attributes.
+   */
+  @Nonnull
+  public Map<String, String> getAttributes() {
+    return this.attributes;
+  }
+
+  /**
+   * Value of an attribute.
+   *
+   * @param name Lowercase attribute name.
+   * @return Value of an attribute, or null if the element does not have it.
+   */
+  @Nullable
+  public String getAttribute(@Nonnull final String name) {
+    return this.attributes.get(name);
+  }
+
+  /**
+   * Markup of the element, from its start tag to the end of its end tag.
+   *
+   * @return Markup of the element.
+   */
+  @Nonnull
+  public String getSource() {
+    return this.source;
+  }
+
+}
@@ -0,0 +1,330 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate;
+
+import static io.kestros.cms.foundation.design.htltemplate.HtlTemplate.ATTRIBUTE_DATA_SLY_TEMPLATE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import org.jsoup.parser.Parser;
+
+/**
+ * Single pass tokenizer for HTL scripts, which finds data-sly-template elements and data-sly-call
+ * expressions without building a DOM. Only tags, attributes and element boundaries are read. Text
+ * is skipped, and strings are only allocated for the attributes being looked for, so template
+ * libraries and view scripts can be scanned far more cheaply than with a full Jsoup parse.
+ */
+public final class HtlScriptScanner {
+
+  public static final String ATTRIBUTE_DATA_SLY_CALL = "data-sly-call";
+
+  private static final List<String> VOID_ELEMENTS = Arrays.asList("area", "base", "br", "col",
+      "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr");
+  private static final List<String> RAW_TEXT_ELEMENTS = Arrays.asList("script", "style",
+      "textarea", "title");
+  private static final List<String> DOCUMENT_ELEMENTS = Arrays.asList("html", "head", "body");
+
+  private final String content;
+  private final int length;
+  private final boolean findTemplates;
+  private final boolean findCalls;
+  private final List<HtlScriptElement> templateElements = new ArrayList<>();
+  private final List<String> callExpressions = new ArrayList<>();
+
+  private int position = 0;
+  private int[] openNameStarts = new int[16];
+  private int[] openNameLengths = new int[16];
+  private int depth = 0;
+  private int topLevelStart = -1;
+  private Map<String, String> topLevelAttributes = null;
+  private int valueStart = 0;
+  private int valueEnd = 0;
+
+  private HtlScriptScanner(final String content, final boolean findTemplates,
+      final boolean findCalls) {
+    this.content = content;
+    this.length = content.length();
+    this.findTemplates = findTemplates;
+    this.findCalls = findCalls;
+  }
+
+  /**
+   * Top level elements which declare an HTL Template with a
+   * <code>data-sly-template.&lt;name&gt;</code> attribute. Elements nested in another element are
+   * not templates of the script, and are not returned.
+   *
+   * @param content Script content.
+   * @return Top level elements which declare an HTL Template.
+   */
+  @Nonnull
+  public static List<HtlScriptElement> findTemplateElements(@Nonnull final String content) {
+    final HtlScriptScanner scanner = new HtlScriptScanner(content, true, false);
+    scanner.scan();
+    return scanner.templateElements;
+  }
+
+  /**
+   * Values of all data-sly-call attributes, in document order.
+   *
+   * @param content Script content.
+   * @return Values of all data-sly-call attributes.
+   */
+  @Nonnull
+  public static List<String> findCallExpressions(@Nonnull final String content) {
+    final HtlScriptScanner scanner = new HtlScriptScanner(content, false, true);
+    scanner.scan();
+    return scanner.callExpressions;
+  }
+
+  private void scan() {
+    while (position < length) {
+      final int tagStart = content.indexOf('<', position);
+      if (tagStart < 0 || tagStart + 1 >= length) {
+        break;
+      }
+      position = tagStart + 1;
+      final char next = content.charAt(position);
+      if (content.startsWith("!--", position)) {
+        skipPast("-->");
+      } else if (next == '!' || next == '?') {
+        skipPast(">");
+      } else if (next == '/') {
+        readEndTag();
+      } else if (Character.isLetter(next)) {
+        readStartTag(tagStart);
+      }
+    }
+    if (topLevelStart >= 0) {
+      addTemplateElement(length);
+    }
+  }
+
+  private void readStartTag(final int tagStart) {
+    final int nameStart = position;
+    final int nameLength = readTagName() - nameStart;
+    final boolean topLevel = depth == 0 && !isElement(nameStart, nameLength, DOCUMENT_ELEMENTS);
+    final Map<String, String> attributes = topLevel && findTemplates ? new LinkedHashMap<>() : null;
+    boolean template = false;
+    boolean selfClosing = false;
+    while (position < length) {
+      skipWhitespace();
+      if (position >= length) {
+        break;
+      }
+      final char character = content.charAt(position);
+      if (character == '>') {
+        position++;
+        break;
+      }
+      if (character == '/') {
+        position++;
+        if (position < length && content.charAt(position) == '>') {
+          selfClosing = true;
+          position++;
+          break;
+        }
+        continue;
+      }
+      final int attributeNameStart = position;
+      while (position < length && !isAttributeNameEnd(content.charAt(position))) {
+        position++;
+      }
+      final int attributeNameLength = position - attributeNameStart;
+      readAttributeValue();
+      if (findCalls && attributeNameLength == ATTRIBUTE_DATA_SLY_CALL.length()
+          && content.regionMatches(true, attributeNameStart, ATTRIBUTE_DATA_SLY_CALL, 0,
+          attributeNameLength)) {
+        callExpressions.add(getAttributeValue());
+      }
+      if (attributes != null) {
+        if (content.regionMatches(true, attributeNameStart, ATTRIBUTE_DATA_SLY_TEMPLATE, 0,
+            ATTRIBUTE_DATA_SLY_TEMPLATE.length())) {
+          template = true;
+        }
+        attributes.putIfAbsent(content.substring(attributeNameStart,
+            attributeNameStart + attributeNameLength).toLowerCase(Locale.ENGLISH),
+            getAttributeValue());
+      }
+    }
+
+    if (isElement(nameStart, nameLength, DOCUMENT_ELEMENTS)) {
+      return;
+    }
+    if (topLevel && template) {
+      topLevelStart = tagStart;
+      topLevelAttributes = attributes;
+    }
+    if (isElement(nameStart, nameLength, RAW_TEXT_ELEMENTS) && !selfClosing) {
+      skipPastEndTag(nameStart, nameLength);
+      selfClosing = true;
+    }
+    if (selfClosing || isElement(nameStart, nameLength, VOID_ELEMENTS)) {
+      if (topLevel && topLevelStart >= 0) {
+        addTemplateElement(position);
+      }
+      return;
+    }
+    pushOpenElement(nameStart, nameLength);
+  }
+
+  private void readEndTag() {
+    position++;
+    final int nameStart = position;
+    final int nameLength = readTagName() - nameStart;
+    skipPast(">");
+    if (isElement(nameStart, nameLength, DOCUMENT_ELEMENTS)) {
+      return;
+    }
+    for (int index = depth - 1; index >= 0; index--) {
+      if (openNameLengths[index] == nameLength && content.regionMatches(true,
+          openNameStarts[index], content, nameStart, nameLength)) {
+        depth = index;
+        if (depth == 0 && topLevelStart >= 0) {
+          addTemplateElement(position);
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Finds the bounds of an attribute value, when the attribute has one. Unquoted values may
+   * contain HTL expressions with whitespace, such as <code>${item @ context='html'}</code>.
+   */
+  private void readAttributeValue() {
+    valueStart = position;
+    valueEnd = position;
+    skipWhitespace();
+    if (position >= length || content.charAt(position) != '=') {
+      return;
+    }
+    position++;
+    skipWhitespace();
+    if (position >= length) {
+      return;
+    }
+    final char quote = content.charAt(position);
+    if (quote == '"' || quote == '\'') {
+      valueStart = position + 1;
+      final int closingQuote = content.indexOf(quote, valueStart);
+      valueEnd = closingQuote < 0 ? length : closingQuote;
+      position = Math.min(valueEnd + 1, length);
+    } else {
+      valueStart = position;
+      while (position < length) {
+        final char character = content.charAt(position);
+        if (content.startsWith("${", position)) {
+          final int expressionEnd = content.indexOf('}', position);
+          position = expressionEnd < 0 ? length : expressionEnd + 1;
+        } else if (Character.isWhitespace(character) || character == '>') {
+          break;
+        } else {
+          position++;
+        }
+      }
+      valueEnd = position;
+    }
+  }
+
+  private String getAttributeValue() {
+    final String value = content.substring(valueStart, valueEnd);
+    if (value.indexOf('&') >= 0) {
+      return Parser.unescapeEntities(value, true);
+    }
+    return value;
+  }
+
+  private int readTagName() {
+    while (position < length) {
+      final char character = content.charAt(position);
+      if (Character.isWhitespace(character) || character == '/' || character == '>') {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  private void skipWhitespace() {
+    while (position < length && Character.isWhitespace(content.charAt(position))) {
+      position++;
+    }
+  }
+
+  private void skipPast(final String token) {
+    final int tokenStart = content.indexOf(token, position);
+    position = tokenStart < 0 ? length : tokenStart + token.length();
+  }
+
+  /**
+   * Skips the text of a raw text element, such as script, up to the end of its end tag.
+   */
+  private void skipPastEndTag(final int nameStart, final int nameLength) {
+    while (position < length) {
+      final int endTagStart = content.indexOf("</", position);
+      if (endTagStart < 0) {
+        position = length;
+        return;
+      }
+      position = endTagStart + 2;
+      if (content.regionMatches(true, position, content, nameStart, nameLength)) {
+        skipPast(">");
+        return;
+      }
+    }
+  }
+
+  private void pushOpenElement(final int nameStart, final int nameLength) {
+    if (depth == openNameStarts.length) {
+      openNameStarts = Arrays.copyOf(openNameStarts, depth * 2);
+      openNameLengths = Arrays.copyOf(openNameLengths, depth * 2);
+    }
+    openNameStarts[depth] = nameStart;
+    openNameLengths[depth] = nameLength;
+    depth++;
+  }
+
+  private void addTemplateElement(final int end) {
+    templateElements.add(new HtlScriptElement(topLevelAttributes,
+        content.substring(topLevelStart, end)));
+    topLevelStart = -1;
+    topLevelAttributes = null;
+  }
+
+  private boolean isElement(final int nameStart, final int nameLength,
+      final List<String> elementNames) {
+    for (final String elementName : elementNames) {
+      if (elementName.length() == nameLength && content.regionMatches(true, nameStart,
+          elementName, 0, nameLength)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAttributeNameEnd(final char character) {
+    return Character.isWhitespace(character) || character == '=' || character == '>'
+           || character == '/';
+  }
+
+}
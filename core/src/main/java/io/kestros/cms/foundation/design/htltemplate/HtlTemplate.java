@@ -20,26 +20,43 @@ package io.kestros.cms.foundation.design.htltemplate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Attribute;
-import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 
 /**
  * Structured HTL template tags, so that they can be compiled and managed by VendorLibraries and
- * UiFrameworks.
+ * UiFrameworks. Name, title, description and parameters are read from the template's attributes
+ * once, when the template is constructed, so instances can be cached and shared between callers.
+ * Templates found by the {@link HtlScriptScanner} are only parsed with Jsoup when their output is
+ * first requested.
  */
 public class HtlTemplate {
 
   public static final String ATTRIBUTE_DATA_SLY_TEMPLATE = "data-sly-template.";
 
-  private final Node node;
+  private final String source;
   private final String sourcePath;
+  private final String name;
+  private final String title;
+  private final String description;
+  private final String fontAwesomeIcon;
+  private final List<String> parameterNames;
+  private final List<HtlTemplateParameter> templateParameters;
+  private final Map<String, HtlTemplateParameter> templateParametersByName;
+  private volatile Node node;
+  private volatile String output;
+  private volatile String htmlOutput;
 
   private static final String CALL_VARIABLES_INDENT = "     ";
 
@@ -50,8 +67,53 @@ public class HtlTemplate {
    * @param sourcePath HtlTemplateFile path.
    */
   public HtlTemplate(final Node node, final String sourcePath) {
+    this(getAttributes(node), null, sourcePath);
     this.node = node;
+  }
+
+  /**
+   * Constructs an HtlTemplate object from an element found by the {@link HtlScriptScanner}.
+   *
+   * @param element Element which created the template.
+   * @param sourcePath HtlTemplateFile path.
+   */
+  public HtlTemplate(final HtlScriptElement element, final String sourcePath) {
+    this(element.getAttributes(), element.getSource(), sourcePath);
+  }
+
+  private HtlTemplate(final Map<String, String> attributes, final String source,
+      final String sourcePath) {
+    this.source = source;
     this.sourcePath = sourcePath;
+
+    String templateName = null;
+    String templateValue = "";
+    for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+      final String key = attribute.getKey();
+      if (key.startsWith(ATTRIBUTE_DATA_SLY_TEMPLATE)) {
+        if (templateName == null) {
+          templateName = key.substring(ATTRIBUTE_DATA_SLY_TEMPLATE.length());
+        }
+        templateValue = attribute.getValue();
+      }
+    }
+    this.name = templateName;
+    this.title = StringUtils.defaultIfBlank(attributes.get("data-title"), templateName);
+    this.description = StringUtils.defaultIfBlank(attributes.get("data-description"),
+        StringUtils.EMPTY);
+    this.fontAwesomeIcon = StringUtils.defaultIfBlank(attributes.get("data-fontawesome-icon"),
+        "fas fa-code");
+    this.parameterNames = Collections.unmodifiableList(getParameterNames(templateValue));
+
+    final List<HtlTemplateParameter> parameters = new ArrayList<>();
+    final Map<String, HtlTemplateParameter> parametersByName = new HashMap<>();
+    for (final String parameterName : this.parameterNames) {
+      final HtlTemplateParameter parameter = new HtlTemplateParameter(parameterName, attributes);
+      parameters.add(parameter);
+      parametersByName.putIfAbsent(parameterName.toLowerCase(Locale.ENGLISH), parameter);
+    }
+    this.templateParameters = Collections.unmodifiableList(parameters);
+    this.templateParametersByName = Collections.unmodifiableMap(parametersByName);
   }
 
   /**
@@ -60,11 +122,7 @@ public class HtlTemplate {
    * @return Details of template parameters, for automated documentation purposes.
    */
   public List<HtlTemplateParameter> getTemplateParameters() {
-    List<HtlTemplateParameter> parameters = new ArrayList<>();
-    for (String parameter : getParameterNames()) {
-      parameters.add(new HtlTemplateParameter(parameter, this.node));
-    }
-    return parameters;
+    return this.templateParameters;
   }
 
   /**
@@ -75,12 +133,10 @@ public class HtlTemplate {
    */
   @Nullable
   public HtlTemplateParameter getTemplateParameter(String parameterName) {
-    for (HtlTemplateParameter parameter : getTemplateParameters()) {
-      if (parameter.getName().equalsIgnoreCase(parameterName)) {
-        return parameter;
-      }
+    if (parameterName == null) {
+      return null;
     }
-    return null;
+    return this.templateParametersByName.get(parameterName.toLowerCase(Locale.ENGLISH));
   }
 
   /**
@@ -98,15 +154,7 @@ public class HtlTemplate {
    * @return HTL Template name.
    */
   public String getName() {
-    final Attributes attributes = this.node.attributes();
-
-    for (final Attribute attribute : attributes) {
-      final String key = attribute.getKey();
-      if (key.startsWith(ATTRIBUTE_DATA_SLY_TEMPLATE)) {
-        return key.split(ATTRIBUTE_DATA_SLY_TEMPLATE)[1];
-      }
-    }
-    return null;
+    return this.name;
   }
 
   /**
@@ -115,12 +163,7 @@ public class HtlTemplate {
    * @return Title of the current template.
    */
   public String getTitle() {
-    final Attributes attributes = this.node.attributes();
-    final String title = attributes.get("data-title");
-    if (StringUtils.isNotBlank(title)) {
-      return title;
-    }
-    return getName();
+    return this.title;
   }
 
   /**
@@ -129,12 +172,7 @@ public class HtlTemplate {
    * @return Description of the current template.
    */
   public String getDescription() {
-    final Attributes attributes = this.node.attributes();
-    final String description = attributes.get("data-description");
-    if (StringUtils.isNotBlank(description)) {
-      return description;
-    }
-    return StringUtils.EMPTY;
+    return this.description;
   }
 
   /**
@@ -143,7 +181,10 @@ public class HtlTemplate {
    * @return Full HTML output of the HTL Template.
    */
   public String getOutput() {
-    return this.node.toString();
+    if (this.output == null) {
+      this.output = getNode().toString();
+    }
+    return this.output;
   }
 
   /**
@@ -152,22 +193,10 @@ public class HtlTemplate {
    * @return HTML Output of the current template after it is called from the implementing script.
    */
   public String getHtmlOutput() {
-    final StringBuilder htmlOutputStringBuilder = new StringBuilder();
-    for (final Node child : this.node.childNodes()) {
-      String childHtml = child.toString();
-      childHtml = childHtml.replaceAll("data-", "\ndata-");
-      htmlOutputStringBuilder.append(childHtml);
+    if (this.htmlOutput == null) {
+      this.htmlOutput = buildHtmlOutput();
     }
-
-    String htmlOutput = htmlOutputStringBuilder.toString();
-    if (htmlOutput.startsWith("\n")) {
-      htmlOutput = htmlOutput.replaceFirst("\n", "");
-    }
-    final Document htmlOutputDocument = Jsoup.parseBodyFragment(htmlOutput);
-    htmlOutputDocument.outputSettings().outline(true);
-    htmlOutputDocument.outputSettings().prettyPrint(false);
-
-    return htmlOutputDocument.body().html();
+    return this.htmlOutput;
   }
 
   /**
@@ -176,23 +205,7 @@ public class HtlTemplate {
    * @return List of variables required to implement the current Template.
    */
   public List<String> getParameterNames() {
-    final Attributes attributes = this.node.attributes();
-
-    String value = "";
-    for (final Attribute attribute : attributes) {
-      final String key = attribute.getKey();
-      if (key.startsWith(ATTRIBUTE_DATA_SLY_TEMPLATE)) {
-        value = attribute.getValue();
-      }
-    }
-
-    value = value.replaceAll("\\$", "");
-    value = value.replaceAll("\\{", "");
-    value = value.replaceAll("\\}", "");
-    value = value.replaceAll("@", "");
-    value = value.replaceAll(" ", "");
-
-    return Arrays.asList(value.split(","));
+    return this.parameterNames;
   }
 
   /**
@@ -225,11 +238,63 @@ public class HtlTemplate {
    * @return Font Awesome Icon class.
    */
   public String getFontAwesomeIcon() {
-    final Attributes attributes = this.node.attributes();
-    final String iconClass = attributes.get("data-fontawesome-icon");
-    if (StringUtils.isNotBlank(iconClass)) {
-      return iconClass;
+    return this.fontAwesomeIcon;
+  }
+
+  private String buildHtmlOutput() {
+    final StringBuilder htmlOutputStringBuilder = new StringBuilder();
+    for (final Node child : getNode().childNodes()) {
+      String childHtml = child.toString();
+      childHtml = childHtml.replaceAll("data-", "\ndata-");
+      htmlOutputStringBuilder.append(childHtml);
     }
-    return "fas fa-code";
+
+    String childrenHtml = htmlOutputStringBuilder.toString();
+    if (childrenHtml.startsWith("\n")) {
+      childrenHtml = childrenHtml.replaceFirst("\n", "");
+    }
+    final Document htmlOutputDocument = Jsoup.parseBodyFragment(childrenHtml);
+    htmlOutputDocument.outputSettings().outline(true);
+    htmlOutputDocument.outputSettings().prettyPrint(false);
+
+    return htmlOutputDocument.body().html();
+  }
+
+  /**
+   * Template node, parsed from the template's markup when the template was found by the
+   * {@link HtlScriptScanner}.
+   */
+  private Node getNode() {
+    if (this.node == null) {
+      final Document templateDocument = Jsoup.parseBodyFragment(this.source);
+      templateDocument.outputSettings().outline(true);
+      templateDocument.outputSettings().prettyPrint(false);
+      final Element body = templateDocument.body();
+      if (body.childNodeSize() > 0) {
+        this.node = body.childNode(0);
+      } else {
+        this.node = body;
+      }
+    }
+    return this.node;
+  }
+
+  private static Map<String, String> getAttributes(final Node node) {
+    final Map<String, String> attributes = new LinkedHashMap<>();
+    for (final Attribute attribute : node.attributes()) {
+      attributes.put(attribute.getKey(), attribute.getValue());
+    }
+    return attributes;
+  }
+
+  private static List<String> getParameterNames(final String templateValue) {
+    String value = templateValue;
+    value = value.replaceAll("\\$", "");
+    value = value.replaceAll("\\{", "");
+    value = value.replaceAll("\\}", "");
+    value = value.replaceAll("@", "");
+    value = value.replaceAll(" ", "");
+
+    return Arrays.asList(value.split(","));
   }
 }
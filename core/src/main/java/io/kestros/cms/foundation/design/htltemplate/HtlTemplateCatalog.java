@@ -0,0 +1,130 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable index of the HTL Templates compiled into a UiFramework, keyed by case-insensitive
+ * template name. When several templates share a name, lookups return the first one in compilation
+ * order, and the name is reported as a duplicate.
+ */
+public class HtlTemplateCatalog {
+
+  private final List<HtlTemplate> templates;
+  private final Map<String, HtlTemplate> templatesByName;
+  private final Map<String, List<String>> duplicateTemplateSourcePaths;
+
+  /**
+   * Constructs an HtlTemplateCatalog.
+   *
+   * @param templates HTL Templates, in compilation order.
+   */
+  public HtlTemplateCatalog(@Nonnull final List<HtlTemplate> templates) {
+    final Map<String, HtlTemplate> templatesByNameMap = new HashMap<>();
+    final Map<String, List<String>> sourcePathsByName = new LinkedHashMap<>();
+    for (final HtlTemplate template : templates) {
+      final String key = getKey(template.getName());
+      templatesByNameMap.putIfAbsent(key, template);
+      sourcePathsByName.computeIfAbsent(key, name -> new ArrayList<>()).add(
+          template.getSourcePath());
+    }
+    final Map<String, List<String>> duplicates = new LinkedHashMap<>();
+    for (final Entry<String, List<String>> entry : sourcePathsByName.entrySet()) {
+      if (entry.getValue().size() > 1) {
+        duplicates.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+      }
+    }
+    this.templates = Collections.unmodifiableList(new ArrayList<>(templates));
+    this.templatesByName = Collections.unmodifiableMap(templatesByNameMap);
+    this.duplicateTemplateSourcePaths = Collections.unmodifiableMap(duplicates);
+  }
+
+  /**
+   * All HTL Templates, in compilation order.
+   *
+   * @return All HTL Templates, in compilation order.
+   */
+  @Nonnull
+  public List<HtlTemplate> getTemplates() {
+    return templates;
+  }
+
+  /**
+   * HTL Template matching a name, ignoring case.
+   *
+   * @param templateName Name of the template to look up.
+   * @return HTL Template matching the name, or null if no template has the name.
+   */
+  @Nullable
+  public HtlTemplate getTemplate(@Nullable final String templateName) {
+    if (templateName == null) {
+      return null;
+    }
+    return templatesByName.get(getKey(templateName));
+  }
+
+  /**
+   * Path of the HTL Template file that a template is read from.
+   *
+   * @param templateName Name of the template to look up.
+   * @return Path of the HTL Template file, or null if no template has the name.
+   */
+  @Nullable
+  public String getSourcePath(@Nullable final String templateName) {
+    final HtlTemplate template = getTemplate(templateName);
+    if (template != null) {
+      return template.getSourcePath();
+    }
+    return null;
+  }
+
+  /**
+   * Lower-cased template names that are defined more than once, mapped to the paths of every HTL
+   * Template file that defines them, in compilation order.
+   *
+   * @return Template names that are defined more than once, and the files defining them.
+   */
+  @Nonnull
+  public Map<String, List<String>> getDuplicateTemplateSourcePaths() {
+    return duplicateTemplateSourcePaths;
+  }
+
+  /**
+   * Number of uniquely named HTL Templates.
+   *
+   * @return Number of uniquely named HTL Templates.
+   */
+  public int getSize() {
+    return templatesByName.size();
+  }
+
+  private static String getKey(final String templateName) {
+    return templateName.toLowerCase(Locale.ENGLISH);
+  }
+
+}
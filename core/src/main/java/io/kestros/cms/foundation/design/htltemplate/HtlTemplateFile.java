@@ -19,20 +19,24 @@
 package io.kestros.cms.foundation.design.htltemplate;
 
 import io.kestros.cms.foundation.componenttypes.HtmlFile;
+import io.kestros.cms.foundation.services.cache.htltemplate.ParsedHtlTemplateCacheService;
 import io.kestros.commons.structuredslingmodels.annotation.KestrosModel;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.Model;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Node;
+import org.apache.sling.models.annotations.Optional;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +51,12 @@ public class HtlTemplateFile extends HtmlFile {
   private static final Logger LOG = LoggerFactory.getLogger(HtlTemplateFile.class);
   public static final String EXTENSION_HTML = ".html";
 
+  @OSGiService
+  @Optional
+  private ParsedHtlTemplateCacheService parsedHtlTemplateCacheService;
+
+  private List<HtlTemplate> templates;
+
   /**
    * Title of the current HTL Template file.  Derived from the file name by replacing `-` with ` `,
    * removing `.html` and capitalizing the first letter of each word.
@@ -74,30 +84,37 @@ public class HtlTemplateFile extends HtmlFile {
   }
 
   /**
-   * All HTL Templates in the current files.
+   * Revision of the current file. The jcr:lastModified date of its content, or a hash of its
+   * content when it has no modification date.
    *
-   * @return All HTL Templates in the current files.
+   * @return Revision of the current file, or null if the file could not be read.
    */
-  public List<HtlTemplate> getTemplates() {
-    final List<HtlTemplate> templates = new ArrayList<>();
+  @Nullable
+  public String getRevision() {
+    final String lastModifiedRevision = getLastModifiedRevision();
+    if (lastModifiedRevision != null) {
+      return lastModifiedRevision;
+    }
     try {
-      final Document templateFile = Jsoup.parse(getFileContent());
-      templateFile.outputSettings().outline(true);
-      templateFile.outputSettings().prettyPrint(false);
-      for (final Node node : templateFile.child(0).childNodes().get(1).childNodes()) {
-        if (StringUtils.isNotBlank(node.toString())) {
-          final HtlTemplate template = new HtlTemplate(node, getPath());
-          if (template.getName() != null) {
-            templates.add(template);
-          }
-        }
-      }
+      return hash(getFileContent());
     } catch (final IOException exception) {
-      LOG.warn(
-          "Unable to get HtlTemplates for HTL Template compilation file {} due to IOException. {}",
-          getPath(), exception.getMessage());
+      LOG.debug("Unable to read revision of HTL Template file {}. {}", getPath(),
+          exception.getMessage());
+      return null;
     }
-    return templates;
+  }
+
+  /**
+   * All HTL Templates in the current files. Parsed once per file revision, and shared through the
+   * ParsedHtlTemplateCacheService when it is available.
+   *
+   * @return All HTL Templates in the current files.
+   */
+  public List<HtlTemplate> getTemplates() {
+    if (this.templates == null) {
+      this.templates = loadTemplates();
+    }
+    return this.templates;
   }
 
   /**
@@ -125,4 +142,82 @@ public class HtlTemplateFile extends HtmlFile {
     return getProperty("fontAwesomeIcon", "fa fa-file");
   }
 
+  @Nonnull
+  private List<HtlTemplate> loadTemplates() {
+    final String lastModifiedRevision = getLastModifiedRevision();
+    if (parsedHtlTemplateCacheService != null && lastModifiedRevision != null) {
+      final List<HtlTemplate> cachedTemplates = parsedHtlTemplateCacheService.getTemplates(
+          getPath(), lastModifiedRevision);
+      if (cachedTemplates != null) {
+        return cachedTemplates;
+      }
+    }
+    final String fileContent;
+    try {
+      fileContent = getFileContent();
+    } catch (final IOException exception) {
+      LOG.warn(
+          "Unable to get HtlTemplates for HTL Template compilation file {} due to IOException. {}",
+          getPath(), exception.getMessage());
+      return Collections.emptyList();
+    }
+    String revision = lastModifiedRevision;
+    if (revision == null) {
+      revision = hash(fileContent);
+    }
+    if (parsedHtlTemplateCacheService != null) {
+      final List<HtlTemplate> cachedTemplates = parsedHtlTemplateCacheService.getTemplates(
+          getPath(), revision);
+      if (cachedTemplates != null) {
+        return cachedTemplates;
+      }
+    }
+    final List<HtlTemplate> parsedTemplates = Collections.unmodifiableList(
+        parseTemplates(fileContent));
+    if (parsedHtlTemplateCacheService != null) {
+      parsedHtlTemplateCacheService.cacheTemplates(getPath(), revision, parsedTemplates);
+    }
+    return parsedTemplates;
+  }
+
+  @Nonnull
+  private List<HtlTemplate> parseTemplates(@Nonnull final String fileContent) {
+    final List<HtlTemplate> parsedTemplates = new ArrayList<>();
+    for (final HtlScriptElement element : HtlScriptScanner.findTemplateElements(fileContent)) {
+      final HtlTemplate template = new HtlTemplate(element, getPath());
+      if (template.getName() != null) {
+        parsedTemplates.add(template);
+      }
+    }
+    return parsedTemplates;
+  }
+
+  @Nullable
+  private String getLastModifiedRevision() {
+    final Resource contentResource = getResource().getChild(JcrConstants.JCR_CONTENT);
+    if (contentResource != null) {
+      final Calendar lastModified = contentResource.getValueMap().get(
+          JcrConstants.JCR_LASTMODIFIED, Calendar.class);
+      if (lastModified != null) {
+        return String.valueOf(lastModified.getTimeInMillis());
+      }
+    }
+    return null;
+  }
+
+  private static String hash(final String value) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+          value.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder hash = new StringBuilder(digest.length * 2);
+      for (final byte digestByte : digest) {
+        hash.append(String.format("%02x", digestByte));
+      }
+      return hash.toString();
+    } catch (final NoSuchAlgorithmException exception) {
+      LOG.warn("Unable to hash HTL Template file. {}", exception.getMessage());
+      return Integer.toHexString(value.hashCode());
+    }
+  }
+
 }
@@ -19,30 +19,26 @@
 package io.kestros.cms.foundation.design.htltemplate;
 
 import java.util.Locale;
-import org.jsoup.nodes.Attribute;
-import org.jsoup.nodes.Attributes;
-import org.jsoup.nodes.Node;
+import java.util.Map;
 
 /**
  * HTL Template parameter details for {@link HtlTemplate} documentation.
  */
 public class HtlTemplateParameter {
 
-  private String name;
-  private String description;
-  private Node node;
+  private final String name;
+  private final String description;
 
-  HtlTemplateParameter(String name, Node node) {
+  HtlTemplateParameter(String name, Map<String, String> attributes) {
     this.name = name;
-    this.node = node;
-    this.description = "";
-    final Attributes attributes = this.node.attributes();
-    for (Attribute attribute : attributes) {
+    String parameterDescription = "";
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
       if (attribute.getKey().toUpperCase(Locale.US).equals(
           ("data-" + name + "-description").toUpperCase(Locale.US))) {
-        this.description = attribute.getValue();
+        parameterDescription = attribute.getValue();
       }
     }
+    this.description = parameterDescription;
   }
 
   /**
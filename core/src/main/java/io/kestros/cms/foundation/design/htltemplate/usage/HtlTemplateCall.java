@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate.usage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A single data-sly-call to an HTL Template, as written in a script. Calls only hold what the
+ * script specifies, so they can be indexed without resolving the UiFramework the template belongs
+ * to.
+ */
+public final class HtlTemplateCall {
+
+  private static final String TEMPLATES_PREFIX = "templates.";
+
+  private final String scriptPath;
+  private final String templateName;
+  private final List<String> parameterNames;
+
+  /**
+   * Constructs an HtlTemplateCall.
+   *
+   * @param scriptPath Path of the script that contains the call.
+   * @param templateName Name of the called template.
+   * @param parameterNames Names of the parameters passed to the template.
+   */
+  public HtlTemplateCall(@Nonnull final String scriptPath, @Nonnull final String templateName,
+      @Nonnull final List<String> parameterNames) {
+    this.scriptPath = scriptPath;
+    this.templateName = templateName;
+    this.parameterNames = Collections.unmodifiableList(new ArrayList<>(parameterNames));
+  }
+
+  /**
+   * Parses a data-sly-call expression, such as <code>${templates.card @ title=title}</code>.
+   *
+   * @param callExpression data-sly-call attribute value.
+   * @param scriptPath Path of the script that contains the call.
+   * @return The parsed call, or null if the expression does not call a template from the
+   *     <code>templates</code> object.
+   */
+  @Nullable
+  public static HtlTemplateCall parse(@Nonnull final String callExpression,
+      @Nonnull final String scriptPath) {
+    final String[] templateExpression = callExpression.split("@")[0].split(TEMPLATES_PREFIX);
+    if (templateExpression.length < 2) {
+      return null;
+    }
+    final String templateName = templateExpression[1].replaceAll(" ", "").replaceAll("}", "");
+    final List<String> parameterNames = new ArrayList<>();
+    if (callExpression.contains("@")) {
+      final String parametersString = callExpression.split("@")[1].replaceAll("}", "");
+      for (final String parameterString : parametersString.split(",")) {
+        parameterNames.add(parameterString.split("=")[0].replaceAll(" ", "").replaceAll("\n",
+            "").replaceAll("\t", ""));
+      }
+    }
+    return new HtlTemplateCall(scriptPath, templateName, parameterNames);
+  }
+
+  /**
+   * Path of the script that contains the call.
+   *
+   * @return Path of the script that contains the call.
+   */
+  @Nonnull
+  public String getScriptPath() {
+    return this.scriptPath;
+  }
+
+  /**
+   * Path of the ComponentUiFrameworkView that contains the calling script.
+   *
+   * @return Path of the ComponentUiFrameworkView that contains the calling script.
+   */
+  @Nonnull
+  public String getViewPath() {
+    final int separatorIndex = this.scriptPath.lastIndexOf('/');
+    if (separatorIndex <= 0) {
+      return "";
+    }
+    return this.scriptPath.substring(0, separatorIndex);
+  }
+
+  /**
+   * Name of the called template.
+   *
+   * @return Name of the called template.
+   */
+  @Nonnull
+  public String getTemplateName() {
+    return this.templateName;
+  }
+
+  /**
+   * Names of the parameters passed to the template, in the order they are written. Empty when the
+   * call does not pass an options expression.
+   *
+   * @return Names of the parameters passed to the template.
+   */
+  @Nonnull
+  public List<String> getParameterNames() {
+    return this.parameterNames;
+  }
+
+}
@@ -48,41 +48,22 @@ public class HtlTemplateUsage {
   public HtlTemplateUsage(Element element, ComponentUiFrameworkView componentUiFrameworkView) {
     setComponentUiFrameworkView(componentUiFrameworkView);
 
-    if (element.attr("data-sly-call").split("@")[0].split("templates.").length > 1) {
-      setName(element.attr("data-sly-call").split("@")[0].split("templates.")[1].replaceAll(" ",
-          "").replaceAll("}", ""));
-      try {
-        setUsedHtlTemplate(
-            getHtlTemplateFromUiFramework(this.componentUiFrameworkView.getUiFramework(),
-                getName()));
-        if (usedHtlTemplate != null) {
-          setTitle(usedHtlTemplate.getTitle());
-
-          List<HtlTemplateParameterUsage> parameters = new ArrayList<>();
-          String parametersArrayString;
-          if (element.attr("data-sly-call").contains("@")) {
-            parametersArrayString = element.attr("data-sly-call").split("@")[1];
-            parametersArrayString = parametersArrayString.replaceAll("}", "");
-            for (String parameterString : parametersArrayString.split(",")) {
-              String parameterName = parameterString.split("=")[0].replaceAll(" ", "").replaceAll(
-                  "\n", "").replaceAll("\t", "");
-              try {
-                parameters.add(new HtlTemplateParameterUsage(parameterName, "",
-                    getUsedHtlTemplate().getTemplateParameter(parameterName),
-                    getUsedHtlTemplate()));
-              } catch (ResourceNotFoundException e) {
-                // todo log.
-              }
-            }
-            setTemplateParameterUsageList(parameters);
-          }
-        }
-      } catch (ResourceNotFoundException e) {
-        // todo log.
-      }
-
+    final HtlTemplateCall templateCall = HtlTemplateCall.parse(element.attr("data-sly-call"), "");
+    if (templateCall != null) {
+      setTemplateCall(templateCall);
     }
+  }
 
+  /**
+   * Constructs an HtlTemplateUsage object from an already parsed template call.
+   *
+   * @param templateCall Template call.
+   * @param componentUiFrameworkView componentUiFrameworkView that contains the template call.
+   */
+  public HtlTemplateUsage(HtlTemplateCall templateCall,
+      ComponentUiFrameworkView componentUiFrameworkView) {
+    setComponentUiFrameworkView(componentUiFrameworkView);
+    setTemplateCall(templateCall);
   }
 
   /**
@@ -156,4 +137,27 @@ public class HtlTemplateUsage {
   public void setTitle(String title) {
     this.title = title;
   }
+
+  private void setTemplateCall(HtlTemplateCall templateCall) {
+    setName(templateCall.getTemplateName());
+    try {
+      setUsedHtlTemplate(
+          getHtlTemplateFromUiFramework(this.componentUiFrameworkView.getUiFramework(),
+              getName()));
+      if (usedHtlTemplate != null) {
+        setTitle(usedHtlTemplate.getTitle());
+
+        if (!templateCall.getParameterNames().isEmpty()) {
+          List<HtlTemplateParameterUsage> parameters = new ArrayList<>();
+          for (String parameterName : templateCall.getParameterNames()) {
+            parameters.add(new HtlTemplateParameterUsage(parameterName, "",
+                usedHtlTemplate.getTemplateParameter(parameterName), usedHtlTemplate));
+          }
+          setTemplateParameterUsageList(parameters);
+        }
+      }
+    } catch (ResourceNotFoundException e) {
+      // todo log.
+    }
+  }
 }
@@ -21,6 +21,7 @@ package io.kestros.cms.foundation.design.uiframework;
 import static io.kestros.cms.foundation.design.DesignConstants.NN_THEMES;
 import static io.kestros.cms.foundation.design.DesignConstants.PN_UI_FRAMEWORK_CODE;
 import static io.kestros.cms.foundation.design.DesignConstants.PN_VENDOR_LIBRARIES;
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.findComponentType;
 import static io.kestros.cms.foundation.utils.DesignUtils.getVendorLibrariesRootResourceForUiFramework;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getAllDescendantsOfType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildAsBaseResource;
@@ -34,12 +35,15 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView;
 import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplateCatalog;
 import io.kestros.cms.foundation.design.htltemplate.HtlTemplateFile;
 import io.kestros.cms.foundation.design.theme.Theme;
 import io.kestros.cms.foundation.design.vendorlibrary.VendorLibrary;
 import io.kestros.cms.foundation.exceptions.InvalidThemeException;
 import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCacheService;
+import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCatalogService;
 import io.kestros.cms.foundation.services.componenttypecache.ComponentTypeCache;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.structuredslingmodels.BaseResource;
@@ -97,14 +101,24 @@ public class UiFramework extends UiLibrary {
 
   private static final String PN_EXTERNALIZED_FILES = "externalizedFiles";
 
+  private static final long TEMPLATES_CACHE_BUILD_WAIT = 2000;
+
   @OSGiService
   @Optional
   HtlTemplateCacheService htlTemplateCacheService;
 
+  @OSGiService
+  @Optional
+  private HtlTemplateCatalogService htlTemplateCatalogService;
+
   @OSGiService
   @Optional
   private ComponentTypeCache componentTypeCache;
 
+  @OSGiService
+  @Optional
+  private ComponentTypeDiscoveryService componentTypeDiscoveryService;
+
   /**
    * Unique code associated with the current UiFramework. ComponentTypes use this to render the
    * proper content script.
@@ -218,6 +232,20 @@ public class UiFramework extends UiLibrary {
     return templates;
   }
 
+  /**
+   * HTL Templates associated to the current UiFramework, indexed by name.
+   *
+   * @return HTL Templates associated to the current UiFramework, indexed by name.
+   */
+  @Nonnull
+  @JsonIgnore
+  public HtlTemplateCatalog getTemplateCatalog() {
+    if (htlTemplateCatalogService != null) {
+      return htlTemplateCatalogService.getCatalog(this);
+    }
+    return new HtlTemplateCatalog(getTemplates());
+  }
+
   /**
    * CSS or JS output compiled from VendorLibraries, scripts that live under the current
    * UiFramework, and ComponentUiFramework views that match the current UiFramework's framework
@@ -246,7 +274,8 @@ public class UiFramework extends UiLibrary {
   }
 
   /**
-   * Path to HTL compiled templates file. Looks up value based on HtlTemplateCacheService.
+   * Path to HTL compiled templates file. Looks up value based on HtlTemplateCacheService. If the
+   * file is missing while the HtlTemplateCacheService is building, briefly waits on the build.
    *
    * @return Path to HTL compiled templates file.
    * @throws ResourceNotFoundException Compiled HTL Templates file could not be found.
@@ -258,15 +287,12 @@ public class UiFramework extends UiLibrary {
             htlTemplateCacheService.getServiceCacheRootPath() + getPath() + EXTENSION_HTML,
             getResourceResolver()).getPath();
       } catch (final ResourceNotFoundException e) {
-        try {
-          htlTemplateCacheService.cacheAllUiFrameworkCompiledHtlTemplates();
-          return getResourceAsBaseResource(
-              htlTemplateCacheService.getServiceCacheRootPath() + getPath() + EXTENSION_HTML,
-              getResourceResolver()).getPath();
-        } catch (final CacheBuilderException ex) {
-          throw new ResourceNotFoundException(
-              htlTemplateCacheService.getServiceCacheRootPath() + getPath() + EXTENSION_HTML);
+        if (!htlTemplateCacheService.awaitCacheBuild(TEMPLATES_CACHE_BUILD_WAIT)) {
+          LOG.debug("Compiled HTL Templates for {} are not ready.", getPath());
         }
+        return getResourceAsBaseResource(
+            htlTemplateCacheService.getServiceCacheRootPath() + getPath() + EXTENSION_HTML,
+            getResourceResolver()).getPath();
       }
     }
     return StringUtils.EMPTY;
@@ -330,6 +356,18 @@ public class UiFramework extends UiLibrary {
 
   @Nonnull
   private List<ComponentType> getAllComponentTypesInDirectory(@Nonnull final String path) {
+    if (componentTypeDiscoveryService != null) {
+      final List<ComponentType> componentTypeList = new ArrayList<>();
+      for (final String componentTypePath : componentTypeDiscoveryService.getComponentTypePaths(
+          path, getResourceResolver())) {
+        final ComponentType componentType = findComponentType(componentTypePath,
+            getResourceResolver());
+        if (componentType != null) {
+          componentTypeList.add(componentType);
+        }
+      }
+      return componentTypeList;
+    }
     if (componentTypeCache != null) {
       try {
         return SlingModelUtils.getResourcesAsType(componentTypeCache.getCachedComponentTypes(path),
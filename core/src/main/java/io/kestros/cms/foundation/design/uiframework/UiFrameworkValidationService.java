@@ -56,6 +56,7 @@ public class UiFrameworkValidationService extends UiLibraryValidationService {
     addBasicValidator(isAllVendorLibrariesExist());
     addBasicValidator(hasValidDefaultTheme());
     addBasicValidator(isFrameworkCodeUnique());
+    addBasicValidator(isTemplateNamesUnique());
     addBasicValidator(modelListHasNoWarnings(getModel().getThemes(), "Themes have no warnings."));
     addBasicValidator(modelListHasNoErrors(getModel().getThemes(), "Themes have no errors."));
   }
@@ -175,6 +176,25 @@ public class UiFrameworkValidationService extends UiLibraryValidationService {
     };
   }
 
+  ModelValidator isTemplateNamesUnique() {
+    return new ModelValidator() {
+      @Override
+      public boolean isValid() {
+        return getModel().getTemplateCatalog().getDuplicateTemplateSourcePaths().isEmpty();
+      }
+
+      @Override
+      public String getMessage() {
+        return "HTL Template names are unique.";
+      }
+
+      @Override
+      public ModelValidationMessageType getType() {
+        return WARNING;
+      }
+    };
+  }
+
   ModelValidator isFrameworkCodeUnique() {
     return new ModelValidator() {
       @Override
@@ -0,0 +1,176 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.eventlisteners.componenttypechange;
+
+import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_ETC_ROOT_PATH;
+import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_LIBS_ROOT_PATH;
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
+
+import io.kestros.cms.foundation.services.cache.htltemplate.impl.BaseHtlTemplateCacheService;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentTypeService;
+import io.kestros.cms.foundation.services.htltemplateusage.HtlTemplateUsageIndexService;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * ResourceChangeListener which listens for changes to /apps and /libs, updates the ComponentType
+ * hierarchy graph and the HTL Template usage index, and purges the indexes derived from
+ * ComponentTypes that may be affected by each change. Effective ComponentType snapshots are also
+ * purged when a UiFramework is added, changed or removed, as they hold views and scripts resolved
+ * for each UiFramework.
+ */
+@Component(service = ResourceChangeListener.class,
+           immediate = true,
+           property = {ResourceChangeListener.CHANGES + "=ADDED",
+               ResourceChangeListener.CHANGES + "=CHANGED",
+               ResourceChangeListener.CHANGES + "=REMOVED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_ADDED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_REMOVED",
+               ResourceChangeListener.PATHS + "=/apps", ResourceChangeListener.PATHS + "=/libs",
+               ResourceChangeListener.PATHS + "=" + UI_FRAMEWORKS_ETC_ROOT_PATH})
+public class ComponentTypeChangeEventListener implements ResourceChangeListener {
+
+  private ComponentContext componentContext;
+
+  /**
+   * Activates the listener.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    this.componentContext = componentContext;
+  }
+
+  @Override
+  public void onChange(@Nonnull final List<ResourceChange> changes) {
+    final List<EffectiveComponentTypeService> snapshotServices
+        = getEffectiveComponentTypeServices();
+    final List<String> changedPaths = new ArrayList<>();
+    for (final ResourceChange change : changes) {
+      final String path = change.getPath();
+      if (path.startsWith(BaseHtlTemplateCacheService.UI_FRAMEWORKS_CACHE_ROOT)) {
+        continue;
+      }
+      if (isUiFrameworkChange(path)) {
+        for (final EffectiveComponentTypeService snapshotService : snapshotServices) {
+          snapshotService.purgeAll();
+        }
+        continue;
+      }
+      if (path.startsWith(UI_FRAMEWORKS_ETC_ROOT_PATH + "/") || path.startsWith(
+          UI_FRAMEWORKS_LIBS_ROOT_PATH + "/")) {
+        continue;
+      }
+      changedPaths.add(path);
+    }
+    if (changedPaths.isEmpty()) {
+      return;
+    }
+
+    final List<ComponentTypeHierarchyService> hierarchyServices
+        = getComponentTypeHierarchyServices();
+    for (final ComponentTypeHierarchyService hierarchyService : hierarchyServices) {
+      hierarchyService.update(changedPaths);
+    }
+    for (final HtlTemplateUsageIndexService usageIndexService
+        : getHtlTemplateUsageIndexServices()) {
+      usageIndexService.update(changedPaths);
+    }
+    final List<ComponentTypeResolutionService> resolutionServices
+        = getComponentTypeResolutionServices();
+    for (final String path : changedPaths) {
+      for (final ComponentTypeResolutionService resolutionService : resolutionServices) {
+        resolutionService.purge(path);
+      }
+      for (final EffectiveComponentTypeService snapshotService : snapshotServices) {
+        snapshotService.purge(path);
+        for (final ComponentTypeHierarchyService hierarchyService : hierarchyServices) {
+          for (final String descendantPath : hierarchyService.getDescendantPaths(path)) {
+            snapshotService.purge(descendantPath);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * ResourceType to ComponentType indexes to purge changed ComponentTypes from.
+   *
+   * @return ResourceType to ComponentType indexes to purge changed ComponentTypes from.
+   */
+  @Nonnull
+  public List<ComponentTypeResolutionService> getComponentTypeResolutionServices() {
+    return getAllOsgiServicesOfType(componentContext, ComponentTypeResolutionService.class);
+  }
+
+  /**
+   * Effective ComponentType caches to purge changed ComponentTypes from.
+   *
+   * @return Effective ComponentType caches to purge changed ComponentTypes from.
+   */
+  @Nonnull
+  public List<EffectiveComponentTypeService> getEffectiveComponentTypeServices() {
+    return getAllOsgiServicesOfType(componentContext, EffectiveComponentTypeService.class);
+  }
+
+  /**
+   * ComponentType hierarchy graphs to update with changed ComponentTypes. Snapshots of
+   * ComponentTypes which inherit from a changed path are purged as well, which includes
+   * ComponentTypes superTyping a ComponentType that did not exist until the change.
+   *
+   * @return ComponentType hierarchy graphs to update with changed ComponentTypes.
+   */
+  @Nonnull
+  public List<ComponentTypeHierarchyService> getComponentTypeHierarchyServices() {
+    return getAllOsgiServicesOfType(componentContext, ComponentTypeHierarchyService.class);
+  }
+
+  /**
+   * HTL Template usage indexes to re-read changed view scripts into.
+   *
+   * @return HTL Template usage indexes to re-read changed view scripts into.
+   */
+  @Nonnull
+  public List<HtlTemplateUsageIndexService> getHtlTemplateUsageIndexServices() {
+    return getAllOsgiServicesOfType(componentContext, HtlTemplateUsageIndexService.class);
+  }
+
+  /**
+   * Whether a path is a UiFramework resource (rather than a resource nested under one).
+   */
+  private static boolean isUiFrameworkChange(final String path) {
+    for (final String rootPath : new String[]{UI_FRAMEWORKS_ETC_ROOT_PATH,
+        UI_FRAMEWORKS_LIBS_ROOT_PATH}) {
+      if (path.equals(rootPath) || (path.startsWith(rootPath + "/") && !path.substring(
+          rootPath.length() + 1).contains("/"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
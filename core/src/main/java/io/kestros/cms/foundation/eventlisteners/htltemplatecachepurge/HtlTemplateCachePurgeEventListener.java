@@ -21,16 +21,24 @@ package io.kestros.cms.foundation.eventlisteners.htltemplatecachepurge;
 import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
 
 import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCacheService;
+import io.kestros.cms.foundation.services.cache.htltemplate.ParsedHtlTemplateCacheService;
+import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.services.eventlisteners.impl.BaseCachePurgeOnResourceChangeEventListener;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Listens for changes to /etc and /libs and purges, then rebuilds the compiled HTL Template cache
- * for all UiFrameworks.
+ * Listens for changes to /etc and /libs and rebuilds the compiled HTL Template cache for the
+ * UiFrameworks that include a changed HTL Template file, directly or through a VendorLibrary.
  */
 @Component(service = ResourceChangeListener.class,
            property = {ResourceChangeListener.CHANGES + "=ADDED",
@@ -43,6 +51,9 @@ import org.osgi.service.component.annotations.Reference;
 public class HtlTemplateCachePurgeEventListener
     extends BaseCachePurgeOnResourceChangeEventListener {
 
+  private static final Logger LOG = LoggerFactory.getLogger(
+      HtlTemplateCachePurgeEventListener.class);
+
   public static final String KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER
       = "kestros-htl-template-cache-purge";
 
@@ -50,11 +61,43 @@ public class HtlTemplateCachePurgeEventListener
   @Reference
   private ResourceResolverFactory resourceResolverFactory;
 
+  @Override
+  public void onChange(@Nonnull final List<ResourceChange> changes) {
+    final Set<String> changedPaths = new LinkedHashSet<>();
+    for (final ResourceChange change : changes) {
+      changedPaths.add(change.getPath());
+    }
+    for (final ParsedHtlTemplateCacheService parsedHtlTemplateCacheService
+        : getParsedHtlTemplateCacheServices()) {
+      for (final String changedPath : changedPaths) {
+        parsedHtlTemplateCacheService.purge(changedPath);
+      }
+    }
+    for (final HtlTemplateCacheService cacheService : getCacheServices()) {
+      try {
+        cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(changedPaths);
+      } catch (final CacheBuilderException exception) {
+        LOG.warn("Failed to rebuild changed HTL Templates for {}. {}",
+            cacheService.getClass().getSimpleName(), exception.getMessage());
+      }
+    }
+  }
+
   @Override
   public List<HtlTemplateCacheService> getCacheServices() {
     return getAllOsgiServicesOfType(getComponentContext(), HtlTemplateCacheService.class);
   }
 
+  /**
+   * ParsedHtlTemplateCacheServices to evict changed HTL Template files from.
+   *
+   * @return ParsedHtlTemplateCacheServices to evict changed HTL Template files from.
+   */
+  @Nonnull
+  public List<ParsedHtlTemplateCacheService> getParsedHtlTemplateCacheServices() {
+    return getAllOsgiServicesOfType(getComponentContext(), ParsedHtlTemplateCacheService.class);
+  }
+
   @Override
   public ResourceResolverFactory getResourceResolverFactory() {
     return resourceResolverFactory;
@@ -0,0 +1,131 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.eventlisteners.pagecacheinvalidation;
+
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
+
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
+import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ResourceChangeListener which listens for changes to /etc, /libs, /apps, /content and evicts only
+ * the cached pages which were rendered from the changed resources, as recorded by the {@link
+ * PageCacheDependencyService}. Evicted pages are handed to all {@link PageCacheWarmerService}
+ * instances to be rendered again.
+ */
+@Component(service = ResourceChangeListener.class,
+           immediate = true,
+           property = {ResourceChangeListener.CHANGES + "=ADDED",
+               ResourceChangeListener.CHANGES + "=CHANGED",
+               ResourceChangeListener.CHANGES + "=REMOVED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_ADDED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_REMOVED",
+               ResourceChangeListener.PATHS + "=/etc", ResourceChangeListener.PATHS + "=/libs",
+               ResourceChangeListener.PATHS + "=/apps", ResourceChangeListener.PATHS + "=/content"})
+public class PageCacheInvalidationEventListener implements ResourceChangeListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      PageCacheInvalidationEventListener.class);
+
+  @Reference
+  private PageCacheDependencyService pageCacheDependencyService;
+
+  private ComponentContext componentContext;
+
+  /**
+   * Activates the listener.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    this.componentContext = componentContext;
+  }
+
+  @Override
+  public void onChange(@Nonnull final List<ResourceChange> changes) {
+    final Set<String> affectedPagePaths = new HashSet<>();
+    for (final ResourceChange change : changes) {
+      affectedPagePaths.addAll(
+          pageCacheDependencyService.getDependentPagePaths(change.getPath(),
+              isDescendantsAffected(change.getType())));
+    }
+    if (affectedPagePaths.isEmpty()) {
+      return;
+    }
+    final List<PageCacheService> pageCacheServices = getPageCacheServices();
+    for (final String pagePath : affectedPagePaths) {
+      pageCacheDependencyService.removePage(pagePath);
+      for (final PageCacheService pageCacheService : pageCacheServices) {
+        try {
+          pageCacheService.purgePage(pagePath);
+        } catch (final CachePurgeException exception) {
+          LOG.warn("Failed to evict cached page {} from {}. {}", pagePath,
+              pageCacheService.getClass().getSimpleName(), exception.getMessage());
+        }
+      }
+    }
+    LOG.debug("Evicted {} cached pages after {} resource changes.", affectedPagePaths.size(),
+        changes.size());
+    for (final PageCacheWarmerService pageCacheWarmerService : getPageCacheWarmerServices()) {
+      pageCacheWarmerService.warmPages(affectedPagePaths);
+    }
+  }
+
+  /**
+   * PageCacheServices to evict affected pages from.
+   *
+   * @return PageCacheServices to evict affected pages from.
+   */
+  @Nonnull
+  public List<PageCacheService> getPageCacheServices() {
+    return getAllOsgiServicesOfType(componentContext, PageCacheService.class);
+  }
+
+  /**
+   * PageCacheWarmerServices which re-render evicted pages.
+   *
+   * @return PageCacheWarmerServices which re-render evicted pages.
+   */
+  @Nonnull
+  public List<PageCacheWarmerService> getPageCacheWarmerServices() {
+    return getAllOsgiServicesOfType(componentContext, PageCacheWarmerService.class);
+  }
+
+  private static boolean isDescendantsAffected(final ChangeType changeType) {
+    return ChangeType.REMOVED.equals(changeType) || ChangeType.PROVIDER_ADDED.equals(changeType)
+           || ChangeType.PROVIDER_REMOVED.equals(changeType);
+  }
+
+}
@@ -21,10 +21,10 @@ package io.kestros.cms.foundation.eventlisteners.pagecachepurge;
 import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.kestros.cms.foundation.eventlisteners.pagecacheinvalidation.PageCacheInvalidationEventListener;
+import io.kestros.cms.foundation.eventlisteners.scriptresolutioncacheinvalidation.ScriptResolutionCacheInvalidationEventListener;
 import io.kestros.cms.foundation.services.cache.validation.ValidationCacheService;
 import io.kestros.cms.foundation.services.componenttypecache.ComponentTypeCache;
-import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
-import io.kestros.cms.foundation.services.scriptprovider.ComponentViewScriptResolutionCacheService;
 import io.kestros.commons.osgiserviceutils.services.cache.CacheService;
 import io.kestros.commons.osgiserviceutils.services.eventlisteners.impl.BaseCachePurgeOnResourceChangeEventListener;
 import java.util.ArrayList;
@@ -35,8 +35,10 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
 /**
- * ResourceChangeListener which listens for changes to /etc, /libs, /apps, /content and purges the
- * cache for all PageCacheServices when any change is detected.
+ * ResourceChangeListener which listens for changes to /etc, /libs and /apps and purges the
+ * ComponentType cache when any change is detected. Cached pages and script resolutions are evicted
+ * selectively by the {@link PageCacheInvalidationEventListener} and {@link
+ * ScriptResolutionCacheInvalidationEventListener}.
  */
 @Component(service = ResourceChangeListener.class,
            property = {ResourceChangeListener.CHANGES + "=ADDED",
@@ -45,7 +47,7 @@ import org.osgi.service.component.annotations.Reference;
                ResourceChangeListener.CHANGES + "=PROVIDER_ADDED",
                ResourceChangeListener.CHANGES + "=PROVIDER_REMOVED",
                ResourceChangeListener.PATHS + "=/etc", ResourceChangeListener.PATHS + "=/libs",
-               ResourceChangeListener.PATHS + "=/apps", ResourceChangeListener.PATHS + "=/content"})
+               ResourceChangeListener.PATHS + "=/apps"})
 public class PageCachePurgeEventListener extends BaseCachePurgeOnResourceChangeEventListener {
 
   public static final String KESTROS_PAGE_CACHE_PURGE_SERVICE_USER = "kestros-page-cache-purge";
@@ -67,10 +69,7 @@ public class PageCachePurgeEventListener extends BaseCachePurgeOnResourceChangeE
   @Override
   public List<CacheService> getCacheServices() {
     List<CacheService> cacheServices = new ArrayList<>();
-    cacheServices.addAll(getAllOsgiServicesOfType(getComponentContext(), PageCacheService.class));
     cacheServices.addAll(getAllOsgiServicesOfType(getComponentContext(), ComponentTypeCache.class));
-    cacheServices.addAll(getAllOsgiServicesOfType(getComponentContext(),
-        ComponentViewScriptResolutionCacheService.class));
     return cacheServices;
   }
 
@@ -0,0 +1,111 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.eventlisteners.scriptresolutioncacheinvalidation;
+
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
+
+import io.kestros.cms.foundation.design.DesignConstants;
+import io.kestros.cms.foundation.services.cache.htltemplate.impl.BaseHtlTemplateCacheService;
+import io.kestros.cms.foundation.services.scriptprovider.ComponentViewScriptResolutionCacheService;
+import io.kestros.cms.foundation.services.scriptresolutiontable.ScriptResolutionTableService;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * ResourceChangeListener which listens for changes to /etc, /libs and /apps and purges only the
+ * cached script resolutions of the changed ComponentTypes (and the ComponentTypes inheriting from
+ * them) and UiFrameworks. Precomputed script resolution tables are rebuilt when ComponentTypes or
+ * UiFrameworks change.
+ */
+@Component(service = ResourceChangeListener.class,
+           immediate = true,
+           property = {ResourceChangeListener.CHANGES + "=ADDED",
+               ResourceChangeListener.CHANGES + "=CHANGED",
+               ResourceChangeListener.CHANGES + "=REMOVED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_ADDED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_REMOVED",
+               ResourceChangeListener.PATHS + "=/etc", ResourceChangeListener.PATHS + "=/libs",
+               ResourceChangeListener.PATHS + "=/apps"})
+public class ScriptResolutionCacheInvalidationEventListener implements ResourceChangeListener {
+
+  private ComponentContext componentContext;
+
+  /**
+   * Activates the listener.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    this.componentContext = componentContext;
+  }
+
+  @Override
+  public void onChange(@Nonnull final List<ResourceChange> changes) {
+    for (final ComponentViewScriptResolutionCacheService cacheService
+        : getScriptResolutionCacheServices()) {
+      for (final ResourceChange change : changes) {
+        cacheService.purgeComponentType(change.getPath());
+      }
+    }
+    for (final ResourceChange change : changes) {
+      if (isScriptResolutionChange(change.getPath())) {
+        for (final ScriptResolutionTableService tableService : getScriptResolutionTableServices()) {
+          tableService.rebuild();
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Script resolution caches to purge changed ComponentTypes from.
+   *
+   * @return Script resolution caches to purge changed ComponentTypes from.
+   */
+  @Nonnull
+  public List<ComponentViewScriptResolutionCacheService> getScriptResolutionCacheServices() {
+    return getAllOsgiServicesOfType(componentContext,
+        ComponentViewScriptResolutionCacheService.class);
+  }
+
+  /**
+   * Script resolution tables to rebuild when ComponentTypes or UiFrameworks change.
+   *
+   * @return Script resolution tables to rebuild when ComponentTypes or UiFrameworks change.
+   */
+  @Nonnull
+  public List<ScriptResolutionTableService> getScriptResolutionTableServices() {
+    return getAllOsgiServicesOfType(componentContext, ScriptResolutionTableService.class);
+  }
+
+  private static boolean isScriptResolutionChange(final String path) {
+    if (path.startsWith(BaseHtlTemplateCacheService.UI_FRAMEWORKS_CACHE_ROOT)) {
+      return false;
+    }
+    return path.startsWith("/apps") || path.startsWith("/libs") || path.startsWith(
+        DesignConstants.UI_FRAMEWORKS_ETC_ROOT_PATH);
+  }
+
+}
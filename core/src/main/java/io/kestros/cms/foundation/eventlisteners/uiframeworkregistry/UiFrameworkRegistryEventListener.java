@@ -0,0 +1,99 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.eventlisteners.uiframeworkregistry;
+
+import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_ETC_ROOT_PATH;
+import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_LIBS_ROOT_PATH;
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
+
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * ResourceChangeListener which rebuilds UiFramework registries when a UiFramework under /etc or
+ * /libs is added, changed or removed. Changes to templates, themes and other resources nested
+ * under a UiFramework do not affect the registry, and are ignored.
+ */
+@Component(service = ResourceChangeListener.class,
+           immediate = true,
+           property = {ResourceChangeListener.CHANGES + "=ADDED",
+               ResourceChangeListener.CHANGES + "=CHANGED",
+               ResourceChangeListener.CHANGES + "=REMOVED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_ADDED",
+               ResourceChangeListener.CHANGES + "=PROVIDER_REMOVED",
+               ResourceChangeListener.PATHS + "=" + UI_FRAMEWORKS_ETC_ROOT_PATH,
+               ResourceChangeListener.PATHS + "=" + UI_FRAMEWORKS_LIBS_ROOT_PATH})
+public class UiFrameworkRegistryEventListener implements ResourceChangeListener {
+
+  private ComponentContext componentContext;
+
+  /**
+   * Activates the listener.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    this.componentContext = componentContext;
+  }
+
+  @Override
+  public void onChange(@Nonnull final List<ResourceChange> changes) {
+    for (final ResourceChange change : changes) {
+      if (isUiFrameworkChange(change.getPath())) {
+        for (final UiFrameworkRegistryService registryService : getUiFrameworkRegistryServices()) {
+          registryService.rebuild();
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * UiFramework registries to rebuild when UiFrameworks change.
+   *
+   * @return UiFramework registries to rebuild when UiFrameworks change.
+   */
+  @Nonnull
+  public List<UiFrameworkRegistryService> getUiFrameworkRegistryServices() {
+    return getAllOsgiServicesOfType(componentContext, UiFrameworkRegistryService.class);
+  }
+
+  private static boolean isUiFrameworkChange(final String path) {
+    return isUiFrameworkChange(path, UI_FRAMEWORKS_ETC_ROOT_PATH) || isUiFrameworkChange(path,
+        UI_FRAMEWORKS_LIBS_ROOT_PATH);
+  }
+
+  private static boolean isUiFrameworkChange(final String path, final String rootPath) {
+    if (path.equals(rootPath)) {
+      return true;
+    }
+    if (!path.startsWith(rootPath + "/")) {
+      return false;
+    }
+    final String[] segments = path.substring(rootPath.length() + 1).split("/");
+    return segments.length == 1 || (segments.length == 2 && "jcr:content".equals(segments[1]));
+  }
+
+}
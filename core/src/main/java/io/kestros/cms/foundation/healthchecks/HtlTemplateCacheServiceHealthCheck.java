@@ -39,7 +39,8 @@ import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicyOption;
 
 /**
- * Health check which checks whether the HtlTemplateCacheService is active and running properly.
+ * Health check which checks whether the HtlTemplateCacheService is active and running properly, and
+ * whether its background build of compiled HTL Template files has finished.
  */
 @Component
 @HealthCheckService(name = "HtlTemplateCacheService Check",
@@ -60,6 +61,11 @@ public class HtlTemplateCacheServiceHealthCheck implements HealthCheck {
     if (htlTemplateCacheService == null) {
       log.critical("HtlTemplateCacheService is not registered.");
     } else {
+      if (htlTemplateCacheService.isBuildInProgress()) {
+        log.warn("HtlTemplateCacheService is building compiled HTL Template files.");
+      } else if (!htlTemplateCacheService.isReady()) {
+        log.critical("HtlTemplateCacheService has not built compiled HTL Template files.");
+      }
       if (htlTemplateCacheService.getServiceResourceResolver() == null) {
         log.critical("HtlTemplateCacheService has null Service ResourceResolver.");
       }
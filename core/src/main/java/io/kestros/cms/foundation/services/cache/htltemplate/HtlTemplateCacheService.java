@@ -20,6 +20,8 @@ package io.kestros.cms.foundation.services.cache.htltemplate;
 
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.services.cache.CacheService;
+import java.util.Collection;
+import javax.annotation.Nonnull;
 import org.apache.sling.api.resource.ResourceResolver;
 
 /**
@@ -41,6 +43,42 @@ public interface HtlTemplateCacheService extends CacheService {
    */
   void cacheAllUiFrameworkCompiledHtlTemplates() throws CacheBuilderException;
 
+  /**
+   * Rebuilds compiled HTL Templates only for UiFrameworks that include a changed resource, either
+   * directly or through one of their VendorLibraries, and whose HTL Template files no longer match
+   * the fingerprints recorded when they were last cached. The rebuild may run in the background,
+   * and is skipped when compiled HTL Templates have not been built for all UiFrameworks, since the
+   * full build reads the changes.
+   *
+   * @param changedPaths Paths of changed resources.
+   * @throws CacheBuilderException Failed to build HTL Template cache.
+   */
+  void cacheChangedUiFrameworkCompiledHtlTemplates(@Nonnull Collection<String> changedPaths)
+      throws CacheBuilderException;
+
+  /**
+   * Whether compiled HTL Template files have been built for all UiFrameworks.
+   *
+   * @return Whether compiled HTL Template files have been built for all UiFrameworks.
+   */
+  boolean isReady();
+
+  /**
+   * Whether compiled HTL Template files for all UiFrameworks are currently being built.
+   *
+   * @return Whether compiled HTL Template files for all UiFrameworks are currently being built.
+   */
+  boolean isBuildInProgress();
+
+  /**
+   * Waits, up to a timeout, for the in-progress build of compiled HTL Template files for all
+   * UiFrameworks. Returns immediately when no build is in progress, and never starts one.
+   *
+   * @param timeoutMillis Milliseconds to wait.
+   * @return Whether compiled HTL Template files have been built for all UiFrameworks.
+   */
+  boolean awaitCacheBuild(long timeoutMillis);
+
   /**
    * Service ResourceResolver.
    *
@@ -0,0 +1,58 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplateCatalog;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import javax.annotation.Nonnull;
+
+/**
+ * Builds and keeps an {@link HtlTemplateCatalog} per UiFramework. Catalogs are invalidated
+ * together with the UiFramework's compiled HTL Templates.
+ */
+public interface HtlTemplateCatalogService {
+
+  /**
+   * HTL Template catalog of a UiFramework, built on first request.
+   *
+   * @param uiFramework UiFramework to retrieve the catalog for.
+   * @return HTL Template catalog of the UiFramework.
+   */
+  @Nonnull
+  HtlTemplateCatalog getCatalog(@Nonnull UiFramework uiFramework);
+
+  /**
+   * Removes the catalog of a UiFramework.
+   *
+   * @param uiFrameworkPath Path of the UiFramework.
+   */
+  void purge(@Nonnull String uiFrameworkPath);
+
+  /**
+   * Removes all catalogs.
+   */
+  void purgeAll();
+
+  /**
+   * Number of cached catalogs.
+   *
+   * @return Number of cached catalogs.
+   */
+  int getSize();
+
+}
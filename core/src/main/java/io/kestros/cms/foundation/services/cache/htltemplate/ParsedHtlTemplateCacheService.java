@@ -0,0 +1,71 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Shares parsed HtlTemplates between callers, keyed by HTL Template file path and revision, so
+ * identical files are only parsed once.
+ */
+public interface ParsedHtlTemplateCacheService {
+
+  /**
+   * HtlTemplates parsed from a revision of an HTL Template file.
+   *
+   * @param path HTL Template file path.
+   * @param revision HTL Template file revision.
+   * @return HtlTemplates parsed from the file revision, or null if that revision is not cached.
+   */
+  @Nullable
+  List<HtlTemplate> getTemplates(@Nonnull String path, @Nonnull String revision);
+
+  /**
+   * Caches HtlTemplates parsed from a revision of an HTL Template file, replacing those of any
+   * previous revision.
+   *
+   * @param path HTL Template file path.
+   * @param revision HTL Template file revision.
+   * @param templates HtlTemplates parsed from the file revision.
+   */
+  void cacheTemplates(@Nonnull String path, @Nonnull String revision,
+      @Nonnull List<HtlTemplate> templates);
+
+  /**
+   * Removes HtlTemplates parsed from files at or under a changed path.
+   *
+   * @param path Path of the changed resource.
+   */
+  void purge(@Nonnull String path);
+
+  /**
+   * Removes all parsed HtlTemplates.
+   */
+  void purgeAll();
+
+  /**
+   * Number of HTL Template files with cached HtlTemplates.
+   *
+   * @return Number of HTL Template files with cached HtlTemplates.
+   */
+  int getSize();
+
+}
@@ -18,34 +18,68 @@
 
 package io.kestros.cms.foundation.services.cache.htltemplate.impl;
 
+import static io.kestros.cms.foundation.design.DesignConstants.VENDOR_LIBRARIES_ETC_ROOT_PATH;
+import static io.kestros.cms.foundation.design.DesignConstants.VENDOR_LIBRARIES_LIBS_ROOT_PATH;
+import static io.kestros.cms.foundation.utils.DesignUtils.LIBS_KESTROS_ROOT_PATH;
 import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
 import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getOpenServiceResourceResolverOrNullAndLogExceptions;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.kestros.cms.foundation.componenttypes.HtmlFileType;
 import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplateFile;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCacheService;
+import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCatalogService;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
 import io.kestros.commons.osgiserviceutils.services.cache.ManagedCacheService;
 import io.kestros.commons.osgiserviceutils.services.cache.impl.JcrFileCacheService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.event.jobs.JobManager;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Baseline service for caching compiled HTL Template files for UiFrameworks with Kestros.
+ * Baseline service for caching compiled HTL Template files for UiFrameworks with Kestros. Records
+ * a fingerprint of each HTL Template file a UiFramework is compiled from, so resource changes only
+ * rebuild the UiFrameworks whose template files actually changed. Full builds, rebuilds of changed
+ * UiFrameworks and rebuilds after purges all run on a single background thread, so bundle
+ * activation and resource change listeners are not blocked, and builds never run concurrently.
+ * Each build reads content with its own service ResourceResolver. Failed full build attempts are
+ * retried with exponential backoff.
  */
 @Component(immediate = true,
            service = {ManagedCacheService.class, HtlTemplateCacheService.class},
-           property = "service.ranking:Integer=100")
+           property = {"service.ranking:Integer=100",
+               BaseHtlTemplateCacheService.PN_BUILD_ON_ACTIVATION + ":Boolean=true"})
 public class BaseHtlTemplateCacheService extends JcrFileCacheService
     implements HtlTemplateCacheService {
 
@@ -54,23 +88,59 @@ public class BaseHtlTemplateCacheService extends JcrFileCacheService
   public static final String UI_FRAMEWORKS_CACHE_ROOT
       = "/apps/kestros/cache/compiled-htl-templates";
 
+  public static final String PN_BUILD_ON_ACTIVATION = "buildOnActivation";
+
   private static final String HTL_TEMPLATE_CACHE_SERVICE_USER = "kestros-htl-template-cache";
 
+  private static final int MAX_BUILD_ATTEMPTS = 10;
+  private static final long INITIAL_BUILD_RETRY_DELAY = 500;
+  private static final long MAX_BUILD_RETRY_DELAY = 30000;
+
   private static final long serialVersionUID = 6704602826025832237L;
 
   @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
   @Reference
   private transient ResourceResolverFactory resourceResolverFactory;
 
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private transient HtlTemplateCatalogService htlTemplateCatalogService;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private final transient Map<String, TemplateSources> uiFrameworkTemplateSources
+      = new ConcurrentHashMap<>();
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient ScheduledExecutorService buildExecutorService;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient volatile CompletableFuture<Boolean> cacheBuild;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient volatile boolean ready = false;
+
   @Override
   @Activate
   public void activate(ComponentContext componentContext) {
     super.activate(componentContext);
-    try {
-      this.cacheAllUiFrameworkCompiledHtlTemplates(10);
-    } catch (CacheBuilderException e) {
-      LOG.error("Failed to rebuild compiled HTL Template files during bundle activation.");
+    buildExecutorService = createBuildExecutorService();
+    if (isBuildOnActivation(componentContext)) {
+      scheduleCacheAllUiFrameworkCompiledHtlTemplates();
+    }
+  }
+
+  @Override
+  @Deactivate
+  public void deactivate(ComponentContext componentContext) {
+    if (buildExecutorService != null) {
+      buildExecutorService.shutdownNow();
+    }
+    final CompletableFuture<Boolean> build = cacheBuild;
+    if (build != null) {
+      build.complete(false);
     }
+    super.deactivate(componentContext);
   }
 
   @Override
@@ -104,41 +174,161 @@ public class BaseHtlTemplateCacheService extends JcrFileCacheService
   }
 
   /**
-   * Caches Compiled HTL Template files for all UiFrameworks.
+   * Caches Compiled HTL Template files for all UiFrameworks, and waits for it to complete. Runs on
+   * the build thread while the service is active, so it never runs alongside another build.
+   * Failures are not retried.
    */
   public void cacheAllUiFrameworkCompiledHtlTemplates() {
-    if (getServiceResourceResolver() == null) {
-      this.serviceResourceResolver = getOpenServiceResourceResolverOrNullAndLogExceptions(
-          getServiceUserName(), getServiceResourceResolver(), getResourceResolverFactory(), this);
+    LOG.info("Attempting to cache compiled HTL Template files for all UiFrameworks.");
+    if (attemptToCacheAllUiFrameworkCompiledHtlTemplatesOnBuildThread()) {
+      ready = true;
+      LOG.info("Successfully cached all compiled HTL Template Libraries.");
+    } else {
+      LOG.error("Failed to cache all compiled HTL Template Libraries");
     }
+  }
 
-    int attempts = 0;
-    LOG.info("Attempting to cache compiled HTL Template files for all UiFrameworks.");
-    while (attempts < 10) {
-      try {
-        if (getAllUiFrameworks(getServiceResourceResolver(), true, true).size() == 0) {
-          getServiceResourceResolver().refresh();
+  /**
+   * Starts caching Compiled HTL Template files for all UiFrameworks on a background thread, unless
+   * a build is already in progress. Failed attempts are retried with exponential backoff.
+   *
+   * @return Whether a build is in progress.
+   */
+  public synchronized boolean scheduleCacheAllUiFrameworkCompiledHtlTemplates() {
+    if (isBuildInProgress()) {
+      return true;
+    }
+    if (buildExecutorService == null || buildExecutorService.isShutdown()) {
+      return false;
+    }
+    final CompletableFuture<Boolean> build = new CompletableFuture<>();
+    cacheBuild = build;
+    scheduleCacheBuildAttempt(build, 0, 0);
+    return isBuildInProgress();
+  }
+
+  @Override
+  public boolean isReady() {
+    return ready;
+  }
+
+  @Override
+  public boolean isBuildInProgress() {
+    final CompletableFuture<Boolean> build = cacheBuild;
+    return build != null && !build.isDone();
+  }
+
+  @Override
+  public boolean awaitCacheBuild(final long timeoutMillis) {
+    final CompletableFuture<Boolean> build = cacheBuild;
+    if (build == null || build.isDone()) {
+      return ready;
+    }
+    try {
+      build.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException | TimeoutException e) {
+      LOG.debug("Compiled HTL Template files were not built within {}ms.", timeoutMillis);
+    }
+    return ready;
+  }
+
+  /**
+   * Milliseconds to wait before retrying a failed build of all compiled HTL Template files.
+   *
+   * @param attempt Zero-based index of the failed attempt.
+   * @return Milliseconds to wait before retrying a failed build of all compiled HTL Template files.
+   */
+  protected static long getCacheBuildRetryDelay(final int attempt) {
+    if (attempt >= 16) {
+      return MAX_BUILD_RETRY_DELAY;
+    }
+    return Math.min(INITIAL_BUILD_RETRY_DELAY << attempt, MAX_BUILD_RETRY_DELAY);
+  }
+
+  /**
+   * Creates the single-thread executor that runs full builds, rebuilds of changed UiFrameworks,
+   * and rebuilds after purges.
+   *
+   * @return Single-thread executor that builds compiled HTL Template files.
+   */
+  protected ScheduledExecutorService createBuildExecutorService() {
+    return Executors.newSingleThreadScheduledExecutor();
+  }
+
+  /**
+   * Opens a service ResourceResolver for reading UiFrameworks and their HTL Template files. Each
+   * build opens its own, so it reads the latest content and shares no session with other threads.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver openBuildResourceResolver() {
+    if (getResourceResolverFactory() == null) {
+      return null;
+    }
+    try {
+      return getResourceResolverFactory().getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, getServiceUserName()));
+    } catch (final LoginException e) {
+      LOG.debug("Failed to open HTL Template cache build ResourceResolver. {}", e.getMessage());
+    }
+    return null;
+  }
+
+  private void scheduleCacheBuildAttempt(final CompletableFuture<Boolean> build, final int attempt,
+      final long delay) {
+    try {
+      buildExecutorService.schedule(() -> runCacheBuildAttempt(build, attempt), delay,
+          TimeUnit.MILLISECONDS);
+    } catch (final RejectedExecutionException e) {
+      LOG.debug("HTL Template cache build attempt {} was rejected. {}", attempt, e.getMessage());
+      build.complete(false);
+    }
+  }
+
+  private void runCacheBuildAttempt(final CompletableFuture<Boolean> build, final int attempt) {
+    if (build.isDone()) {
+      return;
+    }
+    if (attemptToCacheAllUiFrameworkCompiledHtlTemplates(attempt)) {
+      synchronized (this) {
+        // A purge may have replaced this build while it ran.
+        if (build == cacheBuild) {
+          ready = true;
         }
-        cacheAllUiFrameworkCompiledHtlTemplates(attempts);
-        break;
-      } catch (final CacheBuilderException e) {
-        LOG.debug("Failed to build HTL Library cache. Attempt {}. {}", attempts, e.getMessage());
-        attempts++;
       }
-    }
-    if (attempts <= 10) {
-      LOG.info("Successfully cached all compiled HTL Template Libraries.");
+      LOG.info("Successfully cached all compiled HTL Template Libraries after {} attempts.",
+          attempt + 1);
+      build.complete(true);
+    } else if (attempt + 1 >= MAX_BUILD_ATTEMPTS) {
+      LOG.error("Failed to cache all compiled HTL Template Libraries after {} attempts.",
+          MAX_BUILD_ATTEMPTS);
+      build.complete(false);
     } else {
-      LOG.error("Failed to cache all compiled HTL Template Libraries");
+      scheduleCacheBuildAttempt(build, attempt + 1, getCacheBuildRetryDelay(attempt));
     }
   }
 
-  private void cacheAllUiFrameworkCompiledHtlTemplates(final int attempts)
-      throws CacheBuilderException {
-    LOG.debug("Attempting to build HTL Library cache. Attempt {}.", attempts);
-    for (final UiFramework uiFramework : getAllUiFrameworks(getServiceResourceResolver(), true,
-        true)) {
-      cacheUiFrameworkCompiledHtlTemplates(uiFramework);
+  private boolean attemptToCacheAllUiFrameworkCompiledHtlTemplates(final int attempt) {
+    final ResourceResolver resourceResolver = openCacheResourceResolvers();
+    if (resourceResolver == null) {
+      LOG.debug("Failed to build HTL Library cache. Attempt {}. Service ResourceResolver not "
+                + "available.", attempt);
+      return false;
+    }
+    try {
+      LOG.debug("Attempting to build HTL Library cache. Attempt {}.", attempt);
+      for (final UiFramework uiFramework : getAllUiFrameworks(resourceResolver, true, true)) {
+        cacheUiFrameworkCompiledHtlTemplates(uiFramework);
+      }
+      return true;
+    } catch (final CacheBuilderException | RuntimeException e) {
+      LOG.debug("Failed to build HTL Library cache. Attempt {}. {}", attempt, e.getMessage());
+      return false;
+    } finally {
+      resourceResolver.close();
     }
   }
 
@@ -150,19 +340,45 @@ public class BaseHtlTemplateCacheService extends JcrFileCacheService
    */
   public void cacheUiFrameworkCompiledHtlTemplates(final UiFramework uiFramework)
       throws CacheBuilderException {
+    final List<HtlTemplateFile> templateFiles = uiFramework.getTemplateFiles();
     final StringBuilder templatesOutput = new StringBuilder();
-    for (final HtlTemplate template : uiFramework.getTemplates()) {
-      templatesOutput.append(template.getOutput());
+    for (final HtlTemplateFile templateFile : templateFiles) {
+      for (final HtlTemplate template : templateFile.getTemplates()) {
+        templatesOutput.append(template.getOutput());
+      }
     }
     cacheOutput(templatesOutput.toString(), uiFramework);
+    if (htlTemplateCatalogService != null) {
+      htlTemplateCatalogService.purge(uiFramework.getPath());
+    }
+    uiFrameworkTemplateSources.put(uiFramework.getPath(),
+        new TemplateSources(getTemplateSourcePaths(uiFramework),
+            getTemplateFileFingerprints(templateFiles)));
+  }
+
+  @Override
+  public void cacheChangedUiFrameworkCompiledHtlTemplates(
+      @Nonnull final Collection<String> changedPaths) {
+    if (buildExecutorService == null) {
+      LOG.error("Unable to rebuild changed HTL Templates. Service is not active.");
+      return;
+    }
+    final List<String> paths = new ArrayList<>(changedPaths);
+    try {
+      buildExecutorService.execute(() -> rebuildChangedUiFrameworkCompiledHtlTemplates(paths));
+    } catch (final RejectedExecutionException e) {
+      LOG.debug("Rebuild of changed HTL Templates was rejected. {}", e.getMessage());
+    }
   }
 
   @Override
   protected void doPurge(final ResourceResolver resourceResolver) throws CachePurgeException {
     super.doPurge(resourceResolver);
-    try {
-      cacheAllUiFrameworkCompiledHtlTemplates(10);
-    } catch (CacheBuilderException e) {
+    uiFrameworkTemplateSources.clear();
+    if (htlTemplateCatalogService != null) {
+      htlTemplateCatalogService.purgeAll();
+    }
+    if (!restartCacheBuild()) {
       LOG.error("Failed to rebuild compiled HTL Template files after cache purge.");
     }
   }
@@ -177,10 +393,198 @@ public class BaseHtlTemplateCacheService extends JcrFileCacheService
     return 1000;
   }
 
+  private static boolean isBuildOnActivation(final ComponentContext componentContext) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object value = componentContext.getProperties().get(PN_BUILD_ON_ACTIVATION);
+      if (value != null) {
+        return Boolean.parseBoolean(value.toString());
+      }
+    }
+    return true;
+  }
+
+  private boolean attemptToCacheAllUiFrameworkCompiledHtlTemplatesOnBuildThread() {
+    if (buildExecutorService == null || buildExecutorService.isShutdown()) {
+      return attemptToCacheAllUiFrameworkCompiledHtlTemplates(0);
+    }
+    try {
+      return buildExecutorService.submit(
+          () -> attemptToCacheAllUiFrameworkCompiledHtlTemplates(0)).get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException | RejectedExecutionException e) {
+      LOG.debug("Failed to run HTL Template cache build. {}", e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Marks the cache as not ready, and replaces any in-progress build with a new one, so files
+   * written by the replaced build before a purge cannot mark the cache as ready.
+   *
+   * @return Whether a build is in progress.
+   */
+  private synchronized boolean restartCacheBuild() {
+    ready = false;
+    final CompletableFuture<Boolean> build = cacheBuild;
+    if (build != null) {
+      build.complete(false);
+    }
+    return scheduleCacheAllUiFrameworkCompiledHtlTemplates();
+  }
+
+  /**
+   * Opens the service ResourceResolver that cache files are written with, if it is not open, and
+   * a separate service ResourceResolver to read content with. Called on the build thread while the
+   * service is active.
+   *
+   * @return ResourceResolver to read content with, or null if either could not be opened.
+   */
+  @Nullable
+  private ResourceResolver openCacheResourceResolvers() {
+    if (getServiceResourceResolver() == null) {
+      this.serviceResourceResolver = getOpenServiceResourceResolverOrNullAndLogExceptions(
+          getServiceUserName(), getServiceResourceResolver(), getResourceResolverFactory(), this);
+    }
+    if (getServiceResourceResolver() == null) {
+      return null;
+    }
+    return openBuildResourceResolver();
+  }
+
+  private void rebuildChangedUiFrameworkCompiledHtlTemplates(final List<String> changedPaths) {
+    if (!ready) {
+      // Every UiFramework is compiled by the full build, which reads the changes.
+      LOG.debug("Skipped rebuilding changed HTL Templates. Full build has not completed.");
+      return;
+    }
+    final ResourceResolver resourceResolver = openCacheResourceResolvers();
+    if (resourceResolver == null) {
+      LOG.error("Unable to rebuild changed HTL Templates. Service ResourceResolver not available.");
+      return;
+    }
+    try {
+      rebuildChangedUiFrameworkCompiledHtlTemplates(changedPaths, resourceResolver);
+    } catch (final CacheBuilderException | RuntimeException e) {
+      LOG.error("Failed to rebuild changed HTL Templates. {}", e.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  private void rebuildChangedUiFrameworkCompiledHtlTemplates(final List<String> changedPaths,
+      final ResourceResolver resourceResolver) throws CacheBuilderException {
+    final Set<String> uiFrameworkPaths = new HashSet<>();
+    int rebuiltUiFrameworks = 0;
+    for (final UiFramework uiFramework : getAllUiFrameworks(resourceResolver, true, true)) {
+      uiFrameworkPaths.add(uiFramework.getPath());
+      final TemplateSources templateSources = uiFrameworkTemplateSources.get(
+          uiFramework.getPath());
+      if (templateSources != null && !templateSources.isAffectedBy(changedPaths)) {
+        continue;
+      }
+      final Map<String, String> templateFileFingerprints = getTemplateFileFingerprints(
+          uiFramework.getTemplateFiles());
+      if (templateSources == null || templateFileFingerprints == null
+          || !templateFileFingerprints.equals(templateSources.getTemplateFileFingerprints())) {
+        cacheUiFrameworkCompiledHtlTemplates(uiFramework);
+        rebuiltUiFrameworks++;
+      } else {
+        uiFrameworkTemplateSources.put(uiFramework.getPath(),
+            new TemplateSources(getTemplateSourcePaths(uiFramework), templateFileFingerprints));
+      }
+    }
+    for (final String removedUiFrameworkPath : new ArrayList<>(
+        uiFrameworkTemplateSources.keySet())) {
+      if (!uiFrameworkPaths.contains(removedUiFrameworkPath)) {
+        uiFrameworkTemplateSources.remove(removedUiFrameworkPath);
+        if (htlTemplateCatalogService != null) {
+          htlTemplateCatalogService.purge(removedUiFrameworkPath);
+        }
+      }
+    }
+    LOG.debug("Rebuilt compiled HTL Templates for {} UiFrameworks after {} resource changes.",
+        rebuiltUiFrameworks, changedPaths.size());
+  }
+
   private void cacheOutput(final String output, final UiFramework uiFramework)
       throws CacheBuilderException {
     final String fileName = uiFramework.getPath() + ".html";
     createCacheFile(output, fileName, new HtmlFileType());
   }
 
+  /**
+   * Paths which, when changed, may change the HTL Templates compiled into a UiFramework. The
+   * UiFramework itself, and every VendorLibrary it includes, whether or not it exists yet.
+   */
+  @Nonnull
+  private static List<String> getTemplateSourcePaths(@Nonnull final UiFramework uiFramework) {
+    final List<String> sourcePaths = new ArrayList<>();
+    sourcePaths.add(uiFramework.getPath());
+    final String vendorLibrariesRootPath = uiFramework.getPath().startsWith(LIBS_KESTROS_ROOT_PATH)
+                                           ? VENDOR_LIBRARIES_LIBS_ROOT_PATH
+                                           : VENDOR_LIBRARIES_ETC_ROOT_PATH;
+    for (final String vendorLibraryName : uiFramework.getIncludedVendorLibraryNames()) {
+      sourcePaths.add(vendorLibrariesRootPath + "/" + vendorLibraryName);
+    }
+    return sourcePaths;
+  }
+
+  /**
+   * Fingerprints of HTL Template files, keyed by path, or null if a file could not be read.
+   */
+  @Nullable
+  private static Map<String, String> getTemplateFileFingerprints(
+      @Nonnull final List<HtlTemplateFile> templateFiles) {
+    final Map<String, String> fingerprints = new LinkedHashMap<>();
+    for (final HtlTemplateFile templateFile : templateFiles) {
+      final String fingerprint = templateFile.getRevision();
+      if (fingerprint == null) {
+        return null;
+      }
+      fingerprints.put(templateFile.getPath(), fingerprint);
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Source paths and template file fingerprints a UiFramework's compiled HTL Templates were last
+   * built from.
+   */
+  private static final class TemplateSources {
+
+    private final List<String> sourcePaths;
+    private final Map<String, String> templateFileFingerprints;
+
+    private TemplateSources(final List<String> sourcePaths,
+        @Nullable final Map<String, String> templateFileFingerprints) {
+      this.sourcePaths = Collections.unmodifiableList(sourcePaths);
+      if (templateFileFingerprints == null) {
+        this.templateFileFingerprints = null;
+      } else {
+        this.templateFileFingerprints = Collections.unmodifiableMap(templateFileFingerprints);
+      }
+    }
+
+    @Nullable
+    private Map<String, String> getTemplateFileFingerprints() {
+      return templateFileFingerprints;
+    }
+
+    /**
+     * Whether a changed path is, contains, or lives under one of the source paths.
+     */
+    private boolean isAffectedBy(final Collection<String> changedPaths) {
+      for (final String changedPath : changedPaths) {
+        for (final String sourcePath : sourcePaths) {
+          if (changedPath.equals(sourcePath) || changedPath.startsWith(sourcePath + "/")
+              || sourcePath.startsWith(changedPath + "/")) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
 }
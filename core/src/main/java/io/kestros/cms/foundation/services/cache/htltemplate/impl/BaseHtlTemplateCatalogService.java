@@ -0,0 +1,72 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate.impl;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplateCatalog;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCatalogService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps HTL Template catalogs in memory, keyed by UiFramework path.
+ */
+@Component(immediate = true,
+           service = HtlTemplateCatalogService.class,
+           property = "service.ranking:Integer=1")
+public class BaseHtlTemplateCatalogService implements HtlTemplateCatalogService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BaseHtlTemplateCatalogService.class);
+
+  private final Map<String, HtlTemplateCatalog> catalogs = new ConcurrentHashMap<>();
+
+  @Nonnull
+  @Override
+  public HtlTemplateCatalog getCatalog(@Nonnull final UiFramework uiFramework) {
+    HtlTemplateCatalog catalog = catalogs.get(uiFramework.getPath());
+    if (catalog == null) {
+      catalog = new HtlTemplateCatalog(uiFramework.getTemplates());
+      catalogs.put(uiFramework.getPath(), catalog);
+      if (!catalog.getDuplicateTemplateSourcePaths().isEmpty()) {
+        LOG.warn("UiFramework {} defines duplicate HTL Template names {}.", uiFramework.getPath(),
+            catalog.getDuplicateTemplateSourcePaths().keySet());
+      }
+    }
+    return catalog;
+  }
+
+  @Override
+  public void purge(@Nonnull final String uiFrameworkPath) {
+    catalogs.remove(uiFrameworkPath);
+  }
+
+  @Override
+  public void purgeAll() {
+    catalogs.clear();
+  }
+
+  @Override
+  public int getSize() {
+    return catalogs.size();
+  }
+
+}
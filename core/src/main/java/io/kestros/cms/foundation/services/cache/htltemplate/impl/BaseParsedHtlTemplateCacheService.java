@@ -0,0 +1,91 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate.impl;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import io.kestros.cms.foundation.services.cache.htltemplate.ParsedHtlTemplateCacheService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * Keeps the HtlTemplates parsed from the latest requested revision of each HTL Template file in
+ * memory. Older revisions are replaced rather than kept alongside the current one.
+ */
+@Component(immediate = true,
+           service = ParsedHtlTemplateCacheService.class,
+           property = "service.ranking:Integer=1")
+public class BaseParsedHtlTemplateCacheService implements ParsedHtlTemplateCacheService {
+
+  private final Map<String, ParsedHtlTemplateFile> parsedTemplateFiles
+      = new ConcurrentHashMap<>();
+
+  @Nullable
+  @Override
+  public List<HtlTemplate> getTemplates(@Nonnull final String path,
+      @Nonnull final String revision) {
+    final ParsedHtlTemplateFile parsedTemplateFile = parsedTemplateFiles.get(path);
+    if (parsedTemplateFile != null && parsedTemplateFile.revision.equals(revision)) {
+      return parsedTemplateFile.templates;
+    }
+    return null;
+  }
+
+  @Override
+  public void cacheTemplates(@Nonnull final String path, @Nonnull final String revision,
+      @Nonnull final List<HtlTemplate> templates) {
+    parsedTemplateFiles.put(path, new ParsedHtlTemplateFile(revision, templates));
+  }
+
+  @Override
+  public void purge(@Nonnull final String path) {
+    parsedTemplateFiles.keySet().removeIf(
+        templateFilePath -> templateFilePath.equals(path) || templateFilePath.startsWith(
+            path + "/"));
+  }
+
+  @Override
+  public void purgeAll() {
+    parsedTemplateFiles.clear();
+  }
+
+  @Override
+  public int getSize() {
+    return parsedTemplateFiles.size();
+  }
+
+  /**
+   * HtlTemplates parsed from one revision of an HTL Template file.
+   */
+  private static final class ParsedHtlTemplateFile {
+
+    private final String revision;
+    private final List<HtlTemplate> templates;
+
+    private ParsedHtlTemplateFile(final String revision, final List<HtlTemplate> templates) {
+      this.revision = revision;
+      this.templates = Collections.unmodifiableList(new ArrayList<>(templates));
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypediscovery;
+
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Discovers ComponentTypes under a root path by querying for their primary type, rather than
+ * adapting every descendant resource to check whether it is a ComponentType.
+ */
+public interface ComponentTypeDiscoveryService {
+
+  /**
+   * Lazily iterates the paths of ComponentTypes that are descendants of a root path. Paths are
+   * read from the repository as the iterator advances, and are never cached.
+   *
+   * @param rootPath Path to discover ComponentTypes under.
+   * @param resourceResolver ResourceResolver used to discover ComponentTypes.
+   * @return Paths of ComponentTypes that are descendants of the root path.
+   */
+  @Nonnull
+  Iterator<String> findComponentTypePaths(@Nonnull String rootPath,
+      @Nonnull ResourceResolver resourceResolver);
+
+  /**
+   * Paths of all ComponentTypes that are descendants of a root path. Read from the
+   * ComponentTypeCache when the root path has been cached, otherwise discovered and cached in a
+   * single write.
+   *
+   * @param rootPath Path to discover ComponentTypes under.
+   * @param resourceResolver ResourceResolver used to discover ComponentTypes.
+   * @return Paths of all ComponentTypes that are descendants of the root path.
+   */
+  @Nonnull
+  List<String> getComponentTypePaths(@Nonnull String rootPath,
+      @Nonnull ResourceResolver resourceResolver);
+
+}
@@ -0,0 +1,192 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypediscovery.impl;
+
+import io.kestros.cms.foundation.services.componenttypecache.ComponentTypeCache;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
+import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Discovers ComponentTypes with an indexed JCR-SQL2 query on the kes:ComponentType primary type.
+ * When the query cannot be run (for instance against an in-memory resource tree), descendants are
+ * walked lazily and matched on their resource type, without adapting them to Sling Models.
+ */
+@Component(immediate = true,
+           service = ComponentTypeDiscoveryService.class,
+           property = "service.ranking:Integer=1")
+public class BaseComponentTypeDiscoveryService implements ComponentTypeDiscoveryService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseComponentTypeDiscoveryService.class);
+
+  private static final String COMPONENT_TYPE_RESOURCE_TYPE = "kes:ComponentType";
+  private static final String QUERY_LANGUAGE = "JCR-SQL2";
+  private static final String COMPONENT_TYPE_QUERY
+      = "SELECT * FROM [kes:ComponentType] AS componentType "
+        + "WHERE ISDESCENDANTNODE(componentType, '%s')";
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ComponentTypeCache componentTypeCache;
+
+  @Nonnull
+  @Override
+  public Iterator<String> findComponentTypePaths(@Nonnull final String rootPath,
+      @Nonnull final ResourceResolver resourceResolver) {
+    final Resource rootResource = resourceResolver.getResource(rootPath);
+    if (rootResource == null) {
+      return Collections.emptyIterator();
+    }
+    Iterator<Resource> resources;
+    try {
+      resources = queryComponentTypes(rootResource.getPath(), resourceResolver);
+    } catch (final RuntimeException exception) {
+      LOG.debug("Unable to query ComponentTypes under {}, walking descendants instead. {}",
+          rootPath, exception.getMessage());
+      resources = new DescendantIterator(rootResource);
+    }
+    return new ComponentTypePathIterator(resources);
+  }
+
+  @Nonnull
+  @Override
+  public List<String> getComponentTypePaths(@Nonnull final String rootPath,
+      @Nonnull final ResourceResolver resourceResolver) {
+    if (componentTypeCache != null) {
+      try {
+        return componentTypeCache.getCachedComponentTypes(rootPath);
+      } catch (final CacheRetrievalException exception) {
+        LOG.debug(exception.getMessage());
+      }
+    }
+    final List<String> componentTypePaths = new ArrayList<>();
+    findComponentTypePaths(rootPath, resourceResolver).forEachRemaining(componentTypePaths::add);
+    if (componentTypeCache != null) {
+      try {
+        componentTypeCache.cacheComponentTypePathList(rootPath,
+            Collections.unmodifiableList(componentTypePaths));
+      } catch (final CacheBuilderException exception) {
+        LOG.warn("Failed to cache ComponentType paths under {}. {}", rootPath,
+            exception.getMessage());
+      }
+    }
+    return componentTypePaths;
+  }
+
+  /**
+   * Resources returned by the kes:ComponentType query for a root path.
+   *
+   * @param rootPath Path to query ComponentTypes under.
+   * @param resourceResolver ResourceResolver used to run the query.
+   * @return Resources returned by the kes:ComponentType query.
+   */
+  @Nonnull
+  protected Iterator<Resource> queryComponentTypes(@Nonnull final String rootPath,
+      @Nonnull final ResourceResolver resourceResolver) {
+    return resourceResolver.findResources(
+        String.format(COMPONENT_TYPE_QUERY, rootPath.replace("'", "''")), QUERY_LANGUAGE);
+  }
+
+  private static boolean isComponentTypeResource(@Nullable final Resource resource) {
+    return resource != null && resource.isResourceType(COMPONENT_TYPE_RESOURCE_TYPE);
+  }
+
+  /**
+   * Maps resources to the paths of those which are ComponentTypes, as the iterator advances.
+   */
+  private static final class ComponentTypePathIterator implements Iterator<String> {
+
+    private final Iterator<Resource> resources;
+    private String nextPath;
+
+    private ComponentTypePathIterator(final Iterator<Resource> resources) {
+      this.resources = resources;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (nextPath == null && resources.hasNext()) {
+        final Resource resource = resources.next();
+        if (isComponentTypeResource(resource)) {
+          nextPath = resource.getPath();
+        }
+      }
+      return nextPath != null;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final String path = nextPath;
+      nextPath = null;
+      return path;
+    }
+  }
+
+  /**
+   * Depth-first iterator over all descendants of a resource, listing children only as they are
+   * reached.
+   */
+  private static final class DescendantIterator implements Iterator<Resource> {
+
+    private final Deque<Iterator<Resource>> childIterators = new ArrayDeque<>();
+
+    private DescendantIterator(final Resource rootResource) {
+      childIterators.push(rootResource.listChildren());
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!childIterators.isEmpty() && !childIterators.peek().hasNext()) {
+        childIterators.pop();
+      }
+      return !childIterators.isEmpty();
+    }
+
+    @Override
+    public Resource next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final Resource child = childIterators.peek().next();
+      childIterators.push(child.listChildren());
+      return child;
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypehierarchy;
+
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * In-memory graph of ComponentType sling:resourceSuperType relationships under /apps and /libs.
+ * Ancestor chains and descendant sets are precomputed, so inheritance questions are answered
+ * without walking superTypes through the JCR.
+ */
+public interface ComponentTypeHierarchyService {
+
+  /**
+   * Whether a ComponentType is part of the graph. Callers should read the ComponentType's
+   * superTypes from the JCR when it is not.
+   *
+   * @param componentTypePath ComponentType path.
+   * @return Whether a ComponentType is part of the graph.
+   */
+  boolean contains(@Nonnull String componentTypePath);
+
+  /**
+   * Paths of the ComponentTypes a ComponentType inherits from, nearest superType first. The
+   * chain ends at the first superType which is not a ComponentType, or before a ComponentType
+   * would be repeated.
+   *
+   * @param componentTypePath ComponentType path.
+   * @return Paths of the ComponentTypes a ComponentType inherits from.
+   */
+  @Nonnull
+  List<String> getAncestorPaths(@Nonnull String componentTypePath);
+
+  /**
+   * Paths of all ComponentTypes which inherit from a path, directly or through other
+   * ComponentTypes. The path does not need to be a ComponentType, so ComponentTypes superTyping
+   * a missing resource can be found once it is created.
+   *
+   * @param componentTypePath ComponentType path.
+   * @return Paths of all ComponentTypes which inherit from a path.
+   */
+  @Nonnull
+  Set<String> getDescendantPaths(@Nonnull String componentTypePath);
+
+  /**
+   * Whether a ComponentType's superType chain leads back to itself.
+   *
+   * @param componentTypePath ComponentType path.
+   * @return Whether a ComponentType's superType chain leads back to itself.
+   */
+  boolean isCyclic(@Nonnull String componentTypePath);
+
+  /**
+   * Paths of all ComponentTypes whose superType chain leads back to themselves.
+   *
+   * @return Paths of all ComponentTypes whose superType chain leads back to themselves.
+   */
+  @Nonnull
+  Set<String> getCyclicComponentTypePaths();
+
+  /**
+   * Re-reads the ComponentTypes at or below each changed path, and recomputes the graph.
+   *
+   * @param changedPaths Added, changed or removed resource paths.
+   */
+  void update(@Nonnull List<String> changedPaths);
+
+  /**
+   * Reads all ComponentTypes and replaces the graph.
+   */
+  void rebuild();
+
+  /**
+   * Whether the graph has been built.
+   *
+   * @return Whether the graph has been built.
+   */
+  boolean isBuilt();
+
+  /**
+   * Number of ComponentTypes in the graph.
+   *
+   * @return Number of ComponentTypes in the graph.
+   */
+  int getSize();
+
+}
@@ -0,0 +1,357 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypehierarchy.impl;
+
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.findComponentType;
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getAllDescendantComponentTypes;
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsBaseResource;
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import io.kestros.commons.structuredslingmodels.BaseResource;
+import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
+import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the sling:resourceSuperType of every ComponentType under /apps and /libs at activation,
+ * and keeps the raw values up to date as resources change. Relative superTypes are resolved
+ * against the registered ComponentTypes, in search path order, and an immutable graph of ancestor
+ * chains, descendant sets and cycles is swapped in after each change, so lookups never block on
+ * an update.
+ */
+@Component(immediate = true,
+           service = ComponentTypeHierarchyService.class,
+           property = "service.ranking:Integer=1")
+public class BaseComponentTypeHierarchyService implements ComponentTypeHierarchyService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseComponentTypeHierarchyService.class);
+
+  public static final String KESTROS_COMPONENT_TYPE_HIERARCHY_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  private static final List<String> ROOT_PATHS = Arrays.asList("/apps", "/libs");
+  private static final List<String> DEFAULT_SEARCH_PATHS = Arrays.asList("/apps/", "/libs/");
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ComponentTypeDiscoveryService componentTypeDiscoveryService;
+
+  private final Map<String, String> superTypes = new HashMap<>();
+  private List<String> searchPaths = DEFAULT_SEARCH_PATHS;
+
+  private volatile ComponentTypeGraph graph = new ComponentTypeGraph(Collections.emptyMap(),
+      DEFAULT_SEARCH_PATHS);
+  private volatile boolean built = false;
+
+  /**
+   * Activates the service, and builds the graph.
+   */
+  @Activate
+  public void activate() {
+    rebuild();
+  }
+
+  @Override
+  public boolean contains(@Nonnull final String componentTypePath) {
+    return graph.ancestorPaths.containsKey(componentTypePath);
+  }
+
+  @Nonnull
+  @Override
+  public List<String> getAncestorPaths(@Nonnull final String componentTypePath) {
+    return graph.ancestorPaths.getOrDefault(componentTypePath, Collections.emptyList());
+  }
+
+  @Nonnull
+  @Override
+  public Set<String> getDescendantPaths(@Nonnull final String componentTypePath) {
+    return graph.descendantPaths.getOrDefault(componentTypePath, Collections.emptySet());
+  }
+
+  @Override
+  public boolean isCyclic(@Nonnull final String componentTypePath) {
+    return graph.cyclicPaths.contains(componentTypePath);
+  }
+
+  @Nonnull
+  @Override
+  public Set<String> getCyclicComponentTypePaths() {
+    return graph.cyclicPaths;
+  }
+
+  @Override
+  public synchronized void update(@Nonnull final List<String> changedPaths) {
+    if (!built) {
+      rebuild();
+      return;
+    }
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      boolean updated = false;
+      for (final String path : changedPaths) {
+        if (isUnderRootPath(path)) {
+          superTypes.keySet().removeIf(
+              componentTypePath -> componentTypePath.equals(path) || componentTypePath.startsWith(
+                  path + "/"));
+          superTypes.putAll(readSuperTypes(path, resourceResolver));
+          updated = true;
+        }
+      }
+      if (updated) {
+        graph = new ComponentTypeGraph(superTypes, searchPaths);
+      }
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to update ComponentType hierarchy. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Override
+  public synchronized void rebuild() {
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      final Map<String, String> rebuiltSuperTypes = new HashMap<>();
+      for (final String rootPath : ROOT_PATHS) {
+        rebuiltSuperTypes.putAll(readSuperTypes(rootPath, resourceResolver));
+      }
+      searchPaths = getSearchPaths(resourceResolver);
+      superTypes.clear();
+      superTypes.putAll(rebuiltSuperTypes);
+      graph = new ComponentTypeGraph(superTypes, searchPaths);
+      built = true;
+      LOG.debug("Built ComponentType hierarchy of {} ComponentTypes.", superTypes.size());
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to build ComponentType hierarchy. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Override
+  public boolean isBuilt() {
+    return built;
+  }
+
+  @Override
+  public int getSize() {
+    return graph.ancestorPaths.size();
+  }
+
+  /**
+   * Reads the raw sling:resourceSuperType of the ComponentType at a path, and of all
+   * ComponentTypes below it.
+   *
+   * @param path Path to read ComponentTypes from.
+   * @param resourceResolver ResourceResolver used to read ComponentTypes.
+   * @return Raw sling:resourceSuperType values, keyed by ComponentType path.
+   */
+  @Nonnull
+  protected Map<String, String> readSuperTypes(@Nonnull final String path,
+      @Nonnull final ResourceResolver resourceResolver) {
+    final Map<String, String> componentTypeSuperTypes = new HashMap<>();
+    final BaseResource resource;
+    try {
+      resource = getResourceAsBaseResource(path, resourceResolver);
+    } catch (final ResourceNotFoundException exception) {
+      return componentTypeSuperTypes;
+    }
+    try {
+      final ComponentType componentType = getResourceAsType(path, resourceResolver,
+          ComponentType.class);
+      componentTypeSuperTypes.put(path, getResourceSuperType(componentType));
+    } catch (final ModelAdaptionException exception) {
+      LOG.trace("{} is not a ComponentType. {}", path, exception.getMessage());
+    }
+    if (componentTypeDiscoveryService == null) {
+      for (final ComponentType componentType : getAllDescendantComponentTypes(resource)) {
+        componentTypeSuperTypes.put(componentType.getPath(), getResourceSuperType(componentType));
+      }
+      return componentTypeSuperTypes;
+    }
+    final Iterator<String> componentTypePaths
+        = componentTypeDiscoveryService.findComponentTypePaths(path, resourceResolver);
+    while (componentTypePaths.hasNext()) {
+      final ComponentType componentType = findComponentType(componentTypePaths.next(),
+          resourceResolver);
+      if (componentType != null) {
+        componentTypeSuperTypes.put(componentType.getPath(), getResourceSuperType(componentType));
+      }
+    }
+    return componentTypeSuperTypes;
+  }
+
+  /**
+   * Opens a service ResourceResolver for reading ComponentTypes.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_COMPONENT_TYPE_HIERARCHY_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to build ComponentType hierarchy. Failed to log in as {}. {}",
+          KESTROS_COMPONENT_TYPE_HIERARCHY_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  private static String getResourceSuperType(final ComponentType componentType) {
+    return StringUtils.defaultString(componentType.getResourceSuperType());
+  }
+
+  private static boolean isUnderRootPath(final String path) {
+    for (final String rootPath : ROOT_PATHS) {
+      if (path.equals(rootPath) || path.startsWith(rootPath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> getSearchPaths(final ResourceResolver resourceResolver) {
+    final String[] resolverSearchPaths = resourceResolver.getSearchPath();
+    if (resolverSearchPaths == null || resolverSearchPaths.length == 0) {
+      return DEFAULT_SEARCH_PATHS;
+    }
+    final List<String> normalizedSearchPaths = new ArrayList<>();
+    for (final String searchPath : resolverSearchPaths) {
+      normalizedSearchPaths.add(searchPath.endsWith("/") ? searchPath : searchPath + "/");
+    }
+    return normalizedSearchPaths;
+  }
+
+  /**
+   * Immutable ancestor chains, descendant sets and cycles, computed from raw superTypes.
+   */
+  private static final class ComponentTypeGraph {
+
+    private final Map<String, List<String>> ancestorPaths;
+    private final Map<String, Set<String>> descendantPaths;
+    private final Set<String> cyclicPaths;
+
+    private ComponentTypeGraph(final Map<String, String> superTypes,
+        final List<String> searchPaths) {
+      final Map<String, List<String>> superTypeCandidates = new HashMap<>();
+      for (final Map.Entry<String, String> entry : superTypes.entrySet()) {
+        superTypeCandidates.put(entry.getKey(),
+            getSuperTypeCandidates(entry.getValue(), superTypes.keySet(), searchPaths));
+      }
+
+      final Map<String, List<String>> ancestors = new HashMap<>();
+      final Map<String, Set<String>> descendants = new HashMap<>();
+      final Set<String> cyclic = new HashSet<>();
+      for (final String path : superTypes.keySet()) {
+        final List<String> chain = new ArrayList<>();
+        final Set<String> visited = new HashSet<>();
+        visited.add(path);
+        String currentPath = path;
+        while (currentPath != null) {
+          String nextPath = null;
+          for (final String candidate : superTypeCandidates.get(currentPath)) {
+            if (!candidate.equals(path)) {
+              descendants.computeIfAbsent(candidate, key -> new HashSet<>()).add(path);
+            }
+            if (superTypes.containsKey(candidate)) {
+              nextPath = candidate;
+            }
+          }
+          if (nextPath != null && !visited.add(nextPath)) {
+            if (nextPath.equals(path)) {
+              cyclic.add(path);
+            }
+            nextPath = null;
+          }
+          if (nextPath != null) {
+            chain.add(nextPath);
+          }
+          currentPath = nextPath;
+        }
+        ancestors.put(path, Collections.unmodifiableList(chain));
+      }
+      descendants.replaceAll((path, paths) -> Collections.unmodifiableSet(paths));
+
+      this.ancestorPaths = Collections.unmodifiableMap(ancestors);
+      this.descendantPaths = Collections.unmodifiableMap(descendants);
+      this.cyclicPaths = Collections.unmodifiableSet(cyclic);
+    }
+
+    /**
+     * Paths a raw superType may refer to. Relative superTypes resolve to the first search path
+     * holding a ComponentType, or, when none does, may refer to any search path.
+     */
+    private static List<String> getSuperTypeCandidates(final String superType,
+        final Collection<String> componentTypePaths, final List<String> searchPaths) {
+      if (StringUtils.isBlank(superType)) {
+        return Collections.emptyList();
+      }
+      if (superType.startsWith("/")) {
+        return Collections.singletonList(superType);
+      }
+      final List<String> candidates = new ArrayList<>();
+      for (final String searchPath : searchPaths) {
+        final String candidate = searchPath + superType;
+        if (componentTypePaths.contains(candidate)) {
+          return Collections.singletonList(candidate);
+        }
+        candidates.add(candidate);
+      }
+      return candidates;
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttyperesolution;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Shared index of sling:resourceType values to the path of the ComponentType they resolve to,
+ * following the ResourceResolver search path (/apps overlays /libs). Replaces per-model lookups
+ * that try each search path in turn.
+ */
+public interface ComponentTypeResolutionService {
+
+  /**
+   * Path of the ComponentType a resourceType resolves to.
+   *
+   * @param resourceType sling:resourceType to resolve.
+   * @param resourceResolver ResourceResolver used to resolve resourceTypes that are not indexed
+   *     yet, if the index cannot resolve them with its own service ResourceResolver.
+   * @return Path of the ComponentType a resourceType resolves to, or null if it does not resolve
+   *     to a ComponentType.
+   */
+  @Nullable
+  String getComponentTypePath(@Nonnull String resourceType,
+      @Nonnull ResourceResolver resourceResolver);
+
+  /**
+   * Removes resolutions that may be affected by a change to a resource under /apps or /libs.
+   *
+   * @param path Path of the changed resource.
+   */
+  void purge(@Nonnull String path);
+
+  /**
+   * Removes all resolutions.
+   */
+  void purgeAll();
+
+  /**
+   * Number of indexed resourceTypes.
+   *
+   * @return Number of indexed resourceTypes.
+   */
+  int getSize();
+
+}
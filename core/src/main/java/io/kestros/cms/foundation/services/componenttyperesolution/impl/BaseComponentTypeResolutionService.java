@@ -0,0 +1,201 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttyperesolution.impl;
+
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.findComponentType;
+
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazily indexes sling:resourceType values to ComponentType paths. Absolute resourceTypes resolve
+ * to themselves, relative resourceTypes resolve to the first search path entry holding a valid
+ * ComponentType. ResourceTypes that do not resolve are indexed as missing, so they are not
+ * resolved again until a matching resource changes. The index is shared by all users, so
+ * resourceTypes are resolved with a service ResourceResolver. If it cannot be opened, the caller's
+ * ResourceResolver is used and the result is not indexed. Resolutions which overlap a purge are
+ * not indexed either.
+ */
+@Component(immediate = true,
+           service = ComponentTypeResolutionService.class,
+           property = "service.ranking:Integer=1")
+public class BaseComponentTypeResolutionService implements ComponentTypeResolutionService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseComponentTypeResolutionService.class);
+
+  private static final String MISSING = "";
+  private static final List<String> DEFAULT_SEARCH_PATHS = Arrays.asList("/apps/", "/libs/");
+
+  public static final String KESTROS_COMPONENT_TYPE_RESOLUTION_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  private final Map<String, String> componentTypePaths = new ConcurrentHashMap<>();
+  private long generation = 0;
+
+  @Nullable
+  @Override
+  public String getComponentTypePath(@Nonnull final String resourceType,
+      @Nonnull final ResourceResolver resourceResolver) {
+    String componentTypePath = componentTypePaths.get(resourceType);
+    if (componentTypePath == null) {
+      componentTypePath = resolveAndIndexComponentTypePath(resourceType, resourceResolver);
+    }
+    if (MISSING.equals(componentTypePath)) {
+      return null;
+    }
+    return componentTypePath;
+  }
+
+  @Override
+  public void purge(@Nonnull final String path) {
+    final String relativePath = getRelativePath(path);
+    synchronized (componentTypePaths) {
+      generation++;
+      componentTypePaths.keySet().removeIf(
+          resourceType -> isAffected(getRelativePath(resourceType), relativePath));
+    }
+  }
+
+  @Override
+  public void purgeAll() {
+    synchronized (componentTypePaths) {
+      generation++;
+      componentTypePaths.clear();
+    }
+  }
+
+  @Override
+  public int getSize() {
+    return componentTypePaths.size();
+  }
+
+  /**
+   * Opens a service ResourceResolver for resolving resourceTypes.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_COMPONENT_TYPE_RESOLUTION_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.warn("Unable to index ComponentType resolutions. Failed to log in as {}. {}",
+          KESTROS_COMPONENT_TYPE_RESOLUTION_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  @Nonnull
+  private String resolveAndIndexComponentTypePath(final String resourceType,
+      final ResourceResolver resourceResolver) {
+    final long resolutionGeneration;
+    synchronized (componentTypePaths) {
+      resolutionGeneration = generation;
+    }
+    final ResourceResolver serviceResourceResolver = getServiceResourceResolver();
+    if (serviceResourceResolver == null) {
+      // Depends on what the caller can read, so it is not shared with other users.
+      return resolveComponentTypePath(resourceType, resourceResolver);
+    }
+    try {
+      final String componentTypePath = resolveComponentTypePath(resourceType,
+          serviceResourceResolver);
+      synchronized (componentTypePaths) {
+        if (resolutionGeneration == generation) {
+          componentTypePaths.put(resourceType, componentTypePath);
+        }
+      }
+      return componentTypePath;
+    } finally {
+      serviceResourceResolver.close();
+    }
+  }
+
+  @Nonnull
+  private String resolveComponentTypePath(final String resourceType,
+      final ResourceResolver resourceResolver) {
+    if (resourceType.startsWith("/")) {
+      return isComponentType(resourceType, resourceResolver) ? resourceType : MISSING;
+    }
+    for (final String searchPath : getSearchPaths(resourceResolver)) {
+      final String componentTypePath = searchPath + resourceType;
+      if (isComponentType(componentTypePath, resourceResolver)) {
+        return componentTypePath;
+      }
+    }
+    LOG.debug("Unable to resolve ComponentType for resourceType {}.", resourceType);
+    return MISSING;
+  }
+
+  private static boolean isComponentType(final String path,
+      final ResourceResolver resourceResolver) {
+    return findComponentType(path, resourceResolver) != null;
+  }
+
+  private static List<String> getSearchPaths(final ResourceResolver resourceResolver) {
+    final String[] searchPaths = resourceResolver.getSearchPath();
+    if (searchPaths == null || searchPaths.length == 0) {
+      return DEFAULT_SEARCH_PATHS;
+    }
+    return Arrays.asList(searchPaths);
+  }
+
+  /**
+   * Path relative to /apps or /libs, so overlays of the same ComponentType share a path.
+   */
+  private static String getRelativePath(final String path) {
+    for (final String searchPath : DEFAULT_SEARCH_PATHS) {
+      if (path.startsWith(searchPath)) {
+        return path.substring(searchPath.length());
+      }
+    }
+    return path;
+  }
+
+  /**
+   * Whether a change can affect a resolution. Only the ComponentType resource itself, or one of
+   * its ancestors, determines which search path entry a resourceType resolves to.
+   */
+  private static boolean isAffected(final String resourceType, final String changedPath) {
+    if ("/apps".equals(changedPath) || "/libs".equals(changedPath)) {
+      return true;
+    }
+    return resourceType.equals(changedPath) || resourceType.startsWith(changedPath + "/");
+  }
+
+}
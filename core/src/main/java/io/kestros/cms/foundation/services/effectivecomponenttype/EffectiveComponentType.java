@@ -0,0 +1,267 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.effectivecomponenttype;
+
+import static io.kestros.cms.foundation.componenttypes.ComponentType.PN_ALLOWED_COMPONENT_TYPES;
+import static io.kestros.cms.foundation.componenttypes.ComponentType.PN_EXCLUDED_COMPONENT_TYPES;
+import static io.kestros.cms.foundation.componenttypes.ComponentType.PN_EXCLUDED_UI_FRAMEWORKS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable snapshot of a ComponentType's effective definition, with its /apps and /libs overlays
+ * merged and its superType chain flattened.
+ */
+public final class EffectiveComponentType {
+
+  private final String path;
+  private final Map<String, Object> properties;
+  private final List<String> superTypePaths;
+  private final List<String> viewPaths;
+  private final Map<String, String> viewPathsByUiFramework;
+  private final Map<String, List<String>> variationPathsByUiFramework;
+  private final Map<String, String> scriptPaths;
+  private final String fontAwesomeIcon;
+  private final Set<String> contributingPaths;
+
+  /**
+   * Immutable snapshot of a ComponentType's effective definition.
+   *
+   * @param path ComponentType path.
+   * @param properties Effective properties.
+   * @param superTypePaths Paths of all superTypes, closest first.
+   * @param viewPaths Paths of all ComponentUiFrameworkViews, including /apps overlay views.
+   * @param viewPathsByUiFramework Path of the view each UiFramework (by path) renders with.
+   * @param variationPathsByUiFramework Paths of the variations (including inherited
+   *     variations) available to each UiFramework (by path).
+   * @param scriptPaths Path of each script, keyed by {@link #getScriptKey(String, String)}.
+   * @param fontAwesomeIcon Effective Font Awesome icon class.
+   */
+  public EffectiveComponentType(@Nonnull final String path,
+      @Nonnull final Map<String, Object> properties, @Nonnull final List<String> superTypePaths,
+      @Nonnull final List<String> viewPaths,
+      @Nonnull final Map<String, String> viewPathsByUiFramework,
+      @Nonnull final Map<String, List<String>> variationPathsByUiFramework,
+      @Nonnull final Map<String, String> scriptPaths, @Nonnull final String fontAwesomeIcon) {
+    this.path = path;
+    this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+    this.superTypePaths = Collections.unmodifiableList(new ArrayList<>(superTypePaths));
+    this.viewPaths = Collections.unmodifiableList(new ArrayList<>(viewPaths));
+    this.viewPathsByUiFramework = Collections.unmodifiableMap(
+        new LinkedHashMap<>(viewPathsByUiFramework));
+    final Map<String, List<String>> variationPaths = new LinkedHashMap<>();
+    for (final Entry<String, List<String>> entry : variationPathsByUiFramework.entrySet()) {
+      variationPaths.put(entry.getKey(),
+          Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+    }
+    this.variationPathsByUiFramework = Collections.unmodifiableMap(variationPaths);
+    this.scriptPaths = Collections.unmodifiableMap(new LinkedHashMap<>(scriptPaths));
+    this.fontAwesomeIcon = fontAwesomeIcon;
+
+    final Set<String> paths = new LinkedHashSet<>();
+    paths.add(getOverlayNeutralPath(path));
+    for (final String superTypePath : superTypePaths) {
+      paths.add(getOverlayNeutralPath(superTypePath));
+    }
+    this.contributingPaths = Collections.unmodifiableSet(paths);
+  }
+
+  /**
+   * ComponentType path.
+   *
+   * @return ComponentType path.
+   */
+  @Nonnull
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Effective properties, read from the /libs ComponentType when the /apps resource only overlays
+   * its views.
+   *
+   * @return Effective properties.
+   */
+  @Nonnull
+  public Map<String, Object> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Paths of all superTypes, closest first.
+   *
+   * @return Paths of all superTypes, closest first.
+   */
+  @Nonnull
+  public List<String> getSuperTypePaths() {
+    return superTypePaths;
+  }
+
+  /**
+   * Paths of all ComponentUiFrameworkViews, including /apps overlay views.
+   *
+   * @return Paths of all ComponentUiFrameworkViews.
+   */
+  @Nonnull
+  public List<String> getViewPaths() {
+    return viewPaths;
+  }
+
+  /**
+   * Path of the view a UiFramework renders with.
+   *
+   * @param uiFrameworkPath UiFramework path.
+   * @return Path of the view a UiFramework renders with, or null if the UiFramework is not part
+   *     of the snapshot, or has no view.
+   */
+  @Nullable
+  public String getViewPath(@Nonnull final String uiFrameworkPath) {
+    return viewPathsByUiFramework.get(uiFrameworkPath);
+  }
+
+  /**
+   * Paths of the variations (including inherited variations) available to a UiFramework.
+   *
+   * @param uiFrameworkPath UiFramework path.
+   * @return Paths of the variations available to a UiFramework, or null if the UiFramework is
+   *     not part of the snapshot, or has no view.
+   */
+  @Nullable
+  public List<String> getVariationPaths(@Nonnull final String uiFrameworkPath) {
+    return variationPathsByUiFramework.get(uiFrameworkPath);
+  }
+
+  /**
+   * Path of a script, resolved the same way as {@link
+   * io.kestros.cms.foundation.componenttypes.ComponentType#getScript}.
+   *
+   * @param uiFrameworkPath UiFramework path, or null for the common view.
+   * @param scriptName Script name.
+   * @return Path of a script, or null if it could not be resolved when the snapshot was built.
+   */
+  @Nullable
+  public String getScriptPath(@Nullable final String uiFrameworkPath,
+      @Nonnull final String scriptName) {
+    return scriptPaths.get(getScriptKey(uiFrameworkPath, scriptName));
+  }
+
+  /**
+   * Effective Font Awesome icon class, inherited from superTypes when not set.
+   *
+   * @return Effective Font Awesome icon class.
+   */
+  @Nonnull
+  public String getFontAwesomeIcon() {
+    return fontAwesomeIcon;
+  }
+
+  /**
+   * Allowed ComponentTypes and ComponentType groups.
+   *
+   * @return Allowed ComponentTypes and ComponentType groups.
+   */
+  @Nonnull
+  public List<String> getAllowedComponentTypes() {
+    return getStringListProperty(PN_ALLOWED_COMPONENT_TYPES);
+  }
+
+  /**
+   * Excluded ComponentTypes and ComponentType groups.
+   *
+   * @return Excluded ComponentTypes and ComponentType groups.
+   */
+  @Nonnull
+  public List<String> getExcludedComponentTypes() {
+    return getStringListProperty(PN_EXCLUDED_COMPONENT_TYPES);
+  }
+
+  /**
+   * Excluded UiFrameworks.
+   *
+   * @return Excluded UiFrameworks.
+   */
+  @Nonnull
+  public List<String> getExcludedUiFrameworks() {
+    return getStringListProperty(PN_EXCLUDED_UI_FRAMEWORKS);
+  }
+
+  /**
+   * Whether a change to a resource can affect the snapshot. Changes to the ComponentType, any
+   * of its superTypes, their /apps or /libs overlays, their descendants or their ancestors affect
+   * it.
+   *
+   * @param changedPath Path of the changed resource.
+   * @return Whether a change to a resource can affect the snapshot.
+   */
+  public boolean isAffectedBy(@Nonnull final String changedPath) {
+    final String relativeChangedPath = getOverlayNeutralPath(changedPath);
+    for (final String contributingPath : contributingPaths) {
+      if (contributingPath.equals(relativeChangedPath) || contributingPath.startsWith(
+          relativeChangedPath + "/") || relativeChangedPath.startsWith(contributingPath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Key of a script in the script map.
+   *
+   * @param uiFrameworkPath UiFramework path, or null for the common view.
+   * @param scriptName Script name.
+   * @return Key of a script in the script map.
+   */
+  @Nonnull
+  public static String getScriptKey(@Nullable final String uiFrameworkPath,
+      @Nonnull final String scriptName) {
+    return (uiFrameworkPath != null ? uiFrameworkPath : "") + "::" + scriptName;
+  }
+
+  @Nonnull
+  private List<String> getStringListProperty(final String propertyName) {
+    final Object value = properties.get(propertyName);
+    if (value instanceof String[]) {
+      return Collections.unmodifiableList(Arrays.asList((String[]) value));
+    }
+    if (value instanceof String) {
+      return Collections.singletonList((String) value);
+    }
+    return Collections.emptyList();
+  }
+
+  private static String getOverlayNeutralPath(final String path) {
+    if (path.startsWith("/apps/")) {
+      return path.substring("/apps".length());
+    }
+    if (path.startsWith("/libs/")) {
+      return path.substring("/libs".length());
+    }
+    return path;
+  }
+
+}
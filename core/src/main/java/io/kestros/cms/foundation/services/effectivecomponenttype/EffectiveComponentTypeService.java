@@ -0,0 +1,59 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.effectivecomponenttype;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Builds and caches {@link EffectiveComponentType} snapshots, so overlay and superType walks happen
+ * once per ComponentType rather than on every render, validation or editor request.
+ */
+public interface EffectiveComponentTypeService {
+
+  /**
+   * Effective snapshot of a ComponentType. Built in the background on first request.
+   *
+   * @param componentType ComponentType to retrieve the snapshot for.
+   * @return Effective snapshot of a ComponentType, or null if it has not been built yet (callers
+   *     should fall back to resolving against the ComponentType).
+   */
+  @Nullable
+  EffectiveComponentType getEffectiveComponentType(@Nonnull ComponentType componentType);
+
+  /**
+   * Removes snapshots that may be affected by a change to a resource.
+   *
+   * @param path Path of the changed resource.
+   */
+  void purge(@Nonnull String path);
+
+  /**
+   * Removes all snapshots.
+   */
+  void purgeAll();
+
+  /**
+   * Number of cached snapshots.
+   *
+   * @return Number of cached snapshots.
+   */
+  int getSize();
+
+}
@@ -0,0 +1,282 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.effectivecomponenttype.impl;
+
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getScriptNames;
+import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView;
+import io.kestros.cms.foundation.componenttypes.variation.ComponentVariation;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentType;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentTypeService;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds {@link EffectiveComponentType} snapshots on a background thread when they are first
+ * requested, and keeps them until a contributing resource changes. Snapshots are shared by all
+ * users, so they are built from ComponentTypes read by a service ResourceResolver. Until a
+ * snapshot has been built, callers receive null for it and resolve against the repository, which
+ * also keeps ComponentType methods used by the build from recursing into the service. Builds which
+ * overlap a purge are discarded.
+ */
+@Component(immediate = true,
+           service = EffectiveComponentTypeService.class,
+           property = "service.ranking:Integer=1")
+public class BaseEffectiveComponentTypeService implements EffectiveComponentTypeService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseEffectiveComponentTypeService.class);
+
+  public static final String KESTROS_EFFECTIVE_COMPONENT_TYPE_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ComponentTypeHierarchyService componentTypeHierarchyService;
+
+  private final Map<String, EffectiveComponentType> effectiveComponentTypes
+      = new ConcurrentHashMap<>();
+  private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+  private long generation = 0;
+  private ExecutorService executorService;
+
+  /**
+   * Activates the service, and starts the thread snapshots are built on.
+   */
+  @Activate
+  public void activate() {
+    executorService = Executors.newSingleThreadExecutor();
+  }
+
+  /**
+   * Deactivates the service, and stops building snapshots.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+    pendingPaths.clear();
+  }
+
+  @Nullable
+  @Override
+  public EffectiveComponentType getEffectiveComponentType(
+      @Nonnull final ComponentType componentType) {
+    final String path = componentType.getPath();
+    final EffectiveComponentType effectiveComponentType = effectiveComponentTypes.get(path);
+    if (effectiveComponentType == null && executorService != null && pendingPaths.add(path)) {
+      try {
+        executorService.execute(() -> buildAndStoreEffectiveComponentType(path));
+      } catch (final RejectedExecutionException exception) {
+        pendingPaths.remove(path);
+        LOG.debug("Unable to build effective ComponentType {}. {}", path,
+            exception.getMessage());
+      }
+    }
+    return effectiveComponentType;
+  }
+
+  @Override
+  public void purge(@Nonnull final String path) {
+    synchronized (effectiveComponentTypes) {
+      generation++;
+      effectiveComponentTypes.values().removeIf(
+          effectiveComponentType -> effectiveComponentType.isAffectedBy(path));
+    }
+  }
+
+  @Override
+  public void purgeAll() {
+    synchronized (effectiveComponentTypes) {
+      generation++;
+      effectiveComponentTypes.clear();
+    }
+  }
+
+  @Override
+  public int getSize() {
+    return effectiveComponentTypes.size();
+  }
+
+  /**
+   * Builds the effective snapshot of a ComponentType.
+   *
+   * @param componentType ComponentType to build the snapshot for.
+   * @return Effective snapshot of a ComponentType.
+   */
+  @Nonnull
+  protected EffectiveComponentType buildEffectiveComponentType(
+      @Nonnull final ComponentType componentType) {
+    final long start = System.currentTimeMillis();
+
+    final List<String> viewPaths = new ArrayList<>();
+    for (final ComponentUiFrameworkView view : componentType.getUiFrameworkViews()) {
+      if (view != null) {
+        viewPaths.add(view.getPath());
+      }
+    }
+
+    final List<UiFramework> uiFrameworks = getAllUiFrameworks(componentType.getResourceResolver(),
+        true, true);
+    final Map<String, String> viewPathsByUiFramework = new LinkedHashMap<>();
+    final Map<String, List<String>> variationPathsByUiFramework = new LinkedHashMap<>();
+    for (final UiFramework uiFramework : uiFrameworks) {
+      try {
+        final ComponentUiFrameworkView view = componentType.getComponentUiFrameworkView(
+            uiFramework);
+        viewPathsByUiFramework.put(uiFramework.getPath(), view.getPath());
+        final List<String> variationPaths = new ArrayList<>();
+        for (final ComponentVariation variation : view.getVariations()) {
+          variationPaths.add(variation.getPath());
+        }
+        variationPathsByUiFramework.put(uiFramework.getPath(), variationPaths);
+      } catch (final ModelAdaptionException exception) {
+        LOG.trace("No view for UiFramework {} on {}. {}", uiFramework.getPath(),
+            componentType.getPath(), exception.getMessage());
+      }
+    }
+
+    final Map<String, String> scriptPaths = new HashMap<>();
+    for (final String scriptName : getScriptNames(componentType)) {
+      addScriptPath(componentType, null, scriptName, scriptPaths);
+      for (final UiFramework uiFramework : uiFrameworks) {
+        addScriptPath(componentType, uiFramework, scriptName, scriptPaths);
+      }
+    }
+
+    final EffectiveComponentType effectiveComponentType = new EffectiveComponentType(
+        componentType.getPath(), new HashMap<>(componentType.getProperties()),
+        getSuperTypePaths(componentType), viewPaths, viewPathsByUiFramework,
+        variationPathsByUiFramework, scriptPaths, componentType.getFontAwesomeIcon());
+    LOG.debug("Built effective ComponentType {} in {}ms.", componentType.getPath(),
+        System.currentTimeMillis() - start);
+    return effectiveComponentType;
+  }
+
+  /**
+   * Opens a service ResourceResolver for building snapshots.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_EFFECTIVE_COMPONENT_TYPE_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to build effective ComponentTypes. Failed to log in as {}. {}",
+          KESTROS_EFFECTIVE_COMPONENT_TYPE_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  private void buildAndStoreEffectiveComponentType(final String path) {
+    final long buildGeneration;
+    synchronized (effectiveComponentTypes) {
+      buildGeneration = generation;
+    }
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    try {
+      if (resourceResolver == null) {
+        return;
+      }
+      final EffectiveComponentType effectiveComponentType = buildEffectiveComponentType(
+          getResourceAsType(path, resourceResolver, ComponentType.class));
+      synchronized (effectiveComponentTypes) {
+        if (buildGeneration == generation) {
+          effectiveComponentTypes.put(path, effectiveComponentType);
+        }
+      }
+    } catch (final ModelAdaptionException | RuntimeException exception) {
+      LOG.debug("Unable to build effective ComponentType {}. {}", path, exception.getMessage());
+    } finally {
+      pendingPaths.remove(path);
+      if (resourceResolver != null) {
+        resourceResolver.close();
+      }
+    }
+  }
+
+  private List<String> getSuperTypePaths(final ComponentType componentType) {
+    if (componentTypeHierarchyService != null && componentTypeHierarchyService.contains(
+        componentType.getPath())) {
+      return new ArrayList<>(componentTypeHierarchyService.getAncestorPaths(
+          componentType.getPath()));
+    }
+    final Set<String> superTypePaths = new LinkedHashSet<>();
+    ComponentType current = componentType;
+    while (current != null) {
+      current = current.findComponentSuperType();
+      if (current != null && (current.getPath().equals(componentType.getPath())
+                              || !superTypePaths.add(current.getPath()))) {
+        LOG.warn("ComponentType {} has a cyclic superType chain.", componentType.getPath());
+        current = null;
+      }
+    }
+    return new ArrayList<>(superTypePaths);
+  }
+
+  private static void addScriptPath(final ComponentType componentType,
+      @Nullable final UiFramework uiFramework, final String scriptName,
+      final Map<String, String> scriptPaths) {
+    final String uiFrameworkPath = uiFramework != null ? uiFramework.getPath() : null;
+    try {
+      scriptPaths.put(EffectiveComponentType.getScriptKey(uiFrameworkPath, scriptName),
+          componentType.getScript(scriptName, uiFramework).getPath());
+    } catch (final ModelAdaptionException exception) {
+      LOG.trace("Unable to resolve {} for {}. {}", scriptName, componentType.getPath(),
+          exception.getMessage());
+    }
+  }
+
+}
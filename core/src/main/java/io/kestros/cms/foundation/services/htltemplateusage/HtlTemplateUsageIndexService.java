@@ -0,0 +1,91 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.htltemplateusage;
+
+import io.kestros.cms.foundation.design.htltemplate.usage.HtlTemplateCall;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory index of the HTL Template calls made by the scripts of every ComponentUiFrameworkView
+ * under /apps and /libs. Calls are indexed both by calling view and by called template name, so
+ * validators and template impact analysis can look them up without re-parsing view scripts.
+ */
+public interface HtlTemplateUsageIndexService {
+
+  /**
+   * Template calls made by the scripts of a ComponentUiFrameworkView.
+   *
+   * @param viewPath ComponentUiFrameworkView path.
+   * @return Template calls made by the scripts of a ComponentUiFrameworkView, or null if the
+   *     index has not been built or does not cover the path, in which case callers should parse
+   *     the view's scripts themselves.
+   */
+  @Nullable
+  List<HtlTemplateCall> getTemplateCalls(@Nonnull String viewPath);
+
+  /**
+   * Calls made to a template, from all indexed scripts. Template names are matched
+   * case-insensitively.
+   *
+   * @param templateName Template name.
+   * @return Calls made to a template, from all indexed scripts.
+   */
+  @Nonnull
+  List<HtlTemplateCall> getTemplateCallsTo(@Nonnull String templateName);
+
+  /**
+   * Paths of the ComponentUiFrameworkViews which call a template. Template names are matched
+   * case-insensitively.
+   *
+   * @param templateName Template name.
+   * @return Paths of the ComponentUiFrameworkViews which call a template.
+   */
+  @Nonnull
+  Set<String> getCallingViewPaths(@Nonnull String templateName);
+
+  /**
+   * Re-reads the scripts at or below each changed path, and recomputes the index entries of the
+   * views and templates they affect. Builds the whole index instead, if it has not been built.
+   *
+   * @param changedPaths Added, changed or removed resource paths.
+   */
+  void update(@Nonnull List<String> changedPaths);
+
+  /**
+   * Reads the scripts of all ComponentUiFrameworkViews and replaces the index.
+   */
+  void rebuild();
+
+  /**
+   * Whether the index has been built.
+   *
+   * @return Whether the index has been built.
+   */
+  boolean isBuilt();
+
+  /**
+   * Number of scripts in the index.
+   *
+   * @return Number of scripts in the index.
+   */
+  int getSize();
+
+}
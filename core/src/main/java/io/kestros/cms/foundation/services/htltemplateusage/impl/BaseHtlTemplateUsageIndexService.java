@@ -0,0 +1,502 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.htltemplateusage.impl;
+
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getAllDescendantComponentTypes;
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getHtlTemplateCalls;
+import static io.kestros.commons.structuredslingmodels.utils.FileModelUtils.adaptToFileType;
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsBaseResource;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.componenttypes.HtmlFile;
+import io.kestros.cms.foundation.design.htltemplate.usage.HtlTemplateCall;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.cms.foundation.services.htltemplateusage.HtlTemplateUsageIndexService;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
+import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the HTL Template calls of every ComponentUiFrameworkView script under /apps and /libs in
+ * the background after activation, and re-reads only the scripts at or below each changed path
+ * afterwards. Calls are kept per script. Immutable lookups by view and by template name are swapped
+ * in after each change, with only the entries of affected views and templates recomputed, so
+ * lookups never block on an update.
+ */
+@Component(immediate = true,
+           service = HtlTemplateUsageIndexService.class,
+           property = "service.ranking:Integer=1")
+public class BaseHtlTemplateUsageIndexService implements HtlTemplateUsageIndexService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseHtlTemplateUsageIndexService.class);
+
+  public static final String KESTROS_HTL_TEMPLATE_USAGE_INDEX_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  private static final List<String> ROOT_PATHS = Arrays.asList("/apps", "/libs");
+  private static final String COMPONENT_TYPE_RESOURCE_TYPE = "kes:ComponentType";
+  private static final String SCRIPT_EXTENSION = ".html";
+  private static final String JCR_CONTENT_PATH_SEGMENT = "/jcr:content";
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ComponentTypeDiscoveryService componentTypeDiscoveryService;
+
+  private final NavigableMap<String, List<HtlTemplateCall>> templateCallsByScript
+      = new TreeMap<>();
+  private volatile UsageIndex index = new UsageIndex(Collections.emptyMap());
+  private volatile boolean built = false;
+  private ExecutorService executorService;
+
+  /**
+   * Activates the service, and starts building the index.
+   */
+  @Activate
+  public void activate() {
+    executorService = Executors.newSingleThreadExecutor();
+    scheduleRebuild();
+  }
+
+  /**
+   * Deactivates the service, and stops building the index.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Nullable
+  @Override
+  public List<HtlTemplateCall> getTemplateCalls(@Nonnull final String viewPath) {
+    if (!built || !isUnderRootPath(viewPath)) {
+      return null;
+    }
+    return index.templateCallsByView.getOrDefault(viewPath, Collections.emptyList());
+  }
+
+  @Nonnull
+  @Override
+  public List<HtlTemplateCall> getTemplateCallsTo(@Nonnull final String templateName) {
+    return index.templateCallsByTemplate.getOrDefault(getTemplateKey(templateName),
+        Collections.emptyList());
+  }
+
+  @Nonnull
+  @Override
+  public Set<String> getCallingViewPaths(@Nonnull final String templateName) {
+    return index.viewPathsByTemplate.getOrDefault(getTemplateKey(templateName),
+        Collections.emptySet());
+  }
+
+  @Override
+  public synchronized void update(@Nonnull final List<String> changedPaths) {
+    if (!built) {
+      // Nothing to update yet. A rebuild reads the changed scripts along with all others.
+      scheduleRebuild();
+      return;
+    }
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      final Set<String> changedScriptPaths = new LinkedHashSet<>();
+      final Set<String> changedTemplateKeys = new LinkedHashSet<>();
+      for (final String changedPath : changedPaths) {
+        if (isUnderRootPath(changedPath)) {
+          final String path = getScriptPath(changedPath);
+          final Map<String, List<HtlTemplateCall>> removedTemplateCalls
+              = getTemplateCallsAtOrBelow(path);
+          final Map<String, List<HtlTemplateCall>> readTemplateCalls = readTemplateCalls(path,
+              resourceResolver);
+          templateCallsByScript.keySet().removeAll(removedTemplateCalls.keySet());
+          templateCallsByScript.putAll(readTemplateCalls);
+          addChanges(removedTemplateCalls, changedScriptPaths, changedTemplateKeys);
+          addChanges(readTemplateCalls, changedScriptPaths, changedTemplateKeys);
+        }
+      }
+      if (!changedScriptPaths.isEmpty()) {
+        index = index.update(changedScriptPaths, changedTemplateKeys, templateCallsByScript);
+      }
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to update HTL Template usage index. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Override
+  public synchronized void rebuild() {
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      final Map<String, List<HtlTemplateCall>> rebuiltTemplateCalls = new HashMap<>();
+      for (final String rootPath : ROOT_PATHS) {
+        rebuiltTemplateCalls.putAll(readTemplateCalls(rootPath, resourceResolver));
+      }
+      templateCallsByScript.clear();
+      templateCallsByScript.putAll(rebuiltTemplateCalls);
+      index = new UsageIndex(templateCallsByScript);
+      built = true;
+      LOG.debug("Built HTL Template usage index of {} scripts.", templateCallsByScript.size());
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to build HTL Template usage index. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Override
+  public boolean isBuilt() {
+    return built;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size;
+  }
+
+  /**
+   * Reads the template calls of the ComponentUiFrameworkView scripts at or below a path. The path
+   * may be a script, a view, a ComponentType, or any resource containing ComponentTypes.
+   *
+   * @param path Path to read scripts from.
+   * @param resourceResolver ResourceResolver used to read scripts.
+   * @return Template calls, keyed by script path.
+   */
+  @Nonnull
+  protected Map<String, List<HtlTemplateCall>> readTemplateCalls(@Nonnull final String path,
+      @Nonnull final ResourceResolver resourceResolver) {
+    final Map<String, List<HtlTemplateCall>> templateCalls = new HashMap<>();
+    final Resource resource = resourceResolver.getResource(path);
+    if (resource == null) {
+      return templateCalls;
+    }
+    if (isComponentType(resource)) {
+      readComponentTypeTemplateCalls(resource, templateCalls);
+    } else if (isComponentType(resource.getParent())) {
+      readViewTemplateCalls(resource, templateCalls);
+      return templateCalls;
+    } else if (resource.getParent() != null && isComponentType(
+        resource.getParent().getParent())) {
+      if (resource.getName().endsWith(SCRIPT_EXTENSION)) {
+        readScriptTemplateCalls(resource, templateCalls);
+      }
+      return templateCalls;
+    }
+    for (final String componentTypePath : getDescendantComponentTypePaths(path,
+        resourceResolver)) {
+      final Resource componentTypeResource = resourceResolver.getResource(componentTypePath);
+      if (componentTypeResource != null && !componentTypePath.equals(path)) {
+        readComponentTypeTemplateCalls(componentTypeResource, templateCalls);
+      }
+    }
+    return templateCalls;
+  }
+
+  /**
+   * Opens a service ResourceResolver for reading scripts.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_HTL_TEMPLATE_USAGE_INDEX_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to build HTL Template usage index. Failed to log in as {}. {}",
+          KESTROS_HTL_TEMPLATE_USAGE_INDEX_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  private void scheduleRebuild() {
+    if (executorService != null && !executorService.isShutdown()) {
+      executorService.submit(this::rebuild);
+    }
+  }
+
+  private Map<String, List<HtlTemplateCall>> getTemplateCallsAtOrBelow(final String path) {
+    final Map<String, List<HtlTemplateCall>> templateCalls = new HashMap<>(
+        getTemplateCallsBelow(templateCallsByScript, path));
+    if (templateCallsByScript.containsKey(path)) {
+      templateCalls.put(path, templateCallsByScript.get(path));
+    }
+    return templateCalls;
+  }
+
+  private List<String> getDescendantComponentTypePaths(final String path,
+      final ResourceResolver resourceResolver) {
+    final List<String> componentTypePaths = new ArrayList<>();
+    if (componentTypeDiscoveryService != null) {
+      final Iterator<String> discoveredPaths = componentTypeDiscoveryService.findComponentTypePaths(
+          path, resourceResolver);
+      while (discoveredPaths.hasNext()) {
+        componentTypePaths.add(discoveredPaths.next());
+      }
+      return componentTypePaths;
+    }
+    try {
+      for (final ComponentType componentType : getAllDescendantComponentTypes(
+          getResourceAsBaseResource(path, resourceResolver))) {
+        componentTypePaths.add(componentType.getPath());
+      }
+    } catch (final ResourceNotFoundException exception) {
+      LOG.trace("Unable to read ComponentTypes under {}. {}", path, exception.getMessage());
+    }
+    return componentTypePaths;
+  }
+
+  private static void readComponentTypeTemplateCalls(final Resource componentTypeResource,
+      final Map<String, List<HtlTemplateCall>> templateCalls) {
+    for (final Resource view : componentTypeResource.getChildren()) {
+      if (!isComponentType(view)) {
+        readViewTemplateCalls(view, templateCalls);
+      }
+    }
+  }
+
+  private static void readViewTemplateCalls(final Resource view,
+      final Map<String, List<HtlTemplateCall>> templateCalls) {
+    for (final Resource script : view.getChildren()) {
+      if (script.getName().endsWith(SCRIPT_EXTENSION)) {
+        readScriptTemplateCalls(script, templateCalls);
+      }
+    }
+  }
+
+  private static void readScriptTemplateCalls(final Resource script,
+      final Map<String, List<HtlTemplateCall>> templateCalls) {
+    try {
+      final HtmlFile scriptFile = adaptToFileType(
+          getResourceAsBaseResource(script.getPath(), script.getResourceResolver()),
+          HtmlFile.class);
+      templateCalls.put(script.getPath(),
+          Collections.unmodifiableList(getHtlTemplateCalls(scriptFile)));
+    } catch (final InvalidResourceTypeException | ResourceNotFoundException exception) {
+      LOG.trace("{} is not an HTL script. {}", script.getPath(), exception.getMessage());
+    } catch (final IOException exception) {
+      LOG.warn("Unable to read HTL Template calls from {}. {}", script.getPath(),
+          exception.getMessage());
+    }
+  }
+
+  private static boolean isComponentType(@Nullable final Resource resource) {
+    return resource != null && resource.isResourceType(COMPONENT_TYPE_RESOURCE_TYPE);
+  }
+
+  private static boolean isUnderRootPath(final String path) {
+    for (final String rootPath : ROOT_PATHS) {
+      if (path.equals(rootPath) || path.startsWith(rootPath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Strips the jcr:content of a changed file, so the file itself is re-read.
+   */
+  private static String getScriptPath(final String path) {
+    final int jcrContentIndex = path.indexOf(JCR_CONTENT_PATH_SEGMENT);
+    if (jcrContentIndex > 0) {
+      return path.substring(0, jcrContentIndex);
+    }
+    return path;
+  }
+
+  private static String getTemplateKey(final String templateName) {
+    return templateName.toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Template calls of the scripts below a path. '0' is the character after '/', so the sub map
+   * holds exactly the paths that start with the path followed by '/'.
+   */
+  private static Map<String, List<HtlTemplateCall>> getTemplateCallsBelow(
+      final NavigableMap<String, List<HtlTemplateCall>> templateCallsByScript, final String path) {
+    return templateCallsByScript.subMap(path + "/", path + "0");
+  }
+
+  private static void addChanges(final Map<String, List<HtlTemplateCall>> templateCalls,
+      final Set<String> changedScriptPaths, final Set<String> changedTemplateKeys) {
+    changedScriptPaths.addAll(templateCalls.keySet());
+    for (final List<HtlTemplateCall> scriptTemplateCalls : templateCalls.values()) {
+      for (final HtlTemplateCall templateCall : scriptTemplateCalls) {
+        changedTemplateKeys.add(getTemplateKey(templateCall.getTemplateName()));
+      }
+    }
+  }
+
+  /**
+   * Immutable lookups of template calls by view and by template name, computed from the calls of
+   * each script.
+   */
+  private static final class UsageIndex {
+
+    private final Map<String, List<HtlTemplateCall>> templateCallsByView;
+    private final Map<String, List<HtlTemplateCall>> templateCallsByTemplate;
+    private final Map<String, Set<String>> viewPathsByTemplate;
+    private final int size;
+
+    private UsageIndex(final Map<String, List<HtlTemplateCall>> templateCallsByScript) {
+      final Map<String, List<HtlTemplateCall>> byView = new HashMap<>();
+      final Map<String, List<HtlTemplateCall>> byTemplate = new HashMap<>();
+      final Map<String, Set<String>> viewPaths = new HashMap<>();
+      for (final Map.Entry<String, List<HtlTemplateCall>> entry
+          : templateCallsByScript.entrySet()) {
+        final String viewPath = entry.getKey().substring(0, entry.getKey().lastIndexOf('/'));
+        final List<HtlTemplateCall> viewTemplateCalls = byView.computeIfAbsent(viewPath,
+            key -> new ArrayList<>());
+        for (final HtlTemplateCall templateCall : entry.getValue()) {
+          final String templateKey = getTemplateKey(templateCall.getTemplateName());
+          viewTemplateCalls.add(templateCall);
+          byTemplate.computeIfAbsent(templateKey, key -> new ArrayList<>()).add(templateCall);
+          viewPaths.computeIfAbsent(templateKey, key -> new LinkedHashSet<>()).add(viewPath);
+        }
+      }
+      byView.replaceAll((key, templateCalls) -> Collections.unmodifiableList(templateCalls));
+      byTemplate.replaceAll((key, templateCalls) -> Collections.unmodifiableList(templateCalls));
+      viewPaths.replaceAll((key, paths) -> Collections.unmodifiableSet(paths));
+
+      this.templateCallsByView = Collections.unmodifiableMap(byView);
+      this.templateCallsByTemplate = Collections.unmodifiableMap(byTemplate);
+      this.viewPathsByTemplate = Collections.unmodifiableMap(viewPaths);
+      this.size = templateCallsByScript.size();
+    }
+
+    private UsageIndex(final Map<String, List<HtlTemplateCall>> templateCallsByView,
+        final Map<String, List<HtlTemplateCall>> templateCallsByTemplate,
+        final Map<String, Set<String>> viewPathsByTemplate, final int size) {
+      this.templateCallsByView = Collections.unmodifiableMap(templateCallsByView);
+      this.templateCallsByTemplate = Collections.unmodifiableMap(templateCallsByTemplate);
+      this.viewPathsByTemplate = Collections.unmodifiableMap(viewPathsByTemplate);
+      this.size = size;
+    }
+
+    /**
+     * Copies the index, recomputing only the entries of the views and templates affected by
+     * changed scripts.
+     *
+     * @param changedScriptPaths Paths of added, changed or removed scripts.
+     * @param changedTemplateKeys Keys of templates called before or after the change.
+     * @param templateCallsByScript Template calls of each script, after the change.
+     * @return Updated index.
+     */
+    private UsageIndex update(final Set<String> changedScriptPaths,
+        final Set<String> changedTemplateKeys,
+        final NavigableMap<String, List<HtlTemplateCall>> templateCallsByScript) {
+      final Map<String, List<HtlTemplateCall>> byView = new HashMap<>(templateCallsByView);
+      final Map<String, List<HtlTemplateCall>> byTemplate = new HashMap<>(
+          templateCallsByTemplate);
+      final Map<String, Set<String>> viewPaths = new HashMap<>(viewPathsByTemplate);
+
+      final Set<String> changedViewPaths = new LinkedHashSet<>();
+      for (final String scriptPath : changedScriptPaths) {
+        changedViewPaths.add(scriptPath.substring(0, scriptPath.lastIndexOf('/')));
+      }
+      for (final String viewPath : changedViewPaths) {
+        final Map<String, List<HtlTemplateCall>> viewScripts = getTemplateCallsBelow(
+            templateCallsByScript, viewPath);
+        final List<HtlTemplateCall> viewTemplateCalls = new ArrayList<>();
+        boolean hasScripts = false;
+        for (final Map.Entry<String, List<HtlTemplateCall>> entry : viewScripts.entrySet()) {
+          if (entry.getKey().lastIndexOf('/') == viewPath.length()) {
+            viewTemplateCalls.addAll(entry.getValue());
+            hasScripts = true;
+          }
+        }
+        if (hasScripts) {
+          byView.put(viewPath, Collections.unmodifiableList(viewTemplateCalls));
+        } else {
+          byView.remove(viewPath);
+        }
+      }
+
+      for (final String templateKey : changedTemplateKeys) {
+        final List<HtlTemplateCall> templateCalls = new ArrayList<>();
+        for (final HtlTemplateCall templateCall : templateCallsByTemplate.getOrDefault(
+            templateKey, Collections.emptyList())) {
+          if (!changedScriptPaths.contains(templateCall.getScriptPath())) {
+            templateCalls.add(templateCall);
+          }
+        }
+        for (final String scriptPath : changedScriptPaths) {
+          for (final HtlTemplateCall templateCall : templateCallsByScript.getOrDefault(scriptPath,
+              Collections.emptyList())) {
+            if (getTemplateKey(templateCall.getTemplateName()).equals(templateKey)) {
+              templateCalls.add(templateCall);
+            }
+          }
+        }
+        if (templateCalls.isEmpty()) {
+          byTemplate.remove(templateKey);
+          viewPaths.remove(templateKey);
+        } else {
+          final Set<String> templateViewPaths = new LinkedHashSet<>();
+          for (final HtlTemplateCall templateCall : templateCalls) {
+            templateViewPaths.add(templateCall.getViewPath());
+          }
+          byTemplate.put(templateKey, Collections.unmodifiableList(templateCalls));
+          viewPaths.put(templateKey, Collections.unmodifiableSet(templateViewPaths));
+        }
+      }
+      return new UsageIndex(byView, byTemplate, viewPaths, templateCallsByScript.size());
+    }
+  }
+
+}
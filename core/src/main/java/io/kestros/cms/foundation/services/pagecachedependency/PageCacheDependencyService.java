@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachedependency;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * Tracks which resources each cached page was rendered from, so resource changes can evict only
+ * the pages they affect instead of purging all page caches.
+ */
+public interface PageCacheDependencyService {
+
+  /**
+   * Records the resources a page depends on. Replaces any dependencies previously recorded for
+   * the page.
+   *
+   * @param page Page that was rendered.
+   */
+  void recordDependencies(@Nonnull BaseContentPage page);
+
+  /**
+   * Records previously resolved dependencies of a page (persisted along with its cached output, for
+   * instance). Replaces any dependencies previously recorded for the page.
+   *
+   * @param pagePath Page path.
+   * @param dependencies Paths of the resources the page depends on.
+   */
+  void recordDependencies(@Nonnull String pagePath, @Nonnull Set<String> dependencies);
+
+  /**
+   * Paths of the resources a page was recorded as depending on.
+   *
+   * @param pagePath Page path.
+   * @return Paths of the resources a page was recorded as depending on.
+   */
+  @Nonnull
+  Set<String> getDependencies(@Nonnull String pagePath);
+
+  /**
+   * Whether dependencies have been recorded for a page.
+   *
+   * @param pagePath Page path.
+   * @return Whether dependencies have been recorded for a page.
+   */
+  boolean hasDependencies(@Nonnull String pagePath);
+
+  /**
+   * Paths of pages which depend on a changed resource, or any of its ancestors.
+   *
+   * @param changedPath Path of the changed resource.
+   * @param includeDescendants Whether pages depending on descendants of the changed resource are
+   *     affected as well (when the resource was removed, for instance).
+   * @return Paths of pages which depend on a changed resource, or any of its ancestors.
+   */
+  @Nonnull
+  Set<String> getDependentPagePaths(@Nonnull String changedPath, boolean includeDescendants);
+
+  /**
+   * Invalidation generation of a page. Changes whenever the page is invalidated through {@link
+   * #removePage(String)} or {@link #clear()}, so output rendered while the page was invalidated can
+   * be detected and left uncached.
+   *
+   * @param pagePath Page path.
+   * @return Invalidation generation of a page.
+   */
+  long getInvalidationGeneration(@Nonnull String pagePath);
+
+  /**
+   * Removes all dependencies recorded for a page, and advances its invalidation generation.
+   *
+   * @param pagePath Page path.
+   */
+  void removePage(@Nonnull String pagePath);
+
+  /**
+   * Removes all recorded dependencies, and advances the invalidation generation of every page.
+   */
+  void clear();
+
+}
@@ -0,0 +1,254 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachedependency.impl;
+
+import static org.apache.jackrabbit.JcrConstants.JCR_CONTENT;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.content.BaseComponent;
+import io.kestros.cms.foundation.content.components.inheritedcontentarea.InheritedContentArea;
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.design.theme.Theme;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.design.vendorlibrary.VendorLibrary;
+import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
+import io.kestros.cms.foundation.exceptions.InvalidThemeException;
+import io.kestros.cms.foundation.exceptions.InvalidUiFrameworkException;
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory {@link PageCacheDependencyService}. Pages depend on their own jcr:content resource
+ * (which holds their components), the ComponentTypes (and superTypes) of the page and its
+ * components, their Theme, UiFramework and VendorLibraries, and the content areas they inherit
+ * through {@link InheritedContentArea}. ComponentTypes are tracked under both /apps and /libs, so
+ * overlays added or removed later still evict the pages using them. Every invalidated page path
+ * keeps its invalidation generation until the dependencies are cleared.
+ */
+@Component(immediate = true,
+           service = PageCacheDependencyService.class,
+           property = "service.ranking:Integer=1")
+public class BasePageCacheDependencyService implements PageCacheDependencyService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BasePageCacheDependencyService.class);
+
+  private static final String APPS_ROOT = "/apps/";
+  private static final String LIBS_ROOT = "/libs/";
+  private static final String INHERITED_CONTENT_AREA_RESOURCE_TYPE
+      = "kestros/commons/components/inherited-content-area";
+
+  private final Map<String, Set<String>> pageDependencies = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> dependentPages = new ConcurrentHashMap<>();
+  private final Map<String, Long> invalidationGenerations = new HashMap<>();
+  private long invalidationCounter = 0;
+  private long clearedGeneration = 0;
+
+  @Override
+  public void recordDependencies(@Nonnull final BaseContentPage page) {
+    recordDependencies(page.getPath(), collectDependencies(page));
+  }
+
+  @Override
+  public synchronized void recordDependencies(@Nonnull final String pagePath,
+      @Nonnull final Set<String> dependencies) {
+    removeDependencies(pagePath);
+    pageDependencies.put(pagePath, Collections.unmodifiableSet(new HashSet<>(dependencies)));
+    for (final String dependency : dependencies) {
+      dependentPages.computeIfAbsent(dependency, key -> ConcurrentHashMap.newKeySet()).add(
+          pagePath);
+    }
+  }
+
+  @Nonnull
+  @Override
+  public Set<String> getDependencies(@Nonnull final String pagePath) {
+    final Set<String> dependencies = pageDependencies.get(pagePath);
+    if (dependencies != null) {
+      return dependencies;
+    }
+    return Collections.emptySet();
+  }
+
+  @Override
+  public boolean hasDependencies(@Nonnull final String pagePath) {
+    return pageDependencies.containsKey(pagePath);
+  }
+
+  @Nonnull
+  @Override
+  public Set<String> getDependentPagePaths(@Nonnull final String changedPath,
+      final boolean includeDescendants) {
+    final Set<String> pagePaths = new HashSet<>();
+    String path = changedPath;
+    while (StringUtils.isNotEmpty(path)) {
+      final Set<String> pages = dependentPages.get(path);
+      if (pages != null) {
+        pagePaths.addAll(pages);
+      }
+      path = StringUtils.substringBeforeLast(path, "/");
+    }
+    if (includeDescendants) {
+      final String descendantPrefix = StringUtils.removeEnd(changedPath, "/") + "/";
+      for (final Map.Entry<String, Set<String>> entry : dependentPages.entrySet()) {
+        if (entry.getKey().startsWith(descendantPrefix)) {
+          pagePaths.addAll(entry.getValue());
+        }
+      }
+    }
+    return pagePaths;
+  }
+
+  @Override
+  public synchronized long getInvalidationGeneration(@Nonnull final String pagePath) {
+    final Long invalidationGeneration = invalidationGenerations.get(pagePath);
+    if (invalidationGeneration != null) {
+      return invalidationGeneration;
+    }
+    return clearedGeneration;
+  }
+
+  @Override
+  public synchronized void removePage(@Nonnull final String pagePath) {
+    removeDependencies(pagePath);
+    invalidationGenerations.put(pagePath, ++invalidationCounter);
+  }
+
+  @Override
+  public synchronized void clear() {
+    pageDependencies.clear();
+    dependentPages.clear();
+    invalidationGenerations.clear();
+    clearedGeneration = ++invalidationCounter;
+  }
+
+  /**
+   * Resolves the paths of all resources a page depends on.
+   *
+   * @param page Page to resolve dependencies for.
+   * @return Paths of all resources a page depends on.
+   */
+  @Nonnull
+  Set<String> collectDependencies(@Nonnull final BaseContentPage page) {
+    final Set<String> dependencies = new HashSet<>();
+    dependencies.add(page.getPath() + "/" + JCR_CONTENT);
+    try {
+      addComponentTypeDependencies(page.getComponentType(), dependencies);
+    } catch (final InvalidComponentTypeException exception) {
+      LOG.debug("Unable to track ComponentType dependencies for page {}. {}", page.getPath(),
+          exception.getMessage());
+    }
+    for (final BaseComponent component : page.getAllComponents()) {
+      addComponentDependencies(component, dependencies);
+    }
+    try {
+      final Theme theme = page.getTheme();
+      if (theme != null) {
+        dependencies.add(theme.getPath());
+        final UiFramework uiFramework = theme.getUiFramework();
+        dependencies.add(uiFramework.getPath());
+        for (final VendorLibrary vendorLibrary : uiFramework.getVendorLibraries()) {
+          dependencies.add(vendorLibrary.getPath());
+        }
+      }
+    } catch (final ResourceNotFoundException | InvalidThemeException
+                                            | InvalidUiFrameworkException exception) {
+      LOG.debug("Unable to track design dependencies for page {}. {}", page.getPath(),
+          exception.getMessage());
+    }
+    return dependencies;
+  }
+
+  private void removeDependencies(final String pagePath) {
+    final Set<String> dependencies = pageDependencies.remove(pagePath);
+    if (dependencies != null) {
+      for (final String dependency : dependencies) {
+        final Set<String> pages = dependentPages.get(dependency);
+        if (pages != null) {
+          pages.remove(pagePath);
+          if (pages.isEmpty()) {
+            dependentPages.remove(dependency);
+          }
+        }
+      }
+    }
+  }
+
+  private void addComponentDependencies(final BaseComponent component,
+      final Set<String> dependencies) {
+    addComponentTypeDependencies(component.findComponentType(), dependencies);
+    if (component.getResource().isResourceType(INHERITED_CONTENT_AREA_RESOURCE_TYPE)) {
+      final InheritedContentArea contentArea = component.getResource().adaptTo(
+          InheritedContentArea.class);
+      if (contentArea != null && !contentArea.isReset()) {
+        addInheritedContentAreaDependencies(contentArea.getInheritedFromContentArea(),
+            dependencies);
+      }
+    }
+  }
+
+  private void addInheritedContentAreaDependencies(
+      @Nullable final InheritedContentArea inheritedFromContentArea,
+      final Set<String> dependencies) {
+    InheritedContentArea contentArea = inheritedFromContentArea;
+    while (contentArea != null && dependencies.add(contentArea.getPath())) {
+      final List<BaseComponent> components = contentArea.getAllDescendantComponents();
+      for (final BaseComponent component : components) {
+        addComponentTypeDependencies(component.findComponentType(), dependencies);
+      }
+      if (contentArea.isReset()) {
+        contentArea = null;
+      } else {
+        contentArea = contentArea.getInheritedFromContentArea();
+      }
+    }
+  }
+
+  private void addComponentTypeDependencies(@Nullable final ComponentType componentType,
+      final Set<String> dependencies) {
+    ComponentType current = componentType;
+    while (current != null && dependencies.add(current.getPath())) {
+      dependencies.add(getOverlayPath(current.getPath()));
+      current = current.findComponentSuperType();
+    }
+  }
+
+  @Nonnull
+  static String getOverlayPath(@Nonnull final String path) {
+    if (path.startsWith(APPS_ROOT)) {
+      return LIBS_ROOT + path.substring(APPS_ROOT.length());
+    } else if (path.startsWith(LIBS_ROOT)) {
+      return APPS_ROOT + path.substring(LIBS_ROOT.length());
+    }
+    return path;
+  }
+
+}
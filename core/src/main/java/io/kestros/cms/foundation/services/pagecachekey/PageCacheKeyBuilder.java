@@ -0,0 +1,45 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachekey;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Builds page cache keys for page requests. Requests rendering different output for the same page
+ * (selectors, query parameters, UiFramework, edit mode) must be given different keys, and requests
+ * whose output must not be cached (personalized or edit requests, for instance) are given none.
+ */
+public interface PageCacheKeyBuilder {
+
+  /**
+   * Cache key for the output of a page request. Keys start with the page path and end with '.html',
+   * so all variants of a page can be found from its path.
+   *
+   * @param request Current request.
+   * @param page Requested page.
+   * @return Cache key for the output of a page request, or null if the request must bypass the
+   *     page cache.
+   */
+  @Nullable
+  String getCacheKey(@Nonnull SlingHttpServletRequest request, @Nonnull BaseContentPage page);
+
+}
@@ -0,0 +1,292 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachekey.impl;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.editmodeservice.EditModeService;
+import io.kestros.cms.foundation.services.pagecachekey.PageCacheKeyBuilder;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkDescriptor;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.Cookie;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds page cache keys from the page path, request selectors allowed by the selectors property,
+ * query parameters allowed by the queryParameters property, the UiFramework matching the
+ * ui-framework request parameter and edit mode state. Requests bypass the page cache when they are
+ * not GET or HEAD requests, are not for the html extension, have a suffix, send any other
+ * selectors or query parameters, send a ui-framework code not found in the UiFramework registry,
+ * send a cookie listed in the bypassCookies property, or are in edit mode (unless cacheEditMode is
+ * true).
+ *
+ * <p>
+ * Allowed query parameter values are bounded so clients cannot create unlimited cache variants.
+ * The queryParameterValues property lists allowed values as name=value entries. A parameter with
+ * entries bypasses the page cache when it is sent with any other value. Parameters without entries
+ * bypass the page cache when their value is longer than maxQueryParameterValueLength.
+ * </p>
+ */
+@Component(immediate = true,
+           service = PageCacheKeyBuilder.class,
+           property = {"service.ranking:Integer=1",
+               BasePageCacheKeyBuilder.PN_CACHE_EDIT_MODE + ":Boolean=false",
+               BasePageCacheKeyBuilder.PN_MAX_QUERY_PARAMETER_VALUE_LENGTH + ":Integer="
+               + BasePageCacheKeyBuilder.DEFAULT_MAX_QUERY_PARAMETER_VALUE_LENGTH})
+public class BasePageCacheKeyBuilder implements PageCacheKeyBuilder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BasePageCacheKeyBuilder.class);
+
+  public static final String PN_SELECTORS = "selectors";
+  public static final String PN_QUERY_PARAMETERS = "queryParameters";
+  public static final String PN_QUERY_PARAMETER_VALUES = "queryParameterValues";
+  public static final String PN_MAX_QUERY_PARAMETER_VALUE_LENGTH = "maxQueryParameterValueLength";
+  public static final int DEFAULT_MAX_QUERY_PARAMETER_VALUE_LENGTH = 32;
+  public static final String PN_BYPASS_COOKIES = "bypassCookies";
+  public static final String PN_CACHE_EDIT_MODE = "cacheEditMode";
+  public static final String UI_FRAMEWORK_PARAMETER = "ui-framework";
+  public static final String EDIT_MODE_PARAMETER = "editMode";
+  private static final String EXTENSION = "html";
+  private static final int VARIANT_HASH_LENGTH = 16;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private EditModeService editModeService;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private UiFrameworkRegistryService uiFrameworkRegistryService;
+
+  private List<String> selectors = Collections.emptyList();
+  private List<String> queryParameters = Collections.emptyList();
+  private Map<String, Set<String>> queryParameterValues = Collections.emptyMap();
+  private int maxQueryParameterValueLength = DEFAULT_MAX_QUERY_PARAMETER_VALUE_LENGTH;
+  private List<String> bypassCookies = Collections.emptyList();
+  private boolean cacheEditMode = false;
+
+  /**
+   * Activates the key builder.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      selectors = toList(componentContext.getProperties().get(PN_SELECTORS));
+      queryParameters = toList(componentContext.getProperties().get(PN_QUERY_PARAMETERS));
+      queryParameterValues = toValueMap(
+          componentContext.getProperties().get(PN_QUERY_PARAMETER_VALUES));
+      final Object maxValueLengthProperty = componentContext.getProperties().get(
+          PN_MAX_QUERY_PARAMETER_VALUE_LENGTH);
+      if (maxValueLengthProperty != null) {
+        try {
+          maxQueryParameterValueLength = Integer.parseInt(maxValueLengthProperty.toString());
+        } catch (final NumberFormatException exception) {
+          LOG.warn("Invalid {} value {}. Using {}.", PN_MAX_QUERY_PARAMETER_VALUE_LENGTH,
+              maxValueLengthProperty, DEFAULT_MAX_QUERY_PARAMETER_VALUE_LENGTH);
+          maxQueryParameterValueLength = DEFAULT_MAX_QUERY_PARAMETER_VALUE_LENGTH;
+        }
+      }
+      bypassCookies = toList(componentContext.getProperties().get(PN_BYPASS_COOKIES));
+      final Object cacheEditModeProperty = componentContext.getProperties().get(
+          PN_CACHE_EDIT_MODE);
+      cacheEditMode = cacheEditModeProperty != null && Boolean.parseBoolean(
+          cacheEditModeProperty.toString());
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getCacheKey(@Nonnull final SlingHttpServletRequest request,
+      @Nonnull final BaseContentPage page) {
+    if (isBypassed(request)) {
+      return null;
+    }
+    final StringBuilder cacheKey = new StringBuilder(page.getPath());
+    for (final String selector : request.getRequestPathInfo().getSelectors()) {
+      cacheKey.append('.').append(selector);
+    }
+
+    final Map<String, String> variantParameters = new TreeMap<>();
+    for (final String parameterName : queryParameters) {
+      final String[] values = request.getParameterValues(parameterName);
+      if (values != null) {
+        variantParameters.put(parameterName, StringUtils.join(values, ','));
+      }
+    }
+    final UiFrameworkDescriptor uiFramework = getParameterUiFramework(request);
+    if (uiFramework != null) {
+      variantParameters.put(UI_FRAMEWORK_PARAMETER, uiFramework.getPath());
+    }
+    if (isEditMode(request)) {
+      variantParameters.put(EDIT_MODE_PARAMETER, Boolean.TRUE.toString());
+    }
+    if (!variantParameters.isEmpty()) {
+      cacheKey.append(".v").append(hash(variantParameters.toString()));
+    }
+    return cacheKey.append('.').append(EXTENSION).toString();
+  }
+
+  /**
+   * Whether a request must bypass the page cache.
+   *
+   * @param request Current request.
+   * @return Whether a request must bypass the page cache.
+   */
+  protected boolean isBypassed(@Nonnull final SlingHttpServletRequest request) {
+    if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+      return true;
+    }
+    final String extension = request.getRequestPathInfo().getExtension();
+    if (extension != null && !EXTENSION.equals(extension)) {
+      return true;
+    }
+    if (StringUtils.isNotEmpty(request.getRequestPathInfo().getSuffix())) {
+      return true;
+    }
+    for (final String selector : request.getRequestPathInfo().getSelectors()) {
+      if (!selectors.contains(selector)) {
+        return true;
+      }
+    }
+    for (final Object parameterName : request.getParameterMap().keySet()) {
+      if (!queryParameters.contains(parameterName) && !UI_FRAMEWORK_PARAMETER.equals(
+          parameterName) && !EDIT_MODE_PARAMETER.equals(parameterName)) {
+        return true;
+      }
+    }
+    for (final String parameterName : queryParameters) {
+      final String[] values = request.getParameterValues(parameterName);
+      if (values != null && !isAllowedQueryParameterValue(parameterName, values)) {
+        return true;
+      }
+    }
+    if (StringUtils.isNotEmpty(request.getParameter(UI_FRAMEWORK_PARAMETER))
+        && getParameterUiFramework(request) == null) {
+      return true;
+    }
+    if (request.getCookies() != null) {
+      for (final Cookie cookie : request.getCookies()) {
+        if (bypassCookies.contains(cookie.getName())) {
+          return true;
+        }
+      }
+    }
+    return isEditMode(request) && !cacheEditMode;
+  }
+
+  /**
+   * Whether query parameter values may be keyed into a page cache variant. When the parameter has
+   * queryParameterValues entries, each value must be listed and the parameter may not be sent more
+   * often than it has entries. Otherwise the joined values must not be longer than
+   * maxQueryParameterValueLength.
+   */
+  private boolean isAllowedQueryParameterValue(final String parameterName, final String[] values) {
+    final Set<String> allowedValues = queryParameterValues.get(parameterName);
+    if (allowedValues != null) {
+      for (final String value : values) {
+        if (!allowedValues.contains(value)) {
+          return false;
+        }
+      }
+      return values.length <= allowedValues.size();
+    }
+    return StringUtils.join(values, ',').length() <= maxQueryParameterValueLength;
+  }
+
+  private boolean isEditMode(final SlingHttpServletRequest request) {
+    return editModeService != null && editModeService.isEditModeActive()
+           && Boolean.parseBoolean(request.getParameter(EDIT_MODE_PARAMETER));
+  }
+
+  /**
+   * Registered UiFramework matching the ui-framework request parameter. Null when the parameter is
+   * not sent, matches no UiFramework, or the UiFramework registry has not been built.
+   */
+  @Nullable
+  private UiFrameworkDescriptor getParameterUiFramework(final SlingHttpServletRequest request) {
+    final String uiFrameworkCode = request.getParameter(UI_FRAMEWORK_PARAMETER);
+    if (StringUtils.isEmpty(uiFrameworkCode) || uiFrameworkRegistryService == null
+        || !uiFrameworkRegistryService.isBuilt()) {
+      return null;
+    }
+    return uiFrameworkRegistryService.getDescriptorByFrameworkCode(uiFrameworkCode, true, true);
+  }
+
+  private static String hash(final String value) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+          value.getBytes(StandardCharsets.UTF_8));
+      final StringBuilder hash = new StringBuilder();
+      for (final byte digestByte : digest) {
+        hash.append(String.format("%02x", digestByte));
+      }
+      return hash.substring(0, VARIANT_HASH_LENGTH);
+    } catch (final NoSuchAlgorithmException exception) {
+      LOG.warn("Unable to hash page cache variant. {}", exception.getMessage());
+      return Integer.toHexString(value.hashCode());
+    }
+  }
+
+  private static Map<String, Set<String>> toValueMap(final Object value) {
+    final Map<String, Set<String>> valueMap = new HashMap<>();
+    for (final String entry : toList(value)) {
+      final String parameterName = StringUtils.substringBefore(entry, "=");
+      if (StringUtils.isNotBlank(parameterName) && entry.contains("=")) {
+        valueMap.computeIfAbsent(parameterName, name -> new HashSet<>()).add(
+            StringUtils.substringAfter(entry, "="));
+      } else {
+        LOG.warn("Ignoring {} entry {}. Expected name=value.", PN_QUERY_PARAMETER_VALUES, entry);
+      }
+    }
+    return valueMap;
+  }
+
+  private static List<String> toList(final Object value) {
+    if (value instanceof String[]) {
+      return new ArrayList<>(Arrays.asList((String[]) value));
+    } else if (value != null && StringUtils.isNotBlank(value.toString())) {
+      return Collections.singletonList(value.toString());
+    }
+    return Collections.emptyList();
+  }
+
+}
@@ -0,0 +1,356 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cached page output, stored as UTF-8 bytes along with pre-compressed variants, so cache hits can be
+ * written to the response without being encoded or compressed again. A content hash and creation
+ * timestamp are recorded to support conditional requests.
+ */
+public class CachedPageOutput {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachedPageOutput.class);
+
+  public static final String ENCODING_GZIP = "gzip";
+  public static final String ENCODING_DEFLATE = "deflate";
+  public static final String ENCODING_IDENTITY = "identity";
+
+  private final byte[] content;
+  private final byte[] gzipContent;
+  private final byte[] deflateContent;
+  private final String contentHash;
+  private final long created;
+  private final long staleSince;
+
+  /**
+   * Constructs CachedPageOutput, and compresses a gzip variant of the output.
+   *
+   * @param output Page output.
+   */
+  public CachedPageOutput(@Nonnull final String output) {
+    this(output, false);
+  }
+
+  /**
+   * Constructs CachedPageOutput, and compresses a gzip (and optionally a deflate) variant of the
+   * output.
+   *
+   * @param output Page output.
+   * @param includeDeflate Whether to compress a deflate variant.
+   */
+  public CachedPageOutput(@Nonnull final String output, final boolean includeDeflate) {
+    this(output, includeDeflate, System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs CachedPageOutput, and compresses a gzip (and optionally a deflate) variant of the
+   * output.
+   *
+   * @param output Page output.
+   * @param includeDeflate Whether to compress a deflate variant.
+   * @param created When the output was cached, in milliseconds since epoch.
+   */
+  public CachedPageOutput(@Nonnull final String output, final boolean includeDeflate,
+      final long created) {
+    this(output.getBytes(StandardCharsets.UTF_8), includeDeflate, created);
+  }
+
+  /**
+   * Constructs CachedPageOutput from UTF-8 encoded output, and compresses a gzip (and optionally a
+   * deflate) variant of the output. The output is stored without being copied, so it must not be
+   * modified afterwards.
+   *
+   * @param output Page output, as UTF-8 bytes.
+   * @param includeDeflate Whether to compress a deflate variant.
+   */
+  public CachedPageOutput(@Nonnull final byte[] output, final boolean includeDeflate) {
+    this(output, includeDeflate, System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs CachedPageOutput from UTF-8 encoded output, and compresses a gzip (and optionally a
+   * deflate) variant of the output. The output is stored without being copied, so it must not be
+   * modified afterwards.
+   *
+   * @param output Page output, as UTF-8 bytes.
+   * @param includeDeflate Whether to compress a deflate variant.
+   * @param created When the output was cached, in milliseconds since epoch.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP2")
+  public CachedPageOutput(@Nonnull final byte[] output, final boolean includeDeflate,
+      final long created) {
+    this.content = output;
+    this.contentHash = hash(this.content);
+    this.created = created;
+    this.gzipContent = compress(this.content, ENCODING_GZIP);
+    if (includeDeflate) {
+      this.deflateContent = compress(this.content, ENCODING_DEFLATE);
+    } else {
+      this.deflateContent = null;
+    }
+    this.staleSince = 0;
+  }
+
+  private CachedPageOutput(@Nonnull final CachedPageOutput output, final long staleSince) {
+    this.content = output.content;
+    this.gzipContent = output.gzipContent;
+    this.deflateContent = output.deflateContent;
+    this.contentHash = output.contentHash;
+    this.created = output.created;
+    this.staleSince = staleSince;
+  }
+
+  /**
+   * Copy of this output, marked stale. Stale output can still be served while it is re-rendered.
+   * Output which is already stale keeps its original stale timestamp.
+   *
+   * @param staleSince When the output became stale, in milliseconds since epoch.
+   * @return Copy of this output, marked stale.
+   */
+  @Nonnull
+  public CachedPageOutput toStale(final long staleSince) {
+    if (isStale()) {
+      return this;
+    }
+    return new CachedPageOutput(this, staleSince);
+  }
+
+  /**
+   * Whether the output has been invalidated, and should be re-rendered.
+   *
+   * @return Whether the output has been invalidated, and should be re-rendered.
+   */
+  public boolean isStale() {
+    return staleSince > 0;
+  }
+
+  /**
+   * When the output became stale, in milliseconds since epoch. 0 if the output is not stale.
+   *
+   * @return When the output became stale.
+   */
+  public long getStaleSince() {
+    return staleSince;
+  }
+
+  /**
+   * Page output.
+   *
+   * @return Page output.
+   */
+  @Nonnull
+  public String getContent() {
+    return new String(content, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Page output, as UTF-8 bytes, encoded with the specified content encoding. Unknown or
+   * unavailable encodings return the uncompressed bytes.
+   *
+   * @param encoding Content encoding (gzip, deflate or identity).
+   * @return Page output, as UTF-8 bytes, encoded with the specified content encoding.
+   */
+  @Nonnull
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public byte[] getBytes(@Nullable final String encoding) {
+    if (ENCODING_GZIP.equals(encoding) && gzipContent != null) {
+      return gzipContent;
+    }
+    if (ENCODING_DEFLATE.equals(encoding) && deflateContent != null) {
+      return deflateContent;
+    }
+    return content;
+  }
+
+  /**
+   * Picks the stored variant best matching an Accept-Encoding request header. gzip is preferred
+   * over deflate, and identity is returned when neither are accepted.
+   *
+   * @param acceptEncoding Accept-Encoding request header value.
+   * @return Content encoding to respond with (gzip, deflate or identity).
+   */
+  @Nonnull
+  public String getPreferredEncoding(@Nullable final String acceptEncoding) {
+    if (StringUtils.isBlank(acceptEncoding)) {
+      return ENCODING_IDENTITY;
+    }
+    if (gzipContent != null && isEncodingAccepted(acceptEncoding, ENCODING_GZIP)) {
+      return ENCODING_GZIP;
+    }
+    if (deflateContent != null && isEncodingAccepted(acceptEncoding, ENCODING_DEFLATE)) {
+      return ENCODING_DEFLATE;
+    }
+    return ENCODING_IDENTITY;
+  }
+
+  /**
+   * Hex encoded SHA-256 hash of the page output.
+   *
+   * @return Hex encoded SHA-256 hash of the page output.
+   */
+  @Nonnull
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  /**
+   * When the output was cached, in milliseconds since epoch.
+   *
+   * @return When the output was cached, in milliseconds since epoch.
+   */
+  public long getCreated() {
+    return created;
+  }
+
+  /**
+   * Entity tag for the specified content encoding. Compressed variants are given distinct tags, as
+   * their bytes differ from the uncompressed output.
+   *
+   * @param encoding Content encoding (gzip, deflate or identity).
+   * @return Quoted entity tag for the specified content encoding.
+   */
+  @Nonnull
+  public String getEtag(@Nullable final String encoding) {
+    if ((ENCODING_GZIP.equals(encoding) && gzipContent != null) || (ENCODING_DEFLATE.equals(
+        encoding) && deflateContent != null)) {
+      return "\"" + contentHash + "-" + encoding + "\"";
+    }
+    return "\"" + contentHash + "\"";
+  }
+
+  /**
+   * Whether an If-None-Match request header matches any variant of the current output.
+   *
+   * @param ifNoneMatch If-None-Match request header value.
+   * @return Whether an If-None-Match request header matches any variant of the current output.
+   */
+  public boolean matchesEtag(@Nullable final String ifNoneMatch) {
+    if (StringUtils.isBlank(ifNoneMatch)) {
+      return false;
+    }
+    for (String etag : ifNoneMatch.split(",")) {
+      etag = etag.trim();
+      if ("*".equals(etag)) {
+        return true;
+      }
+      if (etag.startsWith("W/")) {
+        etag = etag.substring(2);
+      }
+      if (etag.equals(getEtag(ENCODING_IDENTITY)) || etag.equals(getEtag(ENCODING_GZIP))
+          || etag.equals(getEtag(ENCODING_DEFLATE))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Approximate heap size (in bytes) of the stored output and its compressed variants.
+   *
+   * @return Approximate heap size (in bytes) of the stored output and its compressed variants.
+   */
+  public long getSize() {
+    long size = content.length + 2L * contentHash.length();
+    if (gzipContent != null) {
+      size += gzipContent.length;
+    }
+    if (deflateContent != null) {
+      size += deflateContent.length;
+    }
+    return size;
+  }
+
+  static boolean isEncodingAccepted(@Nonnull final String acceptEncoding,
+      @Nonnull final String encoding) {
+    boolean accepted = false;
+    for (final String token : acceptEncoding.split(",")) {
+      final String[] parts = token.split(";");
+      final String coding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+      final boolean hasPositiveQuality = hasPositiveQuality(parts);
+      if (coding.equals(encoding)) {
+        return hasPositiveQuality;
+      }
+      if ("*".equals(coding)) {
+        accepted = hasPositiveQuality;
+      }
+    }
+    return accepted;
+  }
+
+  private static boolean hasPositiveQuality(final String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      final String parameter = parts[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2)) > 0;
+        } catch (final NumberFormatException exception) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static String hash(final byte[] content) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      final StringBuilder hash = new StringBuilder(digest.length * 2);
+      for (final byte digestByte : digest) {
+        hash.append(String.format("%02x", digestByte));
+      }
+      return hash.toString();
+    } catch (final NoSuchAlgorithmException exception) {
+      LOG.warn("Failed to hash cached page output. {}", exception.getMessage());
+      return Integer.toHexString(Arrays.hashCode(content));
+    }
+  }
+
+  @Nullable
+  private static byte[] compress(final byte[] content, final String encoding) {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+        Math.max(32, content.length / 4));
+    try (OutputStream compressionStream = ENCODING_GZIP.equals(encoding)
+                                          ? new GZIPOutputStream(compressed)
+                                          : new DeflaterOutputStream(compressed)) {
+      compressionStream.write(content);
+    } catch (final IOException exception) {
+      LOG.warn("Failed to build {} variant of cached page output. {}", encoding,
+          exception.getMessage());
+      return null;
+    }
+    return compressed.toByteArray();
+  }
+}
@@ -20,6 +20,7 @@ package io.kestros.cms.foundation.services.pagecacheservice;
 
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
+import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.osgiserviceutils.services.cache.CacheService;
 import javax.annotation.Nonnull;
@@ -48,4 +49,57 @@ public interface PageCacheService extends CacheService {
    */
   String getCachedOutput(@Nonnull BaseContentPage page) throws CacheRetrievalException;
 
+  /**
+   * Retrieves the cached output for a given page, along with its pre-compressed variants.
+   *
+   * @param page Page to retrieve cache for.
+   * @return The cached output for a given page, along with its pre-compressed variants.
+   * @throws CacheRetrievalException Failed to retrieve a cached output value for the given page.
+   */
+  CachedPageOutput getCachedPageOutput(@Nonnull BaseContentPage page)
+      throws CacheRetrievalException;
+
+  /**
+   * Caches one variant of a page's HTML output.
+   *
+   * @param page Page to cache.
+   * @param cacheKey Cache key of the variant, built by a PageCacheKeyBuilder.
+   * @param htmlResponse HTML content to cache.
+   * @throws CacheBuilderException Failed to cache page output.
+   */
+  void cachePage(@Nonnull BaseContentPage page, @Nonnull String cacheKey, String htmlResponse)
+      throws CacheBuilderException;
+
+  /**
+   * Caches one variant of a page's HTML output, as rendered. The output is cached without being
+   * copied, so it must not be modified afterwards.
+   *
+   * @param page Page to cache.
+   * @param cacheKey Cache key of the variant, built by a PageCacheKeyBuilder.
+   * @param htmlOutput HTML content to cache, as UTF-8 bytes.
+   * @throws CacheBuilderException Failed to cache page output.
+   */
+  void cachePage(@Nonnull BaseContentPage page, @Nonnull String cacheKey,
+      @Nonnull byte[] htmlOutput) throws CacheBuilderException;
+
+  /**
+   * Retrieves the cached output of one variant of a page.
+   *
+   * @param page Page to retrieve cache for.
+   * @param cacheKey Cache key of the variant, built by a PageCacheKeyBuilder.
+   * @return The cached output of one variant of a page.
+   * @throws CacheRetrievalException Failed to retrieve a cached output value for the variant.
+   */
+  CachedPageOutput getCachedPageOutput(@Nonnull BaseContentPage page, @Nonnull String cacheKey)
+      throws CacheRetrievalException;
+
+  /**
+   * Removes the cached output of a single page, including all of its variants, leaving all other
+   * cached pages intact.
+   *
+   * @param pagePath Path of the page to remove from the cache.
+   * @throws CachePurgeException Failed to remove the cached output.
+   */
+  void purgePage(@Nonnull String pagePath) throws CachePurgeException;
+
 }
@@ -0,0 +1,41 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import javax.annotation.Nonnull;
+
+/**
+ * Transforms rendered page output once, when it is written to a {@link PageCacheService}. All
+ * registered post-processors are chained in order of service ranking, each receiving the output of
+ * the previous one. Cache hits serve the processed output as is.
+ */
+public interface PageOutputPostProcessor {
+
+  /**
+   * Processes rendered page output before it is cached.
+   *
+   * @param page Page the output was rendered for.
+   * @param output Rendered page output, or output of the previous post-processor.
+   * @return Processed page output.
+   */
+  @Nonnull
+  String process(@Nonnull BaseContentPage page, @Nonnull String output);
+
+}
@@ -0,0 +1,113 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice.impl;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.pagecacheservice.PageOutputPostProcessor;
+import javax.annotation.Nonnull;
+import org.osgi.service.component.annotations.Component;
+
+/**
+ * Collapses each run of whitespace in page output to a single space. Content of pre, textarea,
+ * script and style elements is left as is, since whitespace is significant there.
+ */
+@Component(immediate = true,
+           service = PageOutputPostProcessor.class,
+           property = "service.ranking:Integer=100")
+public class HtmlWhitespaceMinifier implements PageOutputPostProcessor {
+
+  private static final String[] PRESERVED_ELEMENTS = {"pre", "textarea", "script", "style"};
+
+  @Nonnull
+  @Override
+  public String process(@Nonnull final BaseContentPage page, @Nonnull final String output) {
+    return minify(output);
+  }
+
+  /**
+   * Collapses each run of whitespace to a single space, outside of preformatted elements.
+   *
+   * @param html HTML to minify.
+   * @return Minified HTML.
+   */
+  @Nonnull
+  public String minify(@Nonnull final String html) {
+    final StringBuilder minified = new StringBuilder(html.length());
+    final int length = html.length();
+    int index = 0;
+    while (index < length) {
+      final char character = html.charAt(index);
+      if (Character.isWhitespace(character)) {
+        minified.append(' ');
+        while (index < length && Character.isWhitespace(html.charAt(index))) {
+          index++;
+        }
+      } else if (character == '<') {
+        final int preservedEnd = getPreservedElementEnd(html, index);
+        minified.append(html, index, preservedEnd);
+        index = preservedEnd;
+      } else {
+        minified.append(character);
+        index++;
+      }
+    }
+    return minified.toString();
+  }
+
+  // Index after the closing tag of the preserved element starting at tagStart, or the index after
+  // the '<' when no preserved element starts there.
+  private static int getPreservedElementEnd(final String html, final int tagStart) {
+    for (final String element : PRESERVED_ELEMENTS) {
+      if (isStartTag(html, tagStart, element)) {
+        final int closingTagStart = indexOfIgnoreCase(html, "</" + element, tagStart + 1);
+        if (closingTagStart == -1) {
+          return html.length();
+        }
+        final int closingTagEnd = html.indexOf('>', closingTagStart);
+        if (closingTagEnd == -1) {
+          return html.length();
+        }
+        return closingTagEnd + 1;
+      }
+    }
+    return tagStart + 1;
+  }
+
+  private static boolean isStartTag(final String html, final int tagStart, final String element) {
+    final int nameEnd = tagStart + 1 + element.length();
+    if (!html.regionMatches(true, tagStart + 1, element, 0, element.length())) {
+      return false;
+    }
+    if (nameEnd >= html.length()) {
+      return true;
+    }
+    final char next = html.charAt(nameEnd);
+    return next == '>' || next == '/' || Character.isWhitespace(next);
+  }
+
+  private static int indexOfIgnoreCase(final String html, final String target, final int from) {
+    for (int index = from; index <= html.length() - target.length(); index++) {
+      if (html.regionMatches(true, index, target, 0, target.length())) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -18,36 +18,101 @@
 
 package io.kestros.cms.foundation.services.pagecacheservice.impl;
 
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getAllOsgiServicesOfType;
+import static io.kestros.commons.osgiserviceutils.utils.OsgiServiceUtils.getOpenServiceResourceResolverOrNullAndLogExceptions;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.kestros.cms.foundation.componenttypes.HtmlFile;
 import io.kestros.cms.foundation.componenttypes.HtmlFileType;
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecacheservice.CachedPageOutput;
 import io.kestros.cms.foundation.services.pagecacheservice.GeneralPageCacheService;
 import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
+import io.kestros.cms.foundation.services.pagecacheservice.PageOutputPostProcessor;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
+import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.osgiserviceutils.services.cache.ManagedCacheService;
 import io.kestros.commons.osgiserviceutils.services.cache.impl.JcrFileCacheService;
 import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
 import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
+import io.kestros.commons.structuredslingmodels.filetypes.BaseFile;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.event.jobs.JobManager;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Caches pages by storing their HTML output as a new nt:file under /var/cache/pages.
+ * Caches pages by storing their HTML output as a new nt:file under /var/cache/pages. Recently
+ * requested pages are also held in a size bounded in-memory tier, along with pre-compressed gzip
+ * (and optionally deflate) variants, so cache hits for frequently requested pages do not need to
+ * read from the JCR or compress output. The in-memory budget (in bytes) is configured with the
+ * memoryCacheMaxSize property. Output is run through all registered {@link
+ * PageOutputPostProcessor} services once, before it is cached. With staleWhileRevalidate enabled,
+ * purged pages are kept in the in-memory tier, marked stale, for up to maxStaleness milliseconds
+ * so they can be served while they are re-rendered. Each page can have several cached variants
+ * (see {@link io.kestros.cms.foundation.services.pagecachekey.PageCacheKeyBuilder}), all of which
+ * are removed when the page is purged. The dependencies recorded by the {@link
+ * PageCacheDependencyService} are persisted next to each cached page, and recorded again in the
+ * background on activation, so output cached before a restart can still be served and evicted.
  */
 @Component(immediate = true,
            service = {ManagedCacheService.class, GeneralPageCacheService.class,
                PageCacheService.class},
-           property = "service.ranking:Integer=1")
+           property = {"service.ranking:Integer=1",
+               JcrFilePageCacheService.PN_MEMORY_CACHE_MAX_SIZE + ":Long="
+               + JcrFilePageCacheService.DEFAULT_MEMORY_CACHE_MAX_SIZE,
+               JcrFilePageCacheService.PN_DEFLATE_ENABLED + ":Boolean=false",
+               JcrFilePageCacheService.PN_STALE_WHILE_REVALIDATE + ":Boolean=false",
+               JcrFilePageCacheService.PN_MAX_STALENESS + ":Long="
+               + JcrFilePageCacheService.DEFAULT_MAX_STALENESS})
 public class JcrFilePageCacheService extends JcrFileCacheService
     implements GeneralPageCacheService {
 
+  private static final Logger LOG = LoggerFactory.getLogger(JcrFilePageCacheService.class);
+
   public static final String KESTROS_PAGE_CACHE_PURGE_SERVICE_USER = "kestros-page-cache";
+  public static final String PN_MEMORY_CACHE_MAX_SIZE = "memoryCacheMaxSize";
+  public static final long DEFAULT_MEMORY_CACHE_MAX_SIZE = 67108864L;
+  public static final String PN_DEFLATE_ENABLED = "deflateEnabled";
+  public static final String PN_STALE_WHILE_REVALIDATE = "staleWhileRevalidate";
+  public static final String PN_MAX_STALENESS = "maxStaleness";
+  public static final long DEFAULT_MAX_STALENESS = 300000L;
+  public static final String DEPENDENCIES_FILE_SUFFIX = ".dependencies";
+  private static final String SLING_FOLDER = "sling:Folder";
   private static final long serialVersionUID = 7298277513481005750L;
 
   @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
@@ -58,6 +123,64 @@ public class JcrFilePageCacheService extends JcrFileCacheService
   @Reference
   private transient JobManager jobManager;
 
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private transient PageCacheDependencyService pageCacheDependencyService;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient ExecutorService dependencyRestoreExecutorService;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient PageOutputMemoryCache memoryCache = new PageOutputMemoryCache(
+      DEFAULT_MEMORY_CACHE_MAX_SIZE);
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient Map<String, Set<String>> variantCacheKeys = new ConcurrentHashMap<>();
+
+  private boolean deflateEnabled = false;
+  private boolean staleWhileRevalidate = false;
+  private long maxStaleness = DEFAULT_MAX_STALENESS;
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private transient ComponentContext componentContext;
+
+  @Override
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    super.activate(componentContext);
+    this.componentContext = componentContext;
+    this.memoryCache = new PageOutputMemoryCache(getConfiguredMemoryCacheMaxSize(componentContext));
+    this.deflateEnabled = isConfiguredBoolean(componentContext, PN_DEFLATE_ENABLED);
+    this.staleWhileRevalidate = isConfiguredBoolean(componentContext,
+        PN_STALE_WHILE_REVALIDATE);
+    this.maxStaleness = getConfiguredLong(componentContext, PN_MAX_STALENESS,
+        DEFAULT_MAX_STALENESS);
+    if (pageCacheDependencyService != null) {
+      this.dependencyRestoreExecutorService = Executors.newSingleThreadExecutor();
+      try {
+        dependencyRestoreExecutorService.execute(this::restorePersistedDependencies);
+      } catch (final RejectedExecutionException exception) {
+        LOG.debug("Restoring persisted page cache dependencies was rejected. {}",
+            exception.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Deactivates the service, stopping any running restore of persisted dependencies.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Override
+  @Deactivate
+  public void deactivate(final ComponentContext componentContext) {
+    if (dependencyRestoreExecutorService != null) {
+      dependencyRestoreExecutorService.shutdownNow();
+    }
+    super.deactivate(componentContext);
+  }
+
   @Override
   public String getServiceCacheRootPath() {
     return "/var/cache/pages";
@@ -78,9 +201,21 @@ public class JcrFilePageCacheService extends JcrFileCacheService
     return resourceResolverFactory;
   }
 
+  @Override
+  protected void doPurge(final ResourceResolver resourceResolver) throws CachePurgeException {
+    memoryCache.clear();
+    variantCacheKeys.clear();
+    super.doPurge(resourceResolver);
+  }
+
   @Override
   protected void afterCachePurgeComplete(ResourceResolver resourceResolver) {
-    // Does nothing.
+    if (componentContext != null) {
+      for (final PageCacheWarmerService pageCacheWarmerService : getAllOsgiServicesOfType(
+          componentContext, PageCacheWarmerService.class)) {
+        pageCacheWarmerService.warmAllPages();
+      }
+    }
   }
 
   @Override
@@ -101,18 +236,383 @@ public class JcrFilePageCacheService extends JcrFileCacheService
   @Override
   public void cachePage(final BaseContentPage page, final String htmlResponse)
       throws CacheBuilderException {
-    createCacheFile(htmlResponse, page.getPath() + ".html", new HtmlFileType());
+    cachePage(page, getCacheKey(page), htmlResponse);
+  }
+
+  @Override
+  public void cachePage(@Nonnull final BaseContentPage page, @Nonnull final String cacheKey,
+      final String htmlResponse) throws CacheBuilderException {
+    cachePage(page, cacheKey, htmlResponse.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void cachePage(@Nonnull final BaseContentPage page, @Nonnull final String cacheKey,
+      @Nonnull final byte[] htmlOutput) throws CacheBuilderException {
+    final byte[] output = postProcess(page, htmlOutput);
+    persistDependencies(page.getPath());
+    createCacheFile(output, cacheKey);
+    memoryCache.put(cacheKey, new CachedPageOutput(output, deflateEnabled));
+    variantCacheKeys.computeIfAbsent(page.getPath(), pagePath -> ConcurrentHashMap.newKeySet())
+        .add(cacheKey);
   }
 
   @Override
   public String getCachedOutput(@Nonnull final BaseContentPage page)
       throws CacheRetrievalException {
+    return getCachedPageOutput(page).getContent();
+  }
+
+  @Override
+  public CachedPageOutput getCachedPageOutput(@Nonnull final BaseContentPage page)
+      throws CacheRetrievalException {
+    return getCachedPageOutput(page, getCacheKey(page));
+  }
+
+  @Override
+  public CachedPageOutput getCachedPageOutput(@Nonnull final BaseContentPage page,
+      @Nonnull final String cacheKey) throws CacheRetrievalException {
+    final CachedPageOutput memoryCachedOutput = memoryCache.get(cacheKey);
+    if (memoryCachedOutput != null) {
+      if (isExpired(memoryCachedOutput)) {
+        memoryCache.remove(cacheKey, memoryCachedOutput);
+        throw new CacheRetrievalException(
+            String.format("Stale cache for %s exceeded its maximum staleness.", page.getPath()));
+      }
+      return memoryCachedOutput;
+    }
+    return getPersistedCachedPageOutput(cacheKey);
+  }
+
+  @Override
+  public void purgePage(@Nonnull final String pagePath) throws CachePurgeException {
+    final ResourceResolver resourceResolver = openServiceResourceResolver();
+    if (resourceResolver == null) {
+      throw new CachePurgeException(
+          String.format("Unable to purge cached page %s. No service resource resolver.",
+              pagePath));
+    }
+    final Set<String> cacheKeys = getVariantCacheKeys(pagePath, resourceResolver);
+    for (final String cacheKey : cacheKeys) {
+      if (staleWhileRevalidate) {
+        markStale(cacheKey);
+      } else {
+        memoryCache.remove(cacheKey);
+      }
+    }
+    if (!staleWhileRevalidate) {
+      variantCacheKeys.remove(pagePath);
+    }
+
+    try {
+      for (final String cacheKey : cacheKeys) {
+        final Resource cachedFile = resourceResolver.getResource(
+            getServiceCacheRootPath() + cacheKey);
+        if (cachedFile != null) {
+          resourceResolver.delete(cachedFile);
+        }
+      }
+      final Resource dependenciesFile = resourceResolver.getResource(
+          getServiceCacheRootPath() + getDependenciesFilePath(pagePath));
+      if (dependenciesFile != null) {
+        resourceResolver.delete(dependenciesFile);
+      }
+      if (resourceResolver.hasChanges()) {
+        resourceResolver.commit();
+      }
+    } catch (final PersistenceException exception) {
+      resourceResolver.revert();
+      throw new CachePurgeException(
+          String.format("Unable to purge cached page %s. %s", pagePath, exception.getMessage()));
+    }
+  }
+
+  /**
+   * Records the dependencies persisted next to every cached page with the {@link
+   * PageCacheDependencyService}, for pages which have no recorded dependencies yet. Changes made to
+   * a page's resources before its dependencies are recorded again (while the instance was down,
+   * for instance) are not detected.
+   */
+  public void restorePersistedDependencies() {
+    if (pageCacheDependencyService == null) {
+      return;
+    }
+    final ResourceResolver resourceResolver = openServiceResourceResolver();
+    if (resourceResolver == null) {
+      LOG.warn("Unable to restore persisted page cache dependencies. No service resource "
+               + "resolver.");
+      return;
+    }
+    final Resource cacheRoot = resourceResolver.getResource(getServiceCacheRootPath());
+    if (cacheRoot != null) {
+      final int restoredPageCount = restorePersistedDependencies(cacheRoot);
+      LOG.info("Restored persisted dependencies of {} cached pages.", restoredPageCount);
+    }
+  }
+
+  /**
+   * Post-processors applied to page output before it is cached, in order of service ranking.
+   *
+   * @return Post-processors applied to page output before it is cached.
+   */
+  @Nonnull
+  public List<PageOutputPostProcessor> getPageOutputPostProcessors() {
+    if (componentContext != null) {
+      return getAllOsgiServicesOfType(componentContext, PageOutputPostProcessor.class);
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * In-memory tier of the page cache.
+   *
+   * @return In-memory tier of the page cache.
+   */
+  @Nonnull
+  public PageOutputMemoryCache getMemoryCache() {
+    return memoryCache;
+  }
+
+  /**
+   * Whether purged pages are kept in the in-memory tier, marked stale, so they can still be served
+   * while they are re-rendered.
+   *
+   * @return Whether purged pages are kept in the in-memory tier, marked stale.
+   */
+  public boolean isStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /**
+   * How long (in milliseconds) stale output can still be served after it was purged.
+   *
+   * @return How long stale output can still be served after it was purged.
+   */
+  public long getMaxStaleness() {
+    return maxStaleness;
+  }
+
+  private CachedPageOutput getPersistedCachedPageOutput(final String cacheKey)
+      throws CacheRetrievalException {
     try {
-      return getCachedFile(page.getPath() + ".html",
-          new HtmlFileType().getFileModelClass()).getFileContent();
+      final BaseFile cachedFile = getCachedFile(cacheKey, new HtmlFileType().getFileModelClass());
+      final CachedPageOutput cachedOutput = new CachedPageOutput(cachedFile.getFileContent(),
+          deflateEnabled, getCreated(cachedFile));
+      memoryCache.put(cacheKey, cachedOutput);
+      return cachedOutput;
     } catch (final IOException | ResourceNotFoundException
                                | InvalidResourceTypeException exception) {
       throw new CacheRetrievalException(exception.getMessage());
     }
   }
+
+  /**
+   * Cache keys of all known variants of a page, from both the variants cached by this instance and
+   * the cache files stored next to the page's default variant.
+   */
+  private Set<String> getVariantCacheKeys(final String pagePath,
+      final ResourceResolver resourceResolver) {
+    final Set<String> cacheKeys = new LinkedHashSet<>();
+    cacheKeys.add(getCacheKey(pagePath));
+    final Set<String> knownCacheKeys = variantCacheKeys.get(pagePath);
+    if (knownCacheKeys != null) {
+      cacheKeys.addAll(knownCacheKeys);
+    }
+    final int nameIndex = pagePath.lastIndexOf('/');
+    final Resource cacheFolder = resourceResolver.getResource(
+        getServiceCacheRootPath() + pagePath.substring(0, Math.max(nameIndex, 0)));
+    if (cacheFolder != null) {
+      final String variantPrefix = pagePath.substring(nameIndex + 1) + ".";
+      for (final Resource cachedFile : cacheFolder.getChildren()) {
+        if (cachedFile.getName().startsWith(variantPrefix) && cachedFile.getName().endsWith(
+            ".html")) {
+          cacheKeys.add(pagePath.substring(0, nameIndex + 1) + cachedFile.getName());
+        }
+      }
+    }
+    return cacheKeys;
+  }
+
+  private int restorePersistedDependencies(final Resource folder) {
+    int restoredPageCount = 0;
+    for (final Resource child : folder.getChildren()) {
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      if (child.getName().endsWith(DEPENDENCIES_FILE_SUFFIX)) {
+        final String pagePath = StringUtils.removeEnd(
+            StringUtils.removeEnd(child.getPath(), DEPENDENCIES_FILE_SUFFIX), ".html").substring(
+            getServiceCacheRootPath().length());
+        final Set<String> dependencies = readPersistedDependencies(child);
+        if (!dependencies.isEmpty() && !pageCacheDependencyService.hasDependencies(pagePath)) {
+          pageCacheDependencyService.recordDependencies(pagePath, dependencies);
+          restoredPageCount++;
+        }
+      } else if (!child.getName().endsWith(".html")) {
+        restoredPageCount += restorePersistedDependencies(child);
+      }
+    }
+    return restoredPageCount;
+  }
+
+  private Set<String> readPersistedDependencies(final Resource dependenciesFile) {
+    final HtmlFile file = dependenciesFile.adaptTo(HtmlFile.class);
+    if (file != null) {
+      try {
+        return new HashSet<>(Arrays.asList(StringUtils.split(file.getFileContent(), '\n')));
+      } catch (final IOException exception) {
+        LOG.warn("Unable to read persisted page cache dependencies {}. {}",
+            dependenciesFile.getPath(), exception.getMessage());
+      }
+    }
+    return Collections.emptySet();
+  }
+
+  /**
+   * Persists the dependencies recorded for a page next to its cached output, replacing any
+   * previously persisted dependencies.
+   */
+  private void persistDependencies(final String pagePath) throws CacheBuilderException {
+    if (pageCacheDependencyService != null) {
+      final Set<String> dependencies = pageCacheDependencyService.getDependencies(pagePath);
+      if (!dependencies.isEmpty()) {
+        createCacheFile(String.join("\n", dependencies), getDependenciesFilePath(pagePath),
+            new HtmlFileType());
+      }
+    }
+  }
+
+  /**
+   * Writes page output to an nt:file under the cache root, replacing any existing file. Output is
+   * streamed from the given bytes, rather than decoded to a String for the inherited
+   * createCacheFile.
+   */
+  private void createCacheFile(final byte[] output, final String cacheKey)
+      throws CacheBuilderException {
+    final ResourceResolver resourceResolver = openServiceResourceResolver();
+    if (resourceResolver == null) {
+      throw new CacheBuilderException(
+          String.format("Unable to cache page %s. No service resource resolver.", cacheKey));
+    }
+    final String path = getServiceCacheRootPath() + cacheKey;
+    try {
+      final Resource existingFile = resourceResolver.getResource(path);
+      if (existingFile != null) {
+        resourceResolver.delete(existingFile);
+      }
+      final Resource folder = ResourceUtil.getOrCreateResource(resourceResolver,
+          ResourceUtil.getParent(path), SLING_FOLDER, SLING_FOLDER, false);
+      final Resource file = resourceResolver.create(folder, ResourceUtil.getName(path),
+          Collections.singletonMap(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_FILE));
+      final Map<String, Object> fileContentProperties = new HashMap<>();
+      fileContentProperties.put(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_RESOURCE);
+      fileContentProperties.put(JcrConstants.JCR_MIMETYPE,
+          new HtmlFileType().getOutputContentType());
+      fileContentProperties.put(JcrConstants.JCR_DATA, new ByteArrayInputStream(output));
+      resourceResolver.create(file, JcrConstants.JCR_CONTENT, fileContentProperties);
+      resourceResolver.commit();
+    } catch (final PersistenceException exception) {
+      resourceResolver.revert();
+      throw new CacheBuilderException(
+          String.format("Unable to cache page %s. %s", cacheKey, exception.getMessage()));
+    }
+  }
+
+  @Nullable
+  private ResourceResolver openServiceResourceResolver() {
+    if (getServiceResourceResolver() == null) {
+      this.serviceResourceResolver = getOpenServiceResourceResolverOrNullAndLogExceptions(
+          getServiceUserName(), getServiceResourceResolver(), getResourceResolverFactory(), this);
+    }
+    return getServiceResourceResolver();
+  }
+
+  private void markStale(final String cacheKey) {
+    CachedPageOutput cachedOutput = memoryCache.get(cacheKey);
+    if (cachedOutput == null) {
+      try {
+        cachedOutput = getPersistedCachedPageOutput(cacheKey);
+      } catch (final CacheRetrievalException exception) {
+        LOG.debug("No cached output to mark stale for {}. {}", cacheKey, exception.getMessage());
+      }
+    }
+    if (cachedOutput != null) {
+      memoryCache.put(cacheKey, cachedOutput.toStale(System.currentTimeMillis()));
+    }
+  }
+
+  private boolean isExpired(final CachedPageOutput cachedOutput) {
+    return cachedOutput.isStale()
+           && System.currentTimeMillis() - cachedOutput.getStaleSince() > maxStaleness;
+  }
+
+  /**
+   * Runs output through all registered post-processors. Post-processors work on Strings, so output
+   * is only decoded (and encoded again) when any are registered.
+   */
+  private byte[] postProcess(final BaseContentPage page, final byte[] htmlOutput) {
+    final List<PageOutputPostProcessor> postProcessors = getPageOutputPostProcessors();
+    if (postProcessors.isEmpty()) {
+      return htmlOutput;
+    }
+    String output = new String(htmlOutput, StandardCharsets.UTF_8);
+    for (final PageOutputPostProcessor postProcessor : postProcessors) {
+      output = postProcessor.process(page, output);
+    }
+    return output.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private String getCacheKey(final BaseContentPage page) {
+    return getCacheKey(page.getPath());
+  }
+
+  private String getCacheKey(final String pagePath) {
+    return pagePath + ".html";
+  }
+
+  private String getDependenciesFilePath(final String pagePath) {
+    return getCacheKey(pagePath) + DEPENDENCIES_FILE_SUFFIX;
+  }
+
+  private static long getCreated(final BaseFile cachedFile) {
+    final Calendar created = cachedFile.getProperties().get(JcrConstants.JCR_CREATED,
+        Calendar.class);
+    if (created != null) {
+      return created.getTimeInMillis();
+    }
+    return System.currentTimeMillis();
+  }
+
+  private static long getConfiguredMemoryCacheMaxSize(final ComponentContext componentContext) {
+    return getConfiguredLong(componentContext, PN_MEMORY_CACHE_MAX_SIZE,
+        DEFAULT_MEMORY_CACHE_MAX_SIZE);
+  }
+
+  private static long getConfiguredLong(final ComponentContext componentContext,
+      final String propertyName, final long defaultValue) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object value = componentContext.getProperties().get(propertyName);
+      if (value instanceof Number) {
+        return ((Number) value).longValue();
+      } else if (value != null) {
+        try {
+          return Long.parseLong(value.toString());
+        } catch (final NumberFormatException exception) {
+          LOG.warn("Invalid {} value '{}'. Using default of {}.", propertyName, value,
+              defaultValue);
+        }
+      }
+    }
+    return defaultValue;
+  }
+
+  private static boolean isConfiguredBoolean(final ComponentContext componentContext,
+      final String propertyName) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object value = componentContext.getProperties().get(propertyName);
+      if (value != null) {
+        return Boolean.parseBoolean(value.toString());
+      }
+    }
+    return false;
+  }
 }
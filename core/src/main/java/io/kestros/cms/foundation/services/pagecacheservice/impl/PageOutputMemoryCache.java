@@ -0,0 +1,150 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice.impl;
+
+import io.kestros.cms.foundation.services.pagecacheservice.CachedPageOutput;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Size bounded, in-memory store for page output. Entries are weighted by their approximate heap
+ * size, and the least recently used entries are evicted once the configured budget is exceeded.
+ */
+public class PageOutputMemoryCache {
+
+  private final long maximumSize;
+  private final Map<String, CachedPageOutput> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentSize = 0;
+
+  /**
+   * Constructs a PageOutputMemoryCache.
+   *
+   * @param maximumSize Maximum approximate heap size (in bytes) of all stored entries. Values of
+   *     0 or less disable the memory cache.
+   */
+  public PageOutputMemoryCache(final long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Retrieves stored output, and marks it as recently used.
+   *
+   * @param key Cache key.
+   * @return Stored output, or null if the key is not stored.
+   */
+  @Nullable
+  public synchronized CachedPageOutput get(@Nonnull final String key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores output, evicting least recently used entries until the cache is within its size budget.
+   * Output that is larger than the entire budget is not stored.
+   *
+   * @param key Cache key.
+   * @param output Output to store.
+   */
+  public synchronized void put(@Nonnull final String key,
+      @Nonnull final CachedPageOutput output) {
+    remove(key);
+    final long weight = getWeight(key, output);
+    if (weight > maximumSize) {
+      return;
+    }
+    entries.put(key, output);
+    currentSize += weight;
+
+    final Iterator<Map.Entry<String, CachedPageOutput>> iterator = entries.entrySet().iterator();
+    while (currentSize > maximumSize && iterator.hasNext()) {
+      final Map.Entry<String, CachedPageOutput> eldest = iterator.next();
+      currentSize -= getWeight(eldest.getKey(), eldest.getValue());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Removes a stored entry.
+   *
+   * @param key Cache key.
+   */
+  public synchronized void remove(@Nonnull final String key) {
+    final CachedPageOutput removed = entries.remove(key);
+    if (removed != null) {
+      currentSize -= getWeight(key, removed);
+    }
+  }
+
+  /**
+   * Removes a stored entry, only if it is still the given output.
+   *
+   * @param key Cache key.
+   * @param output Output expected to be stored for the key.
+   * @return Whether the entry was removed.
+   */
+  public synchronized boolean remove(@Nonnull final String key,
+      @Nonnull final CachedPageOutput output) {
+    if (entries.get(key) == output) {
+      remove(key);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes all stored entries.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    currentSize = 0;
+  }
+
+  /**
+   * Number of stored entries.
+   *
+   * @return Number of stored entries.
+   */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * Approximate heap size (in bytes) of all stored entries.
+   *
+   * @return Approximate heap size (in bytes) of all stored entries.
+   */
+  public synchronized long getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Maximum approximate heap size (in bytes) of all stored entries.
+   *
+   * @return Maximum approximate heap size (in bytes) of all stored entries.
+   */
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  static long getWeight(final String key, final CachedPageOutput output) {
+    return 2L * key.length() + output.getSize();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachewarmer;
+
+import java.util.Collection;
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Pre-renders pages into the page cache in the background, so cached output does not have to be
+ * rebuilt by live traffic after a purge.
+ */
+public interface PageCacheWarmerService {
+
+  /**
+   * Queues all pages of the configured sites to be warmed.
+   */
+  void warmAllPages();
+
+  /**
+   * Queues pages to be warmed.
+   *
+   * @param pagePaths Paths of pages to warm.
+   */
+  void warmPages(@Nonnull Collection<String> pagePaths);
+
+  /**
+   * Queues one cached variant of a page to be rendered again in the background. Refreshes of a
+   * cache key are coalesced while one is queued or running.
+   *
+   * @param cacheKey Cache key of the variant.
+   * @param requestPath Path requesting the variant (with its selectors, extension and query
+   *     string), relative to the instance's context path.
+   * @return Whether the variant is queued to be refreshed.
+   */
+  boolean refreshPage(@Nonnull String cacheKey, @Nonnull String requestPath);
+
+  /**
+   * Whether a request was sent by this service to render a page into the page cache. Such
+   * requests are rendered, rather than served cached output.
+   *
+   * @param request Current request.
+   * @return Whether a request was sent by this service to render a page into the page cache.
+   */
+  boolean isWarmupRequest(@Nonnull HttpServletRequest request);
+
+  /**
+   * Progress of the current (or most recent) warmup.
+   *
+   * @return Progress of the current (or most recent) warmup.
+   */
+  @Nonnull
+  PageCacheWarmupProgress getProgress();
+
+}
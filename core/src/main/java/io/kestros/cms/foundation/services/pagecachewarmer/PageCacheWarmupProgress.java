@@ -0,0 +1,116 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachewarmer;
+
+/**
+ * Snapshot of the progress of a page cache warmup.
+ */
+public class PageCacheWarmupProgress {
+
+  private final int queuedPages;
+  private final int warmedPages;
+  private final int failedPages;
+  private final int throttledPages;
+  private final long started;
+  private final boolean running;
+
+  /**
+   * Constructs a PageCacheWarmupProgress snapshot.
+   *
+   * @param queuedPages Number of pages queued since the warmup started.
+   * @param warmedPages Number of pages warmed.
+   * @param failedPages Number of pages which failed to warm.
+   * @param throttledPages Number of pages after which warming was throttled.
+   * @param started When the warmup started, in milliseconds since the epoch.
+   * @param running Whether pages are still being warmed.
+   */
+  public PageCacheWarmupProgress(final int queuedPages, final int warmedPages,
+      final int failedPages, final int throttledPages, final long started, final boolean running) {
+    this.queuedPages = queuedPages;
+    this.warmedPages = warmedPages;
+    this.failedPages = failedPages;
+    this.throttledPages = throttledPages;
+    this.started = started;
+    this.running = running;
+  }
+
+  /**
+   * Number of pages queued since the warmup started.
+   *
+   * @return Number of pages queued since the warmup started.
+   */
+  public int getQueuedPages() {
+    return queuedPages;
+  }
+
+  /**
+   * Number of pages warmed.
+   *
+   * @return Number of pages warmed.
+   */
+  public int getWarmedPages() {
+    return warmedPages;
+  }
+
+  /**
+   * Number of pages which failed to warm.
+   *
+   * @return Number of pages which failed to warm.
+   */
+  public int getFailedPages() {
+    return failedPages;
+  }
+
+  /**
+   * Number of pages after which warming was throttled, due to slow responses.
+   *
+   * @return Number of pages after which warming was throttled.
+   */
+  public int getThrottledPages() {
+    return throttledPages;
+  }
+
+  /**
+   * Number of queued pages which have not been warmed (or failed) yet.
+   *
+   * @return Number of queued pages which have not been warmed (or failed) yet.
+   */
+  public int getRemainingPages() {
+    return Math.max(0, queuedPages - warmedPages - failedPages);
+  }
+
+  /**
+   * When the warmup started, in milliseconds since the epoch. 0 if no warmup has run.
+   *
+   * @return When the warmup started.
+   */
+  public long getStarted() {
+    return started;
+  }
+
+  /**
+   * Whether pages are still being warmed.
+   *
+   * @return Whether pages are still being warmed.
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+}
@@ -0,0 +1,551 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachewarmer.impl;
+
+import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.content.sites.BaseSite;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmupProgress;
+import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms the page cache by requesting pages of the configured sites (sitePaths property) from the
+ * instance itself (baseUrl property), so they render and cache through the regular request
+ * pipeline. Pages are warmed by a bounded number of threads (threadCount property), ordered by the
+ * priorityPaths hint list, then by depth. Warming requests are capped at maxRequestsPerSecond
+ * across all warming threads (0 disables the cap). While the system load average per processor is
+ * above maxSystemLoadPerProcessor, or when a page takes longer than latencyThreshold milliseconds
+ * to respond, the warming thread pauses for throttleDelay milliseconds, to leave room for live
+ * traffic. All pages are warmed on activation (unless warmOnActivation is false) and after
+ * page caches are purged. Stale cached variants are refreshed by the same kind of request, on a
+ * separate pool of threadCount threads, coalesced per cache key. Warmup requests carry a header
+ * with a token generated on activation, so they are rendered rather than served cached output.
+ * Warming is disabled until a baseUrl is configured, since the instance's host, port and context
+ * path cannot be assumed. Site pages are looked up as the kestros-page-cache-warmer subservice,
+ * which needs a service user mapping with read access to the configured sites.
+ */
+@Component(immediate = true,
+           service = PageCacheWarmerService.class,
+           property = {"service.ranking:Integer=1",
+               BasePageCacheWarmerService.PN_THREAD_COUNT + ":Integer="
+               + BasePageCacheWarmerService.DEFAULT_THREAD_COUNT,
+               BasePageCacheWarmerService.PN_LATENCY_THRESHOLD + ":Long="
+               + BasePageCacheWarmerService.DEFAULT_LATENCY_THRESHOLD,
+               BasePageCacheWarmerService.PN_THROTTLE_DELAY + ":Long="
+               + BasePageCacheWarmerService.DEFAULT_THROTTLE_DELAY,
+               BasePageCacheWarmerService.PN_MAX_REQUESTS_PER_SECOND + ":Integer="
+               + BasePageCacheWarmerService.DEFAULT_MAX_REQUESTS_PER_SECOND,
+               BasePageCacheWarmerService.PN_MAX_SYSTEM_LOAD_PER_PROCESSOR + ":Double="
+               + BasePageCacheWarmerService.DEFAULT_MAX_SYSTEM_LOAD_PER_PROCESSOR,
+               BasePageCacheWarmerService.PN_WARM_ON_ACTIVATION + ":Boolean=true"})
+public class BasePageCacheWarmerService implements PageCacheWarmerService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BasePageCacheWarmerService.class);
+
+  public static final String KESTROS_PAGE_CACHE_WARMER_SERVICE_USER = "kestros-page-cache-warmer";
+  public static final String PN_SITE_PATHS = "sitePaths";
+  public static final String PN_PRIORITY_PATHS = "priorityPaths";
+  public static final String PN_BASE_URL = "baseUrl";
+  public static final String PN_THREAD_COUNT = "threadCount";
+  public static final int DEFAULT_THREAD_COUNT = 2;
+  public static final String PN_LATENCY_THRESHOLD = "latencyThreshold";
+  public static final long DEFAULT_LATENCY_THRESHOLD = 2000L;
+  public static final String PN_THROTTLE_DELAY = "throttleDelay";
+  public static final long DEFAULT_THROTTLE_DELAY = 5000L;
+  public static final String PN_MAX_REQUESTS_PER_SECOND = "maxRequestsPerSecond";
+  public static final int DEFAULT_MAX_REQUESTS_PER_SECOND = 5;
+  public static final String PN_MAX_SYSTEM_LOAD_PER_PROCESSOR = "maxSystemLoadPerProcessor";
+  public static final double DEFAULT_MAX_SYSTEM_LOAD_PER_PROCESSOR = 1.0;
+  public static final String PN_WARM_ON_ACTIVATION = "warmOnActivation";
+  public static final String WARMUP_REQUEST_HEADER = "X-Kestros-Page-Cache-Warmup";
+  private static final int REQUEST_TIMEOUT = 60000;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  private final Set<String> queuedPagePaths = ConcurrentHashMap.newKeySet();
+  private final Set<String> queuedRefreshCacheKeys = ConcurrentHashMap.newKeySet();
+  private final String warmupRequestToken = UUID.randomUUID().toString();
+  private final AtomicInteger activeWorkers = new AtomicInteger();
+  private final AtomicInteger queuedPages = new AtomicInteger();
+  private final AtomicInteger warmedPages = new AtomicInteger();
+  private final AtomicInteger failedPages = new AtomicInteger();
+  private final AtomicInteger throttledPages = new AtomicInteger();
+  private volatile long started = 0;
+  private long nextRequestTime = 0;
+
+  private PriorityBlockingQueue<String> pendingPagePaths;
+  private ExecutorService executorService;
+  private ExecutorService refreshExecutorService;
+  private List<String> sitePaths = Collections.emptyList();
+  private List<String> priorityPaths = Collections.emptyList();
+  private String baseUrl = null;
+  private int threadCount = DEFAULT_THREAD_COUNT;
+  private long latencyThreshold = DEFAULT_LATENCY_THRESHOLD;
+  private long throttleDelay = DEFAULT_THROTTLE_DELAY;
+  private int maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+  private double maxSystemLoadPerProcessor = DEFAULT_MAX_SYSTEM_LOAD_PER_PROCESSOR;
+
+  /**
+   * Activates the service, and starts warming all pages unless warmOnActivation is false.
+   *
+   * @param componentContext ComponentContext.
+   */
+  @Activate
+  public void activate(final ComponentContext componentContext) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object sitePathsProperty = componentContext.getProperties().get(PN_SITE_PATHS);
+      final Object priorityPathsProperty = componentContext.getProperties().get(
+          PN_PRIORITY_PATHS);
+      final Object baseUrlProperty = componentContext.getProperties().get(PN_BASE_URL);
+
+      sitePaths = toList(sitePathsProperty);
+      priorityPaths = toList(priorityPathsProperty);
+      if (baseUrlProperty != null && StringUtils.isNotBlank(baseUrlProperty.toString())) {
+        baseUrl = StringUtils.removeEnd(baseUrlProperty.toString(), "/");
+      }
+      threadCount = Math.max(1, (int) toLong(componentContext.getProperties().get(
+          PN_THREAD_COUNT), DEFAULT_THREAD_COUNT));
+      latencyThreshold = toLong(componentContext.getProperties().get(PN_LATENCY_THRESHOLD),
+          DEFAULT_LATENCY_THRESHOLD);
+      throttleDelay = toLong(componentContext.getProperties().get(PN_THROTTLE_DELAY),
+          DEFAULT_THROTTLE_DELAY);
+      maxRequestsPerSecond = Math.max(0, (int) toLong(componentContext.getProperties().get(
+          PN_MAX_REQUESTS_PER_SECOND), DEFAULT_MAX_REQUESTS_PER_SECOND));
+      maxSystemLoadPerProcessor = toDouble(componentContext.getProperties().get(
+          PN_MAX_SYSTEM_LOAD_PER_PROCESSOR), DEFAULT_MAX_SYSTEM_LOAD_PER_PROCESSOR);
+    }
+    if (baseUrl == null) {
+      LOG.info("Page cache warming is disabled. No {} is configured.", PN_BASE_URL);
+    }
+    pendingPagePaths = new PriorityBlockingQueue<>(64, getPriorityComparator());
+    executorService = Executors.newFixedThreadPool(threadCount);
+    refreshExecutorService = Executors.newFixedThreadPool(threadCount);
+
+    if (isWarmOnActivation(componentContext)) {
+      warmAllPages();
+    }
+  }
+
+  /**
+   * Stops warming pages.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+    if (refreshExecutorService != null) {
+      refreshExecutorService.shutdownNow();
+    }
+    if (pendingPagePaths != null) {
+      pendingPagePaths.clear();
+    }
+    queuedPagePaths.clear();
+    queuedRefreshCacheKeys.clear();
+  }
+
+  @Override
+  public void warmAllPages() {
+    if (baseUrl == null || sitePaths.isEmpty() || executorService == null
+        || executorService.isShutdown()) {
+      return;
+    }
+    try {
+      executorService.execute(() -> {
+        final ResourceResolver resourceResolver = getServiceResourceResolver();
+        if (resourceResolver != null) {
+          try {
+            warmPages(getSitePagePaths(resourceResolver));
+          } finally {
+            resourceResolver.close();
+          }
+        }
+      });
+    } catch (final RejectedExecutionException exception) {
+      LOG.debug("Unable to warm page cache. {}", exception.getMessage());
+    }
+  }
+
+  @Override
+  public void warmPages(@Nonnull final Collection<String> pagePaths) {
+    if (baseUrl == null || pendingPagePaths == null) {
+      return;
+    }
+    if (activeWorkers.get() == 0 && pendingPagePaths.isEmpty()) {
+      started = System.currentTimeMillis();
+      queuedPages.set(0);
+      warmedPages.set(0);
+      failedPages.set(0);
+      throttledPages.set(0);
+    }
+    for (final String pagePath : pagePaths) {
+      if (isInConfiguredSite(pagePath) && queuedPagePaths.add(pagePath)) {
+        queuedPages.incrementAndGet();
+        pendingPagePaths.add(pagePath);
+      }
+    }
+    startWorkers();
+  }
+
+  @Override
+  public boolean refreshPage(@Nonnull final String cacheKey, @Nonnull final String requestPath) {
+    if (baseUrl == null || refreshExecutorService == null
+        || refreshExecutorService.isShutdown()) {
+      return false;
+    }
+    if (queuedRefreshCacheKeys.add(cacheKey)) {
+      try {
+        refreshExecutorService.execute(() -> {
+          try {
+            requestPage(requestPath);
+          } finally {
+            queuedRefreshCacheKeys.remove(cacheKey);
+          }
+        });
+      } catch (final RejectedExecutionException exception) {
+        queuedRefreshCacheKeys.remove(cacheKey);
+        LOG.debug("Unable to refresh cached page {}. {}", cacheKey, exception.getMessage());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isWarmupRequest(@Nonnull final HttpServletRequest request) {
+    return warmupRequestToken.equals(request.getHeader(WARMUP_REQUEST_HEADER));
+  }
+
+  @Nonnull
+  @Override
+  public PageCacheWarmupProgress getProgress() {
+    final boolean running = activeWorkers.get() > 0 || (pendingPagePaths != null
+                                                        && !pendingPagePaths.isEmpty());
+    return new PageCacheWarmupProgress(queuedPages.get(), warmedPages.get(), failedPages.get(),
+        throttledPages.get(), started, running);
+  }
+
+  /**
+   * Paths of all pages of the configured sites.
+   *
+   * @param resourceResolver ResourceResolver used to look up site pages.
+   * @return Paths of all pages of the configured sites.
+   */
+  @Nonnull
+  public List<String> getSitePagePaths(@Nonnull final ResourceResolver resourceResolver) {
+    final List<String> pagePaths = new ArrayList<>();
+    for (final String sitePath : sitePaths) {
+      try {
+        final BaseSite<BaseContentPage> site = getResourceAsType(sitePath, resourceResolver,
+            BaseSite.class);
+        for (final BaseContentPage page : site.getAllPages()) {
+          pagePaths.add(page.getPath());
+        }
+      } catch (final ModelAdaptionException exception) {
+        LOG.warn("Unable to warm page cache for site {}. {}", sitePath, exception.getMessage());
+      }
+    }
+    return pagePaths;
+  }
+
+  /**
+   * Orders pages by their position in the priorityPaths hint list, then by depth.
+   *
+   * @return Comparator ordering pages by their position in the priorityPaths hint list, then by
+   *     depth.
+   */
+  @Nonnull
+  public Comparator<String> getPriorityComparator() {
+    return Comparator.comparingInt(this::getPriorityIndex).thenComparingInt(
+        BasePageCacheWarmerService::getDepth).thenComparing(Comparator.naturalOrder());
+  }
+
+  /**
+   * Requests a page from the instance, so it is rendered and cached.
+   *
+   * @param pagePath Path of the page to warm.
+   * @return Whether the page responded successfully.
+   */
+  protected boolean warmPage(@Nonnull final String pagePath) {
+    return requestPage(pagePath + ".html");
+  }
+
+  /**
+   * Requests a path from the instance as a warmup request, so the page it renders is cached.
+   *
+   * @param requestPath Path to request, relative to the instance's context path.
+   * @return Whether the page responded successfully.
+   */
+  protected boolean requestPage(@Nonnull final String requestPath) {
+    try {
+      final HttpURLConnection connection = (HttpURLConnection) new URL(
+          baseUrl + requestPath).openConnection();
+      connection.setRequestMethod("GET");
+      connection.setConnectTimeout(REQUEST_TIMEOUT);
+      connection.setReadTimeout(REQUEST_TIMEOUT);
+      connection.setRequestProperty("Accept-Encoding", "gzip");
+      connection.setRequestProperty(WARMUP_REQUEST_HEADER, warmupRequestToken);
+
+      final int status = connection.getResponseCode();
+      try (InputStream inputStream = status < HttpURLConnection.HTTP_BAD_REQUEST
+                                     ? connection.getInputStream()
+                                     : connection.getErrorStream()) {
+        final byte[] buffer = new byte[8192];
+        while (inputStream != null && inputStream.read(buffer) != -1) {
+          // Response body is not needed, only its rendering.
+        }
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        LOG.debug("Failed to warm page cache for {}. Responded with {}.", requestPath, status);
+      }
+      return status == HttpURLConnection.HTTP_OK;
+    } catch (final IOException exception) {
+      LOG.debug("Failed to warm page cache for {}. {}", requestPath, exception.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * System load average over the last minute, divided by the number of available processors.
+   *
+   * @return System load average per processor, or a negative value if it is not available.
+   */
+  protected double getSystemLoadPerProcessor() {
+    final OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+    final double systemLoad = operatingSystem.getSystemLoadAverage();
+    if (systemLoad < 0) {
+      return systemLoad;
+    }
+    return systemLoad / Math.max(1, operatingSystem.getAvailableProcessors());
+  }
+
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_PAGE_CACHE_WARMER_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to warm page cache. Failed to log in as {}. {}",
+          KESTROS_PAGE_CACHE_WARMER_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  private void startWorkers() {
+    while (!pendingPagePaths.isEmpty()) {
+      final int workers = activeWorkers.get();
+      if (workers >= threadCount) {
+        return;
+      }
+      if (activeWorkers.compareAndSet(workers, workers + 1)) {
+        try {
+          executorService.execute(this::warmPendingPages);
+        } catch (final RejectedExecutionException exception) {
+          activeWorkers.decrementAndGet();
+          return;
+        }
+      }
+    }
+  }
+
+  private void warmPendingPages() {
+    try {
+      String pagePath = pendingPagePaths.poll();
+      while (pagePath != null && !Thread.currentThread().isInterrupted()) {
+        queuedPagePaths.remove(pagePath);
+        warm(pagePath);
+        pagePath = pendingPagePaths.poll();
+      }
+    } finally {
+      activeWorkers.decrementAndGet();
+    }
+    if (!Thread.currentThread().isInterrupted()) {
+      startWorkers();
+    }
+  }
+
+  private void warm(final String pagePath) {
+    try {
+      awaitLowSystemLoad(pagePath);
+      awaitRequestSlot();
+    } catch (final InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    final long start = System.currentTimeMillis();
+    if (warmPage(pagePath)) {
+      warmedPages.incrementAndGet();
+    } else {
+      failedPages.incrementAndGet();
+    }
+    final long latency = System.currentTimeMillis() - start;
+    if (latency > latencyThreshold) {
+      throttledPages.incrementAndGet();
+      LOG.debug("Page {} took {}ms to warm. Pausing page cache warming for {}ms.", pagePath,
+          latency, throttleDelay);
+      try {
+        Thread.sleep(throttleDelay);
+      } catch (final InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void awaitLowSystemLoad(final String pagePath) throws InterruptedException {
+    boolean throttled = false;
+    double systemLoad = getSystemLoadPerProcessor();
+    while (systemLoad > maxSystemLoadPerProcessor) {
+      if (!throttled) {
+        throttled = true;
+        throttledPages.incrementAndGet();
+      }
+      LOG.debug("System load per processor is {}. Pausing page cache warming of {} for {}ms.",
+          systemLoad, pagePath, throttleDelay);
+      Thread.sleep(throttleDelay);
+      systemLoad = getSystemLoadPerProcessor();
+    }
+  }
+
+  /**
+   * Waits until the next warming request is allowed by maxRequestsPerSecond. Slots are reserved
+   * across all warming threads.
+   */
+  private void awaitRequestSlot() throws InterruptedException {
+    if (maxRequestsPerSecond <= 0) {
+      return;
+    }
+    final long interval = TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond;
+    final long wait;
+    synchronized (this) {
+      final long now = System.nanoTime();
+      final long slot = nextRequestTime - now > 0 ? nextRequestTime : now;
+      nextRequestTime = slot + interval;
+      wait = slot - now;
+    }
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+
+  private boolean isInConfiguredSite(final String pagePath) {
+    for (final String sitePath : sitePaths) {
+      if (pagePath.equals(sitePath) || pagePath.startsWith(sitePath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int getPriorityIndex(final String pagePath) {
+    final int index = priorityPaths.indexOf(pagePath);
+    if (index == -1) {
+      return Integer.MAX_VALUE;
+    }
+    return index;
+  }
+
+  private static int getDepth(final String pagePath) {
+    return StringUtils.countMatches(pagePath, '/');
+  }
+
+  private static boolean isWarmOnActivation(final ComponentContext componentContext) {
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object value = componentContext.getProperties().get(PN_WARM_ON_ACTIVATION);
+      if (value != null) {
+        return Boolean.parseBoolean(value.toString());
+      }
+    }
+    return true;
+  }
+
+  private static List<String> toList(final Object value) {
+    if (value instanceof String[]) {
+      return Arrays.asList((String[]) value);
+    } else if (value != null && StringUtils.isNotBlank(value.toString())) {
+      return Collections.singletonList(value.toString());
+    }
+    return Collections.emptyList();
+  }
+
+  private static double toDouble(final Object value, final double defaultValue) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value != null) {
+      try {
+        return Double.parseDouble(value.toString());
+      } catch (final NumberFormatException exception) {
+        LOG.warn("Invalid page cache warmer configuration value '{}'. Using {}.", value,
+            defaultValue);
+      }
+    }
+    return defaultValue;
+  }
+
+  private static long toLong(final Object value, final long defaultValue) {
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    } else if (value != null) {
+      try {
+        return Long.parseLong(value.toString());
+      } catch (final NumberFormatException exception) {
+        LOG.warn("Invalid page cache warmer configuration value '{}'. Using {}.", value,
+            defaultValue);
+      }
+    }
+    return defaultValue;
+  }
+
+}
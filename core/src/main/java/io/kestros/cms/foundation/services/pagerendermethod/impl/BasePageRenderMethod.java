@@ -22,30 +22,45 @@ import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.get
 import static org.apache.jackrabbit.JcrConstants.JCR_CONTENT;
 
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecachekey.PageCacheKeyBuilder;
+import io.kestros.cms.foundation.services.pagecacheservice.CachedPageOutput;
 import io.kestros.cms.foundation.services.pagecacheservice.GeneralPageCacheService;
 import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
 import io.kestros.cms.foundation.services.pagerendermethod.PageRenderMethod;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
+import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.structuredslingmodels.BaseResource;
 import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
-import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Baseline strategy for rendering content pages in Kestros.
+ * Baseline strategy for rendering content pages in Kestros. Page output is cached under the key
+ * built by the registered {@link PageCacheKeyBuilder}, and requests the builder gives no key to are
+ * rendered without using the page cache. Warmup requests from the {@link PageCacheWarmerService}
+ * are always rendered, and stale output is refreshed through it in the background.
  */
 @Component(immediate = true,
            service = PageRenderMethod.class,
@@ -54,9 +69,43 @@ public class BasePageRenderMethod implements PageRenderMethod {
 
   private static final Logger LOG = LoggerFactory.getLogger(BasePageRenderMethod.class);
 
+  private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+  private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+  private static final String HEADER_ETAG = "ETag";
+  private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+  private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+  private static final String HEADER_VARY = "Vary";
+
+  /**
+   * Rendered output up to this size (in bytes) is held back and sent with its Content-Length.
+   * Larger output is streamed to the client as it is rendered.
+   */
+  public static final int DEFAULT_MAXIMUM_BUFFERED_OUTPUT_SIZE = 262144;
+
+  /**
+   * Maximum time (in milliseconds) a request waits for a concurrent render of the same page before
+   * rendering the page itself.
+   */
+  public static final long DEFAULT_RENDER_WAIT_TIMEOUT = 5000L;
+
+  private final PageRenderCoalescer renderCoalescer = new PageRenderCoalescer();
+
   @Reference
   private GeneralPageCacheService pageCacheService;
 
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private PageCacheDependencyService pageCacheDependencyService;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private PageCacheKeyBuilder pageCacheKeyBuilder;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private PageCacheWarmerService pageCacheWarmerService;
+
   @Override
   public void doRender(final SlingHttpServletRequest request,
       final SlingHttpServletResponse response) throws IOException {
@@ -64,70 +113,371 @@ public class BasePageRenderMethod implements PageRenderMethod {
 
     final BaseContentPage page = resource.adaptTo(BaseContentPage.class);
     if (page != null) {
-      try {
-        if (getPageCacheService() != null) {
-          String pageOutput = getPageCacheService().getCachedOutput(page);
-          pageOutput = pageOutput.replaceAll("\\s+", " ");
-          response.setContentType("text/html");
-          response.getWriter().write(pageOutput);
+      final String cacheKey = getCacheKey(request, page);
+      if (cacheKey == null) {
+        renderPage(request, response, page, null);
+        return;
+      }
+      if (isWarmupRequest(request)) {
+        renderPage(request, response, page, cacheKey);
+        return;
+      }
+      if (writeCachedOutputIfAvailable(request, response, page, cacheKey)) {
+        return;
+      }
+      final CountDownLatch inFlightRender = getRenderCoalescer().join(cacheKey);
+      if (inFlightRender == null) {
+        try {
+          renderPage(request, response, page, cacheKey);
+        } finally {
+          getRenderCoalescer().complete(cacheKey);
+        }
+      } else {
+        if (getRenderCoalescer().await(inFlightRender, getRenderWaitTimeout())
+            && writeCachedOutputIfAvailable(request, response, page, cacheKey)) {
           return;
         }
-      } catch (final CacheRetrievalException e) {
-        LOG.warn("Failed to retrieve cached page {}. {}", page.getPath(), e.getMessage());
+        LOG.debug("Rendering page {} without waiting any longer for concurrent render.",
+            cacheKey);
+        renderPage(request, response, page, cacheKey);
       }
-      try {
-        final BaseResource jcrContentResource = getChildAsType(JCR_CONTENT, resource,
-            BaseResource.class);
-        final RequestDispatcher requestDispatcher = request.getRequestDispatcher(
-            jcrContentResource.getResource());
-
-        if (requestDispatcher != null) {
-          response.setContentType("text/html");
+    }
+  }
 
-          final PageResponseWrapper wrapper = new PageResponseWrapper(response);
-          requestDispatcher.include(request, wrapper);
+  /**
+   * Writes the cached output of a page to the response, if it has been cached.
+   *
+   * @param request Current request.
+   * @param response Response to write to.
+   * @param page Requested page.
+   * @param cacheKey Cache key of the requested variant.
+   * @return Whether cached output was written.
+   * @throws IOException Failed to write to the response.
+   */
+  protected boolean writeCachedOutputIfAvailable(final SlingHttpServletRequest request,
+      final SlingHttpServletResponse response, final BaseContentPage page, final String cacheKey)
+      throws IOException {
+    try {
+      if (getPageCacheService() != null) {
+        final CachedPageOutput cachedOutput = getPageCacheService().getCachedPageOutput(page,
+            cacheKey);
+        if (cachedOutput != null && cachedOutput.isStale()) {
+          writeCachedOutput(request, response, cachedOutput);
+          refreshStaleCachedOutput(request, response, page, cacheKey);
+          return true;
+        }
+        if (cachedOutput != null && isCachedOutputTracked(page)) {
+          writeCachedOutput(request, response, cachedOutput);
+          return true;
+        }
+      }
+    } catch (final CacheRetrievalException e) {
+      LOG.warn("Failed to retrieve cached page {}. {}", cacheKey, e.getMessage());
+    }
+    return false;
+  }
 
-          final CharArrayWriter writer = new CharArrayWriter();
-          final String originalContent = wrapper.getResponseContent();
+  /**
+   * Re-renders a page whose stale cached output was just written to the response. The refresh is
+   * handed to the {@link PageCacheWarmerService}, which renders it in the background, so the
+   * request returns straight away. Without a warmer able to refresh it, the page is re-rendered on
+   * the current request, unless another request is already rendering it. The response is then
+   * flushed first, so the client is not kept waiting for the render, and rendered output is only
+   * cached, not written to the response.
+   *
+   * @param request Current request.
+   * @param response Response the stale output was written to.
+   * @param page Requested page.
+   * @param cacheKey Cache key of the requested variant.
+   * @throws IOException Failed to flush the response.
+   */
+  protected void refreshStaleCachedOutput(final SlingHttpServletRequest request,
+      final SlingHttpServletResponse response, final BaseContentPage page, final String cacheKey)
+      throws IOException {
+    if (getPageCacheWarmerService() != null && getPageCacheWarmerService().refreshPage(cacheKey,
+        getRequestPath(request))) {
+      return;
+    }
+    if (getRenderCoalescer().join(cacheKey) == null) {
+      try {
+        response.flushBuffer();
+        renderPage(request, response, page, cacheKey, true);
+      } finally {
+        getRenderCoalescer().complete(cacheKey);
+      }
+    }
+  }
 
-          writer.write(originalContent);
-          response.setContentLength(writer.toString().length());
+  /**
+   * Renders a page to the response, and caches its output.
+   *
+   * @param request Current request.
+   * @param response Response to write to.
+   * @param page Requested page.
+   * @param cacheKey Cache key of the requested variant, or null if output should not be cached.
+   * @throws IOException Failed to send an error response.
+   */
+  protected void renderPage(final SlingHttpServletRequest request,
+      final SlingHttpServletResponse response, final BaseContentPage page,
+      @Nullable final String cacheKey) throws IOException {
+    renderPage(request, response, page, cacheKey, false);
+  }
 
-          final PrintWriter out = response.getWriter();
+  /**
+   * Renders a page and caches its output. The page's dependencies are recorded before it is
+   * rendered, so a resource change during the render invalidates the page, and its output is then
+   * not cached.
+   *
+   * @param request Current request.
+   * @param response Response to write to.
+   * @param page Requested page.
+   * @param cacheKey Cache key of the requested variant, or null if output should not be cached.
+   * @param cacheOnly Whether output should only be cached, and not written to the response.
+   * @throws IOException Failed to send an error response.
+   */
+  protected void renderPage(final SlingHttpServletRequest request,
+      final SlingHttpServletResponse response, final BaseContentPage page,
+      @Nullable final String cacheKey, final boolean cacheOnly) throws IOException {
+    try {
+      final BaseResource jcrContentResource = getChildAsType(JCR_CONTENT, request.getResource(),
+          BaseResource.class);
+      final RequestDispatcher requestDispatcher = request.getRequestDispatcher(
+          jcrContentResource.getResource());
 
-          out.write(wrapper.getResponseContent());
-          out.close();
-          getPageCacheService().cachePage(page, wrapper.getResponseContent());
+      if (requestDispatcher != null) {
+        final PageResponseWrapper wrapper;
+        if (cacheOnly) {
+          wrapper = new PageResponseWrapper(response, getMaximumBufferedOutputSize(), true);
         } else {
-          LOG.error("Failed to get request dispatcher for content of {}", request.getResource());
-          throw new ServletException("Unable to render. No content found.");
+          response.setContentType("text/html");
+          response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+          wrapper = new PageResponseWrapper(response, getMaximumBufferedOutputSize());
+        }
+        long invalidationGeneration = 0;
+        if (cacheKey != null) {
+          invalidationGeneration = recordDependencies(page);
+        }
+        requestDispatcher.include(request, wrapper);
+        wrapper.finish();
+
+        if (cacheKey != null) {
+          if (isInvalidatedSince(page, invalidationGeneration)) {
+            LOG.debug("Not caching page {}, which was invalidated while it was rendered.",
+                cacheKey);
+          } else {
+            getPageCacheService().cachePage(page, cacheKey, wrapper.getResponseBytes());
+            if (isInvalidatedSince(page, invalidationGeneration)) {
+              getPageCacheService().purgePage(page.getPath());
+            }
+          }
         }
+      } else {
+        LOG.error("Failed to get request dispatcher for content of {}", request.getResource());
+        throw new ServletException("Unable to render. No content found.");
+      }
 
-      } catch (final ModelAdaptionException | ServletException | IOException exception) {
-        LOG.error("Unable to render page {} due to invalid or missing jcr:content resource",
-            request.getResource());
+    } catch (final ModelAdaptionException | ServletException | IOException exception) {
+      LOG.error("Unable to render page {} due to invalid or missing jcr:content resource",
+          request.getResource());
+      if (!cacheOnly && !response.isCommitted()) {
         response.sendError(HttpServletResponse.SC_NOT_FOUND, "No content found.");
-      } catch (final CacheBuilderException e) {
-        LOG.warn("Failed to build cache for page {}. {}", page.getPath(), e.getMessage());
       }
+    } catch (final CacheBuilderException e) {
+      LOG.warn("Failed to build cache for page {}. {}", page.getPath(), e.getMessage());
+    } catch (final CachePurgeException e) {
+      LOG.warn("Failed to evict page {}, which was invalidated while it was cached. {}",
+          page.getPath(), e.getMessage());
+    }
+  }
+
+  /**
+   * Writes cached page output to the response, using the pre-compressed variant that best matches
+   * the request's Accept-Encoding header. Conditional requests (If-None-Match, If-Modified-Since)
+   * matching the cached output are answered with 304 Not Modified, without a body.
+   *
+   * @param request Current request.
+   * @param response Response to write to.
+   * @param cachedOutput Cached page output.
+   * @throws IOException Failed to write to the response.
+   */
+  protected void writeCachedOutput(final SlingHttpServletRequest request,
+      final SlingHttpServletResponse response, final CachedPageOutput cachedOutput)
+      throws IOException {
+    final String encoding = cachedOutput.getPreferredEncoding(
+        request.getHeader(HEADER_ACCEPT_ENCODING));
+
+    response.setContentType("text/html");
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.addHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+    response.setHeader(HEADER_ETAG, cachedOutput.getEtag(encoding));
+    response.setDateHeader(HEADER_LAST_MODIFIED, cachedOutput.getCreated());
+
+    if (isNotModified(request, cachedOutput)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    final byte[] body = cachedOutput.getBytes(encoding);
+    if (!CachedPageOutput.ENCODING_IDENTITY.equals(encoding)) {
+      response.setHeader(HEADER_CONTENT_ENCODING, encoding);
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Whether the request's conditional headers match the cached output. If-None-Match takes
+   * precedence over If-Modified-Since when both are sent.
+   *
+   * @param request Current request.
+   * @param cachedOutput Cached page output.
+   * @return Whether the request's conditional headers match the cached output.
+   */
+  protected boolean isNotModified(final SlingHttpServletRequest request,
+      final CachedPageOutput cachedOutput) {
+    final String ifNoneMatch = request.getHeader(HEADER_IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      return cachedOutput.matchesEtag(ifNoneMatch);
+    }
+    try {
+      final long ifModifiedSince = request.getDateHeader(HEADER_IF_MODIFIED_SINCE);
+      // HTTP dates have second precision.
+      return ifModifiedSince != -1 && cachedOutput.getCreated() / 1000 <= ifModifiedSince / 1000;
+    } catch (final IllegalArgumentException exception) {
+      LOG.debug("Ignoring invalid If-Modified-Since header for {}. {}", request.getRequestURI(),
+          exception.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Whether cached output for a page can be served. Pages without recorded dependencies (cached
+   * before a restart by a page cache which does not persist them, for instance) could not be
+   * evicted when their resources change, so they are rendered again.
+   *
+   * @param page Page to check.
+   * @return Whether cached output for a page can be served.
+   */
+  protected boolean isCachedOutputTracked(final BaseContentPage page) {
+    return getPageCacheDependencyService() == null
+           || getPageCacheDependencyService().hasDependencies(page.getPath());
+  }
+
+  /**
+   * Cache key for the output of a page request. Without a registered {@link PageCacheKeyBuilder},
+   * every request for a page shares the page's default key.
+   *
+   * @param request Current request.
+   * @param page Requested page.
+   * @return Cache key for the output of a page request, or null if the request must bypass the
+   *     page cache.
+   */
+  @Nullable
+  protected String getCacheKey(final SlingHttpServletRequest request, final BaseContentPage page) {
+    if (getPageCacheKeyBuilder() != null) {
+      return getPageCacheKeyBuilder().getCacheKey(request, page);
     }
+    return page.getPath() + ".html";
+  }
+
+  /**
+   * Number of rendered bytes held back (so they can be sent with a Content-Length) before output
+   * is streamed to the client.
+   *
+   * @return Number of rendered bytes held back before output is streamed to the client.
+   */
+  protected int getMaximumBufferedOutputSize() {
+    return DEFAULT_MAXIMUM_BUFFERED_OUTPUT_SIZE;
+  }
+
+  /**
+   * Maximum time (in milliseconds) a request waits for a concurrent render of the same page before
+   * rendering the page itself.
+   *
+   * @return Maximum time a request waits for a concurrent render of the same page.
+   */
+  protected long getRenderWaitTimeout() {
+    return DEFAULT_RENDER_WAIT_TIMEOUT;
+  }
+
+  /**
+   * Coalesces concurrent renders of the same page.
+   *
+   * @return Coalesces concurrent renders of the same page.
+   */
+  protected PageRenderCoalescer getRenderCoalescer() {
+    return renderCoalescer;
   }
 
   protected PageCacheService getPageCacheService() {
     return pageCacheService;
   }
 
+  protected PageCacheDependencyService getPageCacheDependencyService() {
+    return pageCacheDependencyService;
+  }
+
+  protected PageCacheKeyBuilder getPageCacheKeyBuilder() {
+    return pageCacheKeyBuilder;
+  }
+
+  protected PageCacheWarmerService getPageCacheWarmerService() {
+    return pageCacheWarmerService;
+  }
+
   @Override
   public Boolean useRenderMethod(final SlingHttpServletRequest request) {
     return true;
   }
 
   /**
-   * Response wrapper used for storing HTML output, for caching pages.
+   * Records the resources a page depends on.
+   *
+   * @return Invalidation generation of the page before its dependencies were recorded.
+   */
+  private long recordDependencies(final BaseContentPage page) {
+    if (getPageCacheDependencyService() == null) {
+      return 0;
+    }
+    final long invalidationGeneration = getPageCacheDependencyService().getInvalidationGeneration(
+        page.getPath());
+    getPageCacheDependencyService().recordDependencies(page);
+    return invalidationGeneration;
+  }
+
+  private boolean isWarmupRequest(final SlingHttpServletRequest request) {
+    return getPageCacheWarmerService() != null && getPageCacheWarmerService().isWarmupRequest(
+        request);
+  }
+
+  /**
+   * Path of the current request (with its selectors, extension and query string), relative to the
+   * context path.
+   */
+  private static String getRequestPath(final SlingHttpServletRequest request) {
+    final String requestPath = StringUtils.removeStart(
+        StringUtils.defaultString(request.getRequestURI()), request.getContextPath());
+    if (StringUtils.isNotEmpty(request.getQueryString())) {
+      return requestPath + "?" + request.getQueryString();
+    }
+    return requestPath;
+  }
+
+  private boolean isInvalidatedSince(final BaseContentPage page,
+      final long invalidationGeneration) {
+    return getPageCacheDependencyService() != null
+           && getPageCacheDependencyService().getInvalidationGeneration(page.getPath())
+              != invalidationGeneration;
+  }
+
+  /**
+   * Response wrapper used for storing HTML output, for caching pages. Output is passed on to the
+   * wrapped response as it is captured, through a {@link PageOutputTeeStream}.
    */
   public static class PageResponseWrapper extends HttpServletResponseWrapper {
 
-    private final CharArrayWriter output;
+    private final PageOutputTeeStream outputStream;
+    private PrintWriter writer;
 
     /**
      * Constructs the PageResponseWrapper.
@@ -135,17 +485,63 @@ public class BasePageRenderMethod implements PageRenderMethod {
      * @param response Response to write to.
      */
     public PageResponseWrapper(final HttpServletResponse response) {
+      this(response, DEFAULT_MAXIMUM_BUFFERED_OUTPUT_SIZE);
+    }
+
+    /**
+     * Constructs the PageResponseWrapper.
+     *
+     * @param response Response to write to.
+     * @param maximumBufferedSize Number of bytes held back before output is streamed to the
+     *     response without a Content-Length.
+     */
+    public PageResponseWrapper(final HttpServletResponse response,
+        final int maximumBufferedSize) {
+      this(response, maximumBufferedSize, false);
+    }
+
+    /**
+     * Constructs the PageResponseWrapper.
+     *
+     * @param response Response to write to.
+     * @param maximumBufferedSize Number of bytes held back before output is streamed to the
+     *     response without a Content-Length.
+     * @param captureOnly Whether output should only be captured, and not passed on to the
+     *     response.
+     */
+    public PageResponseWrapper(final HttpServletResponse response,
+        final int maximumBufferedSize, final boolean captureOnly) {
       super(response);
-      output = new CharArrayWriter();
+      if (captureOnly) {
+        outputStream = new PageOutputTeeStream(null, maximumBufferedSize);
+      } else {
+        outputStream = new PageOutputTeeStream(response, maximumBufferedSize);
+      }
     }
 
     /**
      * Response content.
      *
      * @return Response content.
+     * @throws IOException Failed to flush pending output.
      */
-    public String getResponseContent() {
-      return output.toString();
+    public String getResponseContent() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      return outputStream.getCapturedContent();
+    }
+
+    /**
+     * Response content, as the UTF-8 bytes that were rendered.
+     *
+     * @return Response content, as the UTF-8 bytes that were rendered.
+     */
+    public byte[] getResponseBytes() {
+      if (writer != null) {
+        writer.flush();
+      }
+      return outputStream.getCapturedBytes();
     }
 
     /**
@@ -153,8 +549,55 @@ public class BasePageRenderMethod implements PageRenderMethod {
      *
      * @return Response writer.
      */
+    @Override
     public PrintWriter getWriter() {
-      return new PrintWriter(output);
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      }
+      return writer;
+    }
+
+    /**
+     * Response output stream.
+     *
+     * @return Response output stream.
+     */
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (writer != null) {
+        writer.flush();
+      }
+      return outputStream;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      outputStream.flush();
+    }
+
+    @Override
+    public void setContentLength(final int len) {
+      // Content-Length is determined from the captured output.
+    }
+
+    @Override
+    public void setContentLengthLong(final long len) {
+      // Content-Length is determined from the captured output.
+    }
+
+    /**
+     * Sends all remaining output to the wrapped response.
+     *
+     * @throws IOException Failed to write to the wrapped response.
+     */
+    public void finish() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      outputStream.finish();
     }
   }
 }
@@ -0,0 +1,187 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagerendermethod.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Output stream which captures rendered page output for caching while passing it on to the client.
+ * Output is held back until it exceeds the maximum buffered size, so pages which fit are sent with
+ * an exact byte Content-Length. Larger pages are streamed to the client as they are rendered. A
+ * single buffer of captured bytes serves both purposes.
+ */
+public class PageOutputTeeStream extends ServletOutputStream {
+
+  private final HttpServletResponse response;
+  private final int maximumBufferedSize;
+  private final ByteArrayOutputStream capturedOutput;
+  private OutputStream clientOutputStream;
+  private boolean streaming = false;
+  private boolean finished = false;
+
+  /**
+   * Constructs the PageOutputTeeStream.
+   *
+   * @param response Response to pass output on to, or null to only capture output.
+   * @param maximumBufferedSize Number of bytes held back before output starts streaming to the
+   *     client without a Content-Length.
+   */
+  public PageOutputTeeStream(@Nullable final HttpServletResponse response,
+      final int maximumBufferedSize) {
+    this.response = response;
+    this.maximumBufferedSize = maximumBufferedSize;
+    this.capturedOutput = new ByteArrayOutputStream(Math.min(Math.max(maximumBufferedSize, 32),
+        8192));
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if (finished) {
+      return;
+    }
+    capturedOutput.write(b);
+    if (streaming) {
+      clientOutputStream.write(b);
+    } else if (response != null && capturedOutput.size() > maximumBufferedSize) {
+      startStreaming();
+    }
+  }
+
+  @Override
+  public void write(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+    if (finished) {
+      return;
+    }
+    capturedOutput.write(b, off, len);
+    if (streaming) {
+      clientOutputStream.write(b, off, len);
+    } else if (response != null && capturedOutput.size() > maximumBufferedSize) {
+      startStreaming();
+    }
+  }
+
+  /**
+   * Flushes output to the client once streaming. While output is still held back, flushing is
+   * ignored so the response is not committed before its Content-Length is known.
+   *
+   * @throws IOException Failed to flush the client response.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (streaming && !finished) {
+      clientOutputStream.flush();
+    }
+  }
+
+  /**
+   * Sends any held back output to the client, with its byte Content-Length. Output written after
+   * this is ignored.
+   *
+   * @throws IOException Failed to write to the client response.
+   */
+  public void finish() throws IOException {
+    if (!finished) {
+      finished = true;
+      if (response == null) {
+        return;
+      }
+      if (!streaming) {
+        response.setContentLength(capturedOutput.size());
+        clientOutputStream = response.getOutputStream();
+        capturedOutput.writeTo(clientOutputStream);
+      }
+      clientOutputStream.flush();
+    }
+  }
+
+  /**
+   * Whether output exceeded the maximum buffered size and is being streamed to the client.
+   *
+   * @return Whether output exceeded the maximum buffered size and is being streamed to the client.
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Number of bytes written.
+   *
+   * @return Number of bytes written.
+   */
+  public int getSize() {
+    return capturedOutput.size();
+  }
+
+  /**
+   * All output written so far, decoded as UTF-8.
+   *
+   * @return All output written so far, decoded as UTF-8.
+   * @throws UnsupportedEncodingException UTF-8 is not supported.
+   */
+  @Nonnull
+  public String getCapturedContent() throws UnsupportedEncodingException {
+    return capturedOutput.toString(StandardCharsets.UTF_8.name());
+  }
+
+  /**
+   * All output written so far, as the bytes that were written.
+   *
+   * @return All output written so far, as the bytes that were written.
+   */
+  @Nonnull
+  public byte[] getCapturedBytes() {
+    return capturedOutput.toByteArray();
+  }
+
+  /**
+   * Whether a write can occur without blocking. Output is written synchronously.
+   *
+   * @return Always true.
+   */
+  @Override
+  public boolean isReady() {
+    return true;
+  }
+
+  /**
+   * Non-blocking output is not supported. Write listeners are ignored.
+   *
+   * @param writeListener Ignored.
+   */
+  @Override
+  public void setWriteListener(final WriteListener writeListener) {
+    // Does nothing.
+  }
+
+  private void startStreaming() throws IOException {
+    streaming = true;
+    clientOutputStream = response.getOutputStream();
+    capturedOutput.writeTo(clientOutputStream);
+  }
+
+}
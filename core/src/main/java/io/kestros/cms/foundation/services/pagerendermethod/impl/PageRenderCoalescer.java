@@ -0,0 +1,86 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagerendermethod.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Coalesces concurrent renders of the same page. The first request to join a cache key renders the
+ * page, while concurrent requests for the same key wait for that render to complete, so they can be
+ * served from the cache instead of rendering the page themselves.
+ */
+public class PageRenderCoalescer {
+
+  private final Map<String, CountDownLatch> inFlightRenders = new ConcurrentHashMap<>();
+
+  /**
+   * Joins the render of a cache key. When no render is in flight, the caller becomes responsible
+   * for rendering and must call {@link #complete(String)} once done.
+   *
+   * @param cacheKey Cache key being rendered.
+   * @return Latch of the render already in flight, or null when the caller should render.
+   */
+  @Nullable
+  public CountDownLatch join(@Nonnull final String cacheKey) {
+    return inFlightRenders.putIfAbsent(cacheKey, new CountDownLatch(1));
+  }
+
+  /**
+   * Completes the in-flight render of a cache key, releasing all requests waiting on it.
+   *
+   * @param cacheKey Cache key which was rendered.
+   */
+  public void complete(@Nonnull final String cacheKey) {
+    final CountDownLatch inFlightRender = inFlightRenders.remove(cacheKey);
+    if (inFlightRender != null) {
+      inFlightRender.countDown();
+    }
+  }
+
+  /**
+   * Waits for an in-flight render to complete.
+   *
+   * @param inFlightRender Latch of the in-flight render.
+   * @param timeout Maximum time to wait, in milliseconds.
+   * @return Whether the render completed within the timeout.
+   */
+  public boolean await(@Nonnull final CountDownLatch inFlightRender, final long timeout) {
+    try {
+      return inFlightRender.await(timeout, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Number of renders currently in flight.
+   *
+   * @return Number of renders currently in flight.
+   */
+  public int getInFlightCount() {
+    return inFlightRenders.size();
+  }
+
+}
@@ -18,23 +18,18 @@
 
 package io.kestros.cms.foundation.services.scriptprovider;
 
-import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsType;
+import static io.kestros.cms.foundation.content.PageRenderContext.getPageRenderContext;
 
 import io.kestros.cms.foundation.componenttypes.ComponentType;
-import io.kestros.cms.foundation.content.ComponentRequestContext;
+import io.kestros.cms.foundation.content.PageRenderContext;
 import io.kestros.cms.foundation.content.components.parentcomponent.ParentComponent;
-import io.kestros.cms.foundation.content.pages.BaseContentPage;
-import io.kestros.cms.foundation.content.sites.BaseSite;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
 import io.kestros.cms.foundation.exceptions.InvalidScriptException;
-import io.kestros.cms.foundation.exceptions.InvalidThemeException;
-import io.kestros.cms.foundation.utils.DesignUtils;
-import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
+import io.kestros.cms.foundation.services.scriptresolutiontable.ScriptResolutionTableService;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
 import io.kestros.commons.osgiserviceutils.services.BaseServiceResolverService;
-import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
 import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
-import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import javax.annotation.Nullable;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ResourceResolverFactory;
@@ -49,6 +44,7 @@ import org.slf4j.LoggerFactory;
  * Provides script paths for {@link ParentComponent}.  Looks up the {@link
  * io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView} for the current
  * page checks if a matching script is found. Falls back to the `common` ComponentUiFrameworkView.
+ * Precomputed resolutions from the {@link ScriptResolutionTableService} are used when available.
  */
 @Component(immediate = true,
            service = ScriptProviderService.class,
@@ -68,6 +64,14 @@ public class BaseScriptProviderService extends BaseServiceResolverService
              policyOption = ReferencePolicyOption.GREEDY)
   private ComponentViewScriptResolutionCacheService componentViewScriptResolutionCacheService;
 
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ScriptResolutionTableService scriptResolutionTableService;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private UiFrameworkRegistryService uiFrameworkRegistryService;
+
   @Override
   protected String getServiceUserName() {
     return KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
@@ -99,14 +103,26 @@ public class BaseScriptProviderService extends BaseServiceResolverService
 
     ComponentType componentType = parentComponent.getComponentType();
     UiFramework uiFramework = getUiFrameworkForComponentRequest(parentComponent, request);
+    if (scriptResolutionTableService != null) {
+      final String scriptPath = scriptResolutionTableService.getScriptPath(componentType.getPath(),
+          uiFramework != null ? uiFramework.getPath() : null, scriptName);
+      if (scriptPath != null) {
+        LOG.trace("Finished retrieving Script Path {}", scriptName);
+        return scriptPath;
+      }
+    }
     if (componentViewScriptResolutionCacheService != null) {
-      try {
+      if (componentViewScriptResolutionCacheService.isScriptMissing(scriptName, componentType,
+          uiFramework)) {
+        throw getInvalidScriptException(parentComponent, scriptName, request);
+      }
+      final String cachedScriptPath = componentViewScriptResolutionCacheService.getCachedScriptPath(
+          scriptName, componentType, uiFramework, request);
+      if (cachedScriptPath != null) {
         LOG.trace("Finished retrieving Script Path {}", scriptName);
-        return componentViewScriptResolutionCacheService.getCachedScriptPath(scriptName,
-            componentType, uiFramework, request);
-      } catch (CacheRetrievalException e) {
-        LOG.debug("Failed to retrieve cached script resolution. {}.", e.getMessage());
+        return cachedScriptPath;
       }
+      LOG.debug("No cached script resolution for {}.", scriptName);
     } else {
       LOG.warn(
           "Unable to attempt component view script resolution via cache. No service registered.");
@@ -137,49 +153,26 @@ public class BaseScriptProviderService extends BaseServiceResolverService
         LOG.trace(exception.getMessage());
       }
     }
-    throw new InvalidScriptException(scriptName,
-        String.format("Unable to retrieve theme for resource %s, with request URI %s.",
-            parentComponent.getPath(), request.getRequestURI()));
+    if (componentViewScriptResolutionCacheService != null) {
+      componentViewScriptResolutionCacheService.cacheMissingScript(scriptName, componentType,
+          uiFramework);
+    }
+    throw getInvalidScriptException(parentComponent, scriptName, request);
   }
 
-  @Nullable
-  private UiFramework getUiFrameworkFromPageOrSite(final SlingHttpServletRequest request) {
-    String requestContext = request.getRequestURI().split(".html")[0];
-    UiFramework uiFramework = null;
-    try {
-      uiFramework = getResourceAsType(requestContext, request.getResourceResolver(),
-          BaseContentPage.class).getTheme().getUiFramework();
-    } catch (ResourceNotFoundException | InvalidThemeException exception) {
-      LOG.trace(exception.getMessage());
-    } catch (InvalidResourceTypeException e) {
-      try {
-        uiFramework = getResourceAsType(requestContext, request.getResourceResolver(),
-            BaseSite.class).getTheme().getUiFramework();
-      } catch (ModelAdaptionException exception) {
-        LOG.trace(exception.getMessage());
-      }
-    }
-    return uiFramework;
+  private static InvalidScriptException getInvalidScriptException(
+      final ParentComponent parentComponent, final String scriptName,
+      final SlingHttpServletRequest request) {
+    return new InvalidScriptException(scriptName,
+        String.format("Unable to retrieve theme for resource %s, with request URI %s.",
+            parentComponent.getPath(), request.getRequestURI()));
   }
 
   @Nullable
   private UiFramework getUiFrameworkForComponentRequest(final ParentComponent parentComponent,
       final SlingHttpServletRequest request) {
-    UiFramework uiFramework = null;
-    try {
-      ComponentRequestContext requestContext = request.adaptTo(ComponentRequestContext.class);
-      if (requestContext != null && requestContext.getCurrentPage() != null) {
-        uiFramework = requestContext.getCurrentPage().getTheme().getUiFramework();
-      } else {
-        uiFramework = parentComponent.getTheme().getUiFramework();
-      }
-    } catch (ModelAdaptionException e) {
-      LOG.trace(e.getMessage());
-    }
-    if (uiFramework == null) {
-      uiFramework = getUiFrameworkFromPageOrSite(request);
-    }
-
+    final PageRenderContext pageRenderContext = getPageRenderContext(request);
+    UiFramework uiFramework = pageRenderContext.getUiFramework();
     if (uiFramework == null) {
       try {
         uiFramework = parentComponent.getTheme().getUiFramework();
@@ -188,20 +181,8 @@ public class BaseScriptProviderService extends BaseServiceResolverService
       }
     }
     if (uiFramework == null) {
-      uiFramework = getUiFrameworkFromRequestParameter(request);
+      uiFramework = pageRenderContext.getParameterUiFramework(uiFrameworkRegistryService);
     }
     return uiFramework;
   }
-
-  @Nullable
-  private UiFramework getUiFrameworkFromRequestParameter(final SlingHttpServletRequest request) {
-    String frameworkCode = request.getParameter("ui-framework");
-    for (UiFramework uiFramework : DesignUtils.getAllUiFrameworks(request.getResourceResolver(),
-        true, true)) {
-      if (uiFramework.getFrameworkCode().equals(frameworkCode)) {
-        return uiFramework;
-      }
-    }
-    return null;
-  }
 }
@@ -18,38 +18,84 @@
 
 package io.kestros.cms.foundation.services.scriptprovider;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
 import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
-import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.osgiserviceutils.services.cache.ManagedCacheService;
 import io.kestros.commons.osgiserviceutils.services.cache.impl.BaseCacheService;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.event.jobs.JobManager;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Uses a simple HashMap to provide resolved paths for
+ * Provides resolved paths for
  * {@link io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView}
- * resolution.
+ * resolution. Resolutions are keyed on the ComponentType, UiFramework and script name only, so
+ * they are shared by all pages, and are held in a concurrent map bounded to maximumSize entries.
+ * Lookups only record their access time on the entry, so they never lock. When the map grows past
+ * maximumSize, one thread evicts the least recently used tenth of the entries while others carry
+ * on, so eviction is approximately least recently used. Scripts which could not be resolved are
+ * cached as missing alongside resolved paths, and are purged by the same changes.
  */
 @Component(immediate = true,
            service = {ManagedCacheService.class, ComponentViewScriptResolutionCacheService.class},
-           property = "service.ranking:Integer=100")
+           property = {"service.ranking:Integer=100",
+               CachedScriptProviderService.PN_MAXIMUM_SIZE + ":Integer="
+               + CachedScriptProviderService.DEFAULT_MAXIMUM_SIZE})
 public class CachedScriptProviderService extends BaseCacheService
     implements ComponentViewScriptResolutionCacheService {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CachedScriptProviderService.class);
 
+  public static final String PN_MAXIMUM_SIZE = "maximumSize";
+  public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+  private static final String APPS_ROOT = "/apps/";
+  private static final String LIBS_ROOT = "/libs/";
   private static final long serialVersionUID = -6294003601560084296L;
-  private Map<String, Object> componentViewCacheMap = new HashMap<>();
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private final transient Map<String, CachedScriptResolution> componentViewCacheMap
+      = new ConcurrentHashMap<>();
+
+  @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+  private final transient ReentrantLock evictionLock = new ReentrantLock();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private int maximumSize = DEFAULT_MAXIMUM_SIZE;
 
   @Override
+  @Activate
   public void activate(ComponentContext componentContext) {
-    // Does nothing.
+    if (componentContext != null && componentContext.getProperties() != null) {
+      final Object value = componentContext.getProperties().get(PN_MAXIMUM_SIZE);
+      if (value instanceof Number) {
+        maximumSize = ((Number) value).intValue();
+      } else if (value != null) {
+        try {
+          maximumSize = Integer.parseInt(value.toString());
+        } catch (final NumberFormatException exception) {
+          LOG.warn("Invalid {} value '{}'. Using default of {}.", PN_MAXIMUM_SIZE, value,
+              DEFAULT_MAXIMUM_SIZE);
+        }
+      }
+    }
   }
 
   @Override
@@ -60,39 +106,87 @@ public class CachedScriptProviderService extends BaseCacheService
   @Override
   public void cacheComponentViewScriptPath(String scriptName, ComponentType componentType,
       UiFramework uiFramework, String resolvedScriptPath, SlingHttpServletRequest request) {
+    cacheResolution(scriptName, componentType, uiFramework, resolvedScriptPath);
+  }
 
-    String cacheKey = request.getRequestURI() + "::" + uiFramework.getPath() + "::"
-                      + componentType.getPath() + "::" + scriptName;
+  @Override
+  public void cacheMissingScript(String scriptName, ComponentType componentType,
+      UiFramework uiFramework) {
+    cacheResolution(scriptName, componentType, uiFramework, null);
+  }
 
-    if (componentViewCacheMap.containsKey(cacheKey)) {
-      componentViewCacheMap.replace(cacheKey, resolvedScriptPath);
+  @Nullable
+  @Override
+  public String getCachedScriptPath(String scriptName, ComponentType componentType,
+      UiFramework uiFramework, SlingHttpServletRequest request) {
+    final CachedScriptResolution resolution = getResolution(
+        getCacheKey(scriptName, componentType, uiFramework));
+    if (resolution == null) {
+      missCount.incrementAndGet();
+      return null;
+    } else if (!resolution.isMissing()) {
+      hitCount.incrementAndGet();
     }
-    componentViewCacheMap.put(cacheKey, resolvedScriptPath);
+    return resolution.getScriptPath();
   }
 
   @Override
-  public String getCachedScriptPath(String scriptName, ComponentType componentType,
-      UiFramework uiFramework, SlingHttpServletRequest request) throws CacheRetrievalException {
-    String cacheKey = request.getRequestURI() + "::" + uiFramework.getPath() + "::"
-                      + componentType.getPath() + "::" + scriptName;
-
-    if (componentViewCacheMap.containsKey(cacheKey)) {
-      Object cachedScriptValue = componentViewCacheMap.get(cacheKey);
-      if (cachedScriptValue instanceof String) {
-        return (String) cachedScriptValue;
-      } else {
-        componentViewCacheMap.remove(cacheKey);
-        throw new CacheRetrievalException(
-            String.format("Cache for %s could not be cast to String.", cacheKey));
-      }
+  public boolean isScriptMissing(String scriptName, ComponentType componentType,
+      UiFramework uiFramework) {
+    final CachedScriptResolution resolution = getResolution(
+        getCacheKey(scriptName, componentType, uiFramework));
+    if (resolution != null && resolution.isMissing()) {
+      hitCount.incrementAndGet();
+      return true;
     }
-    throw new CacheRetrievalException(String.format("Cache for %s did not exist.", cacheKey));
+    return false;
   }
 
+  @Override
+  public void purgeComponentType(@Nonnull String path) {
+    final String changedPath = getOverlayNeutralPath(path);
+    componentViewCacheMap.values().removeIf(resolution -> resolution.isAffectedBy(changedPath));
+  }
+
+  /**
+   * Number of cached script resolutions.
+   *
+   * @return Number of cached script resolutions.
+   */
+  public int getSize() {
+    return componentViewCacheMap.size();
+  }
+
+  /**
+   * Maximum number of cached script resolutions.
+   *
+   * @return Maximum number of cached script resolutions.
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Number of script resolutions served from the cache.
+   *
+   * @return Number of script resolutions served from the cache.
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Number of script resolutions which were not cached.
+   *
+   * @return Number of script resolutions which were not cached.
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
 
   @Override
   protected void doPurge(ResourceResolver resourceResolver) throws CachePurgeException {
-    componentViewCacheMap = new HashMap<>();
+    componentViewCacheMap.clear();
   }
 
   @Override
@@ -120,4 +214,137 @@ public class CachedScriptProviderService extends BaseCacheService
   public String getDisplayName() {
     return "Component Script Resolution Cache";
   }
+
+  private void cacheResolution(final String scriptName, final ComponentType componentType,
+      @Nullable final UiFramework uiFramework, @Nullable final String resolvedScriptPath) {
+    final String cacheKey = getCacheKey(scriptName, componentType, uiFramework);
+    final CachedScriptResolution resolution = new CachedScriptResolution(resolvedScriptPath,
+        getDependencyPaths(componentType, uiFramework));
+    componentViewCacheMap.put(cacheKey, resolution);
+    if (componentViewCacheMap.size() > maximumSize) {
+      evictLeastRecentlyUsed();
+    }
+  }
+
+  /**
+   * Cached resolution of a script, which is marked as recently used.
+   */
+  @Nullable
+  private CachedScriptResolution getResolution(final String cacheKey) {
+    final CachedScriptResolution resolution = componentViewCacheMap.get(cacheKey);
+    if (resolution != null) {
+      resolution.markUsed();
+    }
+    return resolution;
+  }
+
+  /**
+   * Evicts the least recently used entries, down to a tenth below maximumSize, so eviction runs
+   * once per batch of inserts rather than on every insert. Threads which find an eviction in
+   * progress do not wait for it.
+   */
+  private void evictLeastRecentlyUsed() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      final int targetSize = maximumSize - maximumSize / 10;
+      final int evictionCount = componentViewCacheMap.size() - targetSize;
+      if (evictionCount <= 0) {
+        return;
+      }
+      final List<Map.Entry<String, CachedScriptResolution>> entries = new ArrayList<>(
+          componentViewCacheMap.entrySet());
+      entries.sort(Comparator.comparingLong(entry -> entry.getValue().getLastUsed()));
+      for (int i = 0; i < evictionCount && i < entries.size(); i++) {
+        componentViewCacheMap.remove(entries.get(i).getKey(), entries.get(i).getValue());
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static String getCacheKey(final String scriptName, final ComponentType componentType,
+      @Nullable final UiFramework uiFramework) {
+    final String uiFrameworkPath = uiFramework != null ? uiFramework.getPath() : "";
+    return uiFrameworkPath + "::" + componentType.getPath() + "::" + scriptName;
+  }
+
+  /**
+   * Overlay neutral paths of the ComponentType, its superTypes and the UiFramework, as changes to
+   * any of them can change how a script resolves.
+   */
+  private static List<String> getDependencyPaths(final ComponentType componentType,
+      @Nullable final UiFramework uiFramework) {
+    final List<String> dependencyPaths = new ArrayList<>();
+    if (uiFramework != null) {
+      dependencyPaths.add(getOverlayNeutralPath(uiFramework.getPath()));
+    }
+    ComponentType current = componentType;
+    while (current != null && !dependencyPaths.contains(getOverlayNeutralPath(current.getPath()))) {
+      dependencyPaths.add(getOverlayNeutralPath(current.getPath()));
+      current = current.findComponentSuperType();
+    }
+    return Collections.unmodifiableList(dependencyPaths);
+  }
+
+  /**
+   * Path with its /apps or /libs root removed, so a ComponentType and its overlay share a path.
+   */
+  private static String getOverlayNeutralPath(final String path) {
+    if (path.startsWith(APPS_ROOT)) {
+      return path.substring(APPS_ROOT.length() - 1);
+    } else if (path.startsWith(LIBS_ROOT)) {
+      return path.substring(LIBS_ROOT.length() - 1);
+    }
+    return path;
+  }
+
+  private static boolean isSameOrDescendant(final String path, final String ancestorPath) {
+    return path.equals(ancestorPath) || path.startsWith(ancestorPath + "/") || "/".equals(
+        ancestorPath);
+  }
+
+  /**
+   * Resolved script path (or null, if the script could not be resolved), along with the paths
+   * which affect the resolution.
+   */
+  private static final class CachedScriptResolution {
+
+    private final String scriptPath;
+    private final List<String> dependencyPaths;
+    private volatile long lastUsed = System.nanoTime();
+
+    private CachedScriptResolution(@Nullable final String scriptPath,
+        final List<String> dependencyPaths) {
+      this.scriptPath = scriptPath;
+      this.dependencyPaths = dependencyPaths;
+    }
+
+    private void markUsed() {
+      lastUsed = System.nanoTime();
+    }
+
+    private long getLastUsed() {
+      return lastUsed;
+    }
+
+    private String getScriptPath() {
+      return scriptPath;
+    }
+
+    private boolean isMissing() {
+      return scriptPath == null;
+    }
+
+    private boolean isAffectedBy(final String changedPath) {
+      for (final String dependencyPath : dependencyPaths) {
+        if (isSameOrDescendant(changedPath, dependencyPath) || isSameOrDescendant(dependencyPath,
+            changedPath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
 }
@@ -20,8 +20,9 @@ package io.kestros.cms.foundation.services.scriptprovider;
 
 import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
-import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.osgiserviceutils.services.cache.CacheService;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.sling.api.SlingHttpServletRequest;
 
 /**
@@ -39,7 +40,8 @@ public interface ComponentViewScriptResolutionCacheService extends CacheService
    * @param componentType ComponentType that the script belongs to.
    * @param uiFramework UiFramework to cache resolved path for.
    * @param resolvedScriptPath Resolved script path to cache.
-   * @param request SlingHttpServletRequest. Required for inheritance and references.
+   * @param request SlingHttpServletRequest. Not part of the cache key, as resolution does not
+   *     depend on the requested page.
    */
   void cacheComponentViewScriptPath(String scriptName, ComponentType componentType,
       UiFramework uiFramework, String resolvedScriptPath, SlingHttpServletRequest request);
@@ -50,11 +52,45 @@ public interface ComponentViewScriptResolutionCacheService extends CacheService
    * @param scriptName Name of script.
    * @param componentType ComponentType the script belongs to.
    * @param uiFramework UiFramework to find view for.
-   * @param request SlingHttpServletRequest.
-   * @return Cached resolved script path.
-   * @throws CacheRetrievalException Failed to retrieve resolved script path.
+   * @param request SlingHttpServletRequest. Not part of the cache key, as resolution does not
+   *     depend on the requested page.
+   * @return Cached resolved script path, or null if no resolution is cached or the script is cached
+   *     as missing.
    */
+  @Nullable
   String getCachedScriptPath(String scriptName, ComponentType componentType,
-      UiFramework uiFramework, SlingHttpServletRequest request) throws CacheRetrievalException;
+      UiFramework uiFramework, SlingHttpServletRequest request);
+
+  /**
+   * Caches that a script could not be resolved for a ComponentType and UiFramework, including
+   * through the superTypes and the common view, so the resolution is not attempted again until
+   * the ComponentType or UiFramework changes.
+   *
+   * @param scriptName Name of the script which could not be resolved.
+   * @param componentType ComponentType the script was resolved for.
+   * @param uiFramework UiFramework the script was resolved for.
+   */
+  void cacheMissingScript(String scriptName, ComponentType componentType,
+      UiFramework uiFramework);
+
+  /**
+   * Whether a script is cached as missing for a ComponentType and UiFramework.
+   *
+   * @param scriptName Name of script.
+   * @param componentType ComponentType the script belongs to.
+   * @param uiFramework UiFramework to find view for.
+   * @return Whether a script is cached as missing for a ComponentType and UiFramework.
+   */
+  boolean isScriptMissing(String scriptName, ComponentType componentType,
+      UiFramework uiFramework);
+
+  /**
+   * Removes cached resolutions affected by a change to the specified path. These are resolutions
+   * for the ComponentType at, within or below the path (including its /apps or /libs overlay), for
+   * ComponentTypes inheriting from it, and for the UiFramework at the path.
+   *
+   * @param path Changed path.
+   */
+  void purgeComponentType(@Nonnull String path);
 
 }
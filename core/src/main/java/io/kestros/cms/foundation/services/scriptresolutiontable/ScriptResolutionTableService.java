@@ -0,0 +1,66 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.scriptresolutiontable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Holds precomputed script resolutions for every known ComponentType, UiFramework and script
+ * name, so script paths can be resolved with a single lookup instead of walking ComponentType
+ * views and superTypes.
+ */
+public interface ScriptResolutionTableService {
+
+  /**
+   * Precomputed path of a script, resolved the same way as {@link
+   * io.kestros.cms.foundation.componenttypes.ComponentType#getScript}, falling back to the common
+   * view when the UiFramework has no matching script.
+   *
+   * @param componentTypePath Path of the ComponentType.
+   * @param uiFrameworkPath Path of the UiFramework, or null to resolve against the common view.
+   * @param scriptName Name of the script.
+   * @return Precomputed path of a script, or null if the resolution is not in the table (it
+   *     failed, or the table has not been computed yet).
+   */
+  @Nullable
+  String getScriptPath(@Nonnull String componentTypePath, @Nullable String uiFrameworkPath,
+      @Nonnull String scriptName);
+
+  /**
+   * Computes the table again in the background. The current table is served until the new one
+   * replaces it.
+   */
+  void rebuild();
+
+  /**
+   * Whether the table has been computed at least once.
+   *
+   * @return Whether the table has been computed.
+   */
+  boolean isBuilt();
+
+  /**
+   * Number of precomputed script resolutions.
+   *
+   * @return Number of precomputed script resolutions.
+   */
+  int getSize();
+
+}
@@ -0,0 +1,225 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.scriptresolutiontable.impl;
+
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getAllComponentTypes;
+import static io.kestros.cms.foundation.utils.ComponentTypeUtils.getScriptNames;
+import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import io.kestros.cms.foundation.services.scriptresolutiontable.ScriptResolutionTableService;
+import io.kestros.commons.structuredslingmodels.exceptions.ModelAdaptionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes script resolutions for all ComponentTypes under /apps and /libs, all UiFrameworks under
+ * /etc and /libs, and all scripts found in the views of each ComponentType and its superTypes.
+ * The table is computed on a background thread at activation and whenever {@link #rebuild()} is
+ * called. The previous table is served until the new one has been computed, and is then replaced
+ * in a single swap.
+ */
+@Component(immediate = true,
+           service = ScriptResolutionTableService.class,
+           property = "service.ranking:Integer=1")
+public class BaseScriptResolutionTableService implements ScriptResolutionTableService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+      BaseScriptResolutionTableService.class);
+
+  public static final String KESTROS_SCRIPT_RESOLUTION_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private ComponentTypeDiscoveryService componentTypeDiscoveryService;
+
+  private final AtomicLong generation = new AtomicLong();
+  private volatile Map<String, String> scriptResolutionTable = Collections.emptyMap();
+  private volatile boolean built = false;
+  private ExecutorService executorService;
+
+  /**
+   * Activates the service, and starts computing the table.
+   */
+  @Activate
+  public void activate() {
+    executorService = Executors.newSingleThreadExecutor();
+    rebuild();
+  }
+
+  /**
+   * Deactivates the service, and stops computing the table.
+   */
+  @Deactivate
+  public void deactivate() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Nullable
+  @Override
+  public String getScriptPath(@Nonnull final String componentTypePath,
+      @Nullable final String uiFrameworkPath, @Nonnull final String scriptName) {
+    return scriptResolutionTable.get(getTableKey(componentTypePath, uiFrameworkPath, scriptName));
+  }
+
+  @Override
+  public void rebuild() {
+    final long rebuildGeneration = generation.incrementAndGet();
+    if (executorService != null && !executorService.isShutdown()) {
+      executorService.submit(() -> computeTable(rebuildGeneration));
+    }
+  }
+
+  @Override
+  public boolean isBuilt() {
+    return built;
+  }
+
+  @Override
+  public int getSize() {
+    return scriptResolutionTable.size();
+  }
+
+  /**
+   * Computes the script resolution table.
+   *
+   * @param resourceResolver ResourceResolver used to read ComponentTypes and UiFrameworks.
+   * @return Script resolution table.
+   */
+  @Nonnull
+  protected Map<String, String> buildTable(@Nonnull final ResourceResolver resourceResolver) {
+    final List<UiFramework> uiFrameworks = getAllUiFrameworks(resourceResolver, true, true);
+    final List<ComponentType> componentTypes = new ArrayList<>();
+    componentTypes.addAll(getAllComponentTypes(true, false, false, resourceResolver,
+        componentTypeDiscoveryService));
+    componentTypes.addAll(getAllComponentTypes(false, true, true, resourceResolver,
+        componentTypeDiscoveryService));
+
+    final Map<String, String> table = new HashMap<>();
+    for (final ComponentType componentType : componentTypes) {
+      for (final String scriptName : getScriptNames(componentType)) {
+        final String commonScriptPath = resolveScriptPath(componentType, null, scriptName);
+        if (commonScriptPath != null) {
+          table.put(getTableKey(componentType.getPath(), null, scriptName), commonScriptPath);
+        }
+        for (final UiFramework uiFramework : uiFrameworks) {
+          String scriptPath = resolveScriptPath(componentType, uiFramework, scriptName);
+          if (scriptPath == null) {
+            scriptPath = commonScriptPath;
+          }
+          if (scriptPath != null) {
+            table.put(getTableKey(componentType.getPath(), uiFramework.getPath(), scriptName),
+                scriptPath);
+          }
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Opens a service ResourceResolver for computing the table.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_SCRIPT_RESOLUTION_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to compute script resolution table. Failed to log in as {}. {}",
+          KESTROS_SCRIPT_RESOLUTION_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  private void computeTable(final long rebuildGeneration) {
+    if (rebuildGeneration != generation.get()) {
+      // A newer rebuild has been requested, and will compute the table.
+      return;
+    }
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      final long start = System.currentTimeMillis();
+      final Map<String, String> table = buildTable(resourceResolver);
+      if (rebuildGeneration == generation.get()) {
+        scriptResolutionTable = Collections.unmodifiableMap(table);
+        built = true;
+        LOG.info("Computed {} script resolutions in {}ms.", table.size(),
+            System.currentTimeMillis() - start);
+      }
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to compute script resolution table. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Nullable
+  private static String resolveScriptPath(final ComponentType componentType,
+      @Nullable final UiFramework uiFramework, final String scriptName) {
+    try {
+      return componentType.getScript(scriptName, uiFramework).getPath();
+    } catch (final ModelAdaptionException exception) {
+      LOG.trace("Unable to resolve {} for {}. {}", scriptName, componentType.getPath(),
+          exception.getMessage());
+    }
+    return null;
+  }
+
+  private static String getTableKey(final String componentTypePath,
+      @Nullable final String uiFrameworkPath, final String scriptName) {
+    return (uiFrameworkPath != null ? uiFrameworkPath : "") + "::" + componentTypePath + "::"
+           + scriptName;
+  }
+
+}
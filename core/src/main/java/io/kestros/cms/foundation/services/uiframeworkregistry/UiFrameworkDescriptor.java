@@ -0,0 +1,110 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.uiframeworkregistry;
+
+import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_LIBS_ROOT_PATH;
+
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import javax.annotation.Nonnull;
+
+/**
+ * Immutable snapshot of the properties used to look up a UiFramework.
+ */
+public final class UiFrameworkDescriptor {
+
+  private final String path;
+  private final String name;
+  private final String frameworkCode;
+  private final String title;
+
+  /**
+   * Immutable snapshot of the properties used to look up a UiFramework.
+   *
+   * @param path UiFramework path.
+   * @param name UiFramework resource name.
+   * @param frameworkCode UiFramework code.
+   * @param title UiFramework title.
+   */
+  public UiFrameworkDescriptor(@Nonnull final String path, @Nonnull final String name,
+      @Nonnull final String frameworkCode, @Nonnull final String title) {
+    this.path = path;
+    this.name = name;
+    this.frameworkCode = frameworkCode;
+    this.title = title;
+  }
+
+  /**
+   * Immutable snapshot of the properties used to look up a UiFramework.
+   *
+   * @param uiFramework UiFramework to describe.
+   */
+  public UiFrameworkDescriptor(@Nonnull final UiFramework uiFramework) {
+    this(uiFramework.getPath(), uiFramework.getName(), uiFramework.getFrameworkCode(),
+        uiFramework.getTitle());
+  }
+
+  /**
+   * UiFramework path.
+   *
+   * @return UiFramework path.
+   */
+  @Nonnull
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * UiFramework resource name.
+   *
+   * @return UiFramework resource name.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * UiFramework code.
+   *
+   * @return UiFramework code.
+   */
+  @Nonnull
+  public String getFrameworkCode() {
+    return frameworkCode;
+  }
+
+  /**
+   * UiFramework title.
+   *
+   * @return UiFramework title.
+   */
+  @Nonnull
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Whether the UiFramework is under /libs (rather than /etc).
+   *
+   * @return Whether the UiFramework is under /libs.
+   */
+  public boolean isLibs() {
+    return path.startsWith(UI_FRAMEWORKS_LIBS_ROOT_PATH + "/");
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.uiframeworkregistry;
+
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Registry of all UiFrameworks under /etc and /libs, indexed by framework code, name and path so
+ * lookups do not need to list and adapt every UiFramework. When a UiFramework exists under both
+ * /etc and /libs with the same code or name, the /etc UiFramework takes priority.
+ */
+public interface UiFrameworkRegistryService {
+
+  /**
+   * Descriptor of the UiFramework matching a framework code.
+   *
+   * @param frameworkCode UiFramework code.
+   * @param includeEtc Whether to include UiFrameworks from /etc.
+   * @param includeLibs Whether to include UiFrameworks from /libs.
+   * @return Descriptor of the UiFramework matching a framework code, or null if none is
+   *     registered.
+   */
+  @Nullable
+  UiFrameworkDescriptor getDescriptorByFrameworkCode(@Nonnull String frameworkCode,
+      boolean includeEtc, boolean includeLibs);
+
+  /**
+   * Descriptor of the UiFramework matching a resource name.
+   *
+   * @param name UiFramework resource name.
+   * @param includeEtc Whether to include UiFrameworks from /etc.
+   * @param includeLibs Whether to include UiFrameworks from /libs.
+   * @return Descriptor of the UiFramework matching a resource name, or null if none is
+   *     registered.
+   */
+  @Nullable
+  UiFrameworkDescriptor getDescriptorByName(@Nonnull String name, boolean includeEtc,
+      boolean includeLibs);
+
+  /**
+   * Descriptor of the UiFramework at a path.
+   *
+   * @param path UiFramework path.
+   * @return Descriptor of the UiFramework at a path, or null if none is registered.
+   */
+  @Nullable
+  UiFrameworkDescriptor getDescriptorByPath(@Nonnull String path);
+
+  /**
+   * Descriptors of all registered UiFrameworks, /etc UiFrameworks first.
+   *
+   * @return Descriptors of all registered UiFrameworks.
+   */
+  @Nonnull
+  List<UiFrameworkDescriptor> getDescriptors();
+
+  /**
+   * UiFramework matching a framework code, adapted with the specified ResourceResolver.
+   *
+   * @param frameworkCode UiFramework code.
+   * @param includeEtc Whether to include UiFrameworks from /etc.
+   * @param includeLibs Whether to include UiFrameworks from /libs.
+   * @param resourceResolver ResourceResolver to adapt the UiFramework with.
+   * @return UiFramework matching a framework code, or null if none is registered, or it cannot
+   *     be read by the ResourceResolver.
+   */
+  @Nullable
+  UiFramework getUiFrameworkByFrameworkCode(@Nonnull String frameworkCode, boolean includeEtc,
+      boolean includeLibs, @Nonnull ResourceResolver resourceResolver);
+
+  /**
+   * Reads all UiFrameworks and replaces the registry.
+   */
+  void rebuild();
+
+  /**
+   * Whether the registry has been built. Callers should fall back to reading UiFrameworks from
+   * the JCR while it has not.
+   *
+   * @return Whether the registry has been built.
+   */
+  boolean isBuilt();
+
+  /**
+   * Number of registered UiFrameworks.
+   *
+   * @return Number of registered UiFrameworks.
+   */
+  int getSize();
+
+}
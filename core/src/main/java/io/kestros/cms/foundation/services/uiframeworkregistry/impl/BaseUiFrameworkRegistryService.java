@@ -0,0 +1,218 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.uiframeworkregistry.impl;
+
+import static io.kestros.cms.foundation.utils.DesignUtils.getAllUiFrameworks;
+
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.scriptprovider.BaseScriptProviderService;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkDescriptor;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads all UiFrameworks under /etc and /libs at activation and whenever {@link #rebuild()} is
+ * called, and swaps in an immutable index of their descriptors, so lookups never block on a
+ * rebuild.
+ */
+@Component(immediate = true,
+           service = UiFrameworkRegistryService.class,
+           property = "service.ranking:Integer=1")
+public class BaseUiFrameworkRegistryService implements UiFrameworkRegistryService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BaseUiFrameworkRegistryService.class);
+
+  public static final String KESTROS_UI_FRAMEWORK_REGISTRY_SERVICE_USER
+      = BaseScriptProviderService.KESTROS_HTL_TEMPLATE_CACHE_PURGE_SERVICE_USER;
+
+  @Reference
+  private ResourceResolverFactory resourceResolverFactory;
+
+  private volatile UiFrameworkIndex index = new UiFrameworkIndex(Collections.emptyList());
+  private volatile boolean built = false;
+
+  /**
+   * Activates the service, and builds the registry.
+   */
+  @Activate
+  public void activate() {
+    rebuild();
+  }
+
+  @Nullable
+  @Override
+  public UiFrameworkDescriptor getDescriptorByFrameworkCode(@Nonnull final String frameworkCode,
+      final boolean includeEtc, final boolean includeLibs) {
+    return getFirstIncluded(index.descriptorsByFrameworkCode.get(frameworkCode), includeEtc,
+        includeLibs);
+  }
+
+  @Nullable
+  @Override
+  public UiFrameworkDescriptor getDescriptorByName(@Nonnull final String name,
+      final boolean includeEtc, final boolean includeLibs) {
+    return getFirstIncluded(index.descriptorsByName.get(name), includeEtc, includeLibs);
+  }
+
+  @Nullable
+  @Override
+  public UiFrameworkDescriptor getDescriptorByPath(@Nonnull final String path) {
+    return index.descriptorsByPath.get(path);
+  }
+
+  @Nonnull
+  @Override
+  public List<UiFrameworkDescriptor> getDescriptors() {
+    return index.descriptors;
+  }
+
+  @Nullable
+  @Override
+  public UiFramework getUiFrameworkByFrameworkCode(@Nonnull final String frameworkCode,
+      final boolean includeEtc, final boolean includeLibs,
+      @Nonnull final ResourceResolver resourceResolver) {
+    final UiFrameworkDescriptor descriptor = getDescriptorByFrameworkCode(frameworkCode,
+        includeEtc, includeLibs);
+    if (descriptor != null) {
+      final Resource resource = resourceResolver.getResource(descriptor.getPath());
+      if (resource != null) {
+        return resource.adaptTo(UiFramework.class);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void rebuild() {
+    final ResourceResolver resourceResolver = getServiceResourceResolver();
+    if (resourceResolver == null) {
+      return;
+    }
+    try {
+      final List<UiFrameworkDescriptor> descriptors = buildDescriptors(resourceResolver);
+      index = new UiFrameworkIndex(descriptors);
+      built = true;
+      LOG.debug("Registered {} UiFrameworks.", descriptors.size());
+    } catch (final RuntimeException exception) {
+      LOG.error("Failed to build UiFramework registry. {}", exception.getMessage());
+    } finally {
+      resourceResolver.close();
+    }
+  }
+
+  @Override
+  public boolean isBuilt() {
+    return built;
+  }
+
+  @Override
+  public int getSize() {
+    return index.descriptors.size();
+  }
+
+  /**
+   * Reads descriptors of all UiFrameworks, /etc UiFrameworks first.
+   *
+   * @param resourceResolver ResourceResolver used to read UiFrameworks.
+   * @return Descriptors of all UiFrameworks.
+   */
+  @Nonnull
+  protected List<UiFrameworkDescriptor> buildDescriptors(
+      @Nonnull final ResourceResolver resourceResolver) {
+    final List<UiFrameworkDescriptor> descriptors = new ArrayList<>();
+    for (final UiFramework uiFramework : getAllUiFrameworks(resourceResolver, true, true)) {
+      descriptors.add(new UiFrameworkDescriptor(uiFramework));
+    }
+    return descriptors;
+  }
+
+  /**
+   * Opens a service ResourceResolver for building the registry.
+   *
+   * @return A service ResourceResolver, or null if login failed.
+   */
+  @Nullable
+  protected ResourceResolver getServiceResourceResolver() {
+    try {
+      return resourceResolverFactory.getServiceResourceResolver(
+          Collections.singletonMap(ResourceResolverFactory.SUBSERVICE,
+              KESTROS_UI_FRAMEWORK_REGISTRY_SERVICE_USER));
+    } catch (final LoginException exception) {
+      LOG.error("Unable to build UiFramework registry. Failed to log in as {}. {}",
+          KESTROS_UI_FRAMEWORK_REGISTRY_SERVICE_USER, exception.getMessage());
+    }
+    return null;
+  }
+
+  @Nullable
+  private static UiFrameworkDescriptor getFirstIncluded(
+      @Nullable final List<UiFrameworkDescriptor> descriptors, final boolean includeEtc,
+      final boolean includeLibs) {
+    if (descriptors != null) {
+      for (final UiFrameworkDescriptor descriptor : descriptors) {
+        if (descriptor.isLibs() ? includeLibs : includeEtc) {
+          return descriptor;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Immutable UiFramework descriptors, indexed by framework code, name and path.
+   */
+  private static final class UiFrameworkIndex {
+
+    private final List<UiFrameworkDescriptor> descriptors;
+    private final Map<String, List<UiFrameworkDescriptor>> descriptorsByFrameworkCode;
+    private final Map<String, List<UiFrameworkDescriptor>> descriptorsByName;
+    private final Map<String, UiFrameworkDescriptor> descriptorsByPath;
+
+    private UiFrameworkIndex(final List<UiFrameworkDescriptor> descriptors) {
+      final Map<String, List<UiFrameworkDescriptor>> byFrameworkCode = new HashMap<>();
+      final Map<String, List<UiFrameworkDescriptor>> byName = new HashMap<>();
+      final Map<String, UiFrameworkDescriptor> byPath = new HashMap<>();
+      for (final UiFrameworkDescriptor descriptor : descriptors) {
+        byFrameworkCode.computeIfAbsent(descriptor.getFrameworkCode(),
+            frameworkCode -> new ArrayList<>()).add(descriptor);
+        byName.computeIfAbsent(descriptor.getName(), name -> new ArrayList<>()).add(descriptor);
+        byPath.put(descriptor.getPath(), descriptor);
+      }
+      this.descriptors = Collections.unmodifiableList(new ArrayList<>(descriptors));
+      this.descriptorsByFrameworkCode = Collections.unmodifiableMap(byFrameworkCode);
+      this.descriptorsByName = Collections.unmodifiableMap(byName);
+      this.descriptorsByPath = Collections.unmodifiableMap(byPath);
+    }
+  }
+
+}
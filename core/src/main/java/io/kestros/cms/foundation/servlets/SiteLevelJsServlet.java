@@ -20,6 +20,7 @@ package io.kestros.cms.foundation.servlets;
 
 import static io.kestros.commons.uilibraries.filetypes.ScriptType.JAVASCRIPT;
 
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
 import io.kestros.commons.uilibraries.filetypes.ScriptType;
 import io.kestros.commons.uilibraries.services.cache.UiLibraryCacheService;
 import javax.servlet.Servlet;
@@ -49,11 +50,20 @@ public class SiteLevelJsServlet extends SiteLevelScriptServlet {
              policyOption = ReferencePolicyOption.GREEDY)
   private UiLibraryCacheService uiLibraryCacheService;
 
+  @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+             policyOption = ReferencePolicyOption.GREEDY)
+  private UiFrameworkRegistryService uiFrameworkRegistryService;
+
   @Override
   public UiLibraryCacheService getUiLibraryCacheService() {
     return uiLibraryCacheService;
   }
 
+  @Override
+  public UiFrameworkRegistryService getUiFrameworkRegistryService() {
+    return uiFrameworkRegistryService;
+  }
+
   @Override
   public ScriptType getScriptType() {
     return JAVASCRIPT;
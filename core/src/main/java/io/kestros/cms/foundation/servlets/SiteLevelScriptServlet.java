@@ -21,6 +21,7 @@ package io.kestros.cms.foundation.servlets;
 import static io.kestros.cms.foundation.utils.DesignUtils.getUiFrameworkByFrameworkCode;
 
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import io.kestros.commons.structuredslingmodels.exceptions.ChildResourceNotFoundException;
@@ -30,9 +31,11 @@ import io.kestros.commons.uilibraries.filetypes.ScriptType;
 import io.kestros.commons.uilibraries.services.cache.UiLibraryCacheService;
 import java.io.IOException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +71,17 @@ public abstract class SiteLevelScriptServlet extends SlingSafeMethodsServlet {
    */
   public abstract ScriptType getScriptType();
 
+  /**
+   * UiFramework registry used to look up the requested UiFramework. Implementations that do not
+   * reference one look through all UiFrameworks instead.
+   *
+   * @return UiFramework registry, or null.
+   */
+  @Nullable
+  public UiFrameworkRegistryService getUiFrameworkRegistryService() {
+    return null;
+  }
+
   @Override
   public void doGet(@Nonnull final SlingHttpServletRequest request,
       @Nonnull final SlingHttpServletResponse response) {
@@ -78,7 +92,7 @@ public abstract class SiteLevelScriptServlet extends SlingSafeMethodsServlet {
         boolean performCache = false;
         String output = null;
 
-        final UiFramework uiFramework = getUiFrameworkByFrameworkCode(selectors[0], true, false,
+        final UiFramework uiFramework = getUiFramework(selectors[0],
             request.getResourceResolver());
 
         if (getUiLibraryCacheService() != null) {
@@ -127,4 +141,19 @@ public abstract class SiteLevelScriptServlet extends SlingSafeMethodsServlet {
     return request.getRequestURI().startsWith("/public/");
   }
 
+  @Nonnull
+  private UiFramework getUiFramework(final String frameworkCode,
+      final ResourceResolver resourceResolver) throws ResourceNotFoundException {
+    final UiFrameworkRegistryService registryService = getUiFrameworkRegistryService();
+    if (registryService != null && registryService.isBuilt()) {
+      final UiFramework uiFramework = registryService.getUiFrameworkByFrameworkCode(frameworkCode,
+          true, false, resourceResolver);
+      if (uiFramework != null) {
+        return uiFramework;
+      }
+      throw new ResourceNotFoundException(frameworkCode,
+          String.format("Unable to find UiFramework matching code '%s'.", frameworkCode));
+    }
+    return getUiFrameworkByFrameworkCode(frameworkCode, true, false, resourceResolver);
+  }
 }
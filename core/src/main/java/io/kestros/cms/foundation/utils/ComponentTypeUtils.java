@@ -25,8 +25,14 @@ import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.componenttypes.ComponentTypeGroup;
 import io.kestros.cms.foundation.componenttypes.HtmlFile;
 import io.kestros.cms.foundation.componenttypes.frameworkview.ComponentUiFrameworkView;
+import io.kestros.cms.foundation.design.htltemplate.HtlScriptScanner;
+import io.kestros.cms.foundation.design.htltemplate.usage.HtlTemplateCall;
 import io.kestros.cms.foundation.design.htltemplate.usage.HtlTemplateUsage;
+import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
 import io.kestros.cms.foundation.exceptions.InvalidScriptException;
+import io.kestros.cms.foundation.services.componenttypediscovery.ComponentTypeDiscoveryService;
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
+import io.kestros.cms.foundation.services.htltemplateusage.HtlTemplateUsageIndexService;
 import io.kestros.commons.structuredslingmodels.BaseResource;
 import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import io.kestros.commons.structuredslingmodels.utils.FileModelUtils;
@@ -35,17 +41,18 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +65,8 @@ public class ComponentTypeUtils {
   public static final String PATH_LIBS_KESTROS_COMMONS = "/libs/kestros/commons";
   public static final String PATH_LIBS = "/libs";
   public static final String PATH_APPS = "/apps";
+  private static final String SCRIPT_EXTENSION = ".html";
+  private static final String COMPONENT_TYPE_RESOURCE_TYPE = "kes:ComponentType";
 
   private ComponentTypeUtils() {
   }
@@ -236,35 +245,60 @@ public class ComponentTypeUtils {
   public static List<ComponentType> getAllComponentTypes(final boolean includeApps,
       final boolean includeLibs, final boolean includeLibsCommons,
       final ResourceResolver resourceResolver) {
+    return getAllComponentTypes(includeApps, includeLibs, includeLibsCommons, resourceResolver,
+        null);
+  }
+
+  /**
+   * Retrieves all ComponentTypes within /apps and /libs, as specified. When a
+   * ComponentTypeDiscoveryService is available, ComponentTypes are discovered by their primary type
+   * instead of adapting every descendant of each root.
+   *
+   * @param includeApps Include ComponentTypes from /apps.
+   * @param includeLibs Include ComponentTypes from /libs.
+   * @param includeLibsCommons Include ComponentTypes from /libs/kestros/commons.
+   * @param resourceResolver ResourceResolver used to retrieve ComponentType resources.
+   * @param componentTypeDiscoveryService Service used to discover ComponentTypes. Can be null.
+   * @return All ComponentTypes within /apps and /libs, as specified.
+   */
+  @Nonnull
+  public static List<ComponentType> getAllComponentTypes(final boolean includeApps,
+      final boolean includeLibs, final boolean includeLibsCommons,
+      final ResourceResolver resourceResolver,
+      @Nullable final ComponentTypeDiscoveryService componentTypeDiscoveryService) {
     final List<ComponentType> componentTypes = new ArrayList<>();
     if (includeLibs) {
       try {
-        componentTypes.addAll(
-            getAllDescendantComponentTypes(getLibsRootResource(resourceResolver)));
+        componentTypes.addAll(getDescendantComponentTypes(getLibsRootResource(resourceResolver),
+            componentTypeDiscoveryService));
       } catch (final ResourceNotFoundException e) {
         LOG.warn("Unable retrieve /libs ComponentTypes. {}", e.getMessage());
       }
     } else if (includeLibsCommons) {
       try {
         componentTypes.addAll(
-            getAllDescendantComponentTypes(getLibsKestrosCommonsRootResource(resourceResolver)));
+            getDescendantComponentTypes(getLibsKestrosCommonsRootResource(resourceResolver),
+                componentTypeDiscoveryService));
       } catch (final ResourceNotFoundException e) {
         LOG.warn("Unable retrieve /libs/kestros/commons ComponentTypes. {}", e.getMessage());
       }
     }
     if (includeApps) {
       try {
-        List<ComponentType> appsComponentTypes = new ArrayList<>();
-        appsComponentTypes.addAll(
-            getAllDescendantComponentTypes(getAppsRootResource(resourceResolver)));
+        final List<ComponentType> appsComponentTypes = getDescendantComponentTypes(
+            getAppsRootResource(resourceResolver), componentTypeDiscoveryService);
         if (includeLibs || includeLibsCommons) {
-          for (ComponentType appsComponentType : appsComponentTypes) {
-            String libsPath = appsComponentType.getPath().replace("/apps/", "/libs/");
-            boolean componentTypeExists = componentTypes.stream().filter(
-                o -> o.getPath().equals(libsPath)).findFirst().isPresent();
-            LOG.debug("Excluding {} from all componentTypes list. ComponentType lives under /libs.",
-                appsComponentType.getPath());
-            if (!componentTypeExists) {
+          final Set<String> libsComponentTypePaths = new HashSet<>();
+          for (final ComponentType componentType : componentTypes) {
+            libsComponentTypePaths.add(componentType.getPath());
+          }
+          for (final ComponentType appsComponentType : appsComponentTypes) {
+            final String libsPath = appsComponentType.getPath().replace("/apps/", "/libs/");
+            if (libsComponentTypePaths.contains(libsPath)) {
+              LOG.debug(
+                  "Excluding {} from all componentTypes list. ComponentType lives under /libs.",
+                  appsComponentType.getPath());
+            } else {
               componentTypes.add(appsComponentType);
             }
           }
@@ -291,6 +325,102 @@ public class ComponentTypeUtils {
     return getAllDescendantsOfType(rootResource, ComponentType.class);
   }
 
+  /**
+   * ComponentType a resourceType resolves to, looked up in a ComponentTypeResolutionService.
+   *
+   * @param resourceType resourceType to resolve.
+   * @param path Path of the Resource the resourceType belongs to.
+   * @param resolutionService ComponentTypeResolutionService to look the resourceType up in.
+   * @param resourceResolver ResourceResolver.
+   * @return ComponentType a resourceType resolves to.
+   * @throws InvalidComponentTypeException The resourceType does not resolve to a valid
+   *     ComponentType.
+   */
+  @Nonnull
+  public static ComponentType getComponentTypeForResourceType(@Nonnull final String resourceType,
+      @Nonnull final String path, @Nonnull final ComponentTypeResolutionService resolutionService,
+      @Nonnull final ResourceResolver resourceResolver) throws InvalidComponentTypeException {
+    final ComponentType componentType = findComponentTypeForResourceType(resourceType,
+        resolutionService, resourceResolver);
+    if (componentType != null) {
+      return componentType;
+    }
+    throw new InvalidComponentTypeException(path, resourceType);
+  }
+
+  /**
+   * ComponentType a resourceType resolves to, looked up in a ComponentTypeResolutionService.
+   * Does not throw, so it can be used on render paths where a missing ComponentType is expected.
+   *
+   * @param resourceType resourceType to resolve.
+   * @param resolutionService ComponentTypeResolutionService to look the resourceType up in.
+   * @param resourceResolver ResourceResolver.
+   * @return ComponentType a resourceType resolves to, or null if it does not resolve to a valid
+   *     ComponentType.
+   */
+  @Nullable
+  public static ComponentType findComponentTypeForResourceType(@Nonnull final String resourceType,
+      @Nonnull final ComponentTypeResolutionService resolutionService,
+      @Nonnull final ResourceResolver resourceResolver) {
+    final String componentTypePath = resolutionService.getComponentTypePath(resourceType,
+        resourceResolver);
+    if (componentTypePath != null) {
+      return findComponentType(componentTypePath, resourceResolver);
+    }
+    return null;
+  }
+
+  /**
+   * ComponentType at a path, or resolved from the ResourceResolver's search paths when the path
+   * is relative. Does not throw, so it can be used on render paths where a missing ComponentType
+   * is expected.
+   *
+   * @param path ComponentType path.
+   * @param resourceResolver ResourceResolver.
+   * @return ComponentType at a path, or null if the resource is missing or is not a
+   *     ComponentType.
+   */
+  @Nullable
+  public static ComponentType findComponentType(@Nonnull final String path,
+      @Nonnull final ResourceResolver resourceResolver) {
+    if (StringUtils.isEmpty(path)) {
+      return null;
+    }
+    final Resource resource = resourceResolver.getResource(path);
+    if (resource != null && resource.isResourceType(COMPONENT_TYPE_RESOURCE_TYPE)) {
+      return resource.adaptTo(ComponentType.class);
+    }
+    return null;
+  }
+
+  /**
+   * Names of all scripts in the views of a ComponentType, its /apps or /libs overlay, and its
+   * superTypes.
+   *
+   * @param componentType ComponentType to retrieve script names for.
+   * @return Names of all scripts in the views of a ComponentType, its overlay, and its
+   *     superTypes.
+   */
+  @Nonnull
+  public static Set<String> getScriptNames(@Nonnull final ComponentType componentType) {
+    final Set<String> scriptNames = new LinkedHashSet<>();
+    final Set<String> visitedPaths = new LinkedHashSet<>();
+    ComponentType current = componentType;
+    while (current != null && visitedPaths.add(current.getPath())) {
+      addScriptNames(current.getResource(), scriptNames);
+      final ResourceResolver resourceResolver = current.getResource().getResourceResolver();
+      if (current.getPath().startsWith(PATH_LIBS + "/")) {
+        addScriptNames(resourceResolver.getResource(
+            current.getPath().replaceFirst(PATH_LIBS + "/", PATH_APPS + "/")), scriptNames);
+      } else if (current.getPath().startsWith(PATH_APPS + "/")) {
+        addScriptNames(resourceResolver.getResource(
+            current.getPath().replaceFirst(PATH_APPS + "/", PATH_LIBS + "/")), scriptNames);
+      }
+      current = current.findComponentSuperType();
+    }
+    return scriptNames;
+  }
+
   /**
    * Retrieves /apps root Resource.
    *
@@ -356,25 +486,30 @@ public class ComponentTypeUtils {
   public static List<String> getTemplateNamesAComponentViewAttemptsToCall(
       @Nonnull ComponentUiFrameworkView componentUiFrameworkView)
       throws InvalidScriptException, IOException {
-    List<String> templateNameList = new ArrayList<>();
-    for (HtmlFile htlScriptFile : FileModelUtils.getChildrenOfFileType(componentUiFrameworkView,
-        HtmlFile.class)) {
-
-      final Document contentScriptDocument = Jsoup.parse(htlScriptFile.getFileContent());
-      contentScriptDocument.outputSettings().outline(true);
-      contentScriptDocument.outputSettings().prettyPrint(false);
-
-      for (Element element : contentScriptDocument.body().getElementsByAttributeStarting(
-          "data-sly-call")) {
-        if (element.hasAttr("data-sly-call")) {
-          String templateName = element.attr("data-sly-call").split("@")[0];
-          templateName = templateName.split("templates.")[1];
-          templateName = templateName.replaceAll(" ", "");
-          templateNameList.add(templateName);
-        }
-      }
-    }
+    return getTemplateNamesAComponentViewAttemptsToCall(componentUiFrameworkView, null);
+  }
 
+  /**
+   * The name of all templates a specified ComponentUiFrameworkView attempts to call, looked up in
+   * an HtlTemplateUsageIndexService when one is available.
+   *
+   * @param componentUiFrameworkView View to retrieve called template names from.
+   * @param usageIndexService Index of template calls. The view's scripts are parsed when null,
+   *     or when the index does not cover the view.
+   * @return The name of all templates a specified ComponentUiFrameworkView attempts to call.
+   * @throws InvalidScriptException Failed to find a valid content.html script.
+   * @throws IOException Failed to read view's content.html script.
+   */
+  @Nonnull
+  public static List<String> getTemplateNamesAComponentViewAttemptsToCall(
+      @Nonnull final ComponentUiFrameworkView componentUiFrameworkView,
+      @Nullable final HtlTemplateUsageIndexService usageIndexService)
+      throws InvalidScriptException, IOException {
+    final List<String> templateNameList = new ArrayList<>();
+    for (final HtlTemplateCall templateCall : getHtlTemplateCalls(componentUiFrameworkView,
+        usageIndexService)) {
+      templateNameList.add(templateCall.getTemplateName());
+    }
     return templateNameList;
   }
 
@@ -389,26 +524,105 @@ public class ComponentTypeUtils {
   public static List<HtlTemplateUsage> getHtlTemplateUsageList(
       @Nonnull ComponentUiFrameworkView componentUiFrameworkView)
       throws InvalidScriptException, IOException {
-    List<HtlTemplateUsage> templateNameList = new ArrayList<>();
-    for (HtmlFile htlScriptFile : FileModelUtils.getChildrenOfFileType(componentUiFrameworkView,
-        HtmlFile.class)) {
+    return getHtlTemplateUsageList(componentUiFrameworkView, null);
+  }
 
-      if (htlScriptFile != null) {
-        final Document contentScriptDocument = Jsoup.parse(htlScriptFile.getFileContent());
-        contentScriptDocument.outputSettings().outline(true);
-        contentScriptDocument.outputSettings().prettyPrint(false);
-
-        for (Element element : contentScriptDocument.body().getElementsByAttributeStarting(
-            "data-sly-call")) {
-          HtlTemplateUsage templateUsage = new HtlTemplateUsage(element, componentUiFrameworkView);
-          if (templateUsage.getName() != null) {
-            templateNameList.add(templateUsage);
+  /**
+   * All template usages within a specified ComponentUiFrameworkView, built from the template calls
+   * held by an HtlTemplateUsageIndexService when one is available.
+   *
+   * @param componentUiFrameworkView view to find templates usages from.
+   * @param usageIndexService Index of template calls. The view's scripts are parsed when null,
+   *     or when the index does not cover the view.
+   * @return All template usages within a specified ComponentUiFrameworkView.
+   * @throws InvalidScriptException Failed to find a valid content.html script.
+   * @throws IOException Failed to read view's content.html script.
+   */
+  public static List<HtlTemplateUsage> getHtlTemplateUsageList(
+      @Nonnull final ComponentUiFrameworkView componentUiFrameworkView,
+      @Nullable final HtlTemplateUsageIndexService usageIndexService)
+      throws InvalidScriptException, IOException {
+    final List<HtlTemplateUsage> templateUsageList = new ArrayList<>();
+    for (final HtlTemplateCall templateCall : getHtlTemplateCalls(componentUiFrameworkView,
+        usageIndexService)) {
+      templateUsageList.add(new HtlTemplateUsage(templateCall, componentUiFrameworkView));
+    }
+    return templateUsageList;
+  }
+
+  /**
+   * All template calls made by an HTL script.
+   *
+   * @param scriptFile Script to read template calls from.
+   * @return All template calls made by an HTL script.
+   * @throws IOException Failed to read the script.
+   */
+  @Nonnull
+  public static List<HtlTemplateCall> getHtlTemplateCalls(@Nonnull final HtmlFile scriptFile)
+      throws IOException {
+    final List<HtlTemplateCall> templateCalls = new ArrayList<>();
+    for (final String callExpression : HtlScriptScanner.findCallExpressions(
+        scriptFile.getFileContent())) {
+      final HtlTemplateCall templateCall = HtlTemplateCall.parse(callExpression,
+          scriptFile.getPath());
+      if (templateCall != null) {
+        templateCalls.add(templateCall);
+      }
+    }
+    return templateCalls;
+  }
+
+  private static void addScriptNames(@Nullable final Resource componentTypeResource,
+      final Set<String> scriptNames) {
+    if (componentTypeResource != null) {
+      for (final Resource view : componentTypeResource.getChildren()) {
+        for (final Resource script : view.getChildren()) {
+          if (script.getName().endsWith(SCRIPT_EXTENSION)) {
+            scriptNames.add(script.getName());
           }
         }
       }
     }
+  }
 
-    return templateNameList;
+  @Nonnull
+  private static List<ComponentType> getDescendantComponentTypes(
+      @Nonnull final BaseResource rootResource,
+      @Nullable final ComponentTypeDiscoveryService componentTypeDiscoveryService) {
+    if (componentTypeDiscoveryService == null) {
+      return getAllDescendantComponentTypes(rootResource);
+    }
+    final ResourceResolver resourceResolver = rootResource.getResourceResolver();
+    final List<ComponentType> componentTypes = new ArrayList<>();
+    for (final String componentTypePath : componentTypeDiscoveryService.getComponentTypePaths(
+        rootResource.getPath(), resourceResolver)) {
+      final ComponentType componentType = findComponentType(componentTypePath, resourceResolver);
+      if (componentType != null) {
+        componentTypes.add(componentType);
+      }
+    }
+    return componentTypes;
   }
 
+  @Nonnull
+  private static List<HtlTemplateCall> getHtlTemplateCalls(
+      @Nonnull final ComponentUiFrameworkView componentUiFrameworkView,
+      @Nullable final HtlTemplateUsageIndexService usageIndexService)
+      throws InvalidScriptException, IOException {
+    if (usageIndexService != null) {
+      final List<HtlTemplateCall> indexedTemplateCalls = usageIndexService.getTemplateCalls(
+          componentUiFrameworkView.getPath());
+      if (indexedTemplateCalls != null) {
+        return indexedTemplateCalls;
+      }
+    }
+    final List<HtlTemplateCall> templateCalls = new ArrayList<>();
+    for (final HtmlFile htlScriptFile : FileModelUtils.getChildrenOfFileType(
+        componentUiFrameworkView, HtmlFile.class)) {
+      if (htlScriptFile != null) {
+        templateCalls.addAll(getHtlTemplateCalls(htlScriptFile));
+      }
+    }
+    return templateCalls;
+  }
 }
@@ -22,7 +22,6 @@ import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_ETC
 import static io.kestros.cms.foundation.design.DesignConstants.UI_FRAMEWORKS_LIBS_ROOT_PATH;
 import static io.kestros.cms.foundation.design.DesignConstants.VENDOR_LIBRARIES_ETC_ROOT_PATH;
 import static io.kestros.cms.foundation.design.DesignConstants.VENDOR_LIBRARIES_LIBS_ROOT_PATH;
-import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildAsBaseResource;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildAsType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getChildrenOfType;
 import static io.kestros.commons.structuredslingmodels.utils.SlingModelUtils.getResourceAsBaseResource;
@@ -40,6 +39,8 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -266,40 +267,8 @@ public class DesignUtils {
   @Nonnull
   public static ComponentUiFrameworkView getComponentUiFrameworkView(@Nonnull final String name,
       @Nonnull final ComponentType componentType) throws ChildResourceNotFoundException {
-    ComponentUiFrameworkView componentUiFrameworkView = null;
-    if (componentType.getPath().startsWith(PATH_PREFIX_LIBS)) {
-      try {
-        final BaseResource appsComponentTypeResource = getResourceAsBaseResource(
-            componentType.getPath().replaceFirst(PATH_PREFIX_LIBS, PATH_PREFIX_APPS),
-            componentType.getResourceResolver());
-        componentUiFrameworkView = getChildAsBaseResource(name,
-            appsComponentTypeResource).getResource().adaptTo(ComponentUiFrameworkView.class);
-      } catch (final ResourceNotFoundException | ChildResourceNotFoundException exception) {
-        componentUiFrameworkView = getChildAsBaseResource(name,
-            componentType).getResource().adaptTo(ComponentUiFrameworkView.class);
-      }
-    } else if (componentType.getPath().startsWith(PATH_PREFIX_APPS)) {
-      try {
-        componentUiFrameworkView = getChildAsBaseResource(name,
-            componentType).getResource().adaptTo(ComponentUiFrameworkView.class);
-      } catch (final ChildResourceNotFoundException e) {
-        try {
-          final BaseResource libsComponentTypeResource = getResourceAsBaseResource(
-              componentType.getPath().replaceFirst(PATH_PREFIX_APPS, PATH_PREFIX_LIBS),
-              componentType.getResourceResolver());
-          componentUiFrameworkView = getChildAsBaseResource(name,
-              libsComponentTypeResource).getResource().adaptTo(ComponentUiFrameworkView.class);
-        } catch (final ResourceNotFoundException ex) {
-          LOG.debug(ex.getMessage());
-        } catch (final ChildResourceNotFoundException exception) {
-          componentUiFrameworkView = getChildAsBaseResource(name,
-              componentType).getResource().adaptTo(ComponentUiFrameworkView.class);
-        }
-      }
-    } else {
-      componentUiFrameworkView = getChildAsBaseResource(name, componentType).getResource().adaptTo(
-          ComponentUiFrameworkView.class);
-    }
+    final ComponentUiFrameworkView componentUiFrameworkView = findComponentUiFrameworkView(name,
+        componentType);
     if (componentUiFrameworkView != null) {
       return componentUiFrameworkView;
     }
@@ -307,6 +276,47 @@ public class DesignUtils {
     throw new ChildResourceNotFoundException(name, componentType.getPath(), "Child not found.");
   }
 
+  /**
+   * Retrieves ComponentUiFramework matching `name` from the specified ComponentType, preferring
+   * the /apps overlay of /libs ComponentTypes, and falling back to the /libs ComponentType for
+   * /apps ComponentTypes. Does not throw, so it can be used on render paths where a missing view
+   * is expected.
+   *
+   * @param name ComponentUiFramework name to retrieve.
+   * @param componentType ComponentType to retrieve ComponentUiFrameworkView from.
+   * @return ComponentUiFramework matching `name` from the specified ComponentType, or null if
+   *     none was found.
+   */
+  @Nullable
+  public static ComponentUiFrameworkView findComponentUiFrameworkView(@Nonnull final String name,
+      @Nonnull final ComponentType componentType) {
+    if (StringUtils.isEmpty(name)) {
+      return null;
+    }
+    final ResourceResolver resourceResolver = componentType.getResourceResolver();
+    final String path = componentType.getPath();
+    Resource viewResource;
+    if (path.startsWith(PATH_PREFIX_LIBS)) {
+      viewResource = resourceResolver.getResource(
+          path.replaceFirst(PATH_PREFIX_LIBS, PATH_PREFIX_APPS) + "/" + name);
+      if (viewResource == null) {
+        viewResource = componentType.getResource().getChild(name);
+      }
+    } else if (path.startsWith(PATH_PREFIX_APPS)) {
+      viewResource = componentType.getResource().getChild(name);
+      if (viewResource == null) {
+        viewResource = resourceResolver.getResource(
+            path.replaceFirst(PATH_PREFIX_APPS, PATH_PREFIX_LIBS) + "/" + name);
+      }
+    } else {
+      viewResource = componentType.getResource().getChild(name);
+    }
+    if (viewResource != null) {
+      return viewResource.adaptTo(ComponentUiFrameworkView.class);
+    }
+    return null;
+  }
+
   /**
    * Retrieves a specified HTL Template from a UiFramework.
    *
@@ -317,12 +327,6 @@ public class DesignUtils {
   @Nullable
   public static HtlTemplate getHtlTemplateFromUiFramework(@Nonnull UiFramework uiFramework,
       @Nonnull String templateName) {
-    for (HtlTemplate htlTemplate : uiFramework.getTemplates()) {
-      if (htlTemplate.getName().equalsIgnoreCase(templateName)) {
-        return htlTemplate;
-      }
-    }
-    // TODO throw exception?
-    return null;
+    return uiFramework.getTemplateCatalog().getTemplate(templateName);
   }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 package io.kestros.cms.foundation.componenttypes;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
@@ -597,4 +598,56 @@ public class ComponentTypeTest {
     assertEquals("/component-2", componentType.getExcludedComponentTypePaths().get(1));
   }
 
+  @Test
+  public void testFindComponentSuperType() {
+    componentProperties.put("sling:resourceSuperType", "components/super-type");
+    resource = context.create().resource("/apps/component", componentProperties);
+    componentProperties.remove("sling:resourceSuperType");
+    context.create().resource("/libs/components/super-type", componentProperties);
+
+    componentType = resource.adaptTo(ComponentType.class);
+
+    assertEquals("/libs/components/super-type", componentType.findComponentSuperType().getPath());
+  }
+
+  @Test
+  public void testFindComponentSuperTypeWhenDoesNotExist() {
+    componentProperties.put("sling:resourceSuperType", "components/super-type");
+    resource = context.create().resource("/apps/component", componentProperties);
+
+    componentType = resource.adaptTo(ComponentType.class);
+
+    assertNull(componentType.findComponentSuperType());
+  }
+
+  @Test
+  public void testFindComponentSuperTypeWhenSuperTypeIsNotComponentType() {
+    componentProperties.put("sling:resourceSuperType", "/apps/components/super-type");
+    resource = context.create().resource("/apps/component", componentProperties);
+    context.create().resource("/apps/components/super-type");
+
+    componentType = resource.adaptTo(ComponentType.class);
+
+    assertNull(componentType.findComponentSuperType());
+  }
+
+  @Test
+  public void testFindCommonUiFrameworkViewWhenMissing() {
+    resource = context.create().resource("/apps/component", componentProperties);
+
+    componentType = resource.adaptTo(ComponentType.class);
+
+    assertNull(componentType.findCommonUiFrameworkView());
+  }
+
+  @Test
+  public void testFindCommonUiFrameworkViewWhenOnlyLibsViewExists() {
+    resource = context.create().resource("/apps/component", componentProperties);
+    context.create().resource("/libs/component", componentProperties);
+    context.create().resource("/libs/component/common", componentFrameworkViewProperties);
+
+    componentType = resource.adaptTo(ComponentType.class);
+
+    assertEquals("/libs/component/common", componentType.findCommonUiFrameworkView().getPath());
+  }
 }
\ No newline at end of file
@@ -21,10 +21,13 @@ package io.kestros.cms.foundation.componenttypes;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
 import io.kestros.commons.structuredslingmodels.validation.ModelValidationMessageType;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.sling.api.resource.Resource;
@@ -155,6 +158,37 @@ public class ComponentTypeValidationServiceTest {
         validationService.doesSuperTypeKestrosParentComponent().getType());
   }
 
+  @Test
+  public void testDoesSuperTypeKestrosParentComponentWhenSuperTypesAreCyclic() {
+    properties.put("sling:resourceSuperType", "/component-type");
+    context.create().resource("/component-type-parent", properties);
+
+    properties.put("sling:resourceSuperType", "/component-type-parent");
+    resource = context.create().resource("/component-type", properties);
+    componentType = resource.adaptTo(ComponentType.class);
+
+    when(validationService.getModel()).thenReturn(componentType);
+
+    assertFalse(validationService.doesSuperTypeKestrosParentComponent().isValid());
+  }
+
+  @Test
+  public void testDoesSuperTypeKestrosParentComponentWhenHierarchyServiceContainsComponentType() {
+    final ComponentTypeHierarchyService hierarchyService = mock(
+        ComponentTypeHierarchyService.class);
+    when(hierarchyService.contains("/component-type")).thenReturn(true);
+    when(hierarchyService.getAncestorPaths("/component-type")).thenReturn(
+        Collections.singletonList("/libs/kestros/commons/components/kestros-parent"));
+    context.registerService(ComponentTypeHierarchyService.class, hierarchyService);
+
+    resource = context.create().resource("/component-type", properties);
+    componentType = resource.adaptTo(ComponentType.class);
+
+    when(validationService.getModel()).thenReturn(componentType);
+
+    assertTrue(validationService.doesSuperTypeKestrosParentComponent().isValid());
+  }
+
   @Test
   public void testIsValidAcrossAllUiFrameworksOrBypassUiFrameworkValidationWhenHasFrameworkViews() {
     context.create().resource("/component-type-parent", properties);
@@ -346,6 +380,23 @@ public class ComponentTypeValidationServiceTest {
         validationService.doesNotSuperTypeItself().getType());
   }
 
+  @Test
+  public void testDoesNotSuperTypeItselfWhenHierarchyServiceFindsCycle() {
+    final ComponentTypeHierarchyService hierarchyService = mock(
+        ComponentTypeHierarchyService.class);
+    when(hierarchyService.contains("/component-type")).thenReturn(true);
+    when(hierarchyService.isCyclic("/component-type")).thenReturn(true);
+    context.registerService(ComponentTypeHierarchyService.class, hierarchyService);
+
+    properties.put("sling:resourceSuperType", "/component-type-parent");
+    resource = context.create().resource("/component-type", properties);
+    componentType = resource.adaptTo(ComponentType.class);
+
+    when(validationService.getModel()).thenReturn(componentType);
+
+    assertFalse(validationService.doesNotSuperTypeItself().isValid());
+  }
+
   @Test
   public void testHasFontAwesomeIcon() {
     properties.put("fontAwesomeIcon", "icon");
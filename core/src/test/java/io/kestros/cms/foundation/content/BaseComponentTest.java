@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 
 import io.kestros.cms.foundation.content.components.contentarea.ContentArea;
 import io.kestros.cms.foundation.exceptions.InvalidComponentTypeException;
+import io.kestros.cms.foundation.services.componenttyperesolution.impl.BaseComponentTypeResolutionService;
 import io.kestros.cms.foundation.services.themeprovider.ThemeProviderService;
 import io.kestros.cms.user.KestrosUser;
 import io.kestros.cms.user.exceptions.UserRetrievalException;
@@ -40,6 +41,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
 import org.junit.Before;
@@ -139,6 +141,46 @@ public class BaseComponentTest {
     assertEquals("/libs/component", baseComponent.getComponentType().getPath());
   }
 
+  @Test
+  public void testGetComponentTypeWhenResolutionServiceIsRegistered()
+      throws InvalidComponentTypeException {
+    context.registerInjectActivateService(getComponentTypeResolutionService());
+    Map<String, Object> componentTypeProperties = new HashMap<>();
+    componentTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+
+    properties.put("sling:resourceType", "component");
+
+    context.create().resource("/apps/component", componentTypeProperties);
+    context.create().resource("/libs/component", componentTypeProperties);
+    resource = context.create().resource("/resource", properties);
+
+    baseComponent = resource.adaptTo(BaseComponent.class);
+
+    assertEquals("/apps/component", baseComponent.getComponentType().getPath());
+  }
+
+  @Test
+  public void testGetComponentTypeWhenResolutionServiceIsRegisteredAndComponentTypeIsInvalid() {
+    context.registerInjectActivateService(getComponentTypeResolutionService());
+
+    properties.put("sling:resourceType", "component");
+
+    context.create().resource("/libs/component", new HashMap<>());
+    resource = context.create().resource("/resource", properties);
+
+    baseComponent = resource.adaptTo(BaseComponent.class);
+
+    try {
+      baseComponent.getComponentType();
+    } catch (InvalidComponentTypeException e) {
+      exception = e;
+    }
+    assertEquals(
+        "Unable to adapt 'component' to ComponentType for resource /resource. Invalid or missing "
+        + "ComponentType resource.",
+        exception.getMessage());
+  }
+
   @Test
   public void testGetComponentTypeWhenComponentTypeIsInvalid() {
     Map<String, Object> componentTypeProperties = new HashMap<>();
@@ -161,6 +203,33 @@ public class BaseComponentTest {
         exception.getMessage());
   }
 
+  @Test
+  public void testFindComponentType() {
+    Map<String, Object> componentTypeProperties = new HashMap<>();
+    componentTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+
+    properties.put("sling:resourceType", "component");
+
+    context.create().resource("/libs/component", componentTypeProperties);
+    resource = context.create().resource("/resource", properties);
+
+    baseComponent = resource.adaptTo(BaseComponent.class);
+
+    assertEquals("/libs/component", baseComponent.findComponentType().getPath());
+  }
+
+  @Test
+  public void testFindComponentTypeWhenComponentTypeIsInvalid() {
+    properties.put("sling:resourceType", "component");
+
+    context.create().resource("/libs/component", new HashMap<>());
+    resource = context.create().resource("/resource", properties);
+
+    baseComponent = resource.adaptTo(BaseComponent.class);
+
+    assertNull(baseComponent.findComponentType());
+  }
+
   @Test
   public void testGetContainingPage()
       throws InvalidResourceTypeException, NoValidAncestorException {
@@ -399,4 +468,17 @@ public class BaseComponentTest {
 
     assertNull(baseComponent.getCreatedBy());
   }
-}
\ No newline at end of file
+
+  /**
+   * Resolution service which resolves with the caller's ResourceResolver, as content created in
+   * tests is only visible to it.
+   */
+  private static BaseComponentTypeResolutionService getComponentTypeResolutionService() {
+    return new BaseComponentTypeResolutionService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return null;
+      }
+    };
+  }
+}
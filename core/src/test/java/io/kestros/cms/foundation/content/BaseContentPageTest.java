@@ -33,6 +33,7 @@ import io.kestros.cms.foundation.services.themeprovider.ThemeProviderService;
 import io.kestros.cms.user.KestrosUser;
 import io.kestros.cms.user.services.KestrosUserService;
 import io.kestros.commons.structuredslingmodels.exceptions.InvalidResourceTypeException;
+import io.kestros.commons.structuredslingmodels.exceptions.NoParentResourceException;
 import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import java.util.Date;
 import java.util.HashMap;
@@ -648,4 +649,32 @@ public class BaseContentPageTest {
     assertEquals("fa fa-file", baseContentPage.getFontAwesomeIcon());
   }
 
+  @Test
+  public void testFindParent() {
+    siteProperties.put("jcr:primaryType", "kes:Site");
+    context.create().resource("/content/site", siteProperties);
+    context.create().resource("/content/site/parent-page", pageProperties);
+    resource = context.create().resource("/content/site/parent-page/page", pageProperties);
+
+    baseContentPage = resource.adaptTo(BaseContentPage.class);
+
+    assertEquals("/content/site/parent-page", baseContentPage.findParent().getPath());
+    assertEquals("/content/site", baseContentPage.findParent().findParent().getPath());
+  }
+
+  @Test
+  public void testFindParentWhenParentIsNotAPage() {
+    assertNull(baseContentPage.findParent());
+  }
+
+  @Test
+  public void testGetParentWhenParentIsNotAPage() {
+    try {
+      baseContentPage.getParent();
+    } catch (final NoParentResourceException e) {
+      exception = e;
+    }
+    assertEquals("Unable to retrieve parent page of /content/page.", exception.getMessage());
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.design.theme.Theme;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PageRenderContextTest {
+
+  @Rule
+  public final SlingContext context = new SlingContext();
+
+  private SlingHttpServletRequest request;
+
+  private PageRenderContext pageRenderContext;
+
+  private Map<String, Object> pageProperties = new HashMap<>();
+  private Map<String, Object> pageContentProperties = new HashMap<>();
+  private Map<String, Object> uiFrameworkProperties = new HashMap<>();
+  private Map<String, Object> themeProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    pageProperties.put("jcr:primaryType", "kes:Page");
+    pageContentProperties.put("kes:theme", "/etc/ui-frameworks/my-framework/themes/my-theme");
+    uiFrameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    uiFrameworkProperties.put("kes:uiFrameworkCode", "my-framework");
+    themeProperties.put("jcr:primaryType", "kes:Theme");
+
+    context.create().resource("/etc/ui-frameworks/my-framework", uiFrameworkProperties);
+    context.create().resource("/etc/ui-frameworks/my-framework/themes/my-theme", themeProperties);
+    context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageContentProperties);
+
+    request = spy(context.request());
+    when(request.getRequestURI()).thenReturn("/content/page.html");
+  }
+
+  @Test
+  public void testGetPageRenderContext() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertSame(pageRenderContext, PageRenderContext.getPageRenderContext(request));
+    assertSame(pageRenderContext, request.getAttribute(PageRenderContext.REQUEST_ATTRIBUTE));
+  }
+
+  @Test
+  public void testGetPageRenderContextWhenRequestUriChanges() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    when(request.getRequestURI()).thenReturn("/content/other-page.html");
+
+    assertNotSame(pageRenderContext, PageRenderContext.getPageRenderContext(request));
+  }
+
+  @Test
+  public void testGetPage() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertEquals("/content/page", pageRenderContext.getPage().getPath());
+    assertSame(pageRenderContext.getPage(), pageRenderContext.getPage());
+  }
+
+  @Test
+  public void testGetPageWhenJcrContentRequest() {
+    when(request.getRequestURI()).thenReturn("/content/page/jcr:content.html");
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertEquals("/content/page", pageRenderContext.getPage().getPath());
+  }
+
+  @Test
+  public void testGetPageWhenPageNotFound() {
+    when(request.getRequestURI()).thenReturn("/content/missing.html");
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertNull(pageRenderContext.getPage());
+    assertNull(pageRenderContext.getTheme());
+    assertNull(pageRenderContext.getUiFramework());
+  }
+
+  @Test
+  public void testGetTheme() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertEquals("/etc/ui-frameworks/my-framework/themes/my-theme",
+        pageRenderContext.getTheme().getPath());
+    assertSame(pageRenderContext.getTheme(), pageRenderContext.getTheme());
+  }
+
+  @Test
+  public void testGetUiFramework() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertEquals("/etc/ui-frameworks/my-framework", pageRenderContext.getUiFramework().getPath());
+  }
+
+  @Test
+  public void testGetParameterUiFramework() {
+    when(request.getParameter("ui-framework")).thenReturn("my-framework");
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertEquals("/etc/ui-frameworks/my-framework",
+        pageRenderContext.getParameterUiFramework().getPath());
+  }
+
+  @Test
+  public void testGetParameterUiFrameworkWhenNoMatch() {
+    when(request.getParameter("ui-framework")).thenReturn("other-framework");
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertNull(pageRenderContext.getParameterUiFramework());
+  }
+
+  @Test
+  public void testGetParameterUiFrameworkWhenNoParameter() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+
+    assertNull(pageRenderContext.getParameterUiFramework());
+  }
+
+  @Test
+  public void testSetEditTheme() {
+    pageRenderContext = PageRenderContext.getPageRenderContext(request);
+    assertNull(pageRenderContext.getEditTheme());
+
+    final Theme theme = context.resourceResolver().getResource(
+        "/etc/ui-frameworks/my-framework/themes/my-theme").adaptTo(Theme.class);
+    pageRenderContext.setEditTheme(theme);
+
+    assertSame(theme, pageRenderContext.getEditTheme());
+    assertSame(theme, PageRenderContext.getPageRenderContext(request).getEditTheme());
+  }
+
+}
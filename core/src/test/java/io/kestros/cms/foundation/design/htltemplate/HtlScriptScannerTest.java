@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class HtlScriptScannerTest {
+
+  @Test
+  public void testFindTemplateElements() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<template data-sly-template.One=\"${ @ text}\" data-title=\"One\"><p>${text}</p>"
+        + "</template>\n<div>Not a template</div>\n"
+        + "<sly data-sly-template.two=\"${ @ title}\"><h1>${title}</h1></sly>");
+
+    assertEquals(2, elements.size());
+    assertEquals("${ @ text}", elements.get(0).getAttribute("data-sly-template.one"));
+    assertEquals("One", elements.get(0).getAttribute("data-title"));
+    assertEquals("<template data-sly-template.One=\"${ @ text}\" data-title=\"One\"><p>${text}</p>"
+                 + "</template>", elements.get(0).getSource());
+    assertEquals("<sly data-sly-template.two=\"${ @ title}\"><h1>${title}</h1></sly>",
+        elements.get(1).getSource());
+  }
+
+  @Test
+  public void testFindTemplateElementsWhenNested() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<template data-sly-template.outer=\"${ @ text}\"><div><div>"
+        + "<template data-sly-template.inner=\"${ @ text}\"></template></div></div></template>");
+
+    assertEquals(1, elements.size());
+    assertEquals("${ @ text}", elements.get(0).getAttribute("data-sly-template.outer"));
+    assertNull(elements.get(0).getAttribute("data-sly-template.inner"));
+  }
+
+  @Test
+  public void testFindTemplateElementsWhenDocumentElementsArePresent() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<html><head></head><body><template data-sly-template.one=\"${ @ text}\"></template>"
+        + "</body></html>");
+
+    assertEquals(1, elements.size());
+    assertEquals("<template data-sly-template.one=\"${ @ text}\"></template>",
+        elements.get(0).getSource());
+  }
+
+  @Test
+  public void testFindTemplateElementsSkipsCommentsAndRawText() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<!--/* <template data-sly-template.comment=\"${ @ text}\"></template> */-->"
+        + "<template data-sly-template.one=\"${ @ text}\"><script>var html = '</template>';"
+        + "</script><br><img src=\"${text}\"/></template>");
+
+    assertEquals(1, elements.size());
+    assertEquals("<template data-sly-template.one=\"${ @ text}\"><script>var html = "
+                 + "'</template>';</script><br><img src=\"${text}\"/></template>",
+        elements.get(0).getSource());
+  }
+
+  @Test
+  public void testFindTemplateElementsWhenUnclosed() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<template data-sly-template.one=\"${ @ text}\"><p>${text}");
+
+    assertEquals(1, elements.size());
+    assertEquals("<template data-sly-template.one=\"${ @ text}\"><p>${text}",
+        elements.get(0).getSource());
+  }
+
+  @Test
+  public void testFindTemplateElementsDecodesAttributeValues() {
+    final List<HtlScriptElement> elements = HtlScriptScanner.findTemplateElements(
+        "<template data-sly-template.one='${ @ text}' data-title=\"Cards &amp; Lists\" "
+        + "data-text-description=${'Text' @ i18n} hidden></template>");
+
+    assertEquals("${ @ text}", elements.get(0).getAttribute("data-sly-template.one"));
+    assertEquals("Cards & Lists", elements.get(0).getAttribute("data-title"));
+    assertEquals("${'Text' @ i18n}", elements.get(0).getAttribute("data-text-description"));
+    assertEquals("", elements.get(0).getAttribute("hidden"));
+  }
+
+  @Test
+  public void testFindTemplateElementsWhenNoTemplates() {
+    assertEquals(0, HtlScriptScanner.findTemplateElements("<p>123</p>").size());
+    assertEquals(0, HtlScriptScanner.findTemplateElements("").size());
+  }
+
+  @Test
+  public void testFindCallExpressions() {
+    assertEquals(Arrays.asList("${templates.card @ title=title}", "${templates.button}"),
+        HtlScriptScanner.findCallExpressions(
+            "<div class=\"card\"><sly data-sly-call=\"${templates.card @ title=title}\"/>"
+            + "<!-- <sly data-sly-call=\"${templates.commented}\"/> -->"
+            + "<ul><li><sly DATA-SLY-CALL=\"${templates.button}\"></sly></li></ul></div>"));
+  }
+
+  @Test
+  public void testFindCallExpressionsWhenNoCalls() {
+    assertEquals(Collections.emptyList(), HtlScriptScanner.findCallExpressions(
+        "<div data-sly-call-other=\"${templates.card}\" data-sly-use.templates=\"core.html\">"
+        + "</div>"));
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HtlTemplateCatalogTest {
+
+  private HtlTemplateCatalog catalog;
+
+  private HtlTemplate templateOne;
+
+  private HtlTemplate templateTwo;
+
+  private HtlTemplate duplicateTemplateOne;
+
+  @Before
+  public void setUp() throws Exception {
+    templateOne = mockTemplate("templateOne", "/etc/ui-frameworks/framework/templates/file-a");
+    templateTwo = mockTemplate("templatetwo", "/etc/ui-frameworks/framework/templates/file-a");
+    duplicateTemplateOne = mockTemplate("TemplateOne",
+        "/etc/vendor-libraries/library/templates/file-b");
+
+    catalog = new HtlTemplateCatalog(Arrays.asList(templateOne, templateTwo,
+        duplicateTemplateOne));
+  }
+
+  @Test
+  public void testGetTemplates() {
+    assertEquals(3, catalog.getTemplates().size());
+  }
+
+  @Test
+  public void testGetTemplate() {
+    assertEquals(templateOne, catalog.getTemplate("templateone"));
+    assertEquals(templateOne, catalog.getTemplate("TEMPLATEONE"));
+    assertEquals(templateTwo, catalog.getTemplate("templateTwo"));
+  }
+
+  @Test
+  public void testGetTemplateWhenMissing() {
+    assertNull(catalog.getTemplate("missing"));
+    assertNull(catalog.getTemplate(null));
+  }
+
+  @Test
+  public void testGetSourcePath() {
+    assertEquals("/etc/ui-frameworks/framework/templates/file-a",
+        catalog.getSourcePath("templateOne"));
+    assertNull(catalog.getSourcePath("missing"));
+  }
+
+  @Test
+  public void testGetDuplicateTemplateSourcePaths() {
+    assertEquals(1, catalog.getDuplicateTemplateSourcePaths().size());
+    assertEquals(Arrays.asList("/etc/ui-frameworks/framework/templates/file-a",
+        "/etc/vendor-libraries/library/templates/file-b"),
+        catalog.getDuplicateTemplateSourcePaths().get("templateone"));
+  }
+
+  @Test
+  public void testGetDuplicateTemplateSourcePathsWhenNamesAreUnique() {
+    catalog = new HtlTemplateCatalog(Arrays.asList(templateOne, templateTwo));
+
+    assertTrue(catalog.getDuplicateTemplateSourcePaths().isEmpty());
+  }
+
+  @Test
+  public void testGetSize() {
+    assertEquals(2, catalog.getSize());
+    assertEquals(0, new HtlTemplateCatalog(Collections.emptyList()).getSize());
+  }
+
+  private static HtlTemplate mockTemplate(final String name, final String sourcePath) {
+    final HtlTemplate template = mock(HtlTemplate.class);
+    when(template.getName()).thenReturn(name);
+    when(template.getSourcePath()).thenReturn(sourcePath);
+    return template;
+  }
+
+}
@@ -19,14 +19,20 @@
 package io.kestros.cms.foundation.design.htltemplate;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 
+import io.kestros.cms.foundation.services.cache.htltemplate.ParsedHtlTemplateCacheService;
+import io.kestros.cms.foundation.services.cache.htltemplate.impl.BaseParsedHtlTemplateCacheService;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
 import org.junit.Before;
@@ -101,4 +107,62 @@ public class HtlTemplateFileTest {
 
     assertEquals(0, htlTemplateFile.getTemplates().size());
   }
+
+  @Test
+  public void getRevision() {
+    final Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(1000);
+    jcrContentProperties.put("jcr:lastModified", lastModified);
+    jcrContentProperties.put("jcr:data", new ByteArrayInputStream("<p>123</p>".getBytes()));
+
+    resource = context.create().resource("/template-file", properties);
+    context.create().resource("/template-file/jcr:content", jcrContentProperties);
+    htlTemplateFile = resource.adaptTo(HtlTemplateFile.class);
+
+    assertEquals("1000", htlTemplateFile.getRevision());
+  }
+
+  @Test
+  public void getRevisionWhenLastModifiedIsMissing() {
+    jcrContentProperties.put("jcr:data", new ByteArrayInputStream("<p>123</p>".getBytes()));
+
+    resource = context.create().resource("/template-file", properties);
+    context.create().resource("/template-file/jcr:content", jcrContentProperties);
+    htlTemplateFile = resource.adaptTo(HtlTemplateFile.class);
+
+    assertEquals(64, htlTemplateFile.getRevision().length());
+  }
+
+  @Test
+  public void getTemplatesWhenParsedHtlTemplateCacheServiceIsRegistered() {
+    final BaseParsedHtlTemplateCacheService parsedHtlTemplateCacheService
+        = new BaseParsedHtlTemplateCacheService();
+    context.registerService(ParsedHtlTemplateCacheService.class, parsedHtlTemplateCacheService);
+
+    final Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(1000);
+    jcrContentProperties.put("jcr:lastModified", lastModified);
+    jcrContentProperties.put("jcr:data", new ByteArrayInputStream(
+        "<template data-sly-template.testTemplateOne=\"${ @ text}\"></template>".getBytes()));
+
+    resource = context.create().resource("/template-file", properties);
+    context.create().resource("/template-file/jcr:content", jcrContentProperties);
+
+    final HtlTemplate template = resource.adaptTo(HtlTemplateFile.class).getTemplates().get(0);
+    assertSame(template, resource.adaptTo(HtlTemplateFile.class).getTemplates().get(0));
+    assertEquals(1, parsedHtlTemplateCacheService.getSize());
+
+    final ModifiableValueMap contentProperties = context.resourceResolver().getResource(
+        "/template-file/jcr:content").adaptTo(ModifiableValueMap.class);
+    lastModified.setTimeInMillis(2000);
+    contentProperties.put("jcr:lastModified", lastModified);
+    contentProperties.put("jcr:data", new ByteArrayInputStream(
+        "<template data-sly-template.testTemplateTwo=\"${ @ text}\"></template>".getBytes()));
+
+    final HtlTemplate changedTemplate = resource.adaptTo(HtlTemplateFile.class).getTemplates().get(
+        0);
+    assertNotSame(template, changedTemplate);
+    assertEquals("testtemplatetwo", changedTemplate.getName());
+    assertEquals(1, parsedHtlTemplateCacheService.getSize());
+  }
 }
\ No newline at end of file
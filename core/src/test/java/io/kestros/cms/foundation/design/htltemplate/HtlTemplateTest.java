@@ -19,6 +19,7 @@
 package io.kestros.cms.foundation.design.htltemplate;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -114,6 +115,13 @@ public class HtlTemplateTest {
     assertEquals("<p>${text}</p>", htlTemplate.getHtmlOutput());
   }
 
+  @Test
+  public void getTemplateParameter() {
+    assertEquals("text", htlTemplate.getTemplateParameter("TEXT").getName());
+    assertNull(htlTemplate.getTemplateParameter("missing"));
+    assertNull(htlTemplate.getTemplateParameter(null));
+  }
+
   @Test
   public void getVariables() {
     assertEquals(1, htlTemplate.getParameterNames().size());
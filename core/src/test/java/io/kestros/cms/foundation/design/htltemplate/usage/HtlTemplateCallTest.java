@@ -0,0 +1,60 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.design.htltemplate.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class HtlTemplateCallTest {
+
+  @Test
+  public void testParse() {
+    final HtlTemplateCall templateCall = HtlTemplateCall.parse(
+        "${templates.card @ title=properties.title, text = properties.text}",
+        "/apps/component/common/content.html");
+
+    assertEquals("card", templateCall.getTemplateName());
+    assertEquals(Arrays.asList("title", "text"), templateCall.getParameterNames());
+    assertEquals("/apps/component/common/content.html", templateCall.getScriptPath());
+    assertEquals("/apps/component/common", templateCall.getViewPath());
+  }
+
+  @Test
+  public void testParseWhenNoParameters() {
+    final HtlTemplateCall templateCall = HtlTemplateCall.parse("${templates.card}",
+        "/apps/component/common/content.html");
+
+    assertEquals("card", templateCall.getTemplateName());
+    assertEquals(0, templateCall.getParameterNames().size());
+  }
+
+  @Test
+  public void testParseWhenNotCallingTemplatesObject() {
+    assertNull(HtlTemplateCall.parse("${lib.card @ title=properties.title}",
+        "/apps/component/common/content.html"));
+  }
+
+  @Test
+  public void testGetViewPathWhenScriptPathIsEmpty() {
+    assertEquals("", HtlTemplateCall.parse("${templates.card}", "").getViewPath());
+  }
+
+}
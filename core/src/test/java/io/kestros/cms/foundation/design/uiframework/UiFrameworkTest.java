@@ -538,4 +538,13 @@ public class UiFrameworkTest {
         uiFramework.getTemplatesPath());
   }
 
-}
\ No newline at end of file
+  @Test(expected = ResourceNotFoundException.class)
+  public void testGetTemplatesPathWhenCompiledTemplatesAreNotBuilt()
+      throws ResourceNotFoundException {
+    resource = context.create().resource("/etc/ui-frameworks/ui-framework", properties);
+    uiFramework = resource.adaptTo(UiFramework.class);
+
+    uiFramework.getTemplatesPath();
+  }
+
+}
@@ -72,7 +72,21 @@ public class UiFrameworkValidationServiceTest {
     when(validationService.getGenericModel()).thenReturn(uiFramework);
 
     validationService.registerBasicValidators();
-    assertEquals(10, validationService.getBasicValidators().size());
+    assertEquals(11, validationService.getBasicValidators().size());
+  }
+
+  @Test
+  public void testIsTemplateNamesUnique() {
+    resource = context.create().resource("/ui-framework", properties);
+
+    uiFramework = resource.adaptTo(UiFramework.class);
+
+    when(validationService.getGenericModel()).thenReturn(uiFramework);
+
+    assertTrue(validationService.isTemplateNamesUnique().isValid());
+    assertEquals("HTL Template names are unique.",
+        validationService.isTemplateNamesUnique().getMessage());
+    assertEquals(WARNING, validationService.isTemplateNamesUnique().getType());
   }
 
   @Test
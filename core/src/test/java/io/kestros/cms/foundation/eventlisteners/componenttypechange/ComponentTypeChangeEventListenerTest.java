@@ -0,0 +1,154 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.eventlisteners.componenttypechange;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.services.componenttypehierarchy.ComponentTypeHierarchyService;
+import io.kestros.cms.foundation.services.componenttyperesolution.ComponentTypeResolutionService;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentTypeService;
+import io.kestros.cms.foundation.services.htltemplateusage.HtlTemplateUsageIndexService;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ComponentTypeChangeEventListenerTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private ComponentTypeChangeEventListener eventListener;
+
+  private ComponentTypeResolutionService resolutionService;
+
+  private EffectiveComponentTypeService effectiveComponentTypeService;
+
+  private ComponentTypeHierarchyService hierarchyService;
+
+  private HtlTemplateUsageIndexService usageIndexService;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    resolutionService = mock(ComponentTypeResolutionService.class);
+    context.registerService(ComponentTypeResolutionService.class, resolutionService);
+    effectiveComponentTypeService = mock(EffectiveComponentTypeService.class);
+    context.registerService(EffectiveComponentTypeService.class, effectiveComponentTypeService);
+    hierarchyService = mock(ComponentTypeHierarchyService.class);
+    context.registerService(ComponentTypeHierarchyService.class, hierarchyService);
+    usageIndexService = mock(HtlTemplateUsageIndexService.class);
+    context.registerService(HtlTemplateUsageIndexService.class, usageIndexService);
+
+    eventListener = new ComponentTypeChangeEventListener();
+    context.registerInjectActivateService(eventListener);
+  }
+
+  @Test
+  public void testGetComponentTypeResolutionServices() {
+    assertEquals(1, eventListener.getComponentTypeResolutionServices().size());
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeServices() {
+    assertEquals(1, eventListener.getEffectiveComponentTypeServices().size());
+  }
+
+  @Test
+  public void testGetComponentTypeHierarchyServices() {
+    assertEquals(1, eventListener.getComponentTypeHierarchyServices().size());
+  }
+
+  @Test
+  public void testGetHtlTemplateUsageIndexServices() {
+    assertEquals(1, eventListener.getHtlTemplateUsageIndexServices().size());
+  }
+
+  @Test
+  public void testOnChange() {
+    eventListener.onChange(Arrays.asList(
+        new ResourceChange(ChangeType.ADDED, "/apps/component", false),
+        new ResourceChange(ChangeType.REMOVED, "/libs/other-component", false)));
+
+    verify(resolutionService, times(1)).purge("/apps/component");
+    verify(resolutionService, times(1)).purge("/libs/other-component");
+    verify(effectiveComponentTypeService, times(1)).purge("/apps/component");
+    verify(effectiveComponentTypeService, times(1)).purge("/libs/other-component");
+    verify(effectiveComponentTypeService, never()).purgeAll();
+    verify(hierarchyService, times(1)).update(
+        Arrays.asList("/apps/component", "/libs/other-component"));
+    verify(usageIndexService, times(1)).update(
+        Arrays.asList("/apps/component", "/libs/other-component"));
+  }
+
+  @Test
+  public void testOnChangePurgesDescendantComponentTypes() {
+    when(hierarchyService.getDescendantPaths("/apps/component")).thenReturn(
+        Collections.singleton("/apps/child-component"));
+
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.ADDED, "/apps/component", false)));
+
+    verify(effectiveComponentTypeService, times(1)).purge("/apps/component");
+    verify(effectiveComponentTypeService, times(1)).purge("/apps/child-component");
+    verify(resolutionService, never()).purge("/apps/child-component");
+  }
+
+  @Test
+  public void testOnChangeWhenUiFrameworkChanges() {
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/ui-frameworks/framework", false)));
+
+    verify(effectiveComponentTypeService, times(1)).purgeAll();
+    verify(resolutionService, never()).purge("/etc/ui-frameworks/framework");
+    verify(hierarchyService, never()).update(Collections.singletonList(
+        "/etc/ui-frameworks/framework"));
+    verify(usageIndexService, never()).update(Collections.singletonList(
+        "/etc/ui-frameworks/framework"));
+  }
+
+  @Test
+  public void testOnChangeWhenUiFrameworkTemplateChanges() {
+    eventListener.onChange(Collections.singletonList(new ResourceChange(ChangeType.CHANGED,
+        "/libs/kestros/ui-frameworks/framework/templates/template.html", false)));
+
+    verify(effectiveComponentTypeService, never()).purgeAll();
+    verify(effectiveComponentTypeService, never()).purge(
+        "/libs/kestros/ui-frameworks/framework/templates/template.html");
+  }
+
+  @Test
+  public void testOnChangeWhenCompiledHtlTemplatesChange() {
+    eventListener.onChange(Collections.singletonList(new ResourceChange(ChangeType.ADDED,
+        "/apps/kestros/cache/compiled-htl-templates/etc/ui-frameworks/framework.html", false)));
+
+    verify(resolutionService, never()).purge(
+        "/apps/kestros/cache/compiled-htl-templates/etc/ui-frameworks/framework.html");
+  }
+
+}
@@ -21,9 +21,16 @@ package io.kestros.cms.foundation.eventlisteners.htltemplatecachepurge;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import io.kestros.cms.foundation.services.cache.htltemplate.HtlTemplateCacheService;
+import io.kestros.cms.foundation.services.cache.htltemplate.ParsedHtlTemplateCacheService;
+import java.util.Arrays;
+import java.util.Collections;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
 import org.junit.Before;
 import org.junit.Rule;
@@ -38,6 +45,8 @@ public class HtlTemplateCachePurgeEventListenerTest {
 
   private HtlTemplateCacheService htlTemplateCacheService;
 
+  private ParsedHtlTemplateCacheService parsedHtlTemplateCacheService;
+
   private ResourceResolverFactory resourceResolverFactory;
 
   @Before
@@ -46,7 +55,10 @@ public class HtlTemplateCachePurgeEventListenerTest {
     htlTemplateCacheService = mock(HtlTemplateCacheService.class);
     resourceResolverFactory = mock(ResourceResolverFactory.class);
 
+    parsedHtlTemplateCacheService = mock(ParsedHtlTemplateCacheService.class);
+
     context.registerService(HtlTemplateCacheService.class, htlTemplateCacheService);
+    context.registerService(ParsedHtlTemplateCacheService.class, parsedHtlTemplateCacheService);
 
     context.registerInjectActivateService(eventListener);
   }
@@ -56,6 +68,26 @@ public class HtlTemplateCachePurgeEventListenerTest {
     assertEquals(htlTemplateCacheService, eventListener.getCacheServices().get(0));
   }
 
+  @Test
+  public void testGetParsedHtlTemplateCacheServices() {
+    assertEquals(parsedHtlTemplateCacheService,
+        eventListener.getParsedHtlTemplateCacheServices().get(0));
+  }
+
+  @Test
+  public void testOnChange() throws Exception {
+    eventListener.onChange(Arrays.asList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/vendor-libraries/library/templates/file.html",
+            false),
+        new ResourceChange(ChangeType.CHANGED, "/etc/vendor-libraries/library/templates/file.html",
+            false)));
+
+    verify(htlTemplateCacheService, times(1)).cacheChangedUiFrameworkCompiledHtlTemplates(
+        Collections.singleton("/etc/vendor-libraries/library/templates/file.html"));
+    verify(parsedHtlTemplateCacheService, times(1)).purge(
+        "/etc/vendor-libraries/library/templates/file.html");
+  }
+
   @Test
   public void testGetResourceResolverFactory() {
     assertNotNull(eventListener.getResourceResolverFactory());
@@ -0,0 +1,137 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.eventlisteners.pagecacheinvalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
+import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PageCacheInvalidationEventListenerTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private PageCacheInvalidationEventListener eventListener;
+
+  private PageCacheDependencyService dependencyService;
+
+  private PageCacheService pageCacheService;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    dependencyService = mock(PageCacheDependencyService.class);
+    pageCacheService = mock(PageCacheService.class);
+
+    context.registerService(PageCacheDependencyService.class, dependencyService);
+    context.registerService(PageCacheService.class, pageCacheService);
+
+    eventListener = new PageCacheInvalidationEventListener();
+    context.registerInjectActivateService(eventListener);
+  }
+
+  @Test
+  public void testGetPageCacheServices() {
+    assertEquals(1, eventListener.getPageCacheServices().size());
+  }
+
+  @Test
+  public void testOnChange() throws CachePurgeException {
+    when(dependencyService.getDependentPagePaths("/content/page/jcr:content", false)).thenReturn(
+        new HashSet<>(Arrays.asList("/content/page", "/content/page/child")));
+
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/content/page/jcr:content", false)));
+
+    verify(dependencyService, times(1)).removePage("/content/page");
+    verify(dependencyService, times(1)).removePage("/content/page/child");
+    verify(pageCacheService, times(1)).purgePage("/content/page");
+    verify(pageCacheService, times(1)).purgePage("/content/page/child");
+    verify(pageCacheService, never()).purgePage("/content/other-page");
+  }
+
+  @Test
+  public void testOnChangeWhenPageCacheWarmerIsRegistered() {
+    final PageCacheWarmerService warmerService = mock(PageCacheWarmerService.class);
+    context.registerService(PageCacheWarmerService.class, warmerService);
+    when(dependencyService.getDependentPagePaths("/content/page/jcr:content", false)).thenReturn(
+        Collections.singleton("/content/page"));
+
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/content/page/jcr:content", false)));
+
+    assertEquals(1, eventListener.getPageCacheWarmerServices().size());
+    verify(warmerService, times(1)).warmPages(Collections.singleton("/content/page"));
+  }
+
+  @Test
+  public void testOnChangeWhenRemoved() throws CachePurgeException {
+    when(dependencyService.getDependentPagePaths("/apps/my-app", true)).thenReturn(
+        Collections.singleton("/content/page"));
+
+    eventListener.onChange(
+        Collections.singletonList(new ResourceChange(ChangeType.REMOVED, "/apps/my-app", false)));
+
+    verify(pageCacheService, times(1)).purgePage("/content/page");
+  }
+
+  @Test
+  public void testOnChangeWhenNoPagesAffected() throws CachePurgeException {
+    when(dependencyService.getDependentPagePaths("/content/other-page", false)).thenReturn(
+        Collections.emptySet());
+
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.ADDED, "/content/other-page", false)));
+
+    verify(dependencyService, never()).removePage("/content/other-page");
+    verify(pageCacheService, never()).purgePage("/content/other-page");
+  }
+
+  @Test
+  public void testOnChangeWhenPurgeFails() throws CachePurgeException {
+    when(dependencyService.getDependentPagePaths("/content/page/jcr:content", false)).thenReturn(
+        new HashSet<>(Arrays.asList("/content/page", "/content/page/child")));
+    doThrow(new CachePurgeException("Purge failed.")).when(pageCacheService).purgePage(
+        "/content/page");
+
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/content/page/jcr:content", false)));
+
+    verify(pageCacheService, times(1)).purgePage("/content/page/child");
+  }
+}
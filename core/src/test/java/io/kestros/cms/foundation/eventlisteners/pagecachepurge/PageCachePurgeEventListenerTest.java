@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
 
+import io.kestros.cms.foundation.services.componenttypecache.ComponentTypeCache;
 import io.kestros.cms.foundation.services.pagecacheservice.PageCacheService;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
@@ -61,6 +62,13 @@ public class PageCachePurgeEventListenerTest {
 
   @Test
   public void testGetCacheServices() {
+    assertEquals(0, eventListener.getCacheServices().size());
+  }
+
+  @Test
+  public void testGetCacheServicesWhenComponentTypeCacheIsRegistered() {
+    context.registerService(ComponentTypeCache.class, mock(ComponentTypeCache.class));
+
     assertEquals(1, eventListener.getCacheServices().size());
   }
 
@@ -0,0 +1,107 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.eventlisteners.scriptresolutioncacheinvalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.kestros.cms.foundation.services.scriptprovider.ComponentViewScriptResolutionCacheService;
+import io.kestros.cms.foundation.services.scriptresolutiontable.ScriptResolutionTableService;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ScriptResolutionCacheInvalidationEventListenerTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private ScriptResolutionCacheInvalidationEventListener eventListener;
+
+  private ComponentViewScriptResolutionCacheService cacheService;
+
+  private ScriptResolutionTableService tableService;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    cacheService = mock(ComponentViewScriptResolutionCacheService.class);
+    context.registerService(ComponentViewScriptResolutionCacheService.class, cacheService);
+    tableService = mock(ScriptResolutionTableService.class);
+    context.registerService(ScriptResolutionTableService.class, tableService);
+
+    eventListener = new ScriptResolutionCacheInvalidationEventListener();
+    context.registerInjectActivateService(eventListener);
+  }
+
+  @Test
+  public void testGetScriptResolutionCacheServices() {
+    assertEquals(1, eventListener.getScriptResolutionCacheServices().size());
+  }
+
+  @Test
+  public void testGetScriptResolutionTableServices() {
+    assertEquals(1, eventListener.getScriptResolutionTableServices().size());
+  }
+
+  @Test
+  public void testOnChange() {
+    eventListener.onChange(Arrays.asList(
+        new ResourceChange(ChangeType.CHANGED, "/apps/component/content.html", false),
+        new ResourceChange(ChangeType.REMOVED, "/libs/other-component", false)));
+
+    verify(cacheService, times(1)).purgeComponentType("/apps/component/content.html");
+    verify(cacheService, times(1)).purgeComponentType("/libs/other-component");
+    verify(tableService, times(1)).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenUiFrameworkChanges() {
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/ui-frameworks/framework", false)));
+
+    verify(tableService, times(1)).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenCompiledHtlTemplatesChange() {
+    eventListener.onChange(Collections.singletonList(new ResourceChange(ChangeType.ADDED,
+        "/apps/kestros/cache/compiled-htl-templates/etc/ui-frameworks/framework.html", false)));
+
+    verify(tableService, never()).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenOtherEtcResourceChanges() {
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/vendor-libraries/library", false)));
+
+    verify(tableService, never()).rebuild();
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.eventlisteners.uiframeworkregistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class UiFrameworkRegistryEventListenerTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private UiFrameworkRegistryEventListener eventListener;
+
+  private UiFrameworkRegistryService registryService;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    registryService = mock(UiFrameworkRegistryService.class);
+    context.registerService(UiFrameworkRegistryService.class, registryService);
+
+    eventListener = new UiFrameworkRegistryEventListener();
+    context.registerInjectActivateService(eventListener);
+  }
+
+  @Test
+  public void testGetUiFrameworkRegistryServices() {
+    assertEquals(1, eventListener.getUiFrameworkRegistryServices().size());
+  }
+
+  @Test
+  public void testOnChange() {
+    eventListener.onChange(Arrays.asList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/ui-frameworks/framework", false),
+        new ResourceChange(ChangeType.ADDED, "/libs/kestros/ui-frameworks/framework", false)));
+
+    verify(registryService, times(1)).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenUiFrameworkContentChanges() {
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/ui-frameworks/framework/jcr:content",
+            false)));
+
+    verify(registryService, times(1)).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenNestedResourceChanges() {
+    eventListener.onChange(Collections.singletonList(new ResourceChange(ChangeType.CHANGED,
+        "/etc/ui-frameworks/framework/templates/template.html", false)));
+
+    verify(registryService, never()).rebuild();
+  }
+
+  @Test
+  public void testOnChangeWhenOtherResourceChanges() {
+    eventListener.onChange(Collections.singletonList(
+        new ResourceChange(ChangeType.CHANGED, "/etc/vendor-libraries/library", false)));
+
+    verify(registryService, never()).rebuild();
+  }
+
+}
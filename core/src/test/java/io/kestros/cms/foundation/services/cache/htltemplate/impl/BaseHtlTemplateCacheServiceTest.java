@@ -19,11 +19,18 @@
 package io.kestros.cms.foundation.services.cache.htltemplate.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -33,13 +40,21 @@ import io.kestros.commons.osgiserviceutils.exceptions.CachePurgeException;
 import io.kestros.commons.structuredslingmodels.exceptions.ResourceNotFoundException;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -57,6 +72,8 @@ public class BaseHtlTemplateCacheServiceTest {
 
   private JobManager jobManager;
 
+  private ScheduledExecutorService buildExecutorService;
+
   private Map<String, Object> uiFrameworkProperties = new HashMap<>();
 
   private Map<String, Object> templatesFolderProperties = new HashMap<>();
@@ -70,7 +87,8 @@ public class BaseHtlTemplateCacheServiceTest {
     context.addModelsForPackage("io.kestros");
     resourceResolverFactory = mock(ResourceResolverFactory.class);
     jobManager = mock(JobManager.class);
-    resourceResolver = context.resourceResolver();
+    resourceResolver = spy(context.resourceResolver());
+    doNothing().when(resourceResolver).close();
 
     context.registerService(ResourceResolverFactory.class, resourceResolverFactory);
     context.registerService(JobManager.class, jobManager);
@@ -83,8 +101,18 @@ public class BaseHtlTemplateCacheServiceTest {
         "<template data-sly-template.testTemplateOne=\"${ @ text}\"></template>".getBytes());
     templateFileJcrContentProperties.put("jcr:data", templateFileInputStream);
 
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("buildOnActivation", false);
+    buildExecutorService = Executors.newSingleThreadScheduledExecutor();
     cacheService = spy(new BaseHtlTemplateCacheService());
-    context.registerInjectActivateService(cacheService);
+    doReturn(buildExecutorService).when(cacheService).createBuildExecutorService();
+    doReturn(resourceResolver).when(cacheService).openBuildResourceResolver();
+    context.registerInjectActivateService(cacheService, configuration);
+  }
+
+  @After
+  public void tearDown() {
+    buildExecutorService.shutdownNow();
   }
 
   @Test
@@ -172,11 +200,231 @@ public class BaseHtlTemplateCacheServiceTest {
     cacheService.cacheAllUiFrameworkCompiledHtlTemplates();
     verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
     cacheService.doPurge(context.resourceResolver());
+    assertTrue(cacheService.awaitCacheBuild(5000));
     verify(cacheService, times(4)).cacheUiFrameworkCompiledHtlTemplates(any());
+    assertTrue(cacheService.isReady());
+  }
+
+  @Test
+  public void testActivateStartsBuildInBackground() throws Exception {
+    final CountDownLatch buildLatch = new CountDownLatch(1);
+    final BaseHtlTemplateCacheService activatedCacheService = spy(
+        new BaseHtlTemplateCacheService());
+    doReturn(resourceResolver).when(activatedCacheService).getServiceResourceResolver();
+    doAnswer(invocation -> {
+      buildLatch.await(5, TimeUnit.SECONDS);
+      return resourceResolver;
+    }).when(activatedCacheService).openBuildResourceResolver();
+    createUiFramework();
+    context.registerInjectActivateService(activatedCacheService);
+
+    assertTrue(activatedCacheService.isBuildInProgress());
+    assertFalse(activatedCacheService.isReady());
+
+    buildLatch.countDown();
+    assertTrue(activatedCacheService.awaitCacheBuild(5000));
+    assertFalse(activatedCacheService.isBuildInProgress());
+    activatedCacheService.deactivate(context.componentContext());
+  }
+
+  @Test
+  public void testAwaitCacheBuild() {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFramework();
+
+    assertFalse(cacheService.isReady());
+    assertTrue(cacheService.scheduleCacheAllUiFrameworkCompiledHtlTemplates());
+    assertTrue(cacheService.awaitCacheBuild(5000));
+    assertTrue(cacheService.isReady());
+    assertFalse(cacheService.isBuildInProgress());
+    verify(cacheService, times(1)).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  @Test
+  public void testAwaitCacheBuildWhenReady() {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFramework();
+
+    cacheService.cacheAllUiFrameworkCompiledHtlTemplates();
+    assertTrue(cacheService.isReady());
+    assertTrue(cacheService.awaitCacheBuild(0));
+    verify(cacheService, times(1)).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  @Test
+  public void testAwaitCacheBuildRetriesFailedAttempts() throws CacheBuilderException {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    doThrow(new IllegalStateException("Not ready.")).doCallRealMethod().when(
+        cacheService).cacheUiFrameworkCompiledHtlTemplates(any());
+    createUiFramework();
+
+    assertTrue(cacheService.scheduleCacheAllUiFrameworkCompiledHtlTemplates());
+    assertTrue(cacheService.awaitCacheBuild(5000));
+    assertTrue(cacheService.isReady());
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  @Test
+  public void testAwaitCacheBuildWhenNoBuildIsInProgress() throws CacheBuilderException {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFramework();
+
+    assertFalse(cacheService.awaitCacheBuild(5000));
+    assertFalse(cacheService.isBuildInProgress());
+    verify(cacheService, never()).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  @Test
+  public void testAwaitCacheBuildWhenNotActivated() {
+    assertFalse(new BaseHtlTemplateCacheService().awaitCacheBuild(1000));
+  }
+
+  @Test
+  public void testGetCacheBuildRetryDelay() {
+    assertEquals(500, BaseHtlTemplateCacheService.getCacheBuildRetryDelay(0));
+    assertEquals(1000, BaseHtlTemplateCacheService.getCacheBuildRetryDelay(1));
+    assertEquals(16000, BaseHtlTemplateCacheService.getCacheBuildRetryDelay(5));
+    assertEquals(30000, BaseHtlTemplateCacheService.getCacheBuildRetryDelay(6));
+    assertEquals(30000, BaseHtlTemplateCacheService.getCacheBuildRetryDelay(40));
   }
 
   @Test
   public void testGetMinimumTimeBetweenCachePurges() {
     assertEquals(1000, cacheService.getMinimumTimeBetweenCachePurges());
   }
+
+  @Test
+  public void testCacheChangedUiFrameworkCompiledHtlTemplates() throws Exception {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFrameworksWithVendorLibrary();
+
+    cacheService.cacheAllUiFrameworkCompiledHtlTemplates();
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(
+        Collections.singletonList("/etc/unrelated"));
+    awaitBuildExecutor();
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(Collections.singletonList(
+        "/etc/vendor-libraries/vendor-library/templates/template-file.html/jcr:content"));
+    awaitBuildExecutor();
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+
+    final ModifiableValueMap contentProperties = resourceResolver.getResource(
+        "/etc/vendor-libraries/vendor-library/templates/template-file.html/jcr:content").adaptTo(
+        ModifiableValueMap.class);
+    final Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(2000);
+    contentProperties.put("jcr:lastModified", lastModified);
+    resourceResolver.commit();
+
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(Collections.singletonList(
+        "/etc/vendor-libraries/vendor-library/templates/template-file.html/jcr:content"));
+    awaitBuildExecutor();
+    verify(cacheService, times(3)).cacheUiFrameworkCompiledHtlTemplates(any());
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(
+        argThat(uiFramework -> "/etc/ui-frameworks/ui-framework-2".equals(uiFramework.getPath())));
+  }
+
+  @Test
+  public void testCacheChangedUiFrameworkCompiledHtlTemplatesWhenUiFrameworkIsAdded()
+      throws Exception {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFrameworksWithVendorLibrary();
+
+    cacheService.cacheAllUiFrameworkCompiledHtlTemplates();
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+
+    context.create().resource("/etc/ui-frameworks/ui-framework-3", uiFrameworkProperties);
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(
+        Collections.singletonList("/etc/ui-frameworks/ui-framework-3"));
+    awaitBuildExecutor();
+    verify(cacheService, times(3)).cacheUiFrameworkCompiledHtlTemplates(any());
+    verify(cacheService, times(1)).cacheUiFrameworkCompiledHtlTemplates(
+        argThat(uiFramework -> "/etc/ui-frameworks/ui-framework-3".equals(uiFramework.getPath())));
+  }
+
+  @Test
+  public void testCacheChangedUiFrameworkCompiledHtlTemplatesWhenVendorLibraryIsRemoved()
+      throws Exception {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFrameworksWithVendorLibrary();
+
+    cacheService.cacheAllUiFrameworkCompiledHtlTemplates();
+    verify(cacheService, times(2)).cacheUiFrameworkCompiledHtlTemplates(any());
+
+    resourceResolver.delete(resourceResolver.getResource("/etc/vendor-libraries"));
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(
+        Collections.singletonList("/etc/vendor-libraries"));
+    awaitBuildExecutor();
+    verify(cacheService, times(3)).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  @Test
+  public void testCacheChangedUiFrameworkCompiledHtlTemplatesWhenNotReady() throws Exception {
+    doReturn(resourceResolver).when(cacheService).getServiceResourceResolver();
+    createUiFrameworksWithVendorLibrary();
+
+    cacheService.cacheChangedUiFrameworkCompiledHtlTemplates(
+        Collections.singletonList("/etc/ui-frameworks/ui-framework-1"));
+    awaitBuildExecutor();
+    verify(cacheService, never()).cacheUiFrameworkCompiledHtlTemplates(any());
+  }
+
+  private void awaitBuildExecutor() throws Exception {
+    buildExecutorService.submit(() -> null).get(5, TimeUnit.SECONDS);
+  }
+
+  private void createUiFramework() {
+    context.create().resource("/apps/kestros/cache/compiled-htl-templates");
+    context.create().resource("/etc/ui-frameworks/ui-framework-1", uiFrameworkProperties);
+    context.create().resource("/etc/ui-frameworks/ui-framework-1/templates");
+    context.create().resource("/etc/ui-frameworks/ui-framework-1/templates/template-file",
+        templateFileProperties);
+    context.create().resource(
+        "/etc/ui-frameworks/ui-framework-1/templates/template-file/jcr:content",
+        templateFileJcrContentProperties);
+  }
+
+  private void createUiFrameworksWithVendorLibrary() {
+    final Calendar lastModified = Calendar.getInstance();
+    lastModified.setTimeInMillis(1000);
+
+    context.create().resource("/apps/kestros/cache/compiled-htl-templates");
+
+    context.create().resource("/etc/ui-frameworks/ui-framework-1", uiFrameworkProperties);
+    context.create().resource("/etc/ui-frameworks/ui-framework-1/templates");
+    context.create().resource("/etc/ui-frameworks/ui-framework-1/templates/template-file",
+        templateFileProperties);
+    context.create().resource(
+        "/etc/ui-frameworks/ui-framework-1/templates/template-file/jcr:content",
+        getTemplateFileJcrContentProperties(lastModified));
+
+    final Map<String, Object> vendorLibraryProperties = new HashMap<>();
+    vendorLibraryProperties.put("jcr:primaryType", "kes:VendorLibrary");
+    context.create().resource("/etc/vendor-libraries/vendor-library", vendorLibraryProperties);
+    context.create().resource("/etc/vendor-libraries/vendor-library/templates");
+    context.create().resource("/etc/vendor-libraries/vendor-library/templates/template-file.html",
+        templateFileProperties);
+    context.create().resource(
+        "/etc/vendor-libraries/vendor-library/templates/template-file.html/jcr:content",
+        getTemplateFileJcrContentProperties(lastModified));
+
+    final Map<String, Object> uiFrameworkWithVendorLibraryProperties = new HashMap<>(
+        uiFrameworkProperties);
+    uiFrameworkWithVendorLibraryProperties.put("kes:vendorLibraries",
+        new String[]{"vendor-library"});
+    context.create().resource("/etc/ui-frameworks/ui-framework-2",
+        uiFrameworkWithVendorLibraryProperties);
+  }
+
+  private Map<String, Object> getTemplateFileJcrContentProperties(final Calendar lastModified) {
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("jcr:mimeType", "text/html");
+    properties.put("jcr:lastModified", lastModified);
+    properties.put("jcr:data", new ByteArrayInputStream(
+        "<template data-sly-template.testTemplateOne=\"${ @ text}\"></template>".getBytes()));
+    return properties;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplateCatalog;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BaseHtlTemplateCatalogServiceTest {
+
+  private BaseHtlTemplateCatalogService catalogService;
+
+  private UiFramework uiFramework;
+
+  @Before
+  public void setUp() throws Exception {
+    catalogService = new BaseHtlTemplateCatalogService();
+
+    final HtlTemplate template = mock(HtlTemplate.class);
+    when(template.getName()).thenReturn("template");
+    when(template.getSourcePath()).thenReturn("/etc/ui-frameworks/framework/templates/file");
+
+    uiFramework = mock(UiFramework.class);
+    when(uiFramework.getPath()).thenReturn("/etc/ui-frameworks/framework");
+    when(uiFramework.getTemplates()).thenReturn(Collections.singletonList(template));
+  }
+
+  @Test
+  public void testGetCatalog() {
+    final HtlTemplateCatalog catalog = catalogService.getCatalog(uiFramework);
+
+    assertEquals(1, catalog.getSize());
+    assertSame(catalog, catalogService.getCatalog(uiFramework));
+    verify(uiFramework, times(1)).getTemplates();
+    assertEquals(1, catalogService.getSize());
+  }
+
+  @Test
+  public void testPurge() {
+    final HtlTemplateCatalog catalog = catalogService.getCatalog(uiFramework);
+
+    catalogService.purge("/etc/ui-frameworks/framework");
+
+    assertEquals(0, catalogService.getSize());
+    assertNotSame(catalog, catalogService.getCatalog(uiFramework));
+    verify(uiFramework, times(2)).getTemplates();
+  }
+
+  @Test
+  public void testPurgeAll() {
+    catalogService.getCatalog(uiFramework);
+
+    catalogService.purgeAll();
+
+    assertEquals(0, catalogService.getSize());
+  }
+
+}
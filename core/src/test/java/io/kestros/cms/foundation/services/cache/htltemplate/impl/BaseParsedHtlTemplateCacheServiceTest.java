@@ -0,0 +1,88 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.cache.htltemplate.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import io.kestros.cms.foundation.design.htltemplate.HtlTemplate;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BaseParsedHtlTemplateCacheServiceTest {
+
+  private BaseParsedHtlTemplateCacheService parsedHtlTemplateCacheService;
+
+  private List<HtlTemplate> templates;
+
+  @Before
+  public void setUp() throws Exception {
+    parsedHtlTemplateCacheService = new BaseParsedHtlTemplateCacheService();
+    templates = Collections.singletonList(mock(HtlTemplate.class));
+  }
+
+  @Test
+  public void testGetTemplates() {
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates/file.html", "1000", templates);
+
+    assertEquals(templates, parsedHtlTemplateCacheService.getTemplates("/etc/templates/file.html",
+        "1000"));
+    assertEquals(1, parsedHtlTemplateCacheService.getSize());
+  }
+
+  @Test
+  public void testGetTemplatesWhenRevisionChanged() {
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates/file.html", "1000", templates);
+
+    assertNull(parsedHtlTemplateCacheService.getTemplates("/etc/templates/file.html", "2000"));
+
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates/file.html", "2000", templates);
+    assertNull(parsedHtlTemplateCacheService.getTemplates("/etc/templates/file.html", "1000"));
+    assertEquals(1, parsedHtlTemplateCacheService.getSize());
+  }
+
+  @Test
+  public void testGetTemplatesWhenNotCached() {
+    assertNull(parsedHtlTemplateCacheService.getTemplates("/etc/templates/file.html", "1000"));
+  }
+
+  @Test
+  public void testPurge() {
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates/file.html", "1000", templates);
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates-other/file.html", "1000",
+        templates);
+
+    parsedHtlTemplateCacheService.purge("/etc/templates");
+
+    assertNull(parsedHtlTemplateCacheService.getTemplates("/etc/templates/file.html", "1000"));
+    assertEquals(1, parsedHtlTemplateCacheService.getSize());
+  }
+
+  @Test
+  public void testPurgeAll() {
+    parsedHtlTemplateCacheService.cacheTemplates("/etc/templates/file.html", "1000", templates);
+
+    parsedHtlTemplateCacheService.purgeAll();
+
+    assertEquals(0, parsedHtlTemplateCacheService.getSize());
+  }
+
+}
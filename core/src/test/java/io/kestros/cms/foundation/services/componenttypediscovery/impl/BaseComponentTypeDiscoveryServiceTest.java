@@ -0,0 +1,131 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypediscovery.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.kestros.cms.foundation.services.componenttypecache.ComponentTypeCacheImpl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseComponentTypeDiscoveryServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseComponentTypeDiscoveryService discoveryService;
+
+  private ResourceResolver resourceResolver;
+
+  private Map<String, Object> componentTypeProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    resourceResolver = context.resourceResolver();
+
+    componentTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+
+    context.create().resource("/apps/components/component-a", componentTypeProperties);
+    context.create().resource("/apps/components/component-a/nested", componentTypeProperties);
+    context.create().resource("/apps/components/folder");
+    context.create().resource("/apps/components/folder/component-b", componentTypeProperties);
+    context.create().resource("/libs/components/component-c", componentTypeProperties);
+
+    discoveryService = spy(new BaseComponentTypeDiscoveryService());
+    doThrow(new UnsupportedOperationException("Query not supported.")).when(discoveryService)
+        .queryComponentTypes(anyString(), any());
+  }
+
+  @Test
+  public void testFindComponentTypePathsWhenQueryIsNotSupported() {
+    context.registerInjectActivateService(discoveryService);
+
+    final List<String> componentTypePaths = new ArrayList<>();
+    discoveryService.findComponentTypePaths("/apps", resourceResolver).forEachRemaining(
+        componentTypePaths::add);
+
+    assertEquals(Arrays.asList("/apps/components/component-a",
+        "/apps/components/component-a/nested", "/apps/components/folder/component-b"),
+        componentTypePaths);
+  }
+
+  @Test
+  public void testFindComponentTypePathsFromQuery() {
+    context.registerInjectActivateService(discoveryService);
+    final List<Resource> queryResults = Arrays.asList(
+        resourceResolver.getResource("/apps/components/component-a"),
+        resourceResolver.getResource("/apps/components/folder"));
+    doReturn(queryResults.iterator()).when(discoveryService).queryComponentTypes("/apps",
+        resourceResolver);
+
+    final List<String> componentTypePaths = new ArrayList<>();
+    discoveryService.findComponentTypePaths("/apps", resourceResolver).forEachRemaining(
+        componentTypePaths::add);
+
+    assertEquals(Arrays.asList("/apps/components/component-a"), componentTypePaths);
+  }
+
+  @Test
+  public void testFindComponentTypePathsWhenRootIsMissing() {
+    context.registerInjectActivateService(discoveryService);
+
+    assertFalse(discoveryService.findComponentTypePaths("/missing", resourceResolver).hasNext());
+  }
+
+  @Test
+  public void testGetComponentTypePathsWithoutComponentTypeCache() {
+    context.registerInjectActivateService(discoveryService);
+
+    assertEquals(1, discoveryService.getComponentTypePaths("/libs", resourceResolver).size());
+    context.create().resource("/libs/components/component-d", componentTypeProperties);
+    assertEquals(2, discoveryService.getComponentTypePaths("/libs", resourceResolver).size());
+  }
+
+  @Test
+  public void testGetComponentTypePathsPopulatesComponentTypeCache() throws Exception {
+    final ComponentTypeCacheImpl componentTypeCache = new ComponentTypeCacheImpl();
+    context.registerInjectActivateService(componentTypeCache);
+    context.registerInjectActivateService(discoveryService);
+
+    assertEquals(3, discoveryService.getComponentTypePaths("/apps", resourceResolver).size());
+    assertEquals(3, componentTypeCache.getCachedComponentTypes("/apps").size());
+
+    context.create().resource("/apps/components/component-d", componentTypeProperties);
+    assertEquals(3, discoveryService.getComponentTypePaths("/apps", resourceResolver).size());
+    verify(discoveryService, times(1)).queryComponentTypes(anyString(), any());
+  }
+
+}
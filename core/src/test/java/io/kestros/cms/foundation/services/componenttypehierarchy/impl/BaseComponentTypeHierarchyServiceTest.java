@@ -0,0 +1,222 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttypehierarchy.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseComponentTypeHierarchyServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseComponentTypeHierarchyService hierarchyService;
+
+  private ResourceResolver serviceResourceResolver;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    createComponentType("/libs/kestros/commons/components/kestros-parent", null);
+    createComponentType("/libs/components/base", "kestros/commons/components/kestros-parent");
+    createComponentType("/apps/components/child", "components/base");
+    createComponentType("/apps/components/cycle-a", "/apps/components/cycle-b");
+    createComponentType("/apps/components/cycle-b", "/apps/components/cycle-a");
+    createComponentType("/apps/components/self", "/apps/components/self");
+    createComponentType("/apps/components/orphan", "components/missing");
+
+    serviceResourceResolver = spy(context.resourceResolver());
+    doNothing().when(serviceResourceResolver).close();
+
+    hierarchyService = new BaseComponentTypeHierarchyService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(hierarchyService);
+  }
+
+  @Test
+  public void testIsBuilt() {
+    assertTrue(hierarchyService.isBuilt());
+    assertEquals(7, hierarchyService.getSize());
+  }
+
+  @Test
+  public void testIsBuiltWhenServiceResourceResolverCannotBeOpened() {
+    hierarchyService = new BaseComponentTypeHierarchyService();
+    context.registerInjectActivateService(hierarchyService);
+
+    assertFalse(hierarchyService.isBuilt());
+    assertEquals(0, hierarchyService.getSize());
+  }
+
+  @Test
+  public void testContains() {
+    assertTrue(hierarchyService.contains("/apps/components/child"));
+    assertFalse(hierarchyService.contains("/apps/components"));
+    assertFalse(hierarchyService.contains("/apps/components/missing"));
+  }
+
+  @Test
+  public void testGetAncestorPaths() {
+    assertEquals(Arrays.asList("/libs/components/base",
+        "/libs/kestros/commons/components/kestros-parent"),
+        hierarchyService.getAncestorPaths("/apps/components/child"));
+  }
+
+  @Test
+  public void testGetAncestorPathsWhenNoSuperType() {
+    assertEquals(0, hierarchyService.getAncestorPaths(
+        "/libs/kestros/commons/components/kestros-parent").size());
+    assertEquals(0, hierarchyService.getAncestorPaths("/apps/components/orphan").size());
+    assertEquals(0, hierarchyService.getAncestorPaths("/apps/components/missing").size());
+  }
+
+  @Test
+  public void testGetAncestorPathsWhenCyclic() {
+    assertEquals(Collections.singletonList("/apps/components/cycle-b"),
+        hierarchyService.getAncestorPaths("/apps/components/cycle-a"));
+    assertEquals(0, hierarchyService.getAncestorPaths("/apps/components/self").size());
+  }
+
+  @Test
+  public void testGetDescendantPaths() {
+    assertEquals(2, hierarchyService.getDescendantPaths(
+        "/libs/kestros/commons/components/kestros-parent").size());
+    assertTrue(hierarchyService.getDescendantPaths(
+        "/libs/kestros/commons/components/kestros-parent").contains("/apps/components/child"));
+    assertEquals(Collections.singleton("/apps/components/child"),
+        hierarchyService.getDescendantPaths("/libs/components/base"));
+    assertEquals(0, hierarchyService.getDescendantPaths("/apps/components/child").size());
+  }
+
+  @Test
+  public void testGetDescendantPathsWhenSuperTypeIsMissing() {
+    assertEquals(Collections.singleton("/apps/components/orphan"),
+        hierarchyService.getDescendantPaths("/apps/components/missing"));
+    assertEquals(Collections.singleton("/apps/components/orphan"),
+        hierarchyService.getDescendantPaths("/libs/components/missing"));
+  }
+
+  @Test
+  public void testIsCyclic() {
+    assertTrue(hierarchyService.isCyclic("/apps/components/cycle-a"));
+    assertTrue(hierarchyService.isCyclic("/apps/components/cycle-b"));
+    assertTrue(hierarchyService.isCyclic("/apps/components/self"));
+    assertFalse(hierarchyService.isCyclic("/apps/components/child"));
+    assertEquals(3, hierarchyService.getCyclicComponentTypePaths().size());
+  }
+
+  @Test
+  public void testUpdateWhenComponentTypeIsAdded() {
+    createComponentType("/apps/components/base", "kestros/commons/components/kestros-parent");
+
+    hierarchyService.update(Collections.singletonList("/apps/components/base"));
+
+    assertEquals(8, hierarchyService.getSize());
+    assertEquals(Arrays.asList("/apps/components/base",
+        "/libs/kestros/commons/components/kestros-parent"),
+        hierarchyService.getAncestorPaths("/apps/components/child"));
+  }
+
+  @Test
+  public void testUpdateWhenMissingSuperTypeIsAdded() {
+    createComponentType("/libs/components/missing", null);
+
+    hierarchyService.update(Collections.singletonList("/libs/components/missing"));
+
+    assertEquals(Collections.singletonList("/libs/components/missing"),
+        hierarchyService.getAncestorPaths("/apps/components/orphan"));
+  }
+
+  @Test
+  public void testUpdateWhenComponentTypeIsRemoved() throws Exception {
+    serviceResourceResolver.delete(serviceResourceResolver.getResource("/libs/components"));
+
+    hierarchyService.update(Collections.singletonList("/libs/components"));
+
+    assertEquals(6, hierarchyService.getSize());
+    assertFalse(hierarchyService.contains("/libs/components/base"));
+    assertEquals(0, hierarchyService.getAncestorPaths("/apps/components/child").size());
+    assertTrue(hierarchyService.getDescendantPaths("/libs/components/base").contains(
+        "/apps/components/child"));
+  }
+
+  @Test
+  public void testUpdateWhenSuperTypeChanges() {
+    serviceResourceResolver.getResource("/apps/components/cycle-b").adaptTo(
+        ModifiableValueMap.class).put("sling:resourceSuperType",
+        "kestros/commons/components/kestros-parent");
+
+    hierarchyService.update(Collections.singletonList("/apps/components/cycle-b"));
+
+    assertFalse(hierarchyService.isCyclic("/apps/components/cycle-a"));
+    assertEquals(Arrays.asList("/apps/components/cycle-b",
+        "/libs/kestros/commons/components/kestros-parent"),
+        hierarchyService.getAncestorPaths("/apps/components/cycle-a"));
+  }
+
+  @Test
+  public void testUpdateWhenPathIsOutsideAppsAndLibs() {
+    context.create().resource("/content/component-type", "jcr:primaryType", "kes:ComponentType");
+
+    hierarchyService.update(Collections.singletonList("/content/component-type"));
+
+    assertEquals(7, hierarchyService.getSize());
+    assertFalse(hierarchyService.contains("/content/component-type"));
+  }
+
+  @Test
+  public void testRebuild() {
+    createComponentType("/apps/components/new", null);
+
+    hierarchyService.rebuild();
+
+    assertEquals(8, hierarchyService.getSize());
+  }
+
+  private void createComponentType(final String path, final String superType) {
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("jcr:primaryType", "kes:ComponentType");
+    if (superType != null) {
+      properties.put("sling:resourceSuperType", superType);
+    }
+    context.create().resource(path, properties);
+  }
+
+}
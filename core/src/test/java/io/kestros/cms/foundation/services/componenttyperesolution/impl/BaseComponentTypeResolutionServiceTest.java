@@ -0,0 +1,200 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.componenttyperesolution.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseComponentTypeResolutionServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseComponentTypeResolutionService resolutionService;
+
+  private ResourceResolver serviceResourceResolver;
+
+  private Map<String, Object> componentTypeProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    componentTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+
+    serviceResourceResolver = spy(context.resourceResolver());
+    doNothing().when(serviceResourceResolver).close();
+
+    resolutionService = new BaseComponentTypeResolutionService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(resolutionService);
+  }
+
+  @Test
+  public void testGetComponentTypePath() {
+    context.create().resource("/apps/component", componentTypeProperties);
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/apps/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+    assertEquals(1, resolutionService.getSize());
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenOnlyInLibs() {
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenAppsResourceIsNotAComponentType() {
+    context.create().resource("/apps/component");
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenAbsolute() {
+    context.create().resource("/apps/component", componentTypeProperties);
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("/libs/component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenMissing() {
+    assertNull(resolutionService.getComponentTypePath("component", context.resourceResolver()));
+    assertEquals(1, resolutionService.getSize());
+
+    context.create().resource("/apps/component", componentTypeProperties);
+
+    assertNull(resolutionService.getComponentTypePath("component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenCallerCannotReadApps() {
+    context.create().resource("/apps/component", componentTypeProperties);
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/apps/component",
+        resolutionService.getComponentTypePath("component", mock(ResourceResolver.class)));
+    assertEquals("/apps/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenServiceResourceResolverIsUnavailable() {
+    resolutionService = new BaseComponentTypeResolutionService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return null;
+      }
+    };
+    context.registerInjectActivateService(resolutionService);
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+    assertEquals(0, resolutionService.getSize());
+  }
+
+  @Test
+  public void testGetComponentTypePathWhenPurgedDuringResolution() {
+    resolutionService = new BaseComponentTypeResolutionService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        purge("/libs/component");
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(resolutionService);
+    context.create().resource("/libs/component", componentTypeProperties);
+
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+    assertEquals(0, resolutionService.getSize());
+  }
+
+  @Test
+  public void testPurge() {
+    context.create().resource("/libs/component", componentTypeProperties);
+    assertEquals("/libs/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+
+    context.create().resource("/apps/component", componentTypeProperties);
+    resolutionService.purge("/apps/component");
+
+    assertEquals("/apps/component",
+        resolutionService.getComponentTypePath("component", context.resourceResolver()));
+  }
+
+  @Test
+  public void testPurgeWhenAncestorChanges() {
+    context.create().resource("/libs/group/component", componentTypeProperties);
+    resolutionService.getComponentTypePath("group/component", context.resourceResolver());
+
+    resolutionService.purge("/apps/group");
+
+    assertEquals(0, resolutionService.getSize());
+  }
+
+  @Test
+  public void testPurgeWhenDescendantChanges() {
+    context.create().resource("/libs/component", componentTypeProperties);
+    resolutionService.getComponentTypePath("component", context.resourceResolver());
+
+    resolutionService.purge("/libs/component/common/content.html");
+    resolutionService.purge("/libs/other-component");
+
+    assertEquals(1, resolutionService.getSize());
+  }
+
+  @Test
+  public void testPurgeAll() {
+    resolutionService.getComponentTypePath("component", context.resourceResolver());
+    resolutionService.getComponentTypePath("other-component", context.resourceResolver());
+
+    resolutionService.purgeAll();
+
+    assertEquals(0, resolutionService.getSize());
+  }
+
+}
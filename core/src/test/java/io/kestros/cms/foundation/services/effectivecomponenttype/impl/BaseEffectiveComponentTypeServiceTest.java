@@ -0,0 +1,291 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.effectivecomponenttype.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import io.kestros.cms.foundation.services.effectivecomponenttype.EffectiveComponentType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseEffectiveComponentTypeServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseEffectiveComponentTypeService effectiveComponentTypeService;
+
+  private Map<String, Object> componentProperties = new HashMap<>();
+  private Map<String, Object> superTypeProperties = new HashMap<>();
+  private Map<String, Object> viewProperties = new HashMap<>();
+  private Map<String, Object> variationProperties = new HashMap<>();
+  private Map<String, Object> frameworkProperties = new HashMap<>();
+  private Map<String, Object> fileProperties = new HashMap<>();
+  private Map<String, Object> fileJcrContentProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    superTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+    superTypeProperties.put("fontAwesomeIcon", "fa fa-star");
+    componentProperties.put("jcr:primaryType", "kes:ComponentType");
+    componentProperties.put("sling:resourceSuperType", "/apps/supertype");
+    componentProperties.put("excludedComponentTypes", new String[]{"group:excluded"});
+    viewProperties.put("jcr:primaryType", "nt:folder");
+    variationProperties.put("jcr:primaryType", "kes:ComponentVariation");
+    frameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    frameworkProperties.put("kes:uiFrameworkCode", "framework");
+    fileProperties.put("jcr:primaryType", "nt:file");
+    fileJcrContentProperties.put("jcr:mimeType", "text/html");
+
+    context.create().resource("/etc/ui-frameworks/framework", frameworkProperties);
+    context.create().resource("/apps/supertype", superTypeProperties);
+    context.create().resource("/apps/supertype/framework", viewProperties);
+    context.create().resource("/apps/supertype/framework/variations/inherited",
+        variationProperties);
+    createScript("/apps/supertype/framework/content.html");
+    context.create().resource("/apps/component", componentProperties);
+    context.create().resource("/apps/component/framework", viewProperties);
+    context.create().resource("/apps/component/framework/variations/own", variationProperties);
+    context.create().resource("/apps/component/common", viewProperties);
+    createScript("/apps/component/common/content.html");
+
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+    final ResourceResolver resourceResolver = spy(context.resourceResolver());
+    doNothing().when(resourceResolver).close();
+    effectiveComponentTypeService = spy(new BaseEffectiveComponentTypeService());
+    doReturn(resourceResolver).when(effectiveComponentTypeService).getServiceResourceResolver();
+    context.registerInjectActivateService(effectiveComponentTypeService);
+  }
+
+  @Test
+  public void testGetEffectiveComponentType() throws InterruptedException {
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(getComponentType());
+
+    assertEquals("/apps/component", effectiveComponentType.getPath());
+    assertEquals("/apps/supertype", effectiveComponentType.getSuperTypePaths().get(0));
+    assertEquals(1, effectiveComponentType.getSuperTypePaths().size());
+    assertEquals("fa fa-star", effectiveComponentType.getFontAwesomeIcon());
+    assertEquals("group:excluded", effectiveComponentType.getExcludedComponentTypes().get(0));
+    assertTrue(effectiveComponentType.getAllowedComponentTypes().isEmpty());
+    // The superType's snapshot is requested while resolving the inherited icon.
+    awaitSize(2);
+    assertEquals(2, effectiveComponentTypeService.getSize());
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeWhenCached() throws InterruptedException {
+    assertSame(awaitEffectiveComponentType(getComponentType()),
+        awaitEffectiveComponentType(getComponentType()));
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeViews() throws InterruptedException {
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(getComponentType());
+
+    assertTrue(effectiveComponentType.getViewPaths().contains("/apps/component/framework"));
+    assertTrue(effectiveComponentType.getViewPaths().contains("/apps/component/common"));
+    assertEquals("/apps/component/framework",
+        effectiveComponentType.getViewPath("/etc/ui-frameworks/framework"));
+    assertNull(effectiveComponentType.getViewPath("/etc/ui-frameworks/other"));
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeVariations() throws InterruptedException {
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(getComponentType());
+
+    assertEquals(2,
+        effectiveComponentType.getVariationPaths("/etc/ui-frameworks/framework").size());
+    assertEquals("/apps/supertype/framework/variations/inherited",
+        effectiveComponentType.getVariationPaths("/etc/ui-frameworks/framework").get(0));
+    assertEquals("/apps/component/framework/variations/own",
+        effectiveComponentType.getVariationPaths("/etc/ui-frameworks/framework").get(1));
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeScripts() throws InterruptedException {
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(getComponentType());
+
+    assertEquals("/apps/supertype/framework/content.html",
+        effectiveComponentType.getScriptPath("/etc/ui-frameworks/framework", "content.html"));
+    assertEquals("/apps/component/common/content.html",
+        effectiveComponentType.getScriptPath(null, "content.html"));
+    assertNull(effectiveComponentType.getScriptPath(null, "missing.html"));
+  }
+
+  @Test
+  public void testComponentTypeUsesEffectiveComponentType() throws Exception {
+    final ComponentType componentType = getComponentType();
+    awaitEffectiveComponentType(componentType);
+
+    assertEquals("fa fa-star", componentType.getFontAwesomeIcon());
+    assertEquals("/apps/supertype/framework/content.html", componentType.getScript("content.html",
+        context.resourceResolver().getResource("/etc/ui-frameworks/framework").adaptTo(
+            UiFramework.class)).getPath());
+    assertEquals(2, componentType.getUiFrameworkViews().size());
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeWhenCyclicSuperType() throws InterruptedException {
+    superTypeProperties.put("sling:resourceSuperType", "/apps/cyclic-component");
+    context.create().resource("/apps/cyclic-supertype", superTypeProperties);
+    componentProperties.put("sling:resourceSuperType", "/apps/cyclic-supertype");
+    context.create().resource("/apps/cyclic-component", componentProperties);
+
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(
+        context.resourceResolver().getResource("/apps/cyclic-component").adaptTo(
+            ComponentType.class));
+
+    assertEquals(1, effectiveComponentType.getSuperTypePaths().size());
+  }
+
+  @Test
+  public void testPurge() throws InterruptedException {
+    awaitEffectiveComponentType(getComponentType());
+    awaitSize(2);
+
+    effectiveComponentTypeService.purge("/apps/other-component");
+    assertEquals(2, effectiveComponentTypeService.getSize());
+
+    effectiveComponentTypeService.purge("/libs/supertype/framework/content.html");
+    assertEquals(0, effectiveComponentTypeService.getSize());
+  }
+
+  @Test
+  public void testPurgeWhenAncestorChanges() throws InterruptedException {
+    awaitEffectiveComponentType(getComponentType());
+    awaitSize(2);
+
+    effectiveComponentTypeService.purge("/apps");
+
+    assertEquals(0, effectiveComponentTypeService.getSize());
+  }
+
+  @Test
+  public void testPurgeAll() throws InterruptedException {
+    awaitEffectiveComponentType(getComponentType());
+    awaitSize(2);
+
+    effectiveComponentTypeService.purgeAll();
+
+    assertEquals(0, effectiveComponentTypeService.getSize());
+  }
+
+  @Test
+  public void testIsAffectedBy() throws InterruptedException {
+    final EffectiveComponentType effectiveComponentType
+        = awaitEffectiveComponentType(getComponentType());
+
+    assertTrue(effectiveComponentType.isAffectedBy("/libs/component"));
+    assertTrue(effectiveComponentType.isAffectedBy("/apps/supertype/framework/variations"));
+    assertFalse(effectiveComponentType.isAffectedBy("/apps/component-two"));
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeWhenNotBuilt() {
+    assertNull(effectiveComponentTypeService.getEffectiveComponentType(getComponentType()));
+  }
+
+  @Test
+  public void testGetEffectiveComponentTypeWhenDeactivated() {
+    effectiveComponentTypeService.deactivate();
+
+    assertNull(effectiveComponentTypeService.getEffectiveComponentType(getComponentType()));
+    assertEquals(0, effectiveComponentTypeService.getSize());
+  }
+
+  @Test
+  public void testPurgeDiscardsOverlappingBuild() throws InterruptedException {
+    final CountDownLatch buildStarted = new CountDownLatch(1);
+    final CountDownLatch purged = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      buildStarted.countDown();
+      purged.await();
+      return invocation.callRealMethod();
+    }).when(effectiveComponentTypeService).buildEffectiveComponentType(any());
+
+    assertNull(effectiveComponentTypeService.getEffectiveComponentType(getComponentType()));
+    buildStarted.await();
+    effectiveComponentTypeService.purgeAll();
+    purged.countDown();
+
+    assertEquals("/apps/component", awaitEffectiveComponentType(getComponentType()).getPath());
+    verify(effectiveComponentTypeService, times(2)).buildEffectiveComponentType(
+        argThat(componentType -> "/apps/component".equals(componentType.getPath())));
+  }
+
+  private EffectiveComponentType awaitEffectiveComponentType(final ComponentType componentType)
+      throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + 5000;
+    EffectiveComponentType effectiveComponentType
+        = effectiveComponentTypeService.getEffectiveComponentType(componentType);
+    while (effectiveComponentType == null && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+      effectiveComponentType = effectiveComponentTypeService.getEffectiveComponentType(
+          componentType);
+    }
+    return effectiveComponentType;
+  }
+
+  private void awaitSize(final int size) throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + 5000;
+    while (effectiveComponentTypeService.getSize() < size
+           && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+  }
+
+  private ComponentType getComponentType() {
+    return context.resourceResolver().getResource("/apps/component").adaptTo(
+        ComponentType.class);
+  }
+
+  private void createScript(final String path) {
+    context.create().resource(path, fileProperties);
+    context.create().resource(path + "/jcr:content", fileJcrContentProperties);
+  }
+
+}
@@ -0,0 +1,278 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.htltemplateusage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import io.kestros.cms.foundation.design.htltemplate.usage.HtlTemplateCall;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseHtlTemplateUsageIndexServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseHtlTemplateUsageIndexService usageIndexService;
+
+  private ResourceResolver serviceResourceResolver;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    createComponentType("/apps/components/card-user");
+    createScript("/apps/components/card-user/common/content.html",
+        "<div data-sly-call=\"${templates.card @ title=properties.title}\"></div>");
+    createScript("/apps/components/card-user/bootstrap/content.html",
+        "<div data-sly-call=\"${templates.Card @ text=properties.text}\"></div>"
+        + "<div data-sly-call=\"${templates.button}\"></div>");
+    createComponentType("/libs/components/button-user");
+    createScript("/libs/components/button-user/common/content.html",
+        "<div data-sly-call=\"${templates.button}\"></div>");
+
+    serviceResourceResolver = spy(context.resourceResolver());
+    doNothing().when(serviceResourceResolver).close();
+
+    usageIndexService = new BaseHtlTemplateUsageIndexService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(usageIndexService);
+    awaitBuilt(usageIndexService);
+  }
+
+  @After
+  public void tearDown() {
+    usageIndexService.deactivate();
+  }
+
+  @Test
+  public void testIsBuilt() {
+    assertTrue(usageIndexService.isBuilt());
+    assertEquals(3, usageIndexService.getSize());
+  }
+
+  @Test
+  public void testIsBuiltWhenServiceResourceResolverCannotBeOpened() {
+    usageIndexService.deactivate();
+    usageIndexService = new BaseHtlTemplateUsageIndexService();
+    context.registerInjectActivateService(usageIndexService);
+
+    assertFalse(usageIndexService.isBuilt());
+    assertEquals(0, usageIndexService.getSize());
+    assertNull(usageIndexService.getTemplateCalls("/apps/components/card-user/common"));
+  }
+
+  @Test
+  public void testGetTemplateCallsWhileBuilding() throws Exception {
+    final CountDownLatch buildLatch = new CountDownLatch(1);
+    usageIndexService.deactivate();
+    usageIndexService = new BaseHtlTemplateUsageIndexService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        try {
+          buildLatch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(usageIndexService);
+
+    assertFalse(usageIndexService.isBuilt());
+    assertNull(usageIndexService.getTemplateCalls("/apps/components/card-user/common"));
+
+    buildLatch.countDown();
+    awaitBuilt(usageIndexService);
+
+    assertEquals(1, usageIndexService.getTemplateCalls(
+        "/apps/components/card-user/common").size());
+  }
+
+  @Test
+  public void testGetTemplateCalls() {
+    final List<HtlTemplateCall> templateCalls = usageIndexService.getTemplateCalls(
+        "/apps/components/card-user/bootstrap");
+
+    assertEquals(2, templateCalls.size());
+    assertEquals("Card", templateCalls.get(0).getTemplateName());
+    assertEquals(Collections.singletonList("text"), templateCalls.get(0).getParameterNames());
+    assertEquals("/apps/components/card-user/bootstrap/content.html",
+        templateCalls.get(0).getScriptPath());
+    assertEquals("button", templateCalls.get(1).getTemplateName());
+  }
+
+  @Test
+  public void testGetTemplateCallsWhenViewHasNoCalls() {
+    assertEquals(0, usageIndexService.getTemplateCalls(
+        "/apps/components/card-user/missing").size());
+  }
+
+  @Test
+  public void testGetTemplateCallsWhenPathIsOutsideAppsAndLibs() {
+    assertNull(usageIndexService.getTemplateCalls("/content/component/common"));
+  }
+
+  @Test
+  public void testGetTemplateCallsTo() {
+    assertEquals(2, usageIndexService.getTemplateCallsTo("card").size());
+    assertEquals(2, usageIndexService.getTemplateCallsTo("CARD").size());
+    assertEquals(2, usageIndexService.getTemplateCallsTo("button").size());
+    assertEquals(0, usageIndexService.getTemplateCallsTo("missing").size());
+  }
+
+  @Test
+  public void testGetCallingViewPaths() {
+    assertEquals(2, usageIndexService.getCallingViewPaths("card").size());
+    assertTrue(usageIndexService.getCallingViewPaths("card").contains(
+        "/apps/components/card-user/common"));
+    assertTrue(usageIndexService.getCallingViewPaths("card").contains(
+        "/apps/components/card-user/bootstrap"));
+    assertEquals(2, usageIndexService.getCallingViewPaths("button").size());
+    assertTrue(usageIndexService.getCallingViewPaths("button").contains(
+        "/libs/components/button-user/common"));
+    assertEquals(0, usageIndexService.getCallingViewPaths("missing").size());
+  }
+
+  @Test
+  public void testUpdateWhenScriptChanges() throws Exception {
+    serviceResourceResolver.delete(serviceResourceResolver.getResource(
+        "/apps/components/card-user/common/content.html"));
+    createScript("/apps/components/card-user/common/content.html",
+        "<div data-sly-call=\"${templates.button}\"></div>");
+
+    usageIndexService.update(Collections.singletonList(
+        "/apps/components/card-user/common/content.html/jcr:content"));
+
+    assertEquals(3, usageIndexService.getSize());
+    assertEquals(Collections.singleton("/apps/components/card-user/bootstrap"),
+        usageIndexService.getCallingViewPaths("card"));
+    assertEquals(3, usageIndexService.getCallingViewPaths("button").size());
+    assertEquals(2, usageIndexService.getTemplateCalls(
+        "/apps/components/card-user/bootstrap").size());
+  }
+
+  @Test
+  public void testUpdateWhenComponentTypeIsAdded() {
+    createComponentType("/apps/components/new");
+    createScript("/apps/components/new/common/content.html",
+        "<div data-sly-call=\"${templates.card}\"></div>");
+
+    usageIndexService.update(Collections.singletonList("/apps/components/new"));
+
+    assertEquals(4, usageIndexService.getSize());
+    assertEquals(3, usageIndexService.getCallingViewPaths("card").size());
+    assertTrue(usageIndexService.getCallingViewPaths("card").contains(
+        "/apps/components/new/common"));
+  }
+
+  @Test
+  public void testUpdateWhenViewIsRemoved() throws Exception {
+    serviceResourceResolver.delete(serviceResourceResolver.getResource(
+        "/apps/components/card-user/bootstrap"));
+
+    usageIndexService.update(Collections.singletonList("/apps/components/card-user/bootstrap"));
+
+    assertEquals(2, usageIndexService.getSize());
+    assertEquals(Collections.singleton("/apps/components/card-user/common"),
+        usageIndexService.getCallingViewPaths("card"));
+    assertEquals(Collections.singleton("/libs/components/button-user/common"),
+        usageIndexService.getCallingViewPaths("button"));
+  }
+
+  @Test
+  public void testUpdateWhenComponentTypeIsRemoved() throws Exception {
+    serviceResourceResolver.delete(serviceResourceResolver.getResource("/libs/components"));
+
+    usageIndexService.update(Collections.singletonList("/libs/components"));
+
+    assertEquals(2, usageIndexService.getSize());
+    assertEquals(Collections.singleton("/apps/components/card-user/bootstrap"),
+        usageIndexService.getCallingViewPaths("button"));
+  }
+
+  @Test
+  public void testUpdateWhenPathIsOutsideAppsAndLibs() {
+    createComponentType("/content/component");
+    createScript("/content/component/common/content.html",
+        "<div data-sly-call=\"${templates.card}\"></div>");
+
+    usageIndexService.update(Arrays.asList("/content/component"));
+
+    assertEquals(3, usageIndexService.getSize());
+    assertEquals(2, usageIndexService.getCallingViewPaths("card").size());
+  }
+
+  @Test
+  public void testRebuild() {
+    createComponentType("/apps/components/new");
+    createScript("/apps/components/new/common/content.html",
+        "<div data-sly-call=\"${templates.card}\"></div>");
+
+    usageIndexService.rebuild();
+
+    assertEquals(4, usageIndexService.getSize());
+    assertTrue(usageIndexService.getCallingViewPaths("card").contains(
+        "/apps/components/new/common"));
+  }
+
+  private static void awaitBuilt(final BaseHtlTemplateUsageIndexService usageIndexService)
+      throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + 5000;
+    while (!usageIndexService.isBuilt() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void createComponentType(final String path) {
+    context.create().resource(path, "jcr:primaryType", "kes:ComponentType");
+  }
+
+  private void createScript(final String path, final String content) {
+    final Map<String, Object> jcrContentProperties = new HashMap<>();
+    jcrContentProperties.put("jcr:mimeType", "text/html");
+    jcrContentProperties.put("jcr:data", new ByteArrayInputStream(content.getBytes()));
+    context.create().resource(path, "jcr:primaryType", "nt:file");
+    context.create().resource(path + "/jcr:content", jcrContentProperties);
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachedependency.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.themeprovider.BaseThemeProviderService;
+import io.kestros.cms.foundation.services.themeprovider.ThemeProviderService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BasePageCacheDependencyServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BasePageCacheDependencyService dependencyService;
+
+  private BaseContentPage page;
+
+  private BaseContentPage childPage;
+
+  private Map<String, Object> pageProperties = new HashMap<>();
+
+  private Map<String, Object> jcrContentProperties = new HashMap<>();
+
+  private Map<String, Object> componentTypeProperties = new HashMap<>();
+
+  private Map<String, Object> componentProperties = new HashMap<>();
+
+  private Map<String, Object> inheritedContentAreaProperties = new HashMap<>();
+
+  private Map<String, Object> uiFrameworkProperties = new HashMap<>();
+
+  private Map<String, Object> themeProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ThemeProviderService.class, new BaseThemeProviderService());
+
+    dependencyService = new BasePageCacheDependencyService();
+    context.registerInjectActivateService(dependencyService);
+
+    pageProperties.put("jcr:primaryType", "kes:Page");
+    componentTypeProperties.put("jcr:primaryType", "kes:ComponentType");
+    uiFrameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    themeProperties.put("jcr:primaryType", "kes:Theme");
+    inheritedContentAreaProperties.put("sling:resourceType",
+        "kestros/commons/components/inherited-content-area");
+
+    context.create().resource("/apps/my-app/components/page", componentTypeProperties);
+    context.create().resource("/apps/my-app/components/parent", componentTypeProperties);
+    componentTypeProperties.put("sling:resourceSuperType", "/apps/my-app/components/parent");
+    context.create().resource("/apps/my-app/components/component", componentTypeProperties);
+
+    context.create().resource("/etc/ui-frameworks/ui-framework", uiFrameworkProperties);
+    context.create().resource("/etc/ui-frameworks/ui-framework/themes/theme", themeProperties);
+
+    jcrContentProperties.put("sling:resourceType", "/apps/my-app/components/page");
+    jcrContentProperties.put("kes:theme", "/etc/ui-frameworks/ui-framework/themes/theme");
+    componentProperties.put("sling:resourceType", "/apps/my-app/components/component");
+
+    page = context.create().resource("/content/page", pageProperties).adaptTo(
+        BaseContentPage.class);
+    context.create().resource("/content/page/jcr:content", jcrContentProperties);
+    context.create().resource("/content/page/jcr:content/component", componentProperties);
+    context.create().resource("/content/page/jcr:content/header",
+        inheritedContentAreaProperties);
+    context.create().resource("/content/page/jcr:content/header/component",
+        componentProperties);
+
+    childPage = context.create().resource("/content/page/child", pageProperties).adaptTo(
+        BaseContentPage.class);
+    context.create().resource("/content/page/child/jcr:content", jcrContentProperties);
+    context.create().resource("/content/page/child/jcr:content/header",
+        inheritedContentAreaProperties);
+  }
+
+  @Test
+  public void testRecordDependencies() {
+    dependencyService.recordDependencies(page);
+
+    final Set<String> dependencies = dependencyService.getDependencies("/content/page");
+    assertTrue(dependencies.contains("/content/page/jcr:content"));
+    assertTrue(dependencies.contains("/apps/my-app/components/page"));
+    assertTrue(dependencies.contains("/apps/my-app/components/component"));
+    assertTrue(dependencies.contains("/apps/my-app/components/parent"));
+    assertTrue(dependencies.contains("/libs/my-app/components/component"));
+    assertTrue(dependencies.contains("/libs/my-app/components/parent"));
+    assertTrue(dependencies.contains("/etc/ui-frameworks/ui-framework/themes/theme"));
+    assertTrue(dependencies.contains("/etc/ui-frameworks/ui-framework"));
+    assertFalse(dependencies.contains("/content/page"));
+  }
+
+  @Test
+  public void testRecordDependenciesWhenInheritingContent() {
+    dependencyService.recordDependencies(childPage);
+
+    final Set<String> dependencies = dependencyService.getDependencies("/content/page/child");
+    assertTrue(dependencies.contains("/content/page/child/jcr:content"));
+    assertTrue(dependencies.contains("/content/page/jcr:content/header"));
+    assertTrue(dependencies.contains("/apps/my-app/components/component"));
+    assertFalse(dependencies.contains("/content/page/jcr:content"));
+  }
+
+  @Test
+  public void testRecordDependenciesWhenRecordedAgain() {
+    dependencyService.recordDependencies(page);
+    dependencyService.recordDependencies(page);
+
+    assertEquals(1,
+        dependencyService.getDependentPagePaths("/apps/my-app/components/component", false)
+            .size());
+  }
+
+  @Test
+  public void testHasDependencies() {
+    assertFalse(dependencyService.hasDependencies("/content/page"));
+
+    dependencyService.recordDependencies(page);
+
+    assertTrue(dependencyService.hasDependencies("/content/page"));
+    assertFalse(dependencyService.hasDependencies("/content/page/child"));
+  }
+
+  @Test
+  public void testGetDependenciesWhenNotRecorded() {
+    assertEquals(0, dependencyService.getDependencies("/content/page").size());
+  }
+
+  @Test
+  public void testGetDependentPagePaths() {
+    dependencyService.recordDependencies(page);
+    dependencyService.recordDependencies(childPage);
+
+    assertEquals(2, dependencyService.getDependentPagePaths(
+        "/libs/my-app/components/component/content.html", false).size());
+    assertEquals(1, dependencyService.getDependentPagePaths(
+        "/apps/my-app/components/page/content.html", false).size());
+    assertEquals(2, dependencyService.getDependentPagePaths(
+        "/content/page/jcr:content/header/component", false).size());
+    assertTrue(dependencyService.getDependentPagePaths(
+        "/content/page/child/jcr:content/header", false).contains("/content/page/child"));
+    assertEquals(1, dependencyService.getDependentPagePaths(
+        "/content/page/jcr:content/component", false).size());
+  }
+
+  @Test
+  public void testGetDependentPagePathsWhenUnrelatedResourceChanged() {
+    dependencyService.recordDependencies(page);
+
+    assertEquals(0,
+        dependencyService.getDependentPagePaths("/content/other-page/jcr:content", false).size());
+    assertEquals(0,
+        dependencyService.getDependentPagePaths("/content/page/child/jcr:content", false).size());
+    assertEquals(0, dependencyService.getDependentPagePaths("/content/page", false).size());
+  }
+
+  @Test
+  public void testGetDependentPagePathsWhenIncludingDescendants() {
+    dependencyService.recordDependencies(page);
+
+    assertEquals(0, dependencyService.getDependentPagePaths("/apps/my-app", false).size());
+    assertEquals(1, dependencyService.getDependentPagePaths("/apps/my-app", true).size());
+    assertEquals(1, dependencyService.getDependentPagePaths("/content/page", true).size());
+  }
+
+  @Test
+  public void testRemovePage() {
+    dependencyService.recordDependencies(page);
+    dependencyService.recordDependencies(childPage);
+
+    dependencyService.removePage("/content/page");
+
+    assertFalse(dependencyService.hasDependencies("/content/page"));
+    assertTrue(dependencyService.hasDependencies("/content/page/child"));
+    assertEquals(1,
+        dependencyService.getDependentPagePaths("/apps/my-app/components/page", false).size());
+    assertEquals(0,
+        dependencyService.getDependentPagePaths("/content/page/jcr:content", false).size());
+  }
+
+  @Test
+  public void testClear() {
+    dependencyService.recordDependencies(page);
+    dependencyService.recordDependencies(childPage);
+
+    dependencyService.clear();
+
+    assertFalse(dependencyService.hasDependencies("/content/page"));
+    assertFalse(dependencyService.hasDependencies("/content/page/child"));
+    assertEquals(0, dependencyService.getDependentPagePaths("/apps", true).size());
+  }
+
+  @Test
+  public void testRecordDependenciesFromPath() {
+    dependencyService.recordDependencies("/content/page",
+        new HashSet<>(Arrays.asList("/content/page/jcr:content", "/apps/my-app")));
+
+    assertTrue(dependencyService.hasDependencies("/content/page"));
+    assertEquals(2, dependencyService.getDependencies("/content/page").size());
+    assertEquals(1,
+        dependencyService.getDependentPagePaths("/apps/my-app/components/page", false).size());
+  }
+
+  @Test
+  public void testGetInvalidationGeneration() {
+    final long initialGeneration = dependencyService.getInvalidationGeneration("/content/page");
+
+    dependencyService.recordDependencies(page);
+    assertEquals(initialGeneration, dependencyService.getInvalidationGeneration("/content/page"));
+
+    dependencyService.removePage("/content/page");
+    final long removedGeneration = dependencyService.getInvalidationGeneration("/content/page");
+    assertNotEquals(initialGeneration, removedGeneration);
+    assertEquals(initialGeneration,
+        dependencyService.getInvalidationGeneration("/content/page/child"));
+
+    dependencyService.clear();
+    assertNotEquals(removedGeneration,
+        dependencyService.getInvalidationGeneration("/content/page"));
+    assertNotEquals(initialGeneration,
+        dependencyService.getInvalidationGeneration("/content/page/child"));
+  }
+
+  @Test
+  public void testGetOverlayPath() {
+    assertEquals("/libs/my-app/components/component",
+        BasePageCacheDependencyService.getOverlayPath("/apps/my-app/components/component"));
+    assertEquals("/apps/my-app/components/component",
+        BasePageCacheDependencyService.getOverlayPath("/libs/my-app/components/component"));
+    assertEquals("/etc/ui-frameworks/ui-framework",
+        BasePageCacheDependencyService.getOverlayPath("/etc/ui-frameworks/ui-framework"));
+  }
+}
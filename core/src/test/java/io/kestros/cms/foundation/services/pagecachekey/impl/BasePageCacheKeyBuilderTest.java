@@ -0,0 +1,329 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachekey.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.editmodeservice.EditModeService;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkDescriptor;
+import io.kestros.cms.foundation.services.uiframeworkregistry.UiFrameworkRegistryService;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.Cookie;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BasePageCacheKeyBuilderTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BasePageCacheKeyBuilder keyBuilder;
+
+  private BaseContentPage page;
+
+  private Map<String, Object> properties = new HashMap<>();
+
+  private UiFrameworkRegistryService uiFrameworkRegistryService;
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+
+    uiFrameworkRegistryService = mock(UiFrameworkRegistryService.class);
+    when(uiFrameworkRegistryService.isBuilt()).thenReturn(true);
+    final UiFrameworkDescriptor bootstrap = new UiFrameworkDescriptor(
+        "/etc/ui-frameworks/bootstrap", "bootstrap", "bootstrap", "Bootstrap");
+    final UiFrameworkDescriptor foundation = new UiFrameworkDescriptor(
+        "/etc/ui-frameworks/foundation", "foundation", "foundation", "Foundation");
+    when(uiFrameworkRegistryService.getDescriptorByFrameworkCode("bootstrap", true,
+        true)).thenReturn(bootstrap);
+    when(uiFrameworkRegistryService.getDescriptorByFrameworkCode("foundation", true,
+        true)).thenReturn(foundation);
+    context.registerService(UiFrameworkRegistryService.class, uiFrameworkRegistryService);
+
+    properties.put("jcr:primaryType", "kes:Page");
+    page = context.create().resource("/content/page", properties).adaptTo(BaseContentPage.class);
+
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("selectors", new String[]{"print"});
+    configuration.put("queryParameters", new String[]{"lang", "page"});
+    configuration.put("bypassCookies", new String[]{"personalized"});
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder, configuration);
+
+    context.requestPathInfo().setExtension("html");
+  }
+
+  @Test
+  public void testGetCacheKey() {
+    assertEquals("/content/page.html", keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenNotConfigured() {
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder);
+
+    assertEquals("/content/page.html", keyBuilder.getCacheKey(context.request(), page));
+    context.requestPathInfo().setSelectorString("print");
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenAllowedSelector() {
+    context.requestPathInfo().setSelectorString("print");
+
+    assertEquals("/content/page.print.html", keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenOtherSelector() {
+    context.requestPathInfo().setSelectorString("print.infinity");
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenOtherExtension() {
+    context.requestPathInfo().setExtension("json");
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenSuffix() {
+    context.requestPathInfo().setSuffix("/suffix");
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenPostRequest() {
+    context.request().setMethod("POST");
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenHeadRequest() {
+    context.request().setMethod("HEAD");
+
+    assertEquals("/content/page.html", keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenWhitelistedQueryParameters() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("lang", "de");
+    parameters.put("page", "2");
+    context.request().setParameterMap(parameters);
+    final String cacheKey = keyBuilder.getCacheKey(context.request(), page);
+
+    assertTrue(cacheKey.matches("/content/page\\.v[0-9a-f]{16}\\.html"));
+
+    parameters.put("page", "3");
+    context.request().setParameterMap(parameters);
+
+    assertNotEquals(cacheKey, keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyIgnoresQueryParameterOrder() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("lang", "de");
+    parameters.put("page", "2");
+    context.request().setParameterMap(parameters);
+    final String cacheKey = keyBuilder.getCacheKey(context.request(), page);
+
+    final Map<String, Object> reorderedParameters = new HashMap<>();
+    reorderedParameters.put("page", "2");
+    reorderedParameters.put("lang", "de");
+    context.request().setParameterMap(reorderedParameters);
+
+    assertEquals(cacheKey, keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenQueryParameterValueIsTooLong() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("page", StringUtils.repeat("2", 33));
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+
+    parameters.put("page", StringUtils.repeat("2", 32));
+    context.request().setParameterMap(parameters);
+
+    assertNotNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenMaxQueryParameterValueLengthIsConfigured() {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("queryParameters", new String[]{"page"});
+    configuration.put("maxQueryParameterValueLength", 2);
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder, configuration);
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("page", "12");
+    context.request().setParameterMap(parameters);
+
+    assertNotNull(keyBuilder.getCacheKey(context.request(), page));
+
+    parameters.put("page", new String[]{"1", "2"});
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenQueryParameterValuesAreConfigured() {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("queryParameters", new String[]{"lang", "page"});
+    configuration.put("queryParameterValues", new String[]{"lang=de", "lang=en", "invalid"});
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder, configuration);
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("lang", "de");
+    parameters.put("page", "2");
+    context.request().setParameterMap(parameters);
+
+    assertNotNull(keyBuilder.getCacheKey(context.request(), page));
+
+    parameters.put("lang", "fr");
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+
+    parameters.put("lang", new String[]{"de", "en", "de"});
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenOtherQueryParameter() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("campaign", "spring");
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenUiFrameworkParameter() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("ui-framework", "bootstrap");
+    context.request().setParameterMap(parameters);
+    final String bootstrapCacheKey = keyBuilder.getCacheKey(context.request(), page);
+
+    parameters.put("ui-framework", "foundation");
+    context.request().setParameterMap(parameters);
+
+    assertTrue(bootstrapCacheKey.matches("/content/page\\.v[0-9a-f]{16}\\.html"));
+    assertNotEquals(bootstrapCacheKey, keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenUnknownUiFrameworkParameter() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("ui-framework", "a1");
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenUiFrameworkRegistryIsNotBuilt() {
+    when(uiFrameworkRegistryService.isBuilt()).thenReturn(false);
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("ui-framework", "bootstrap");
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenBypassCookie() {
+    context.request().addCookie(new Cookie("personalized", "true"));
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenOtherCookie() {
+    context.request().addCookie(new Cookie("consent", "true"));
+
+    assertEquals("/content/page.html", keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenEditMode() {
+    final EditModeService editModeService = mock(EditModeService.class);
+    when(editModeService.isEditModeActive()).thenReturn(true);
+    context.registerService(EditModeService.class, editModeService);
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder);
+
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("editMode", "true");
+    context.request().setParameterMap(parameters);
+
+    assertNull(keyBuilder.getCacheKey(context.request(), page));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenEditModeIsCached() {
+    final EditModeService editModeService = mock(EditModeService.class);
+    when(editModeService.isEditModeActive()).thenReturn(true);
+    context.registerService(EditModeService.class, editModeService);
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("cacheEditMode", true);
+    keyBuilder = new BasePageCacheKeyBuilder();
+    context.registerInjectActivateService(keyBuilder, configuration);
+
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("editMode", "true");
+    context.request().setParameterMap(parameters);
+
+    final String cacheKey = keyBuilder.getCacheKey(context.request(), page);
+    assertTrue(cacheKey.matches("/content/page\\.v[0-9a-f]{16}\\.html"));
+  }
+
+  @Test
+  public void testGetCacheKeyWhenEditModeParameterWithoutActiveEditMode() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("editMode", "true");
+    context.request().setParameterMap(parameters);
+
+    assertEquals("/content/page.html", keyBuilder.getCacheKey(context.request(), page));
+  }
+
+}
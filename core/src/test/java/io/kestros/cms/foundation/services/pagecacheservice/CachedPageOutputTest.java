@@ -0,0 +1,190 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.Test;
+
+public class CachedPageOutputTest {
+
+  private CachedPageOutput cachedPageOutput;
+
+  @Test
+  public void testGetContent() {
+    cachedPageOutput = new CachedPageOutput("<p>output \u00fc</p>");
+    assertEquals("<p>output \u00fc</p>", cachedPageOutput.getContent());
+  }
+
+  @Test
+  public void testGetContentWhenConstructedFromBytes() {
+    final byte[] output = "<p>output \u00fc</p>".getBytes(StandardCharsets.UTF_8);
+    cachedPageOutput = new CachedPageOutput(output, false);
+
+    assertEquals("<p>output \u00fc</p>", cachedPageOutput.getContent());
+    assertEquals(new CachedPageOutput("<p>output \u00fc</p>").getContentHash(),
+        cachedPageOutput.getContentHash());
+    assertSame(output, cachedPageOutput.getBytes("identity"));
+  }
+
+  @Test
+  public void testToStale() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertFalse(cachedPageOutput.isStale());
+    assertEquals(0, cachedPageOutput.getStaleSince());
+
+    final CachedPageOutput staleOutput = cachedPageOutput.toStale(1000L);
+
+    assertTrue(staleOutput.isStale());
+    assertEquals(1000L, staleOutput.getStaleSince());
+    assertEquals("<p>output</p>", staleOutput.getContent());
+    assertEquals(cachedPageOutput.getEtag("gzip"), staleOutput.getEtag("gzip"));
+    assertEquals(cachedPageOutput.getCreated(), staleOutput.getCreated());
+    assertFalse(cachedPageOutput.isStale());
+  }
+
+  @Test
+  public void testToStaleWhenAlreadyStale() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>").toStale(1000L);
+
+    assertEquals(1000L, cachedPageOutput.toStale(2000L).getStaleSince());
+  }
+
+  @Test
+  public void testGetBytes() {
+    cachedPageOutput = new CachedPageOutput("<p>output \u00fc</p>");
+    assertArrayEquals("<p>output \u00fc</p>".getBytes(StandardCharsets.UTF_8),
+        cachedPageOutput.getBytes("identity"));
+  }
+
+  @Test
+  public void testGetBytesWhenGzip() throws IOException {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertEquals("<p>output</p>", decompress(
+        new GZIPInputStream(new ByteArrayInputStream(cachedPageOutput.getBytes("gzip")))));
+  }
+
+  @Test
+  public void testGetBytesWhenDeflate() throws IOException {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>", true);
+    assertEquals("<p>output</p>", decompress(
+        new InflaterInputStream(new ByteArrayInputStream(cachedPageOutput.getBytes("deflate")))));
+  }
+
+  @Test
+  public void testGetBytesWhenDeflateIsNotStored() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertArrayEquals("<p>output</p>".getBytes(StandardCharsets.UTF_8),
+        cachedPageOutput.getBytes("deflate"));
+  }
+
+  @Test
+  public void testGetPreferredEncoding() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>", true);
+    assertEquals("gzip", cachedPageOutput.getPreferredEncoding("gzip, deflate, br"));
+    assertEquals("deflate", cachedPageOutput.getPreferredEncoding("deflate"));
+    assertEquals("deflate", cachedPageOutput.getPreferredEncoding("gzip;q=0, deflate"));
+    assertEquals("gzip", cachedPageOutput.getPreferredEncoding("*"));
+    assertEquals("identity", cachedPageOutput.getPreferredEncoding("br"));
+    assertEquals("identity", cachedPageOutput.getPreferredEncoding(""));
+    assertEquals("identity", cachedPageOutput.getPreferredEncoding(null));
+  }
+
+  @Test
+  public void testGetPreferredEncodingWhenDeflateIsNotStored() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertEquals("identity", cachedPageOutput.getPreferredEncoding("deflate"));
+  }
+
+  @Test
+  public void testIsEncodingAccepted() {
+    assertTrue(CachedPageOutput.isEncodingAccepted("GZIP", "gzip"));
+    assertTrue(CachedPageOutput.isEncodingAccepted("gzip;q=0.5", "gzip"));
+    assertFalse(CachedPageOutput.isEncodingAccepted("gzip;q=0", "gzip"));
+    assertFalse(CachedPageOutput.isEncodingAccepted("*, gzip;q=0", "gzip"));
+    assertFalse(CachedPageOutput.isEncodingAccepted("gzip;q=invalid", "gzip"));
+  }
+
+  @Test
+  public void testGetSize() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertEquals(13 + 128 + cachedPageOutput.getBytes("gzip").length,
+        cachedPageOutput.getSize());
+  }
+
+  @Test
+  public void testGetContentHash() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertEquals(64, cachedPageOutput.getContentHash().length());
+    assertEquals(cachedPageOutput.getContentHash(),
+        new CachedPageOutput("<p>output</p>").getContentHash());
+    assertNotEquals(cachedPageOutput.getContentHash(),
+        new CachedPageOutput("<p>other output</p>").getContentHash());
+  }
+
+  @Test
+  public void testGetCreated() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>", false, 1000L);
+    assertEquals(1000L, cachedPageOutput.getCreated());
+  }
+
+  @Test
+  public void testGetEtag() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    final String hash = cachedPageOutput.getContentHash();
+    assertEquals("\"" + hash + "\"", cachedPageOutput.getEtag("identity"));
+    assertEquals("\"" + hash + "-gzip\"", cachedPageOutput.getEtag("gzip"));
+    assertEquals("\"" + hash + "\"", cachedPageOutput.getEtag("deflate"));
+  }
+
+  @Test
+  public void testMatchesEtag() {
+    cachedPageOutput = new CachedPageOutput("<p>output</p>");
+    assertTrue(cachedPageOutput.matchesEtag(cachedPageOutput.getEtag("identity")));
+    assertTrue(cachedPageOutput.matchesEtag("W/" + cachedPageOutput.getEtag("gzip")));
+    assertTrue(
+        cachedPageOutput.matchesEtag("\"other\", " + cachedPageOutput.getEtag("identity")));
+    assertTrue(cachedPageOutput.matchesEtag("*"));
+    assertFalse(cachedPageOutput.matchesEtag("\"other\""));
+    assertFalse(cachedPageOutput.matchesEtag(null));
+  }
+
+  private static String decompress(final InputStream inputStream) throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    int length;
+    while ((length = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, length);
+    }
+    inputStream.close();
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HtmlWhitespaceMinifierTest {
+
+  private HtmlWhitespaceMinifier minifier;
+
+  @Before
+  public void setUp() throws Exception {
+    minifier = new HtmlWhitespaceMinifier();
+  }
+
+  @Test
+  public void testProcess() {
+    assertEquals("<div> <p>output</p> </div>",
+        minifier.process(mock(BaseContentPage.class), "<div>\n  <p>output</p>\n</div>"));
+  }
+
+  @Test
+  public void testMinify() {
+    assertEquals(" <html> <body class=\"a b\"> text </body> </html> ",
+        minifier.minify("\n<html>\n\t<body   class=\"a\n b\">  text\r\n</body>\n</html>\n"));
+  }
+
+  @Test
+  public void testMinifyWhenPreformattedElements() {
+    final String pre = "<pre class=\"code\">line 1\n    line 2</pre>";
+    final String textarea = "<TEXTAREA name=\"a\">  value\n\n</TEXTAREA>";
+    final String script = "<script>// comment\nvar a = 1;</script>";
+    final String style = "<style>\n  p {}\n</style>";
+
+    assertEquals("<div> " + pre + " " + textarea + " " + script + style + " </div>",
+        minifier.minify(
+            "<div>\n  " + pre + "\n\n" + textarea + "  " + script + style + "\n</div>"));
+  }
+
+  @Test
+  public void testMinifyWhenElementNameStartsWithPreservedElementName() {
+    assertEquals("<preview> a </preview>", minifier.minify("<preview>  a\n</preview>"));
+  }
+
+  @Test
+  public void testMinifyWhenPreformattedElementIsNotClosed() {
+    assertEquals("<p> a </p> <pre>  a\n", minifier.minify("<p>  a </p>\n<pre>  a\n"));
+  }
+
+  @Test
+  public void testMinifyWhenEmpty() {
+    assertEquals("", minifier.minify(""));
+  }
+}
@@ -19,15 +19,24 @@
 package io.kestros.cms.foundation.services.pagecacheservice.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 import io.kestros.cms.foundation.content.pages.BaseContentPage;
+import io.kestros.cms.foundation.services.pagecachedependency.impl.BasePageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecacheservice.PageOutputPostProcessor;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.event.jobs.JobManager;
@@ -125,4 +134,281 @@ public class JcrFilePageCacheServiceTest {
     cacheService.cachePage(page, "<p>output</p>");
     assertEquals("<p>output</p>", cacheService.getCachedOutput(page));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetCachedOutputWhenServedFromMemoryCache()
+      throws CacheBuilderException, CacheRetrievalException, PersistenceException {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+
+    context.resourceResolver().delete(
+        context.resourceResolver().getResource("/var/cache/pages/content/page.html"));
+
+    assertEquals("<p>output</p>", cacheService.getCachedOutput(page));
+    assertEquals(1, cacheService.getMemoryCache().getEntryCount());
+  }
+
+  @Test
+  public void testCachePageFromBytes() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    final byte[] output = "<p>output \u00fc</p>".getBytes(StandardCharsets.UTF_8);
+
+    cacheService.cachePage(page, "/content/page.html", output);
+
+    assertSame(output, cacheService.getCachedPageOutput(page).getBytes("identity"));
+    cacheService.getMemoryCache().clear();
+    assertEquals("<p>output \u00fc</p>", cacheService.getCachedOutput(page));
+  }
+
+  @Test
+  public void testCachePageRunsPostProcessors() throws Exception {
+    context.registerService(PageOutputPostProcessor.class, new HtmlWhitespaceMinifier());
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+
+    cacheService.cachePage(page, "<div>\n  <pre>a\n  b</pre>\n</div>");
+
+    assertEquals(1, cacheService.getPageOutputPostProcessors().size());
+    assertEquals("<div> <pre>a\n  b</pre> </div>", cacheService.getCachedOutput(page));
+    cacheService.getMemoryCache().clear();
+    assertEquals("<div> <pre>a\n  b</pre> </div>", cacheService.getCachedOutput(page));
+  }
+
+  @Test
+  public void testGetPageOutputPostProcessorsWhenNoneRegistered() {
+    assertEquals(0, cacheService.getPageOutputPostProcessors().size());
+  }
+
+  @Test
+  public void testPurgePage() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    context.create().resource("/content/other-page", pageProperties);
+    context.create().resource("/content/other-page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.cachePage(
+        context.resourceResolver().getResource("/content/other-page").adaptTo(
+            BaseContentPage.class), "<p>other output</p>");
+
+    cacheService.purgePage("/content/page");
+
+    assertNull(context.resourceResolver().getResource("/var/cache/pages/content/page.html"));
+    assertNotNull(
+        context.resourceResolver().getResource("/var/cache/pages/content/other-page.html"));
+    assertEquals(1, cacheService.getMemoryCache().getEntryCount());
+    try {
+      cacheService.getCachedOutput(page);
+      fail();
+    } catch (final CacheRetrievalException exception) {
+      assertNotNull(exception);
+    }
+  }
+
+  @Test
+  public void testCachePageVariant() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.cachePage(page, "/content/page.print.html", "<p>print output</p>");
+
+    assertEquals("<p>output</p>", cacheService.getCachedOutput(page));
+    assertEquals("<p>print output</p>",
+        cacheService.getCachedPageOutput(page, "/content/page.print.html").getContent());
+    assertNotNull(
+        context.resourceResolver().getResource("/var/cache/pages/content/page.print.html"));
+  }
+
+  @Test
+  public void testPurgePageRemovesAllVariants() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    context.create().resource("/content/page-two", pageProperties);
+    context.create().resource("/content/page-two/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.cachePage(page, "/content/page.print.html", "<p>print output</p>");
+    cacheService.cachePage(page, "/content/page.v0123456789abcdef.html", "<p>variant</p>");
+    cacheService.cachePage(
+        context.resourceResolver().getResource("/content/page-two").adaptTo(
+            BaseContentPage.class), "<p>other output</p>");
+    cacheService.purgePage("/content/page");
+
+    assertNull(context.resourceResolver().getResource("/var/cache/pages/content/page.html"));
+    assertNull(
+        context.resourceResolver().getResource("/var/cache/pages/content/page.print.html"));
+    assertNull(context.resourceResolver().getResource(
+        "/var/cache/pages/content/page.v0123456789abcdef.html"));
+    assertNotNull(
+        context.resourceResolver().getResource("/var/cache/pages/content/page-two.html"));
+    assertEquals(1, cacheService.getMemoryCache().getEntryCount());
+  }
+
+  @Test
+  public void testPurgePageRemovesPersistedVariantsCachedBeforeActivation() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "/content/page.print.html", "<p>print output</p>");
+
+    cacheService = new JcrFilePageCacheService();
+    context.registerInjectActivateService(cacheService);
+    cacheService.purgePage("/content/page");
+
+    assertNull(
+        context.resourceResolver().getResource("/var/cache/pages/content/page.print.html"));
+  }
+
+  @Test
+  public void testCachePagePersistsDependencies() throws Exception {
+    final BasePageCacheDependencyService dependencyService = new BasePageCacheDependencyService();
+    context.registerInjectActivateService(dependencyService);
+    cacheService = new JcrFilePageCacheService();
+    context.registerInjectActivateService(cacheService);
+
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    dependencyService.recordDependencies("/content/page",
+        Collections.singleton("/content/page/jcr:content"));
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.cachePage(page, "/content/page.print.html", "<p>print output</p>");
+
+    assertNotNull(context.resourceResolver().getResource(
+        "/var/cache/pages/content/page.html.dependencies"));
+
+    dependencyService.clear();
+    cacheService.restorePersistedDependencies();
+
+    assertEquals(Collections.singleton("/content/page/jcr:content"),
+        dependencyService.getDependencies("/content/page"));
+    assertFalse(dependencyService.hasDependencies("/content/page.print"));
+
+    cacheService.purgePage("/content/page");
+
+    assertNull(context.resourceResolver().getResource(
+        "/var/cache/pages/content/page.html.dependencies"));
+    cacheService.deactivate(context.componentContext());
+  }
+
+  @Test
+  public void testRestorePersistedDependenciesWithoutDependencyService() throws Exception {
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+
+    cacheService.restorePersistedDependencies();
+
+    assertNull(context.resourceResolver().getResource(
+        "/var/cache/pages/content/page.html.dependencies"));
+  }
+
+  @Test
+  public void testPurgePageWhenNotCached() throws Exception {
+    context.create().resource("/var/cache/pages");
+
+    cacheService.purgePage("/content/page");
+
+    assertEquals(0, cacheService.getMemoryCache().getEntryCount());
+  }
+
+  @Test
+  public void testPurgePageWhenStaleWhileRevalidate() throws Exception {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("staleWhileRevalidate", true);
+    cacheService = new JcrFilePageCacheService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+
+    cacheService.purgePage("/content/page");
+
+    assertNull(context.resourceResolver().getResource("/var/cache/pages/content/page.html"));
+    assertTrue(cacheService.getCachedPageOutput(page).isStale());
+    assertEquals("<p>output</p>", cacheService.getCachedOutput(page));
+
+    cacheService.cachePage(page, "<p>new output</p>");
+
+    assertFalse(cacheService.getCachedPageOutput(page).isStale());
+    assertEquals("<p>new output</p>", cacheService.getCachedOutput(page));
+  }
+
+  @Test
+  public void testPurgePageWhenStaleWhileRevalidateAndOnlyPersisted() throws Exception {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("staleWhileRevalidate", true);
+    cacheService = new JcrFilePageCacheService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.getMemoryCache().clear();
+
+    cacheService.purgePage("/content/page");
+
+    assertTrue(cacheService.getCachedPageOutput(page).isStale());
+    assertEquals("<p>output</p>", cacheService.getCachedOutput(page));
+  }
+
+  @Test
+  public void testGetCachedPageOutputWhenStaleOutputExceedsMaxStaleness() throws Exception {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("staleWhileRevalidate", true);
+    configuration.put("maxStaleness", 0L);
+    cacheService = new JcrFilePageCacheService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    context.create().resource("/var/cache/pages");
+    resource = context.create().resource("/content/page", pageProperties);
+    context.create().resource("/content/page/jcr:content", pageJcrContentProperties);
+    page = resource.adaptTo(BaseContentPage.class);
+    cacheService.cachePage(page, "<p>output</p>");
+    cacheService.purgePage("/content/page");
+    Thread.sleep(5);
+
+    try {
+      cacheService.getCachedPageOutput(page);
+      fail();
+    } catch (final CacheRetrievalException exception) {
+      assertEquals("Stale cache for /content/page exceeded its maximum staleness.",
+          exception.getMessage());
+    }
+    assertEquals(0, cacheService.getMemoryCache().getEntryCount());
+  }
+
+  @Test
+  public void testIsStaleWhileRevalidate() {
+    assertFalse(cacheService.isStaleWhileRevalidate());
+    assertEquals(JcrFilePageCacheService.DEFAULT_MAX_STALENESS, cacheService.getMaxStaleness());
+  }
+
+  @Test
+  public void testGetMemoryCache() {
+    assertEquals(JcrFilePageCacheService.DEFAULT_MEMORY_CACHE_MAX_SIZE,
+        cacheService.getMemoryCache().getMaximumSize());
+  }
+}
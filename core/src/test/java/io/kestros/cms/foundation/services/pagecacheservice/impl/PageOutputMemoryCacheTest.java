@@ -0,0 +1,128 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecacheservice.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.kestros.cms.foundation.services.pagecacheservice.CachedPageOutput;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageOutputMemoryCacheTest {
+
+  private PageOutputMemoryCache memoryCache;
+
+  private CachedPageOutput output;
+
+  private long entryWeight;
+
+  @Before
+  public void setUp() throws Exception {
+    output = new CachedPageOutput("output");
+    entryWeight = PageOutputMemoryCache.getWeight("/page-1.html", output);
+    memoryCache = new PageOutputMemoryCache(entryWeight * 2);
+  }
+
+  @Test
+  public void testGet() {
+    memoryCache.put("/page-1.html", output);
+    assertEquals(output, memoryCache.get("/page-1.html"));
+  }
+
+  @Test
+  public void testGetWhenMissing() {
+    assertNull(memoryCache.get("/page-1.html"));
+  }
+
+  @Test
+  public void testPutWhenReplacingEntry() {
+    final CachedPageOutput newOutput = new CachedPageOutput("output");
+    memoryCache.put("/page-1.html", output);
+    memoryCache.put("/page-1.html", newOutput);
+    assertEquals(newOutput, memoryCache.get("/page-1.html"));
+    assertEquals(1, memoryCache.getEntryCount());
+    assertEquals(entryWeight, memoryCache.getCurrentSize());
+  }
+
+  @Test
+  public void testPutEvictsLeastRecentlyUsed() {
+    final CachedPageOutput output2 = new CachedPageOutput("output");
+    final CachedPageOutput output3 = new CachedPageOutput("output");
+    memoryCache.put("/page-1.html", output);
+    memoryCache.put("/page-2.html", output2);
+    memoryCache.get("/page-1.html");
+    memoryCache.put("/page-3.html", output3);
+
+    assertEquals(output, memoryCache.get("/page-1.html"));
+    assertNull(memoryCache.get("/page-2.html"));
+    assertEquals(output3, memoryCache.get("/page-3.html"));
+    assertEquals(2, memoryCache.getEntryCount());
+  }
+
+  @Test
+  public void testPutWhenEntryIsLargerThanMaximumSize() {
+    memoryCache.put("/page-1.html", new CachedPageOutput(
+        "this output is far too large for the memory cache budget, since it is much longer"));
+    assertNull(memoryCache.get("/page-1.html"));
+    assertEquals(0, memoryCache.getCurrentSize());
+  }
+
+  @Test
+  public void testPutWhenDisabled() {
+    memoryCache = new PageOutputMemoryCache(0);
+    memoryCache.put("/page-1.html", output);
+    assertNull(memoryCache.get("/page-1.html"));
+  }
+
+  @Test
+  public void testRemove() {
+    memoryCache.put("/page-1.html", output);
+    memoryCache.remove("/page-1.html");
+    assertNull(memoryCache.get("/page-1.html"));
+    assertEquals(0, memoryCache.getCurrentSize());
+  }
+
+  @Test
+  public void testRemoveWhenOutputMatches() {
+    memoryCache.put("/page-1.html", output);
+    assertFalse(memoryCache.remove("/page-1.html", new CachedPageOutput("<p>output</p>")));
+    assertNotNull(memoryCache.get("/page-1.html"));
+    assertTrue(memoryCache.remove("/page-1.html", output));
+    assertNull(memoryCache.get("/page-1.html"));
+    assertEquals(0, memoryCache.getCurrentSize());
+  }
+
+  @Test
+  public void testClear() {
+    memoryCache.put("/page-1.html", output);
+    memoryCache.put("/page-2.html", output);
+    memoryCache.clear();
+    assertEquals(0, memoryCache.getEntryCount());
+    assertEquals(0, memoryCache.getCurrentSize());
+  }
+
+  @Test
+  public void testGetMaximumSize() {
+    assertEquals(entryWeight * 2, memoryCache.getMaximumSize());
+  }
+}
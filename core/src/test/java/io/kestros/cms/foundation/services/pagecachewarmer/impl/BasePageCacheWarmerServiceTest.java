@@ -0,0 +1,288 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagecachewarmer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmupProgress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BasePageCacheWarmerServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BasePageCacheWarmerService warmerService;
+
+  private Map<String, Object> configuration = new HashMap<>();
+
+  private Map<String, Object> siteProperties = new HashMap<>();
+
+  private Map<String, Object> pageProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    siteProperties.put("jcr:primaryType", "kes:Site");
+    pageProperties.put("jcr:primaryType", "kes:Page");
+
+    configuration.put("sitePaths", new String[]{"/content/site"});
+    configuration.put("baseUrl", "http://localhost:4502");
+    configuration.put("warmOnActivation", false);
+
+    warmerService = spy(new BasePageCacheWarmerService());
+    doReturn(true).when(warmerService).warmPage(anyString());
+    doReturn(0.0).when(warmerService).getSystemLoadPerProcessor();
+  }
+
+  @Test
+  public void testGetSitePagePaths() {
+    context.registerInjectActivateService(warmerService, configuration);
+    context.create().resource("/content/site", siteProperties);
+    context.create().resource("/content/site/jcr:content");
+    context.create().resource("/content/site/page-1", pageProperties);
+    context.create().resource("/content/site/page-1/jcr:content");
+    context.create().resource("/content/site/page-1/page-2", pageProperties);
+    context.create().resource("/content/site/page-1/page-2/jcr:content");
+    context.create().resource("/content/other-site", siteProperties);
+
+    final List<String> pagePaths = warmerService.getSitePagePaths(context.resourceResolver());
+
+    assertEquals(3, pagePaths.size());
+    assertTrue(pagePaths.contains("/content/site"));
+    assertTrue(pagePaths.contains("/content/site/page-1"));
+    assertTrue(pagePaths.contains("/content/site/page-1/page-2"));
+  }
+
+  @Test
+  public void testGetSitePagePathsWhenSiteIsMissing() {
+    context.registerInjectActivateService(warmerService, configuration);
+
+    assertEquals(0, warmerService.getSitePagePaths(context.resourceResolver()).size());
+  }
+
+  @Test
+  public void testWarmPages() throws InterruptedException {
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(
+        Arrays.asList("/content/site", "/content/site/page", "/content/other-site/page"));
+    awaitWarmup();
+
+    final PageCacheWarmupProgress progress = warmerService.getProgress();
+    assertFalse(progress.isRunning());
+    assertEquals(2, progress.getQueuedPages());
+    assertEquals(2, progress.getWarmedPages());
+    assertEquals(0, progress.getFailedPages());
+    assertEquals(0, progress.getRemainingPages());
+    assertTrue(progress.getStarted() > 0);
+    verify(warmerService, times(1)).warmPage("/content/site");
+    verify(warmerService, times(1)).warmPage("/content/site/page");
+    verify(warmerService, never()).warmPage("/content/other-site/page");
+  }
+
+  @Test
+  public void testWarmPagesWhenPageFails() throws InterruptedException {
+    doReturn(false).when(warmerService).warmPage("/content/site/page");
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+    awaitWarmup();
+
+    assertEquals(1, warmerService.getProgress().getWarmedPages());
+    assertEquals(1, warmerService.getProgress().getFailedPages());
+  }
+
+  @Test
+  public void testWarmPagesWhenResponsesAreSlow() throws InterruptedException {
+    doAnswer(invocation -> {
+      Thread.sleep(20);
+      return true;
+    }).when(warmerService).warmPage(anyString());
+    configuration.put("latencyThreshold", 5L);
+    configuration.put("throttleDelay", 1L);
+    configuration.put("threadCount", 1);
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+    awaitWarmup();
+
+    assertEquals(2, warmerService.getProgress().getWarmedPages());
+    assertEquals(2, warmerService.getProgress().getThrottledPages());
+  }
+
+  @Test
+  public void testWarmPagesWhenSystemLoadIsHigh() throws InterruptedException {
+    doReturn(2.0, 1.5, 0.5).when(warmerService).getSystemLoadPerProcessor();
+    configuration.put("throttleDelay", 1L);
+    configuration.put("threadCount", 1);
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+    awaitWarmup();
+
+    assertEquals(2, warmerService.getProgress().getWarmedPages());
+    assertEquals(1, warmerService.getProgress().getThrottledPages());
+    verify(warmerService, times(4)).getSystemLoadPerProcessor();
+  }
+
+  @Test
+  public void testWarmPagesWhenRequestRateIsCapped() throws InterruptedException {
+    configuration.put("maxRequestsPerSecond", 20);
+    context.registerInjectActivateService(warmerService, configuration);
+    final long start = System.currentTimeMillis();
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page-1",
+        "/content/site/page-2", "/content/site/page-3", "/content/site/page-4"));
+    awaitWarmup();
+
+    assertEquals(5, warmerService.getProgress().getWarmedPages());
+    assertTrue(System.currentTimeMillis() - start >= 150);
+  }
+
+  @Test
+  public void testWarmPagesWhenNoSitesAreConfigured() throws InterruptedException {
+    configuration.remove("sitePaths");
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+    awaitWarmup();
+
+    assertEquals(0, warmerService.getProgress().getQueuedPages());
+    verify(warmerService, never()).warmPage(anyString());
+  }
+
+  @Test
+  public void testWarmPagesWhenBaseUrlIsNotConfigured() throws InterruptedException {
+    configuration.remove("baseUrl");
+    context.registerInjectActivateService(warmerService, configuration);
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+    warmerService.warmAllPages();
+    awaitWarmup();
+
+    assertEquals(0, warmerService.getProgress().getQueuedPages());
+    verify(warmerService, never()).warmPage(anyString());
+  }
+
+  @Test
+  public void testWarmPagesWhenDeactivated() {
+    context.registerInjectActivateService(warmerService, configuration);
+    warmerService.deactivate();
+
+    warmerService.warmPages(Arrays.asList("/content/site", "/content/site/page"));
+
+    verify(warmerService, never()).warmPage(anyString());
+  }
+
+  @Test
+  public void testRefreshPage() throws InterruptedException {
+    final CountDownLatch refreshing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      refreshing.countDown();
+      return release.await(5, TimeUnit.SECONDS);
+    }).when(warmerService).requestPage(anyString());
+    context.registerInjectActivateService(warmerService, configuration);
+
+    assertTrue(warmerService.refreshPage("/content/site/page.html", "/content/site/page.html"));
+    assertTrue(refreshing.await(5, TimeUnit.SECONDS));
+    assertTrue(
+        warmerService.refreshPage("/content/site/page.html", "/content/site/page.html?a=b"));
+    release.countDown();
+
+    verify(warmerService, timeout(5000).times(1)).requestPage("/content/site/page.html");
+    verify(warmerService, never()).requestPage("/content/site/page.html?a=b");
+    warmerService.deactivate();
+  }
+
+  @Test
+  public void testRefreshPageWhenBaseUrlIsNotConfigured() {
+    configuration.remove("baseUrl");
+    context.registerInjectActivateService(warmerService, configuration);
+
+    assertFalse(warmerService.refreshPage("/content/site/page.html", "/content/site/page.html"));
+    verify(warmerService, never()).requestPage(anyString());
+  }
+
+  @Test
+  public void testIsWarmupRequest() {
+    context.registerInjectActivateService(warmerService, configuration);
+
+    assertFalse(warmerService.isWarmupRequest(context.request()));
+    context.request().addHeader(BasePageCacheWarmerService.WARMUP_REQUEST_HEADER, "token");
+    assertFalse(warmerService.isWarmupRequest(context.request()));
+  }
+
+  @Test
+  public void testGetProgressWhenNotStarted() {
+    context.registerInjectActivateService(warmerService, configuration);
+
+    final PageCacheWarmupProgress progress = warmerService.getProgress();
+    assertFalse(progress.isRunning());
+    assertEquals(0, progress.getQueuedPages());
+    assertEquals(0, progress.getStarted());
+  }
+
+  @Test
+  public void testGetPriorityComparator() {
+    configuration.put("priorityPaths",
+        new String[]{"/content/site/b/popular", "/content/site/a/c"});
+    context.registerInjectActivateService(warmerService, configuration);
+
+    final List<String> pagePaths = new ArrayList<>(
+        Arrays.asList("/content/site/b/d", "/content/site/a/c", "/content/site/b",
+            "/content/site", "/content/site/b/popular", "/content/site/a"));
+    pagePaths.sort(warmerService.getPriorityComparator());
+
+    assertEquals(Arrays.asList("/content/site/b/popular", "/content/site/a/c", "/content/site",
+        "/content/site/a", "/content/site/b", "/content/site/b/d"), pagePaths);
+  }
+
+  private void awaitWarmup() throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + 5000;
+    while (warmerService.getProgress().isRunning() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+  }
+}
@@ -18,26 +18,39 @@
 
 package io.kestros.cms.foundation.services.pagerendermethod.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.kestros.cms.foundation.services.pagecachedependency.PageCacheDependencyService;
+import io.kestros.cms.foundation.services.pagecachekey.PageCacheKeyBuilder;
+import io.kestros.cms.foundation.services.pagecacheservice.CachedPageOutput;
 import io.kestros.cms.foundation.services.pagecacheservice.GeneralPageCacheService;
 import io.kestros.cms.foundation.services.pagecacheservice.impl.JcrFilePageCacheService;
+import io.kestros.cms.foundation.services.pagecachewarmer.PageCacheWarmerService;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheBuilderException;
 import io.kestros.commons.osgiserviceutils.exceptions.CacheRetrievalException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.sling.api.request.RequestDispatcherOptions;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
@@ -99,7 +112,8 @@ public class BasePageRenderMethodTest {
     context.request().setResource(resource);
 
     doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
-    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedOutput(any());
+    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedPageOutput(
+        any(), any());
 
     pageRenderMethod.doRender(context.request(), context.response());
 
@@ -107,7 +121,156 @@ public class BasePageRenderMethodTest {
     //    .class),
     //        context.response());
     assertEquals(200, context.response().getStatus());
-    assertEquals("text/html", context.response().getContentType());
+    assertTrue(context.response().getContentType().startsWith("text/html"));
+  }
+
+  @Test
+  public void testDoRenderWritesAndCachesRenderedOutput() throws Exception {
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doAnswer(invocation -> {
+      ((HttpServletResponse) invocation.getArgument(1)).getWriter().write("<p>rendered</p>");
+      return null;
+    }).when(requestDispatcher).include(any(), any());
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedPageOutput(
+        any(), any());
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals(200, context.response().getStatus());
+    assertEquals("<p>rendered</p>", context.response().getOutputAsString());
+    verify(generalPageCacheService, times(1)).cachePage(any(), eq("/page.html"),
+        aryEq("<p>rendered</p>".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testDoRenderWhenRequestBypassesCache() throws Exception {
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doAnswer(invocation -> {
+      ((HttpServletResponse) invocation.getArgument(1)).getWriter().write("<p>rendered</p>");
+      return null;
+    }).when(requestDispatcher).include(any(), any());
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    final PageCacheKeyBuilder pageCacheKeyBuilder = mock(PageCacheKeyBuilder.class);
+    doReturn(pageCacheKeyBuilder).when(pageRenderMethod).getPageCacheKeyBuilder();
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>rendered</p>", context.response().getOutputAsString());
+    verify(generalPageCacheService, never()).getCachedPageOutput(any(), any());
+    verify(generalPageCacheService, never()).cachePage(any(), any(), any(byte[].class));
+    assertEquals(0, pageRenderMethod.getRenderCoalescer().getInFlightCount());
+  }
+
+  @Test
+  public void testDoRenderUsesCacheKeyFromKeyBuilder() throws Exception {
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    final PageCacheKeyBuilder pageCacheKeyBuilder = mock(PageCacheKeyBuilder.class);
+    when(pageCacheKeyBuilder.getCacheKey(any(), any())).thenReturn("/page.print.html");
+    doReturn(pageCacheKeyBuilder).when(pageRenderMethod).getPageCacheKeyBuilder();
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), eq("/page.print.html"))).thenReturn(
+        new CachedPageOutput("<p>print</p>"));
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>print</p>", context.response().getOutputAsString());
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsBeingRendered() throws Exception {
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenThrow(
+        CacheRetrievalException.class).thenReturn(new CachedPageOutput("<p>cachedOutput</p>"));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    final PageRenderCoalescer coalescer = pageRenderMethod.getRenderCoalescer();
+    assertNull(coalescer.join("/page.html"));
+    final Thread renderThread = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (final InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+      coalescer.complete("/page");
+    });
+    renderThread.start();
+
+    pageRenderMethod.doRender(context.request(), context.response());
+    renderThread.join();
+
+    verify(generalPageCacheService, times(2)).getCachedPageOutput(any(), any());
+    verify(generalPageCacheService, never()).cachePage(any(), any(), any(byte[].class));
+    assertEquals("<p>cachedOutput</p>", context.response().getOutputAsString());
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void testDoRenderWhenWaitingForConcurrentRenderTimesOut() throws Exception {
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(1L).when(pageRenderMethod).getRenderWaitTimeout();
+    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedPageOutput(
+        any(), any());
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.getRenderCoalescer().join("/page.html");
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    verify(generalPageCacheService, times(1)).cachePage(any(), any(), any(byte[].class));
+    assertEquals(1, pageRenderMethod.getRenderCoalescer().getInFlightCount());
   }
 
   @Test
@@ -115,7 +278,8 @@ public class BasePageRenderMethodTest {
 
     doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
 
-    when(generalPageCacheService.getCachedOutput(any())).thenReturn("<p>cachedOutput</p>");
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>cachedOutput</p>"));
 
     resource = context.create().resource("/page", pageProperties);
     context.create().resource("/page/jcr:content", pageJcrContentProperties);
@@ -125,9 +289,340 @@ public class BasePageRenderMethodTest {
     pageRenderMethod.doRender(context.request(), context.response());
 
     assertNotNull(pageRenderMethod.getPageCacheService());
-    verify(generalPageCacheService, times(1)).getCachedOutput(any());
+    verify(generalPageCacheService, times(1)).getCachedPageOutput(any(), any());
+    assertEquals(200, context.response().getStatus());
+    assertTrue(context.response().getContentType().startsWith("text/html"));
+    assertEquals("<p>cachedOutput</p>", context.response().getOutputAsString());
+    assertEquals("Accept-Encoding", context.response().getHeader("Vary"));
+    assertNull(context.response().getHeader("Content-Encoding"));
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndDependenciesAreNotTracked()
+      throws IOException, CacheRetrievalException, CacheBuilderException {
+    final PageCacheDependencyService dependencyService = mock(PageCacheDependencyService.class);
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(dependencyService).when(pageRenderMethod).getPageCacheDependencyService();
+    when(dependencyService.hasDependencies("/page")).thenReturn(false);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    verify(dependencyService, times(1)).recordDependencies(any());
+    verify(generalPageCacheService, times(1)).cachePage(any(), any(), any(byte[].class));
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsInvalidatedWhileRendering() throws Exception {
+    final PageCacheDependencyService dependencyService = mock(PageCacheDependencyService.class);
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doAnswer(invocation -> {
+      ((HttpServletResponse) invocation.getArgument(1)).getWriter().write("<p>rendered</p>");
+      return null;
+    }).when(requestDispatcher).include(any(), any());
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(dependencyService).when(pageRenderMethod).getPageCacheDependencyService();
+    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedPageOutput(
+        any(), any());
+    when(dependencyService.getInvalidationGeneration("/page")).thenReturn(1L, 2L);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>rendered</p>", context.response().getOutputAsString());
+    verify(dependencyService, times(1)).recordDependencies(any());
+    verify(generalPageCacheService, never()).cachePage(any(), any(), any(byte[].class));
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsInvalidatedWhileCaching() throws Exception {
+    final PageCacheDependencyService dependencyService = mock(PageCacheDependencyService.class);
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(dependencyService).when(pageRenderMethod).getPageCacheDependencyService();
+    doThrow(CacheRetrievalException.class).when(generalPageCacheService).getCachedPageOutput(
+        any(), any());
+    when(dependencyService.getInvalidationGeneration("/page")).thenReturn(1L, 1L, 2L);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    verify(generalPageCacheService, times(1)).cachePage(any(), eq("/page.html"),
+        any(byte[].class));
+    verify(generalPageCacheService, times(1)).purgePage("/page");
+  }
+
+  @Test
+  public void testDoRenderWhenCachedOutputIsStale() throws Exception {
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doAnswer(invocation -> {
+      ((HttpServletResponse) invocation.getArgument(1)).getWriter().write("<p>rendered</p>");
+      return null;
+    }).when(requestDispatcher).include(any(), any());
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>stale</p>").toStale(System.currentTimeMillis()));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>stale</p>", context.response().getOutputAsString());
+    verify(generalPageCacheService, times(1)).cachePage(any(), eq("/page.html"),
+        aryEq("<p>rendered</p>".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(0, pageRenderMethod.getRenderCoalescer().getInFlightCount());
+  }
+
+  @Test
+  public void testDoRenderWhenCachedOutputIsStaleAndRefreshedByWarmer() throws Exception {
+    final PageCacheWarmerService warmerService = mock(PageCacheWarmerService.class);
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(warmerService).when(pageRenderMethod).getPageCacheWarmerService();
+    when(warmerService.refreshPage(eq("/page.html"), any())).thenReturn(true);
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>stale</p>").toStale(System.currentTimeMillis()));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>stale</p>", context.response().getOutputAsString());
+    verify(warmerService, times(1)).refreshPage(eq("/page.html"), any());
+    verify(generalPageCacheService, never()).cachePage(any(), any(), any(byte[].class));
+    assertEquals(0, pageRenderMethod.getRenderCoalescer().getInFlightCount());
+  }
+
+  @Test
+  public void testDoRenderWhenWarmupRequest() throws Exception {
+    final PageCacheWarmerService warmerService = mock(PageCacheWarmerService.class);
+    context.request().setRequestDispatcherFactory(new MockRequestDispatcherFactory() {
+      @Override
+      public RequestDispatcher getRequestDispatcher(String path, RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+
+      @Override
+      public RequestDispatcher getRequestDispatcher(Resource resource,
+          RequestDispatcherOptions options) {
+        return requestDispatcher;
+      }
+    });
+    doAnswer(invocation -> {
+      ((HttpServletResponse) invocation.getArgument(1)).getWriter().write("<p>rendered</p>");
+      return null;
+    }).when(requestDispatcher).include(any(), any());
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(warmerService).when(pageRenderMethod).getPageCacheWarmerService();
+    when(warmerService.isWarmupRequest(any())).thenReturn(true);
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>stale</p>").toStale(System.currentTimeMillis()));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>rendered</p>", context.response().getOutputAsString());
+    verify(generalPageCacheService, never()).getCachedPageOutput(any(), any());
+    verify(generalPageCacheService, times(1)).cachePage(any(), eq("/page.html"),
+        aryEq("<p>rendered</p>".getBytes(StandardCharsets.UTF_8)));
+    verify(warmerService, never()).refreshPage(anyString(), anyString());
+  }
+
+  @Test
+  public void testDoRenderWhenCachedOutputIsStaleAndBeingRefreshed() throws Exception {
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>stale</p>").toStale(System.currentTimeMillis()));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.getRenderCoalescer().join("/page.html");
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("<p>stale</p>", context.response().getOutputAsString());
+    verify(generalPageCacheService, never()).cachePage(any(), any(), any(byte[].class));
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndDependenciesAreTracked()
+      throws IOException, CacheRetrievalException {
+    final PageCacheDependencyService dependencyService = mock(PageCacheDependencyService.class);
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    doReturn(dependencyService).when(pageRenderMethod).getPageCacheDependencyService();
+    when(dependencyService.hasDependencies("/page")).thenReturn(true);
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(
+        new CachedPageOutput("<p>cachedOutput</p>"));
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    verify(generalPageCacheService, times(1)).getCachedPageOutput(any(), any());
+    assertEquals("<p>cachedOutput</p>", context.response().getOutputAsString());
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndGzipIsAccepted()
+      throws IOException, CacheRetrievalException {
+    final CachedPageOutput cachedPageOutput = new CachedPageOutput("<p>cachedOutput</p>");
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(cachedPageOutput);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+    context.request().addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals("gzip", context.response().getHeader("Content-Encoding"));
+    assertArrayEquals(cachedPageOutput.getBytes("gzip"), context.response().getOutput());
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndEtagMatches()
+      throws IOException, CacheRetrievalException {
+    final CachedPageOutput cachedPageOutput = new CachedPageOutput("<p>cachedOutput</p>");
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(cachedPageOutput);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+    context.request().addHeader("If-None-Match", cachedPageOutput.getEtag("identity"));
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals(304, context.response().getStatus());
+    assertEquals(cachedPageOutput.getEtag("identity"), context.response().getHeader("ETag"));
+    assertEquals(0, context.response().getOutput().length);
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndEtagDoesNotMatch()
+      throws IOException, CacheRetrievalException {
+    final CachedPageOutput cachedPageOutput = new CachedPageOutput("<p>cachedOutput</p>");
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(cachedPageOutput);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+    context.request().addHeader("If-None-Match", "\"outdated\"");
+    context.request().addDateHeader("If-Modified-Since",
+        cachedPageOutput.getCreated() + 60000);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals(200, context.response().getStatus());
+    assertEquals("<p>cachedOutput</p>", context.response().getOutputAsString());
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndNotModifiedSince()
+      throws IOException, CacheRetrievalException {
+    final CachedPageOutput cachedPageOutput = new CachedPageOutput("<p>cachedOutput</p>", false,
+        1577836800000L);
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(cachedPageOutput);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+    context.request().addDateHeader("If-Modified-Since", 1577836800000L);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
+    assertEquals(304, context.response().getStatus());
+  }
+
+  @Test
+  public void testDoRenderWhenPageIsCachedAndModifiedSince()
+      throws IOException, CacheRetrievalException {
+    final CachedPageOutput cachedPageOutput = new CachedPageOutput("<p>cachedOutput</p>", false,
+        1577836800000L);
+
+    doReturn(generalPageCacheService).when(pageRenderMethod).getPageCacheService();
+    when(generalPageCacheService.getCachedPageOutput(any(), any())).thenReturn(cachedPageOutput);
+
+    resource = context.create().resource("/page", pageProperties);
+    context.create().resource("/page/jcr:content", pageJcrContentProperties);
+    context.request().setResource(resource);
+    context.request().addDateHeader("If-Modified-Since", 1577836800000L - 60000);
+
+    pageRenderMethod.doRender(context.request(), context.response());
+
     assertEquals(200, context.response().getStatus());
-    assertEquals("text/html", context.response().getContentType());
+    assertEquals("<p>cachedOutput</p>", context.response().getOutputAsString());
   }
 
   @Test
@@ -0,0 +1,134 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagerendermethod.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageOutputTeeStreamTest {
+
+  private HttpServletResponse response;
+
+  private ByteArrayOutputStream clientOutput;
+
+  private PageOutputTeeStream teeStream;
+
+  @Before
+  public void setUp() throws Exception {
+    response = mock(HttpServletResponse.class);
+    clientOutput = new ByteArrayOutputStream();
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(final int b) {
+        clientOutput.write(b);
+      }
+
+      public boolean isReady() {
+        return true;
+      }
+
+      public void setWriteListener(final WriteListener writeListener) {
+      }
+    });
+  }
+
+  @Test
+  public void testFinishWhenOutputIsBuffered() throws IOException {
+    teeStream = new PageOutputTeeStream(response, 1024);
+    teeStream.write("<p>\u00fc</p>".getBytes(StandardCharsets.UTF_8));
+    teeStream.flush();
+
+    assertEquals(0, clientOutput.size());
+    assertFalse(teeStream.isStreaming());
+
+    teeStream.finish();
+
+    verify(response, times(1)).setContentLength(9);
+    assertEquals("<p>\u00fc</p>", new String(clientOutput.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals("<p>\u00fc</p>", teeStream.getCapturedContent());
+    assertArrayEquals("<p>\u00fc</p>".getBytes(StandardCharsets.UTF_8),
+        teeStream.getCapturedBytes());
+    assertEquals(9, teeStream.getSize());
+  }
+
+  @Test
+  public void testWriteWhenOutputExceedsMaximumBufferedSize() throws IOException {
+    teeStream = new PageOutputTeeStream(response, 4);
+    teeStream.write("<p>".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(0, clientOutput.size());
+
+    teeStream.write("output</p>".getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(teeStream.isStreaming());
+    assertEquals("<p>output</p>", clientOutput.toString("UTF-8"));
+
+    teeStream.write('!');
+    teeStream.finish();
+
+    verify(response, never()).setContentLength(anyInt());
+    assertEquals("<p>output</p>!", clientOutput.toString("UTF-8"));
+    assertEquals("<p>output</p>!", teeStream.getCapturedContent());
+  }
+
+  @Test
+  public void testWriteWhenFinished() throws IOException {
+    teeStream = new PageOutputTeeStream(response, 1024);
+    teeStream.write("<p>output</p>".getBytes(StandardCharsets.UTF_8));
+    teeStream.finish();
+    teeStream.write('!');
+    teeStream.finish();
+
+    verify(response, times(1)).setContentLength(13);
+    assertEquals("<p>output</p>", clientOutput.toString("UTF-8"));
+  }
+
+  @Test
+  public void testFinishWhenCaptureOnly() throws IOException {
+    teeStream = new PageOutputTeeStream(null, 4);
+    teeStream.write("<p>output</p>".getBytes(StandardCharsets.UTF_8));
+    teeStream.finish();
+
+    assertFalse(teeStream.isStreaming());
+    assertEquals("<p>output</p>", teeStream.getCapturedContent());
+  }
+
+  @Test
+  public void testIsReady() {
+    teeStream = new PageOutputTeeStream(response, 1024);
+    assertTrue(teeStream.isReady());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.pagerendermethod.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageRenderCoalescerTest {
+
+  private PageRenderCoalescer coalescer;
+
+  @Before
+  public void setUp() throws Exception {
+    coalescer = new PageRenderCoalescer();
+  }
+
+  @Test
+  public void testJoin() {
+    assertNull(coalescer.join("/content/page"));
+    final CountDownLatch inFlightRender = coalescer.join("/content/page");
+    assertNotNull(inFlightRender);
+    assertSame(inFlightRender, coalescer.join("/content/page"));
+    assertNull(coalescer.join("/content/other-page"));
+    assertEquals(2, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void testComplete() {
+    coalescer.join("/content/page");
+    final CountDownLatch inFlightRender = coalescer.join("/content/page");
+
+    coalescer.complete("/content/page");
+
+    assertEquals(0, inFlightRender.getCount());
+    assertEquals(0, coalescer.getInFlightCount());
+    assertNull(coalescer.join("/content/page"));
+  }
+
+  @Test
+  public void testCompleteWhenNotInFlight() {
+    coalescer.complete("/content/page");
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void testAwait() throws InterruptedException {
+    coalescer.join("/content/page");
+    final CountDownLatch inFlightRender = coalescer.join("/content/page");
+
+    final Thread renderThread = new Thread(() -> coalescer.complete("/content/page"));
+    renderThread.start();
+
+    assertTrue(coalescer.await(inFlightRender, 5000));
+    renderThread.join();
+  }
+
+  @Test
+  public void testAwaitWhenTimedOut() {
+    coalescer.join("/content/page");
+    final CountDownLatch inFlightRender = coalescer.join("/content/page");
+
+    assertFalse(coalescer.await(inFlightRender, 1));
+    assertEquals(1, coalescer.getInFlightCount());
+  }
+}
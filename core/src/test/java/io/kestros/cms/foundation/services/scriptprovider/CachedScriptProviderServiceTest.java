@@ -0,0 +1,248 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.scriptprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.kestros.cms.foundation.componenttypes.ComponentType;
+import io.kestros.cms.foundation.design.uiframework.UiFramework;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CachedScriptProviderServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private CachedScriptProviderService cacheService;
+
+  private ComponentType componentType;
+
+  private ComponentType superComponentType;
+
+  private UiFramework uiFramework;
+
+  private SlingHttpServletRequest request;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheService = new CachedScriptProviderService();
+    context.registerInjectActivateService(cacheService);
+
+    superComponentType = mock(ComponentType.class);
+    when(superComponentType.getPath()).thenReturn("/libs/parent-component");
+    componentType = mock(ComponentType.class);
+    when(componentType.getPath()).thenReturn("/apps/component");
+    when(componentType.getComponentSuperType()).thenReturn(superComponentType);
+    uiFramework = mock(UiFramework.class);
+    when(uiFramework.getPath()).thenReturn("/etc/ui-frameworks/framework");
+    request = mock(SlingHttpServletRequest.class);
+  }
+
+  @Test
+  public void testGetCachedScriptPath() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/libs/parent-component/framework/content.html", request);
+
+    assertEquals("/libs/parent-component/framework/content.html",
+        cacheService.getCachedScriptPath("content.html", componentType, uiFramework, request));
+    assertEquals(1, cacheService.getHitCount());
+    assertEquals(0, cacheService.getMissCount());
+  }
+
+  @Test
+  public void testGetCachedScriptPathIsSharedAcrossRequests() {
+    when(request.getRequestURI()).thenReturn("/content/page-one.html");
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/apps/component/framework/content.html", request);
+
+    final SlingHttpServletRequest otherRequest = mock(SlingHttpServletRequest.class);
+    when(otherRequest.getRequestURI()).thenReturn("/content/page-two.html");
+
+    assertEquals("/apps/component/framework/content.html",
+        cacheService.getCachedScriptPath("content.html", componentType, uiFramework,
+            otherRequest));
+    assertEquals(1, cacheService.getSize());
+  }
+
+  @Test
+  public void testGetCachedScriptPathWhenUiFrameworkIsNull() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, null,
+        "/apps/component/common/content.html", request);
+
+    assertEquals("/apps/component/common/content.html",
+        cacheService.getCachedScriptPath("content.html", componentType, null, request));
+  }
+
+  @Test
+  public void testGetCachedScriptPathWhenNotCached() {
+    assertNull(cacheService.getCachedScriptPath("content.html", componentType, uiFramework,
+        request));
+    assertEquals(0, cacheService.getHitCount());
+    assertEquals(1, cacheService.getMissCount());
+  }
+
+  @Test
+  public void testCacheMissingScript() {
+    cacheService.cacheMissingScript("missing.html", componentType, uiFramework);
+
+    assertTrue(cacheService.isScriptMissing("missing.html", componentType, uiFramework));
+    assertFalse(cacheService.isScriptMissing("missing.html", componentType, null));
+    assertEquals(1, cacheService.getHitCount());
+    assertNull(cacheService.getCachedScriptPath("missing.html", componentType, uiFramework,
+        request));
+  }
+
+  @Test
+  public void testIsScriptMissingWhenScriptIsResolved() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/apps/component/framework/content.html", request);
+
+    assertFalse(cacheService.isScriptMissing("content.html", componentType, uiFramework));
+  }
+
+  @Test
+  public void testPurgeComponentTypeWhenScriptIsAddedForMissingScript() {
+    cacheService.cacheMissingScript("missing.html", componentType, uiFramework);
+
+    cacheService.purgeComponentType("/apps/component/framework/missing.html");
+
+    assertFalse(cacheService.isScriptMissing("missing.html", componentType, uiFramework));
+    assertEquals(0, cacheService.getSize());
+  }
+
+  @Test
+  public void testCacheComponentViewScriptPathEvictsOldestEntries() {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("maximumSize", 2);
+    cacheService = new CachedScriptProviderService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    cacheService.cacheComponentViewScriptPath("one.html", componentType, uiFramework,
+        "/apps/component/framework/one.html", request);
+    cacheService.cacheComponentViewScriptPath("two.html", componentType, uiFramework,
+        "/apps/component/framework/two.html", request);
+    cacheService.cacheComponentViewScriptPath("three.html", componentType, uiFramework,
+        "/apps/component/framework/three.html", request);
+
+    assertEquals(2, cacheService.getMaximumSize());
+    assertEquals(2, cacheService.getSize());
+    assertNull(cacheService.getCachedScriptPath("one.html", componentType, uiFramework, request));
+  }
+
+  @Test
+  public void testCacheComponentViewScriptPathEvictsLeastRecentlyUsedEntries()
+      {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("maximumSize", 2);
+    cacheService = new CachedScriptProviderService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    cacheService.cacheComponentViewScriptPath("one.html", componentType, uiFramework,
+        "/apps/component/framework/one.html", request);
+    cacheService.cacheComponentViewScriptPath("two.html", componentType, uiFramework,
+        "/apps/component/framework/two.html", request);
+    cacheService.getCachedScriptPath("one.html", componentType, uiFramework, request);
+    cacheService.cacheComponentViewScriptPath("three.html", componentType, uiFramework,
+        "/apps/component/framework/three.html", request);
+
+    assertEquals(2, cacheService.getSize());
+    assertEquals("/apps/component/framework/one.html",
+        cacheService.getCachedScriptPath("one.html", componentType, uiFramework, request));
+    assertNull(cacheService.getCachedScriptPath("two.html", componentType, uiFramework, request));
+  }
+
+  @Test
+  public void testCacheComponentViewScriptPathEvictsInBatches() {
+    final Map<String, Object> configuration = new HashMap<>();
+    configuration.put("maximumSize", 20);
+    cacheService = new CachedScriptProviderService();
+    context.registerInjectActivateService(cacheService, configuration);
+
+    for (int i = 0; i < 21; i++) {
+      cacheService.cacheComponentViewScriptPath(i + ".html", componentType, uiFramework,
+          "/apps/component/framework/" + i + ".html", request);
+    }
+
+    assertEquals(18, cacheService.getSize());
+    assertNull(cacheService.getCachedScriptPath("2.html", componentType, uiFramework, request));
+    assertEquals("/apps/component/framework/3.html",
+        cacheService.getCachedScriptPath("3.html", componentType, uiFramework, request));
+  }
+
+  @Test
+  public void testPurgeComponentType() {
+    final ComponentType otherComponentType = mock(ComponentType.class);
+    when(otherComponentType.getPath()).thenReturn("/apps/other-component");
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/apps/component/framework/content.html", request);
+    cacheService.cacheComponentViewScriptPath("content.html", otherComponentType, uiFramework,
+        "/apps/other-component/framework/content.html", request);
+
+    cacheService.purgeComponentType("/apps/component/framework/content.html");
+
+    assertEquals(1, cacheService.getSize());
+  }
+
+  @Test
+  public void testPurgeComponentTypeWhenSuperTypeOverlayChanges() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/libs/parent-component/framework/content.html", request);
+
+    cacheService.purgeComponentType("/apps/parent-component/framework/content.html");
+
+    assertEquals(0, cacheService.getSize());
+  }
+
+  @Test
+  public void testPurgeComponentTypeWhenUiFrameworkChanges() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/apps/component/framework/content.html", request);
+
+    cacheService.purgeComponentType("/etc/ui-frameworks/framework/jcr:content");
+
+    assertEquals(0, cacheService.getSize());
+  }
+
+  @Test
+  public void testPurgeComponentTypeWhenUnrelatedPathChanges() {
+    cacheService.cacheComponentViewScriptPath("content.html", componentType, uiFramework,
+        "/apps/component/framework/content.html", request);
+
+    cacheService.purgeComponentType("/apps/component-two");
+
+    assertEquals(1, cacheService.getSize());
+  }
+
+  @Test
+  public void testGetDisplayName() {
+    assertEquals("Component Script Resolution Cache", cacheService.getDisplayName());
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package io.kestros.cms.foundation.services.scriptresolutiontable.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseScriptResolutionTableServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseScriptResolutionTableService tableService;
+
+  private Map<String, Object> componentProperties = new HashMap<>();
+  private Map<String, Object> viewProperties = new HashMap<>();
+  private Map<String, Object> frameworkProperties = new HashMap<>();
+  private Map<String, Object> fileProperties = new HashMap<>();
+  private Map<String, Object> fileJcrContentProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    componentProperties.put("jcr:primaryType", "kes:ComponentType");
+    viewProperties.put("jcr:primaryType", "nt:folder");
+    frameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    frameworkProperties.put("sling:resourceType", "kestros/cms/ui-framework");
+    frameworkProperties.put("frameworkCode", "framework");
+    fileProperties.put("jcr:primaryType", "nt:file");
+    fileJcrContentProperties.put("jcr:mimeType", "text/html");
+
+    context.create().resource("/apps");
+    context.create().resource("/libs");
+    context.create().resource("/etc/ui-frameworks/framework", frameworkProperties);
+
+    tableService = new BaseScriptResolutionTableService();
+    context.registerInjectActivateService(tableService);
+  }
+
+  @Test
+  public void testBuildTable() {
+    context.create().resource("/apps/component", componentProperties);
+    createScript("/apps/component/framework/content.html");
+    createScript("/apps/component/common/content.html");
+
+    final Map<String, String> table = tableService.buildTable(context.resourceResolver());
+
+    assertEquals("/apps/component/framework/content.html",
+        table.get("/etc/ui-frameworks/framework::/apps/component::content.html"));
+    assertEquals("/apps/component/common/content.html",
+        table.get("::/apps/component::content.html"));
+  }
+
+  @Test
+  public void testBuildTableWhenScriptIsOnlyInCommonView() {
+    context.create().resource("/apps/component", componentProperties);
+    context.create().resource("/apps/component/framework", viewProperties);
+    createScript("/apps/component/common/other.html");
+
+    final Map<String, String> table = tableService.buildTable(context.resourceResolver());
+
+    assertEquals("/apps/component/common/other.html",
+        table.get("/etc/ui-frameworks/framework::/apps/component::other.html"));
+  }
+
+  @Test
+  public void testBuildTableWhenScriptIsInheritedFromSuperType() {
+    context.create().resource("/apps/supertype", componentProperties);
+    createScript("/apps/supertype/framework/content.html");
+    componentProperties.put("sling:resourceSuperType", "/apps/supertype");
+    context.create().resource("/apps/component", componentProperties);
+    context.create().resource("/apps/component/framework", viewProperties);
+
+    final Map<String, String> table = tableService.buildTable(context.resourceResolver());
+
+    assertEquals("/apps/supertype/framework/content.html",
+        table.get("/etc/ui-frameworks/framework::/apps/component::content.html"));
+  }
+
+  @Test
+  public void testBuildTableWhenScriptCannotBeResolved() {
+    context.create().resource("/apps/component", componentProperties);
+    createScript("/apps/component/other-framework/content.html");
+
+    final Map<String, String> table = tableService.buildTable(context.resourceResolver());
+
+    assertNull(table.get("/etc/ui-frameworks/framework::/apps/component::content.html"));
+  }
+
+  @Test
+  public void testGetScriptPathWhenNotBuilt() {
+    tableService.rebuild();
+
+    assertFalse(tableService.isBuilt());
+    assertEquals(0, tableService.getSize());
+    assertNull(tableService.getScriptPath("/apps/component", "/etc/ui-frameworks/framework",
+        "content.html"));
+  }
+
+  @Test
+  public void testRebuildServesPreviousTable() throws InterruptedException {
+    context.create().resource("/apps/component", componentProperties);
+    createScript("/apps/component/common/content.html");
+    final ResourceResolver resourceResolver = spy(context.resourceResolver());
+    doNothing().when(resourceResolver).close();
+    tableService = spy(new BaseScriptResolutionTableService());
+    doReturn(resourceResolver).when(tableService).getServiceResourceResolver();
+    context.registerInjectActivateService(tableService);
+    awaitBuilt();
+
+    tableService.rebuild();
+
+    assertTrue(tableService.isBuilt());
+    assertEquals("/apps/component/common/content.html",
+        tableService.getScriptPath("/apps/component", null, "content.html"));
+  }
+
+  private void awaitBuilt() throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + 5000;
+    while (!tableService.isBuilt() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void createScript(final String path) {
+    context.create().resource(path, fileProperties);
+    context.create().resource(path + "/jcr:content", fileJcrContentProperties);
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *      Copyright (C) 2020  Kestros, Inc.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package io.kestros.cms.foundation.services.uiframeworkregistry.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BaseUiFrameworkRegistryServiceTest {
+
+  @Rule
+  public SlingContext context = new SlingContext();
+
+  private BaseUiFrameworkRegistryService registryService;
+
+  private ResourceResolver serviceResourceResolver;
+
+  private Map<String, Object> etcFrameworkProperties = new HashMap<>();
+  private Map<String, Object> libsFrameworkProperties = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    context.addModelsForPackage("io.kestros");
+    context.registerService(ResourceResolverFactory.class, mock(ResourceResolverFactory.class));
+
+    etcFrameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    etcFrameworkProperties.put("kes:uiFrameworkCode", "framework");
+    libsFrameworkProperties.put("jcr:primaryType", "kes:UiFramework");
+    libsFrameworkProperties.put("kes:uiFrameworkCode", "framework");
+
+    context.create().resource("/etc/ui-frameworks/etc-framework", etcFrameworkProperties);
+    context.create().resource("/libs/kestros/ui-frameworks/etc-framework",
+        libsFrameworkProperties);
+    libsFrameworkProperties.put("kes:uiFrameworkCode", "libs-code");
+    context.create().resource("/libs/kestros/ui-frameworks/libs-framework",
+        libsFrameworkProperties);
+
+    serviceResourceResolver = spy(context.resourceResolver());
+    doNothing().when(serviceResourceResolver).close();
+
+    registryService = new BaseUiFrameworkRegistryService() {
+      @Override
+      protected ResourceResolver getServiceResourceResolver() {
+        return serviceResourceResolver;
+      }
+    };
+    context.registerInjectActivateService(registryService);
+  }
+
+  @Test
+  public void testIsBuilt() {
+    assertTrue(registryService.isBuilt());
+    assertEquals(3, registryService.getSize());
+  }
+
+  @Test
+  public void testIsBuiltWhenServiceResourceResolverCannotBeOpened() {
+    registryService = new BaseUiFrameworkRegistryService();
+    context.registerInjectActivateService(registryService);
+
+    assertFalse(registryService.isBuilt());
+    assertEquals(0, registryService.getSize());
+  }
+
+  @Test
+  public void testGetDescriptors() {
+    assertEquals("/etc/ui-frameworks/etc-framework",
+        registryService.getDescriptors().get(0).getPath());
+    assertFalse(registryService.getDescriptors().get(0).isLibs());
+    assertTrue(registryService.getDescriptors().get(1).isLibs());
+  }
+
+  @Test
+  public void testGetDescriptorByFrameworkCode() {
+    assertEquals("/etc/ui-frameworks/etc-framework",
+        registryService.getDescriptorByFrameworkCode("framework", true, true).getPath());
+    assertEquals("/libs/kestros/ui-frameworks/etc-framework",
+        registryService.getDescriptorByFrameworkCode("framework", false, true).getPath());
+    assertEquals("/libs/kestros/ui-frameworks/libs-framework",
+        registryService.getDescriptorByFrameworkCode("libs-code", true, true).getPath());
+  }
+
+  @Test
+  public void testGetDescriptorByFrameworkCodeWhenExcluded() {
+    assertNull(registryService.getDescriptorByFrameworkCode("libs-code", true, false));
+    assertNull(registryService.getDescriptorByFrameworkCode("missing", true, true));
+  }
+
+  @Test
+  public void testGetDescriptorByName() {
+    assertEquals("/etc/ui-frameworks/etc-framework",
+        registryService.getDescriptorByName("etc-framework", true, true).getPath());
+    assertEquals("/libs/kestros/ui-frameworks/etc-framework",
+        registryService.getDescriptorByName("etc-framework", false, true).getPath());
+    assertNull(registryService.getDescriptorByName("missing", true, true));
+  }
+
+  @Test
+  public void testGetDescriptorByPath() {
+    assertEquals("libs-code", registryService.getDescriptorByPath(
+        "/libs/kestros/ui-frameworks/libs-framework").getFrameworkCode());
+    assertNull(registryService.getDescriptorByPath("/etc/ui-frameworks/missing"));
+  }
+
+  @Test
+  public void testGetUiFrameworkByFrameworkCode() {
+    assertEquals("/etc/ui-frameworks/etc-framework",
+        registryService.getUiFrameworkByFrameworkCode("framework", true, true,
+            context.resourceResolver()).getPath());
+    assertNull(registryService.getUiFrameworkByFrameworkCode("missing", true, true,
+        context.resourceResolver()));
+  }
+
+  @Test
+  public void testGetUiFrameworkByFrameworkCodeWhenResourceIsNotReadable()
+      throws Exception {
+    context.resourceResolver().delete(
+        context.resourceResolver().getResource("/etc/ui-frameworks/etc-framework"));
+
+    assertNull(registryService.getUiFrameworkByFrameworkCode("framework", true, false,
+        context.resourceResolver()));
+  }
+
+  @Test
+  public void testRebuild() {
+    etcFrameworkProperties.put("kes:uiFrameworkCode", "new-code");
+    context.create().resource("/etc/ui-frameworks/new-framework", etcFrameworkProperties);
+
+    assertNull(registryService.getDescriptorByFrameworkCode("new-code", true, true));
+
+    registryService.rebuild();
+
+    assertEquals(4, registryService.getSize());
+    assertEquals("/etc/ui-frameworks/new-framework",
+        registryService.getDescriptorByFrameworkCode("new-code", true, true).getPath());
+  }
+
+}
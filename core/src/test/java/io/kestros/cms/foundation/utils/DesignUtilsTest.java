@@ -19,6 +19,7 @@
 package io.kestros.cms.foundation.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import io.kestros.cms.foundation.componenttypes.ComponentType;
 import io.kestros.cms.foundation.design.uiframework.UiFramework;
@@ -523,4 +524,25 @@ public class DesignUtilsTest {
     assertEquals("Unable to adapt 'framework' under '/apps/component-type': Child not found.",
         exception.getMessage());
   }
+
+  @Test
+  public void testFindComponentUiFrameworkView() {
+    resource = context.create().resource("/apps/component-type", componentTypeProperties);
+    context.create().resource("/libs/component-type/framework", componentTypeProperties);
+
+    ComponentType componentType = resource.adaptTo(ComponentType.class);
+
+    assertEquals("/libs/component-type/framework",
+        DesignUtils.findComponentUiFrameworkView("framework", componentType).getPath());
+  }
+
+  @Test
+  public void testFindComponentUiFrameworkViewWhenDoesNotExist() {
+    resource = context.create().resource("/apps/component-type", componentTypeProperties);
+
+    ComponentType componentType = resource.adaptTo(ComponentType.class);
+
+    assertNull(DesignUtils.findComponentUiFrameworkView("framework", componentType));
+    assertNull(DesignUtils.findComponentUiFrameworkView("", componentType));
+  }
 }
\ No newline at end of file